@@ -4,6 +4,7 @@
  */
 package brave.internal;
 
+import brave.IdGenerator;
 import brave.test.util.ClassLoaders;
 import org.junit.jupiter.api.Test;
 
@@ -40,7 +41,7 @@ class PlatformClassLoaderTest {
   static class GetPlatformNextTraceIdHigh implements Runnable {
     @Override public void run() {
       Platform platform = Platform.get();
-      assertThat(platform.nextTraceIdHigh()).isNotZero();
+      assertThat(IdGenerator.random().nextTraceIdHigh(platform.clock())).isNotZero();
     }
   }
 
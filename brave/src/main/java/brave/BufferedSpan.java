@@ -0,0 +1,178 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave;
+
+import brave.handler.MutableSpan;
+import brave.internal.recorder.PendingSpans;
+import brave.propagation.TraceContext;
+
+/**
+ * This is the view of a {@link RealSpan} passed to a {@link SpanUpdater}. It writes to a local
+ * {@link MutableSpan}, which is {@linkplain #apply() applied} to the real span in one critical
+ * section once the updater returns. This keeps user code, such as parsers, outside the lock.
+ *
+ * <p>An updater could keep this or its {@link #customizer()}, for example in a request attribute.
+ * Writes from outside the update, or from another thread, go through the guarded {@link RealSpan}
+ * instead, so they can't be lost or race with finishing or reporting the span.
+ */
+final class BufferedSpan extends Span {
+  final RealSpan delegate;
+  final MutableSpan buffer = new MutableSpan();
+  final Clock clock;
+  SpanCustomizer customizer; // lazily initialized, as not all updaters use it
+  // Only the thread calling the updater writes to the buffer. Cleared when it is applied.
+  Thread updater = Thread.currentThread();
+
+  BufferedSpan(RealSpan delegate) {
+    this.delegate = delegate;
+    this.clock = delegate.clock;
+  }
+
+  boolean isUpdating() {
+    return updater == Thread.currentThread();
+  }
+
+  @Override public boolean isNoop() {
+    return false;
+  }
+
+  @Override public TraceContext context() {
+    return delegate.context;
+  }
+
+  @Override public SpanCustomizer customizer() {
+    SpanCustomizer result = customizer;
+    if (result == null) customizer = result = new SpanCustomizerShield(this);
+    return result;
+  }
+
+  @Override public Span start() {
+    return start(clock.currentTimeMicroseconds());
+  }
+
+  @Override public Span start(long timestamp) {
+    if (!isUpdating()) return delegate.start(timestamp);
+    buffer.startTimestamp(timestamp);
+    return this;
+  }
+
+  @Override public Span name(String name) {
+    if (!isUpdating()) return delegate.name(name);
+    buffer.name(name);
+    return this;
+  }
+
+  @Override public Span kind(Kind kind) {
+    if (!isUpdating()) return delegate.kind(kind);
+    buffer.kind(kind);
+    return this;
+  }
+
+  @Override public Span annotate(String value) {
+    return annotate(clock.currentTimeMicroseconds(), value);
+  }
+
+  @Override public Span annotate(long timestamp, String value) {
+    if (!isUpdating()) return delegate.annotate(timestamp, value);
+    if (value != null && value.length() == 2) { // leniently handle "cs", "sr", "cr" and "ss"
+      delegate.annotate(timestamp, value); // applied now, as it can finish the span
+    } else {
+      buffer.annotate(timestamp, value);
+    }
+    return this;
+  }
+
+  @Override public Span tag(String key, String value) {
+    if (!isUpdating()) return delegate.tag(key, value);
+    buffer.tag(key, value);
+    return this;
+  }
+
+  @Override public Span error(Throwable throwable) {
+    if (!isUpdating()) return delegate.error(throwable);
+    buffer.error(throwable);
+    return this;
+  }
+
+  @Override public Span remoteServiceName(String remoteServiceName) {
+    if (!isUpdating()) return delegate.remoteServiceName(remoteServiceName);
+    buffer.remoteServiceName(remoteServiceName);
+    return this;
+  }
+
+  @Override public boolean remoteIpAndPort(String remoteIp, int remotePort) {
+    if (!isUpdating()) return delegate.remoteIpAndPort(remoteIp, remotePort);
+    return buffer.remoteIpAndPort(remoteIp, remotePort);
+  }
+
+  @Override public <T> Span update(T input, SpanUpdater<T> updater) {
+    if (updater == null) throw new NullPointerException("updater == null");
+    if (!isUpdating()) return delegate.update(input, updater);
+    updater.update(input, this);
+    return this;
+  }
+
+  /** Applies what the updater wrote, and routes any later writes to the guarded span. */
+  void apply() {
+    updater = null;
+    MutableSpan state = delegate.state;
+    PendingSpans pendingSpans = delegate.pendingSpans;
+    synchronized (state) {
+      if (buffer.startTimestamp() != 0L) state.startTimestamp(buffer.startTimestamp());
+      if (buffer.name() != null) state.name(pendingSpans.intern(buffer.name()));
+      if (buffer.kind() != null) state.kind(buffer.kind());
+      if (buffer.remoteServiceName() != null) {
+        state.remoteServiceName(pendingSpans.intern(buffer.remoteServiceName()));
+      }
+      if (buffer.remoteIp() != null) state.remoteIp(buffer.remoteIp());
+      if (buffer.remotePort() != 0) state.remotePort(buffer.remotePort());
+      if (buffer.error() != null) state.error(buffer.error());
+      buffer.forEachAnnotation(ANNOTATE, state);
+      buffer.forEachTag(TAG, delegate);
+    }
+  }
+
+  static final MutableSpan.AnnotationConsumer<MutableSpan> ANNOTATE =
+    new MutableSpan.AnnotationConsumer<MutableSpan>() {
+      @Override public void accept(MutableSpan target, long timestamp, String value) {
+        target.annotate(timestamp, value);
+      }
+    };
+
+  static final MutableSpan.TagConsumer<RealSpan> TAG = new MutableSpan.TagConsumer<RealSpan>() {
+    @Override public void accept(RealSpan target, String key, String value) {
+      target.state.tag(target.pendingSpans.intern(key), value); // caller holds the lock
+    }
+  };
+
+  @Override public void finish() {
+    delegate.finish();
+  }
+
+  @Override public void finish(long timestamp) {
+    delegate.finish(timestamp);
+  }
+
+  @Override public void abandon() {
+    delegate.abandon();
+  }
+
+  @Override public void flush() {
+    delegate.flush();
+  }
+
+  @Override public String toString() {
+    return delegate.toString();
+  }
+
+  @Override public boolean equals(Object o) {
+    if (o == this) return true;
+    return RealSpan.isEqualToRealOrLazySpan(delegate.context, o);
+  }
+
+  @Override public int hashCode() {
+    return delegate.context.hashCode();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave;
+
+import brave.internal.Platform;
+
+/**
+ * Generates IDs for new spans and traces. Configure this with {@link
+ * Tracing.Builder#idGenerator(IdGenerator)}.
+ *
+ * <p>Implementations must be thread-safe. They should also be fast and avoid contention, as they
+ * are called for each new span.
+ *
+ * @see Tracing.Builder#traceId128Bit(boolean)
+ * @since 6.4
+ */
+public abstract class IdGenerator {
+  /**
+   * Returns the default, which uses {@link java.util.concurrent.ThreadLocalRandom} on Java 7+. On
+   * Java 8+, it keeps independent SplitMix64 state for each thread, so there is no contention.
+   *
+   * <p>The upper 32 bits of {@link #nextTraceIdHigh(Clock) 128-bit trace IDs} are epoch seconds,
+   * and the lower 32 bits are random. This makes them time-ordered per second, and convertible to
+   * <a href="https://docs.aws.amazon.com/xray/latest/devguide/xray-api-sendingdata.html#xray-api-traceids">Amazon
+   * X-Ray trace ID format v1</a>.
+   *
+   * @since 6.4
+   */
+  public static IdGenerator random() {
+    return RandomIdGenerator.INSTANCE;
+  }
+
+  /**
+   * Returns a 64-bit ID for a new span, which is also the lower 64 bits of a new trace ID. Zero is
+   * not a valid ID, so the caller retries on zero.
+   *
+   * @since 6.4
+   */
+  public abstract long nextId();
+
+  /**
+   * Returns the upper 64 bits of a new {@link Tracing.Builder#traceId128Bit(boolean) 128-bit trace
+   * ID}.
+   *
+   * @param clock the {@link Tracing.Builder#clock(Clock) tracing clock}, for implementations that
+   * embed a timestamp. When {@link Tracing.Builder#coarseClock coarse}, reading it is only a memory
+   * read, as opposed to a read of the system time.
+   * @since 6.4
+   */
+  public abstract long nextTraceIdHigh(Clock clock);
+
+  protected IdGenerator() {
+  }
+
+  static final class RandomIdGenerator extends IdGenerator {
+    static final IdGenerator INSTANCE = new RandomIdGenerator();
+
+    @Override public long nextId() {
+      return Platform.get().randomLong();
+    }
+
+    @Override public long nextTraceIdHigh(Clock clock) {
+      int random = (int) Platform.get().randomLong();
+      return Platform.nextTraceIdHigh(clock.currentTimeMicroseconds(), random);
+    }
+
+    @Override public String toString() {
+      return "RandomIdGenerator{}";
+    }
+  }
+}
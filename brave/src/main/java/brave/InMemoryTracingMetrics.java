@@ -0,0 +1,170 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave;
+
+import brave.handler.SpanHandler;
+import brave.handler.SpanHandler.Cause;
+import brave.internal.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps {@linkplain TracingMetrics tracing metrics} as counters in memory, for tests, benchmarks
+ * or exporting to a metrics library via gauges.
+ *
+ * <p>Counters are atomic longs, so updates from many threads contend. Measure before using this
+ * on a busy service, or implement {@link TracingMetrics} with a metrics library instead.
+ *
+ * @since 6.4
+ */
+public final class InMemoryTracingMetrics extends TracingMetrics {
+  /** @since 6.4 */
+  public static InMemoryTracingMetrics create() {
+    return new InMemoryTracingMetrics();
+  }
+
+  static final Cause[] CAUSES = Cause.values();
+
+  final AtomicLong spansStarted = new AtomicLong();
+  final AtomicLongArray spansEnded = new AtomicLongArray(CAUSES.length);
+  // Keyed by instance, as there are few samplers and span handlers per tracing component.
+  final ConcurrentMap<Object, AtomicLongArray> decisions =
+    new ConcurrentHashMap<Object, AtomicLongArray>();
+  final ConcurrentMap<SpanHandler, AtomicLongArray> handlers =
+    new ConcurrentHashMap<SpanHandler, AtomicLongArray>();
+
+  static final int SAMPLED = 0, UNSAMPLED = 1;
+  static final int CALLS = 0, NANOS = 1, ERRORS = 2;
+
+  InMemoryTracingMetrics() {
+  }
+
+  /**
+   * Returns the count of recorded spans started.
+   *
+   * @since 6.4
+   */
+  public long spansStarted() {
+    return spansStarted.get();
+  }
+
+  /**
+   * Returns the count of recorded spans that ended for the given cause.
+   *
+   * @since 6.4
+   */
+  public long spansEnded(Cause cause) {
+    if (cause == null) throw new NullPointerException("cause == null");
+    return spansEnded.get(cause.ordinal());
+  }
+
+  /**
+   * Returns the count of decisions to sample by the given {@link brave.sampler.Sampler} or {@link
+   * brave.sampler.SamplerFunction}.
+   *
+   * @since 6.4
+   */
+  public long sampledCount(Object sampler) {
+    if (sampler == null) throw new NullPointerException("sampler == null");
+    return get(decisions, sampler, SAMPLED);
+  }
+
+  /**
+   * Returns the count of decisions not to sample by the given {@link brave.sampler.Sampler} or
+   * {@link brave.sampler.SamplerFunction}.
+   *
+   * @since 6.4
+   */
+  public long unsampledCount(Object sampler) {
+    if (sampler == null) throw new NullPointerException("sampler == null");
+    return get(decisions, sampler, UNSAMPLED);
+  }
+
+  /**
+   * Returns the count of calls to {@link SpanHandler#begin} and {@link SpanHandler#end} of the
+   * given handler.
+   *
+   * @since 6.4
+   */
+  public long handlerCalls(SpanHandler handler) {
+    if (handler == null) throw new NullPointerException("handler == null");
+    return get(handlers, handler, CALLS);
+  }
+
+  /**
+   * Returns the total nanoseconds spent in {@linkplain #handlerCalls(SpanHandler) calls} to the
+   * given handler.
+   *
+   * @since 6.4
+   */
+  public long handlerNanos(SpanHandler handler) {
+    if (handler == null) throw new NullPointerException("handler == null");
+    return get(handlers, handler, NANOS);
+  }
+
+  /**
+   * Returns the count of exceptions thrown by the given handler.
+   *
+   * @since 6.4
+   */
+  public long handlerErrors(SpanHandler handler) {
+    if (handler == null) throw new NullPointerException("handler == null");
+    return get(handlers, handler, ERRORS);
+  }
+
+  /**
+   * Resets all counters to zero.
+   *
+   * @since 6.4
+   */
+  public void clear() {
+    spansStarted.set(0L);
+    for (int i = 0; i < CAUSES.length; i++) spansEnded.set(i, 0L);
+    decisions.clear();
+    handlers.clear();
+  }
+
+  @Override public void spanStarted() {
+    spansStarted.incrementAndGet();
+  }
+
+  @Override public void spanEnded(Cause cause) {
+    spansEnded.incrementAndGet(cause.ordinal());
+  }
+
+  @Override public void sampled(Object sampler, boolean sampled) {
+    getOrCreate(decisions, sampler, 2).incrementAndGet(sampled ? SAMPLED : UNSAMPLED);
+  }
+
+  @Override
+  public void handlerCalled(SpanHandler handler, @Nullable Cause cause, long durationNanos) {
+    AtomicLongArray counters = getOrCreate(handlers, handler, 3);
+    counters.incrementAndGet(CALLS);
+    counters.addAndGet(NANOS, durationNanos);
+  }
+
+  @Override public void handlerError(SpanHandler handler, Throwable error) {
+    getOrCreate(handlers, handler, 3).incrementAndGet(ERRORS);
+  }
+
+  static <K> long get(ConcurrentMap<K, AtomicLongArray> map, K key, int index) {
+    AtomicLongArray counters = map.get(key);
+    return counters != null ? counters.get(index) : 0L;
+  }
+
+  static <K> AtomicLongArray getOrCreate(ConcurrentMap<K, AtomicLongArray> map, K key, int size) {
+    AtomicLongArray result = map.get(key);
+    if (result != null) return result;
+    result = new AtomicLongArray(size);
+    AtomicLongArray previous = map.putIfAbsent(key, result);
+    return previous != null ? previous : result;
+  }
+
+  @Override public String toString() {
+    return "InMemoryTracingMetrics{spansStarted=" + spansStarted.get() + "}";
+  }
+}
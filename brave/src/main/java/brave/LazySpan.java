@@ -75,6 +75,10 @@ final class LazySpan extends Span {
     return span().remoteIpAndPort(remoteIp, remotePort);
   }
 
+  @Override public <T> Span update(T input, SpanUpdater<T> updater) {
+    return span().update(input, updater);
+  }
+
   @Override public void finish() {
     span().finish();
   }
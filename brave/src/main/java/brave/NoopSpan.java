@@ -67,6 +67,10 @@ final class NoopSpan extends Span {
     return this;
   }
 
+  @Override public <T> Span update(T input, SpanUpdater<T> updater) {
+    return this;
+  }
+
   @Override public void finish() {
   }
 
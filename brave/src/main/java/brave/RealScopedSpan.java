@@ -40,12 +40,12 @@ final class RealScopedSpan extends ScopedSpan {
   }
 
   @Override public ScopedSpan name(String name) {
-    state.name(name);
+    state.name(pendingSpans.intern(name));
     return this;
   }
 
   @Override public ScopedSpan tag(String key, String value) {
-    state.tag(key, value);
+    state.tag(pendingSpans.intern(key), value);
     return this;
   }
 
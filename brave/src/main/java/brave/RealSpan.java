@@ -14,6 +14,8 @@ final class RealSpan extends Span {
   final PendingSpans pendingSpans;
   final MutableSpan state;
   final Clock clock;
+  // Lazily initialized, as most spans don't use this. Races only result in duplicate instances.
+  SpanCustomizer customizer;
 
   RealSpan(TraceContext context,
     PendingSpans pendingSpans,
@@ -35,7 +37,9 @@ final class RealSpan extends Span {
   }
 
   @Override public SpanCustomizer customizer() {
-    return new SpanCustomizerShield(this);
+    SpanCustomizer result = customizer;
+    if (result == null) customizer = result = new SpanCustomizerShield(this);
+    return result;
   }
 
   @Override public Span start() {
@@ -51,7 +55,7 @@ final class RealSpan extends Span {
 
   @Override public Span name(String name) {
     synchronized (state) {
-      state.name(name);
+      state.name(pendingSpans.intern(name));
     }
     return this;
   }
@@ -100,7 +104,7 @@ final class RealSpan extends Span {
 
   @Override public Span tag(String key, String value) {
     synchronized (state) {
-      state.tag(key, value);
+      state.tag(pendingSpans.intern(key), value);
     }
     return this;
   }
@@ -114,7 +118,7 @@ final class RealSpan extends Span {
 
   @Override public Span remoteServiceName(String remoteServiceName) {
     synchronized (state) {
-      state.remoteServiceName(remoteServiceName);
+      state.remoteServiceName(pendingSpans.intern(remoteServiceName));
     }
     return this;
   }
@@ -125,6 +129,18 @@ final class RealSpan extends Span {
     }
   }
 
+  @Override public <T> Span update(T input, SpanUpdater<T> updater) {
+    if (updater == null) throw new NullPointerException("updater == null");
+    // The updater writes to a local buffer, so that parsing happens outside the lock.
+    BufferedSpan span = new BufferedSpan(this);
+    try {
+      updater.update(input, span);
+    } finally {
+      span.apply();
+    }
+    return this;
+  }
+
   @Override public void finish() {
     finish(0L);
   }
@@ -168,6 +168,26 @@ public abstract class Span implements SpanCustomizer {
   // weight for little benefit. If this changes, we can overload it.
   public abstract boolean remoteIpAndPort(@Nullable String remoteIp, int remotePort);
 
+  /**
+   * Calls the updater with a view of this span, applying all of its changes in one critical
+   * section. This is more efficient than calling methods like {@link #tag(String, String)} one at a
+   * time, as each call acquires a lock. The updater itself runs outside that lock.
+   *
+   * <p>The default implementation calls the updater with this span, so changes apply one at a
+   * time. Spans from a {@link Tracer} don't call the updater when {@link #isNoop() no-op}.
+   *
+   * @param input passed to the updater, such as a request, to avoid allocating a capturing lambda
+   * @param updater applies changes to a span that is only valid during the call
+   * @return this span, for chaining
+   * @see SpanUpdater
+   * @since 6.4
+   */
+  public <T> Span update(T input, SpanUpdater<T> updater) {
+    if (updater == null) throw new NullPointerException("updater == null");
+    updater.update(input, this);
+    return this;
+  }
+
   /** Reports the span complete, assigning the most precise duration possible. */
   public abstract void finish();
 
@@ -0,0 +1,55 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave;
+
+import brave.propagation.TraceContext;
+
+/**
+ * Applies a batch of changes to a span via {@link Span#update(Object, SpanUpdater)}.
+ *
+ * <p>A real span guards its state with a lock, which is taken by each call, such as {@link
+ * Span#tag(String, String)}. An updater sees a span that buffers its changes, which are applied
+ * holding the lock once for the whole batch. Instrumentation which sets several fields at the same
+ * time, such as a span kind, remote address and tags parsed from a request, should prefer this.
+ *
+ * <p>Ex.
+ * <pre>{@code
+ * static final SpanUpdater<Request> PARSE_REQUEST = new SpanUpdater<Request>() {
+ *   @Override public void update(Request request, Span span) {
+ *     span.kind(Span.Kind.CLIENT);
+ *     span.remoteIpAndPort(request.remoteIp(), request.remotePort());
+ *     span.tag("method", request.method());
+ *   }
+ * };
+ *
+ * span.update(request, PARSE_REQUEST);
+ * }</pre>
+ *
+ * <h3>Usage notes</h3>
+ * The input parameter allows a shared, stateless updater to be used for all requests. This avoids
+ * allocating a capturing lambda per call.
+ *
+ * <p>The span passed to {@link #update(Object, Span)} is only valid during that call: do not
+ * retain it, or pass it to another thread. The lock isn't held while the updater runs, so parsing
+ * doesn't block other writers. Changes made by a failed update, until the exception was raised,
+ * are kept.
+ *
+ * @param <T> the type of the input, such as a request
+ * @see Span#update(Object, SpanUpdater)
+ * @since 6.4
+ */
+// Java language level 6. Do not add methods as it will break API!
+public interface SpanUpdater<T> {
+  /**
+   * Applies changes to the span, using the given input.
+   *
+   * @param input the input, such as a request. This is not read when the span is {@link
+   * Span#isNoop() no-op}.
+   * @param span the span to update, whose changes are applied once this returns. Use {@link
+   * Span#context()} for any parsing that needs the {@link TraceContext}.
+   * @since 6.4
+   */
+  void update(T input, Span span);
+}
@@ -8,7 +8,6 @@ import brave.handler.MutableSpan;
 import brave.handler.SpanHandler;
 import brave.internal.InternalPropagation;
 import brave.internal.Nullable;
-import brave.internal.Platform;
 import brave.internal.recorder.PendingSpan;
 import brave.internal.recorder.PendingSpans;
 import brave.propagation.CurrentTraceContext;
@@ -25,6 +24,7 @@ import java.io.Closeable;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static brave.internal.InternalPropagation.FLAG_LOCAL_ROOT;
 import static brave.internal.InternalPropagation.FLAG_SAMPLED;
@@ -79,31 +79,49 @@ import static brave.propagation.SamplingFlags.SAMPLED;
 public class Tracer {
   final Propagation.Factory propagationFactory;
   final SpanHandler spanHandler; // only for toString
+  final IdGenerator idGenerator;
+  final Clock clock;
   final PendingSpans pendingSpans;
   final Sampler sampler;
+  final TracingMetrics metrics;
   final CurrentTraceContext currentTraceContext;
-  final boolean traceId128Bit, supportsJoin, alwaysSampleLocal;
+  final boolean traceId128Bit, supportsJoin, alwaysSampleLocal, propagateOnlyUnsampled;
   final AtomicBoolean noop;
+  /**
+   * No-op spans of contexts reused when propagating only, indexed by hash code. This is a cache of
+   * recently used contexts, as opposed to a field in every context.
+   */
+  @Nullable final AtomicReferenceArray<NoopSpan> noopSpans;
 
   Tracer(
     Propagation.Factory propagationFactory,
     SpanHandler spanHandler,
     PendingSpans pendingSpans,
+    IdGenerator idGenerator,
+    Clock clock,
     Sampler sampler,
+    TracingMetrics metrics,
     CurrentTraceContext currentTraceContext,
     boolean traceId128Bit,
     boolean supportsJoin,
     boolean alwaysSampleLocal,
+    boolean propagateOnlyUnsampled,
     AtomicBoolean noop
   ) {
     this.propagationFactory = propagationFactory;
     this.spanHandler = spanHandler;
     this.pendingSpans = pendingSpans;
+    this.idGenerator = idGenerator;
+    this.clock = clock;
     this.sampler = sampler;
+    this.metrics = metrics;
     this.currentTraceContext = currentTraceContext;
     this.traceId128Bit = traceId128Bit;
     this.supportsJoin = supportsJoin;
     this.alwaysSampleLocal = alwaysSampleLocal;
+    // Always sampling local means there are no unsampled spans to skip.
+    this.propagateOnlyUnsampled = propagateOnlyUnsampled && !alwaysSampleLocal;
+    this.noopSpans = this.propagateOnlyUnsampled ? new AtomicReferenceArray<NoopSpan>(64) : null;
     this.noop = noop;
   }
 
@@ -146,17 +164,62 @@ public class Tracer {
    */
   public final Span joinSpan(TraceContext context) {
     if (context == null) throw new NullPointerException("context == null");
-    if (!supportsJoin) return newChild(context);
+    return joinSpan(context, InternalPropagation.instance.flags(context));
+  }
+
+  /**
+   * Like {@link #joinSpan(TraceContext)} when a trace context was extracted, otherwise like {@link
+   * #nextSpan(TraceContextOrSamplingFlags)}. When the extracted sampling decision is absent, the
+   * sampler {@link SamplerFunction#trySample(Object) triggers} against the supplied argument.
+   *
+   * <p>This is the server side of a request, such as HTTP or RPC. Unlike re-creating the
+   * extraction result with {@link TraceContextOrSamplingFlags#sampled(boolean)}, the sampling
+   * decision is applied while creating the span's context, which saves allocations.
+   *
+   * @param samplerFunction invoked if the extracted sampling decision is absent
+   * @param arg parameter to {@link SamplerFunction#trySample(Object)}
+   * @param extracted the result of {@link Extractor#extract(Object)} against the request
+   * @see #nextSpan(SamplerFunction, Object, TraceContextOrSamplingFlags)
+   * @since 6.4
+   */
+  public <T> Span joinSpan(
+    SamplerFunction<T> samplerFunction, T arg, TraceContextOrSamplingFlags extracted) {
+    if (extracted == null) throw new NullPointerException("extracted == null");
+    TraceContext context = extracted.context();
+    if (context == null) return nextSpan(samplerFunction, arg, extracted);
+    return joinSpan(context, sampledFlags(samplerFunction, arg, context));
+  }
+
+  /**
+   * Joins the context, after applying the given flags. The shared flag is ignored, as it is set
+   * here.
+   */
+  Span joinSpan(TraceContext context, int flags) {
+    if (reusesUnsampled(context, flags)) return noopSpan(propagationFactory.decorate(context));
+
+    if (!supportsJoin) {
+      return _toSpan(context, decorateContext(flags, context, context.spanId()));
+    }
 
-    // set shared flag if not already done
-    int flags = InternalPropagation.instance.flags(context);
     if (!context.shared()) {
-      flags |= FLAG_SHARED;
-      return toSpan(context, InternalPropagation.instance.withFlags(context, flags));
-    } else {
-      flags &= ~FLAG_SHARED;
-      return toSpan(InternalPropagation.instance.withFlags(context, flags), context);
+      // Decorate the shared context directly, instead of copying the input with the shared flag
+      // first. _toSpan swaps the result for a pending context, if one exists.
+      return _toSpan(context, decorateContext(
+        flags | FLAG_SHARED,
+        context.traceIdHigh(),
+        context.traceId(),
+        context.localRootId(),
+        context.parentIdAsLong(),
+        context.spanId(),
+        context.extra()
+      ));
+    }
+
+    // The input is already shared, so its parent is an unshared copy.
+    if (flags != InternalPropagation.instance.flags(context)) {
+      context = InternalPropagation.instance.withFlags(context, flags | FLAG_SHARED);
     }
+    return toSpan(InternalPropagation.instance.withFlags(context, flags & ~FLAG_SHARED), context);
   }
 
   /** Returns an equivalent context if exists in the pending map */
@@ -191,7 +254,13 @@ public class Tracer {
    * created.
    */
   TraceContext decorateContext(TraceContext parent, long parentId) {
-    int flags = InternalPropagation.instance.flags(parent);
+    return decorateContext(InternalPropagation.instance.flags(parent), parent, parentId);
+  }
+
+  /** Like {@link #decorateContext(TraceContext, long)}, except the parent's flags are replaced. */
+  TraceContext decorateContext(int flags, TraceContext parent, long parentId) {
+    if (reusesUnsampled(parent, flags)) return propagationFactory.decorate(parent);
+
     flags &= ~FLAG_SHARED; // cannot be shared if we aren't reusing the span ID
     return decorateContext(
       flags,
@@ -238,12 +307,14 @@ public class Tracer {
     if (spanId == 0L) spanId = nextId();
 
     if (traceId == 0L) { // make a new trace ID
-      traceIdHigh = traceId128Bit ? Platform.get().nextTraceIdHigh() : 0L;
+      traceIdHigh = traceId128Bit ? idGenerator.nextTraceIdHigh(clock) : 0L;
       traceId = spanId;
     }
 
     if ((flags & FLAG_SAMPLED_SET) != FLAG_SAMPLED_SET) { // cheap check for not yet sampled
-      flags = InternalPropagation.sampled(sampler.isSampled(traceId), flags);
+      boolean sampled = sampler.isSampled(traceId);
+      metrics.sampled(sampler, sampled);
+      flags = InternalPropagation.sampled(sampled, flags);
       flags &= ~FLAG_SHARED; // cannot be shared if not yet sampled
     }
 
@@ -295,13 +366,62 @@ public class Tracer {
   // we manually code some things to keep the cpu and allocations low, at the cost of readability.
   public Span nextSpan(TraceContextOrSamplingFlags extracted) {
     if (extracted == null) throw new NullPointerException("extracted == null");
+    return nextSpan(extracted, InternalPropagation.instance.flags(samplingFlags(extracted)));
+  }
+
+  /**
+   * Like {@link #nextSpan(TraceContextOrSamplingFlags)}, except when the extracted sampling
+   * decision is absent, the sampler {@link SamplerFunction#trySample(Object) triggers} against the
+   * supplied argument.
+   *
+   * <p>This is typical for messaging consumers. Unlike re-creating the extraction result with
+   * {@link TraceContextOrSamplingFlags#sampled(boolean)}, the sampling decision is applied while
+   * creating the span's context, which saves allocations.
+   *
+   * @param samplerFunction invoked if the extracted sampling decision is absent
+   * @param arg parameter to {@link SamplerFunction#trySample(Object)}
+   * @param extracted the result of {@link Extractor#extract(Object)} against the request
+   * @see #joinSpan(SamplerFunction, Object, TraceContextOrSamplingFlags)
+   * @since 6.4
+   */
+  public <T> Span nextSpan(
+    SamplerFunction<T> samplerFunction, T arg, TraceContextOrSamplingFlags extracted) {
+    if (extracted == null) throw new NullPointerException("extracted == null");
+    return nextSpan(extracted, sampledFlags(samplerFunction, arg, samplingFlags(extracted)));
+  }
+
+  /** Returns whichever of the context, trace ID context or sampling flags was extracted. */
+  static SamplingFlags samplingFlags(TraceContextOrSamplingFlags extracted) {
+    if (extracted.context() != null) return extracted.context();
+    if (extracted.traceIdContext() != null) return extracted.traceIdContext();
+    return extracted.samplingFlags();
+  }
+
+  /** Returns the flags of the input, after applying the sampler function if undecided. */
+  <T> int sampledFlags(SamplerFunction<T> samplerFunction, T arg, SamplingFlags input) {
+    if (samplerFunction == null) throw new NullPointerException("samplerFunction == null");
+    if (arg == null) throw new NullPointerException("arg == null");
+    int flags = InternalPropagation.instance.flags(input);
+    if ((flags & FLAG_SAMPLED_SET) == FLAG_SAMPLED_SET) return flags;
+    Boolean sampled = trySample(samplerFunction, arg);
+    return sampled != null ? InternalPropagation.sampled(sampled, flags) : flags;
+  }
+
+  @Nullable <T> Boolean trySample(SamplerFunction<T> samplerFunction, T arg) {
+    Boolean sampled = samplerFunction.trySample(arg);
+    if (sampled != null) metrics.sampled(samplerFunction, sampled);
+    return sampled;
+  }
+
+  /** Like {@link #nextSpan(TraceContextOrSamplingFlags)}, except the flags are replaced. */
+  Span nextSpan(TraceContextOrSamplingFlags extracted, int flags) {
     TraceContext context = extracted.context();
-    if (context != null) return newChild(context);
+    if (context != null) return _toSpan(context, decorateContext(flags, context, context.spanId()));
 
     TraceIdContext traceIdContext = extracted.traceIdContext();
     if (traceIdContext != null) {
       return _toSpan(null, decorateContext(
-        InternalPropagation.instance.flags(extracted.traceIdContext()),
+        flags,
         traceIdContext.traceIdHigh(),
         traceIdContext.traceId(),
         0L,
@@ -311,11 +431,9 @@ public class Tracer {
       ));
     }
 
-    SamplingFlags samplingFlags = extracted.samplingFlags();
     List<Object> extra = extracted.extra();
 
     TraceContext parent = currentTraceContext.get();
-    int flags;
     long traceIdHigh = 0L, traceId = 0L, localRootId = 0L, spanId = 0L;
     if (parent != null) {
       // At this point, we didn't extract trace IDs, but do have a trace in progress. Since typical
@@ -326,8 +444,6 @@ public class Tracer {
       localRootId = parent.localRootId();
       spanId = parent.spanId();
       extra = concat(extra, parent.extra());
-    } else {
-      flags = InternalPropagation.instance.flags(samplingFlags);
     }
     return _toSpan(parent,
       decorateContext(flags, traceIdHigh, traceId, localRootId, spanId, 0L, extra));
@@ -371,7 +487,7 @@ public class Tracer {
   }
 
   Span _toSpan(@Nullable TraceContext parent, TraceContext context) {
-    if (isNoop(context)) return new NoopSpan(context);
+    if (isNoop(context)) return noopSpan(context);
 
     // allocate a mutable span in case multiple threads call this method.. they'll use the same data
     PendingSpan pendingSpan = pendingSpans.getOrCreate(parent, context, false);
@@ -453,6 +569,7 @@ public class Tracer {
   @Nullable public Span currentSpan() {
     TraceContext context = currentTraceContext.get();
     if (context == null) return null;
+    if (propagateOnlyUnsampled && isNoop(context)) return noopSpan(context);
     // Returns a lazy span to reduce overhead when tracer.currentSpan() is invoked just to see if
     // one exists, or when the result is never used.
     return new LazySpan(this, context);
@@ -543,7 +660,7 @@ public class Tracer {
     if (arg == null) throw new NullPointerException("arg == null");
     if (parent != null) return decorateContext(parent, parent.spanId());
 
-    Boolean sampled = samplerFunction.trySample(arg);
+    Boolean sampled = trySample(samplerFunction, arg);
     SamplingFlags flags = sampled != null ? (sampled ? SAMPLED : NOT_SAMPLED) : EMPTY;
     return newRootContext(InternalPropagation.instance.flags(flags));
   }
@@ -563,13 +680,14 @@ public class Tracer {
   }
 
   ScopedSpan newScopedSpan(@Nullable TraceContext parent, TraceContext context, String name) {
-    Scope scope = currentTraceContext.newScope(context);
-    if (isNoop(context)) return new NoopScopedSpan(context, scope);
+    if (isNoop(context)) return new NoopScopedSpan(context, currentTraceContext.newScope(context));
 
     PendingSpan pendingSpan = pendingSpans.getOrCreate(parent, context, true);
     Clock clock = pendingSpan.clock();
     MutableSpan state = pendingSpan.state();
-    state.name(name);
+    state.name(pendingSpans.intern(name));
+    // Scope after span handlers begin, so that scope decorators can correlate with them.
+    Scope scope = currentTraceContext.newScope(context);
     return new RealScopedSpan(context, scope, state, clock, pendingSpans);
   }
 
@@ -601,6 +719,32 @@ public class Tracer {
       + "spanHandler=" + spanHandler + "}";
   }
 
+  /**
+   * Returns true when the context is an unsampled parent that should be reused, instead of
+   * creating a child, as its spans would not be recorded anyway.
+   *
+   * @param flags the flags of a child, which must be the same as the parent's
+   * @see Tracing.Builder#propagateOnlyUnsampled(boolean)
+   */
+  boolean reusesUnsampled(TraceContext parent, int flags) {
+    if (!propagateOnlyUnsampled) return false;
+    // Don't reuse if the sampling decision changed, or if there is no decision yet.
+    if (flags != InternalPropagation.instance.flags(parent)) return false;
+    return (flags & (FLAG_SAMPLED_SET | FLAG_SAMPLED | FLAG_SAMPLED_LOCAL)) == FLAG_SAMPLED_SET;
+  }
+
+  /** Returns a no-op span, which is cached by context when propagating only. */
+  Span noopSpan(TraceContext context) {
+    AtomicReferenceArray<NoopSpan> noopSpans = this.noopSpans;
+    if (noopSpans == null) return new NoopSpan(context);
+    int index = context.hashCode() & (noopSpans.length() - 1);
+    NoopSpan result = noopSpans.get(index);
+    if (result != null && result.context == context) return result;
+    result = new NoopSpan(context);
+    noopSpans.set(index, result); // evicting a colliding context is ok
+    return result;
+  }
+
   boolean isNoop(TraceContext context) {
     if (noop.get()) return true;
     int flags = InternalPropagation.instance.flags(context);
@@ -610,9 +754,9 @@ public class Tracer {
 
   /** Generates a new 64-bit ID, taking care to dodge zero which can be confused with absent */
   long nextId() {
-    long nextId = Platform.get().randomLong();
+    long nextId = idGenerator.nextId();
     while (nextId == 0L) {
-      nextId = Platform.get().randomLong();
+      nextId = idGenerator.nextId();
     }
     return nextId;
   }
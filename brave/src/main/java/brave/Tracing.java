@@ -7,11 +7,13 @@ package brave;
 import brave.baggage.BaggageField;
 import brave.handler.MutableSpan;
 import brave.handler.SpanHandler;
+import brave.internal.InternPool;
 import brave.internal.Nullable;
 import brave.internal.Platform;
 import brave.internal.codec.IpLiteral;
 import brave.internal.handler.NoopAwareSpanHandler;
 import brave.internal.handler.OrphanTracker;
+import brave.internal.recorder.CoarseClock;
 import brave.internal.recorder.PendingSpans;
 import brave.propagation.B3Propagation;
 import brave.propagation.CurrentTraceContext;
@@ -22,7 +24,9 @@ import brave.sampler.SamplerFunction;
 import java.io.Closeable;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
@@ -114,16 +118,47 @@ public abstract class Tracing implements Closeable {
    */
   public abstract void setNoop(boolean noop);
 
+  /**
+   * Returns the count of spans orphaned since this was built, or zero unless {@linkplain
+   * Builder#trackOrphans() tracking orphans}.
+   *
+   * @see #orphanedSpanCountsByCallSite()
+   * @since 6.4
+   */
+  public long orphanedSpanCount() {
+    return 0L;
+  }
+
+  /**
+   * Returns a snapshot of orphaned span counts, keyed by the stack frames that allocated them, or
+   * empty unless {@linkplain Builder#trackOrphans() tracking orphans}. Frames in a key are
+   * separated by newlines, starting with the caller of the tracer.
+   *
+   * <p>When {@linkplain Builder#trackOrphans(int) sampling}, only one in that many spans have a
+   * call site, so multiply by that number for an estimate.
+   *
+   * @see #orphanedSpanCount()
+   * @since 6.4
+   */
+  public Map<String, Long> orphanedSpanCountsByCallSite() {
+    return Collections.emptyMap();
+  }
+
   /** Ensures this component can be garbage collected, by making it not {@link #current()} */
   @Override abstract public void close();
 
   public static final class Builder {
     final MutableSpan defaultSpan = new MutableSpan();
     Clock clock;
+    long coarseClockResolutionNanos;
     Sampler sampler = Sampler.ALWAYS_SAMPLE;
+    TracingMetrics metrics = TracingMetrics.NOOP;
     CurrentTraceContext currentTraceContext = CurrentTraceContext.Default.inheritable();
+    IdGenerator idGenerator = IdGenerator.random();
     boolean traceId128Bit = false, supportsJoin = true;
-    boolean alwaysSampleLocal = false, trackOrphans = false;
+    boolean alwaysSampleLocal = false, propagateOnlyUnsampled = false, trackOrphans = false;
+    boolean poolSpanStrings = false;
+    int trackOrphansSampleRate;
     Propagation.Factory propagationFactory = B3Propagation.FACTORY;
     Set<SpanHandler> spanHandlers = new LinkedHashSet<SpanHandler>(); // dupes not ok
 
@@ -205,7 +240,8 @@ public abstract class Tracing implements Closeable {
      * Defaults to JRE-specific platform time.
      *
      * <p>Note: timestamps are read once per trace, then {@link System#nanoTime() ticks}
-     * thereafter. This ensures there's no clock skew problems inside a single trace.
+     * thereafter. This ensures there's no clock skew problems inside a single trace. When {@link
+     * #coarseClock(long, TimeUnit)} is set, this is only read for its base epoch.
      *
      * See {@link Tracing#clock(TraceContext)}
      */
@@ -215,6 +251,46 @@ public abstract class Tracing implements Closeable {
       return this;
     }
 
+    /**
+     * Reads timestamps from a value updated by a background thread each interval of the given
+     * resolution, instead of reading {@link System#nanoTime()} for each operation like {@link
+     * Span#start()} or {@link Span#finish()}. This can help when tracing very short operations at
+     * high request rates, on hosts where reading time is expensive, such as some virtualized ones.
+     *
+     * <p>The background thread is a daemon named "brave-coarse-clock", stopped by {@link
+     * Tracing#close()}. It derives ticks from {@link System#nanoTime()}, relative to a base epoch
+     * read from the {@linkplain #clock(Clock) clock}. This base is re-read about once a second.
+     *
+     * <h3>Precision trade-offs</h3>
+     * <ul>
+     *   <li>Timestamps are truncated to the resolution, so operations that take less time than it
+     *   may have a duration of zero.</li>
+     *   <li>Timestamps may be late when the background thread isn't scheduled on time, for example
+     *   when CPUs are saturated or during a garbage collection pause.</li>
+     *   <li>Unlike the default, the clock isn't correlated per trace. Timestamps never go backwards,
+     *   but when the system clock is set back, they hold still until it catches up.</li>
+     * </ul>
+     *
+     * <p>Lower resolution means more work in the background thread. Values from 10 microseconds to
+     * one millisecond are typical.
+     *
+     * @param resolution how often to update the timestamp, at least 10 microseconds and at most one
+     * second.
+     * @see Tracing#clock(TraceContext)
+     * @since 6.4
+     */
+    public Builder coarseClock(long resolution, TimeUnit unit) {
+      if (unit == null) throw new NullPointerException("unit == null");
+      long resolutionNanos = unit.toNanos(resolution);
+      if (resolutionNanos < TimeUnit.MICROSECONDS.toNanos(10)
+        || resolutionNanos > TimeUnit.SECONDS.toNanos(1)) {
+        throw new IllegalArgumentException(
+          "resolution must be between 10 microseconds and 1 second: " + resolution + " " + unit);
+      }
+      this.coarseClockResolutionNanos = resolutionNanos;
+      return this;
+    }
+
     /**
      * Sampler is responsible for deciding if a particular trace should be "sampled", i.e. whether
      * the overhead of tracing will occur and/or if a trace will be reported to Zipkin.
@@ -253,6 +329,17 @@ public abstract class Tracing implements Closeable {
       return this;
     }
 
+    /**
+     * Generates IDs for new spans and traces. Defaults to {@link IdGenerator#random()}.
+     *
+     * @since 6.4
+     */
+    public Builder idGenerator(IdGenerator idGenerator) {
+      if (idGenerator == null) throw new NullPointerException("idGenerator == null");
+      this.idGenerator = idGenerator;
+      return this;
+    }
+
     /** When true, new root spans will have 128-bit trace IDs. Defaults to false (64-bit) */
     public Builder traceId128Bit(boolean traceId128Bit) {
       this.traceId128Bit = traceId128Bit;
@@ -322,18 +409,100 @@ public abstract class Tracing implements Closeable {
       return this;
     }
 
+    /**
+     * When true, spans in a trace explicitly not sampled, such as one extracted with the header
+     * "X-B3-Sampled: 0", reuse the incoming context instead of creating a child. This saves the
+     * allocations of new IDs and contexts for traffic that will never be recorded, while still
+     * propagating the trace downstream. Defaults to false.
+     *
+     * <p>The no-op {@link Span} of recently reused contexts is cached by the tracer, so that
+     * joining, creating children or calling {@link Tracer#currentSpan()} usually don't allocate
+     * either. Contexts without a sampling decision yet, or that are sampled, are unaffected.
+     *
+     * <p>Enabling this has the following side effects on unsampled traffic:
+     * <ul>
+     *   <li>Downstream requests propagate the incoming span ID as their parent</li>
+     *   <li>Log correlation shows the incoming span ID for the whole local request</li>
+     *   <li>Baggage updates are visible to the whole local request, not just a child span</li>
+     * </ul>
+     *
+     * <p>This has no effect when {@link #alwaysSampleLocal()}, as there are no unsampled spans.
+     *
+     * @since 6.4
+     */
+    public Builder propagateOnlyUnsampled(boolean propagateOnlyUnsampled) {
+      this.propagateOnlyUnsampled = propagateOnlyUnsampled;
+      return this;
+    }
+
+    /**
+     * When true, recorded spans share one instance of equal span names, remote service names and
+     * tag keys up to 64 characters. Defaults to false.
+     *
+     * <p>This reduces the heap retained by a {@link SpanHandler} that buffers spans, when
+     * instrumentation builds the same string for each request, such as {@code "mongodb-" +
+     * databaseName}. Strings are pooled in a small, fixed-size table owned by this tracer, so a
+     * string with high cardinality only evicts others. Tag values are not pooled, as they are often
+     * unique, such as a path or an ID.
+     *
+     * @since 6.4
+     */
+    public Builder poolSpanStrings(boolean poolSpanStrings) {
+      this.poolSpanStrings = poolSpanStrings;
+      return this;
+    }
+
     /**
      * When true, a {@link SpanHandler} is added that  logs the caller which orphaned a span to the
      * category "brave.Tracer" at {@link Level#FINE}. Defaults to false.
      *
      * <p>If you see data with the annotation "brave.flush", you may have an instrumentation bug.
      * To see which code was involved, set this and ensure the logger {@link Tracing} is at {@link
-     * Level#FINE}. Do not do this in production as tracking orphaned data incurs higher overhead.
+     * Level#FINE}. Do not do this in production as tracking orphaned data incurs higher overhead:
+     * use {@link #trackOrphans(int)} instead.
      *
      * @since 5.9
      */
     public Builder trackOrphans() {
       this.trackOrphans = true;
+      this.trackOrphansSampleRate = 0;
+      return this;
+    }
+
+    /**
+     * Like {@link #trackOrphans()}, except cheap enough to leave on in production. Instead of
+     * logging each orphan, orphans are counted by call site: see {@link
+     * Tracing#orphanedSpanCountsByCallSite()}.
+     *
+     * <p>Only one in {@code sampleRate} spans, chosen by span ID, has its caller captured, as a
+     * handful of stack frames. Other spans only add overhead if orphaned, when they are included
+     * in {@link Tracing#orphanedSpanCount()}.
+     *
+     * <p>If you see data with the annotation "brave.flush", and an unexpected count by call site,
+     * look at the first frames of the call site for an instrumentation bug.
+     *
+     * @param sampleRate one in this many spans has its caller captured. For example, 1000.
+     * @since 6.4
+     */
+    public Builder trackOrphans(int sampleRate) {
+      if (sampleRate < 1) throw new IllegalArgumentException("sampleRate < 1: " + sampleRate);
+      this.trackOrphans = true;
+      this.trackOrphansSampleRate = sampleRate;
+      return this;
+    }
+
+    /**
+     * Observes what tracing itself does, such as spans dropped, sampling decisions and time spent
+     * in span handlers. Defaults to {@link TracingMetrics#NOOP}, which adds no overhead.
+     *
+     * <p>Span handlers are only timed when this is set. For tests and benchmarks, use {@link
+     * InMemoryTracingMetrics}.
+     *
+     * @since 6.4
+     */
+    public Builder metrics(TracingMetrics metrics) {
+      if (metrics == null) throw new NullPointerException("metrics == null");
+      this.metrics = metrics;
       return this;
     }
 
@@ -356,6 +525,9 @@ public abstract class Tracing implements Closeable {
     }
   }
 
+  /** Enough to see instrumentation and its caller, without walking the whole stack. */
+  static final int TRACK_ORPHANS_MAX_FRAMES = 8;
+
   static final class Default extends Tracing {
     final Tracer tracer;
     final Propagation.Factory propagationFactory;
@@ -363,10 +535,18 @@ public abstract class Tracing implements Closeable {
     final CurrentTraceContext currentTraceContext;
     final Sampler sampler;
     final Clock clock;
+    @Nullable final CoarseClock coarseClock;
+    @Nullable final OrphanTracker orphanTracker;
     final AtomicBoolean noop;
 
     Default(Builder builder) {
-      this.clock = builder.clock != null ? builder.clock : Platform.get().clock();
+      Clock clock = builder.clock != null ? builder.clock : Platform.get().clock();
+      if (builder.coarseClockResolutionNanos != 0L) {
+        clock = coarseClock = CoarseClock.start(clock, builder.coarseClockResolutionNanos);
+      } else {
+        coarseClock = null;
+      }
+      this.clock = clock;
       this.propagationFactory = builder.propagationFactory;
       this.stringPropagation = builder.propagationFactory.get();
       this.currentTraceContext = builder.currentTraceContext;
@@ -382,22 +562,36 @@ public abstract class Tracing implements Closeable {
       Set<SpanHandler> spanHandlers = new LinkedHashSet<SpanHandler>(builder.spanHandlers);
       if (spanHandlers.isEmpty()) spanHandlers.add(new LogSpanHandler());
       if (builder.trackOrphans) {
-        spanHandlers.add(OrphanTracker.newBuilder().defaultSpan(defaultSpan).clock(clock).build());
+        OrphanTracker.Builder orphanTracker =
+          OrphanTracker.newBuilder().defaultSpan(defaultSpan).clock(clock);
+        if (builder.trackOrphansSampleRate != 0) {
+          orphanTracker.sampleRate(builder.trackOrphansSampleRate)
+            .maxFrames(TRACK_ORPHANS_MAX_FRAMES);
+        }
+        spanHandlers.add(this.orphanTracker = (OrphanTracker) orphanTracker.build());
+      } else {
+        this.orphanTracker = null;
       }
 
       // Make sure any exceptions caused by span handlers don't crash callers
       SpanHandler spanHandler =
-        NoopAwareSpanHandler.create(spanHandlers.toArray(new SpanHandler[0]), noop);
+        NoopAwareSpanHandler.create(spanHandlers.toArray(new SpanHandler[0]), builder.metrics,
+          noop);
 
       this.tracer = new Tracer(
         builder.propagationFactory,
         spanHandler,
-        new PendingSpans(defaultSpan, clock, spanHandler, noop),
+        new PendingSpans(defaultSpan, clock, spanHandler, builder.metrics,
+          builder.poolSpanStrings ? new InternPool(1024, 64) : null, noop),
+        builder.idGenerator,
+        clock,
         builder.sampler,
+        builder.metrics,
         builder.currentTraceContext,
         builder.traceId128Bit || propagationFactory.requires128BitTraceId(),
         builder.supportsJoin && propagationFactory.supportsJoin(),
         builder.alwaysSampleLocal,
+        builder.propagateOnlyUnsampled,
         noop
       );
       // assign current IFF there's no instance already current
@@ -428,6 +622,15 @@ public abstract class Tracing implements Closeable {
       this.noop.set(noop);
     }
 
+    @Override public long orphanedSpanCount() {
+      return orphanTracker != null ? orphanTracker.orphanedSpanCount() : 0L;
+    }
+
+    @Override public Map<String, Long> orphanedSpanCountsByCallSite() {
+      if (orphanTracker == null) return Collections.emptyMap();
+      return orphanTracker.orphanedSpanCountsByCallSite();
+    }
+
     @Override public String toString() {
       return tracer.toString();
     }
@@ -435,6 +638,7 @@ public abstract class Tracing implements Closeable {
     @Override public void close() {
       // only set null if we are the outermost instance
       CURRENT.compareAndSet(this, null);
+      if (coarseClock != null) coarseClock.close();
     }
   }
 
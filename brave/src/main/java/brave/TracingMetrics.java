@@ -0,0 +1,105 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave;
+
+import brave.handler.SpanHandler;
+import brave.handler.SpanHandler.Cause;
+import brave.internal.Nullable;
+import brave.sampler.Sampler;
+import brave.sampler.SamplerFunction;
+
+/**
+ * Observes what tracing itself does, such as how many spans were dropped or how long {@linkplain
+ * SpanHandler span handlers} took. Configure this with {@link
+ * Tracing.Builder#metrics(TracingMetrics)}. Defaults to {@link #NOOP}, which adds no overhead.
+ *
+ * <p>Ex. to see which span handler is slow
+ * <pre>{@code
+ * InMemoryTracingMetrics metrics = InMemoryTracingMetrics.create();
+ * tracing = Tracing.newBuilder().metrics(metrics)...build();
+ *
+ * // later
+ * long calls = metrics.handlerCalls(zipkinSpanHandler);
+ * long nanosPerCall = calls == 0 ? 0 : metrics.handlerNanos(zipkinSpanHandler) / calls;
+ * }</pre>
+ *
+ * <p>Methods here are called on the hot path of instrumentation, so implementations must be
+ * thread-safe and should not block. Prefer striped counters, such as {@code LongAdder}, over
+ * synchronization. Exceptions thrown by an implementation are not caught.
+ *
+ * <p>Methods do nothing by default, so that new ones can be added without breaking subclasses.
+ *
+ * @see InMemoryTracingMetrics
+ * @since 6.4
+ */
+public abstract class TracingMetrics {
+  /** Records nothing. */
+  public static final TracingMetrics NOOP = new TracingMetrics() {
+    @Override public String toString() {
+      return "NoopTracingMetrics{}";
+    }
+  };
+
+  /**
+   * Called when a recorded span begins, just before {@link SpanHandler#begin}. Unsampled spans
+   * are not counted, as they are not recorded.
+   *
+   * @since 6.4
+   */
+  public void spanStarted() {
+  }
+
+  /**
+   * Called when a recorded span ends, with the same cause passed to {@link SpanHandler#end}. This
+   * includes {@link Cause#ABANDONED abandoned} spans, even if no span handler handles them.
+   *
+   * <p>A span {@linkplain #spanStarted() started}, but not yet ended, is in progress. Many
+   * {@link Cause#ORPHANED orphaned} spans imply an instrumentation bug.
+   *
+   * @since 6.4
+   */
+  public void spanEnded(Cause cause) {
+  }
+
+  /**
+   * Called when a sampler makes a decision for a new trace. The sampler is either the {@link
+   * Tracing.Builder#sampler(Sampler) trace ID sampler} or a {@link SamplerFunction} passed to the
+   * tracer, such as an HTTP sampler. Functions that make no decision are not counted.
+   *
+   * @param sampler the {@link Sampler} or {@link SamplerFunction} that decided
+   * @param sampled the decision
+   * @since 6.4
+   */
+  public void sampled(Object sampler, boolean sampled) {
+  }
+
+  /**
+   * Called after a span handler returns from {@link SpanHandler#begin} or {@link
+   * SpanHandler#end}, including when it threw an exception.
+   *
+   * <p>The handler is one {@linkplain Tracing.Builder#addSpanHandler(SpanHandler) added} to the
+   * builder, not a composite of them.
+   *
+   * @param handler the span handler called
+   * @param cause {@code null} for {@link SpanHandler#begin}, or the cause passed to {@link
+   * SpanHandler#end}.
+   * @param durationNanos how long the call took, from {@link System#nanoTime()}
+   * @since 6.4
+   */
+  public void handlerCalled(SpanHandler handler, @Nullable Cause cause, long durationNanos) {
+  }
+
+  /**
+   * Called when a span handler throws an exception. Tracing logs the exception and continues, so
+   * without this, errors are only visible in logs.
+   *
+   * @since 6.4
+   */
+  public void handlerError(SpanHandler handler, Throwable error) {
+  }
+
+  protected TracingMetrics() {
+  }
+}
@@ -305,7 +305,7 @@ public final class BaggagePropagation<K> implements Propagation<K> {
 
     @Override public void inject(TraceContext context, R request) {
       delegate.inject(context, request);
-      BaggageFields extra = context.findExtra(BaggageFields.class);
+      BaggageFields extra = findExtra(context);
       if (extra == null) return;
       Map<String, String> values =
           extra.toMapFilteringFieldNames(factory.localFieldNames);
@@ -0,0 +1,346 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.internal.Nullable;
+import brave.propagation.TraceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Answers "where does latency actually go" in-process, without shipping every span off-box. When
+ * a {@linkplain TraceContext#isLocalRoot() local root} finishes, this computes the exclusive
+ * self-time of each span in it and the critical path, then adds them to histograms by span name.
+ *
+ * <p>Ex.
+ * <pre>{@code
+ * criticalPath = CriticalPathSpanHandler.create();
+ * tracing = Tracing.newBuilder()
+ *   .addSpanHandler(criticalPath)
+ *   ...
+ *   .build();
+ *
+ * // later, for example in a metrics endpoint
+ * for (Map.Entry<String, Histogram> entry : criticalPath.criticalPathTime().entrySet()) {
+ *   log(entry.getKey(), entry.getValue().valueAtPercentile(0.99));
+ * }
+ * }</pre>
+ *
+ * <h3>Definitions</h3>
+ * <ul>
+ *   <li>Self-time is the part of a span's duration not covered by any of its children.</li>
+ *   <li>The critical path starts at the end of the local root, and repeatedly steps into the
+ *   child that finished last before the current time. A span's critical path time is the part of
+ *   its duration on that path not spent in a critical child. Shortening a span on the critical
+ *   path shortens the local root, while shortening other spans doesn't.</li>
+ * </ul>
+ *
+ * <p>Children are clamped to their parent's timestamps. Children still in progress when the local
+ * root finishes are ignored, so their time counts as self-time of their parent.
+ *
+ * <h3>Memory</h3>
+ * Only spans that are recorded are tracked, until their local root ends. A local root tracks at
+ * most {@linkplain Builder#maxSpansPerLocalRoot(int) a maximum} spans, after which the time of
+ * others counts as self-time of their nearest tracked parent. Histograms use fixed buckets and at
+ * most {@linkplain Builder#maxSpanNames(int) a maximum} names, after which spans are added under
+ * {@link #OTHER_NAME}.
+ *
+ * @since 6.4
+ */
+public final class CriticalPathSpanHandler extends SpanHandler {
+  /** Histogram name used for spans without a name. */
+  public static final String UNKNOWN_NAME = "unknown";
+  /** Histogram name used once {@link Builder#maxSpanNames(int)} is reached. */
+  public static final String OTHER_NAME = "other";
+
+  public static CriticalPathSpanHandler create() {
+    return newBuilder().build();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    int maxSpansPerLocalRoot = 1000, maxSpanNames = 256;
+
+    /**
+     * Bounds the memory used by a large local trace, such as a batch job. Defaults to 1000.
+     */
+    public Builder maxSpansPerLocalRoot(int maxSpansPerLocalRoot) {
+      if (maxSpansPerLocalRoot < 1) {
+        throw new IllegalArgumentException("maxSpansPerLocalRoot < 1: " + maxSpansPerLocalRoot);
+      }
+      this.maxSpansPerLocalRoot = maxSpansPerLocalRoot;
+      return this;
+    }
+
+    /**
+     * Bounds the count of histograms, in case span names include high cardinality data such as
+     * IDs. Defaults to 256.
+     */
+    public Builder maxSpanNames(int maxSpanNames) {
+      if (maxSpanNames < 1) throw new IllegalArgumentException("maxSpanNames < 1: " + maxSpanNames);
+      this.maxSpanNames = maxSpanNames;
+      return this;
+    }
+
+    public CriticalPathSpanHandler build() {
+      return new CriticalPathSpanHandler(this);
+    }
+
+    Builder() {
+    }
+  }
+
+  /**
+   * Counts microsecond durations in buckets that double in size. Updates to different buckets
+   * don't contend with each other.
+   *
+   * @since 6.4
+   */
+  public static final class Histogram {
+    static final int BUCKETS = 40; // the last bucket is over 6 days
+
+    final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    final AtomicLong totalMicros = new AtomicLong();
+
+    /** Bucket zero holds zero. Bucket {@code i} holds {@code [2^(i-1), 2^i)} microseconds. */
+    static int bucket(long micros) {
+      if (micros <= 0L) return 0;
+      return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    void record(long micros) {
+      buckets.incrementAndGet(bucket(micros));
+      totalMicros.addAndGet(micros);
+    }
+
+    /** Returns how many durations were recorded. */
+    public long count() {
+      long result = 0L;
+      for (int i = 0; i < BUCKETS; i++) result += buckets.get(i);
+      return result;
+    }
+
+    /** Returns the sum of recorded durations in microseconds. */
+    public long totalMicros() {
+      return totalMicros.get();
+    }
+
+    /**
+     * Returns the upper bound in microseconds of the bucket that includes the percentile, or zero
+     * if nothing was recorded.
+     *
+     * @param percentile between 0 and 1, such as 0.99
+     */
+    public long valueAtPercentile(double percentile) {
+      if (percentile < 0.0 || percentile > 1.0) {
+        throw new IllegalArgumentException("percentile must be between 0 and 1: " + percentile);
+      }
+      long[] counts = new long[BUCKETS];
+      long count = 0L;
+      for (int i = 0; i < BUCKETS; i++) count += (counts[i] = buckets.get(i));
+      if (count == 0L) return 0L;
+      long rank = Math.max(1L, (long) Math.ceil(percentile * count)), seen = 0L;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank) return i == 0 ? 0L : (1L << i) - 1L;
+      }
+      return Long.MAX_VALUE; // unreachable
+    }
+
+    @Override public String toString() {
+      return "Histogram{count=" + count() + ", totalMicros=" + totalMicros() + "}";
+    }
+  }
+
+  final int maxSpansPerLocalRoot, maxSpanNames;
+  final ConcurrentMap<TraceContext, Node> nodes = new ConcurrentHashMap<TraceContext, Node>();
+  final ConcurrentMap<String, Histogram> selfTime = new ConcurrentHashMap<String, Histogram>();
+  final ConcurrentMap<String, Histogram> criticalPathTime =
+    new ConcurrentHashMap<String, Histogram>();
+
+  CriticalPathSpanHandler(Builder builder) {
+    this.maxSpansPerLocalRoot = builder.maxSpansPerLocalRoot;
+    this.maxSpanNames = builder.maxSpanNames;
+  }
+
+  /** Returns a view of self-time histograms by span name. */
+  public Map<String, Histogram> selfTime() {
+    return Collections.unmodifiableMap(selfTime);
+  }
+
+  /** Returns a view of critical path time histograms by span name. */
+  public Map<String, Histogram> criticalPathTime() {
+    return Collections.unmodifiableMap(criticalPathTime);
+  }
+
+  /** Clears all histograms, for example after exporting them. */
+  public void clear() {
+    selfTime.clear();
+    criticalPathTime.clear();
+  }
+
+  @Override
+  public boolean begin(TraceContext context, MutableSpan span, @Nullable TraceContext parent) {
+    Node parentNode = parent != null && !context.isLocalRoot() ? nodes.get(parent) : null;
+    if (parentNode == null) {
+      if (!context.isLocalRoot()) return true; // parent not tracked, or its local root ended
+      nodes.put(context, new Node(new LocalRoot(), null, context));
+      return true;
+    }
+
+    LocalRoot localRoot = parentNode.localRoot;
+    synchronized (localRoot) {
+      if (localRoot.ended || localRoot.contexts.size() >= maxSpansPerLocalRoot) return true;
+      Node node = new Node(localRoot, parentNode, context);
+      parentNode.addChild(node);
+      nodes.put(context, node);
+    }
+    return true;
+  }
+
+  @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+    Node node = nodes.get(context);
+    if (node == null) return true;
+
+    LocalRoot localRoot = node.localRoot;
+    synchronized (localRoot) {
+      if (localRoot.ended) return true;
+      if (cause != Cause.ABANDONED) node.ended(span);
+      if (node.parent != null) return true; // not the local root
+      localRoot.ended = true;
+    }
+
+    // Now that the local root ended, no other thread will modify its nodes.
+    for (TraceContext c : localRoot.contexts) nodes.remove(c);
+    if (cause == Cause.FINISHED && node.startTimestamp != 0L
+      && node.finishTimestamp >= node.startTimestamp) {
+      selfTime(node, node.startTimestamp, node.finishTimestamp);
+      criticalPath(node, node.startTimestamp, node.finishTimestamp);
+    }
+    return true;
+  }
+
+  /** Returns true, so that abandoned spans are released. */
+  @Override public boolean handlesAbandoned() {
+    return true;
+  }
+
+  void selfTime(Node node, long start, long finish) {
+    List<Node> children = node.children(start, finish, BY_START);
+    long covered = 0L, coveredUntil = start;
+    for (int i = 0, length = children.size(); i < length; i++) {
+      Node child = children.get(i);
+      long childStart = Math.max(child.startTimestamp, start);
+      long childFinish = Math.min(child.finishTimestamp, finish);
+      if (childFinish > coveredUntil) {
+        covered += childFinish - Math.max(childStart, coveredUntil);
+        coveredUntil = childFinish;
+      }
+      selfTime(child, childStart, childFinish);
+    }
+    histogram(selfTime, node.name).record(finish - start - covered);
+  }
+
+  void criticalPath(Node node, long start, long finish) {
+    List<Node> children = node.children(start, finish, BY_FINISH_DESCENDING);
+    long own = 0L, cursor = finish;
+    for (int i = 0, length = children.size(); i < length; i++) {
+      Node child = children.get(i);
+      long childFinish = Math.min(child.finishTimestamp, finish);
+      if (childFinish > cursor) continue; // overlaps a child already on the path
+      long childStart = Math.max(child.startTimestamp, start);
+      own += cursor - childFinish;
+      criticalPath(child, childStart, childFinish);
+      cursor = childStart;
+    }
+    own += cursor - start;
+    histogram(criticalPathTime, node.name).record(own);
+  }
+
+  Histogram histogram(ConcurrentMap<String, Histogram> histograms, @Nullable String name) {
+    if (name == null) name = UNKNOWN_NAME;
+    Histogram result = histograms.get(name);
+    if (result != null) return result;
+    if (histograms.size() >= maxSpanNames) name = OTHER_NAME;
+    result = new Histogram();
+    Histogram racer = histograms.putIfAbsent(name, result);
+    return racer != null ? racer : result;
+  }
+
+  @Override public String toString() {
+    return "CriticalPathSpanHandler{inFlight=" + nodes.size() + "}";
+  }
+
+  /** State of a local trace. Guards the state of its nodes. */
+  static final class LocalRoot {
+    final List<TraceContext> contexts = new ArrayList<TraceContext>();
+    boolean ended;
+  }
+
+  static final class Node {
+    final LocalRoot localRoot;
+    @Nullable final Node parent;
+    @Nullable List<Node> children;
+    @Nullable String name;
+    long startTimestamp, finishTimestamp;
+    boolean ended;
+
+    Node(LocalRoot localRoot, @Nullable Node parent, TraceContext context) {
+      this.localRoot = localRoot;
+      this.parent = parent;
+      localRoot.contexts.add(context);
+    }
+
+    void addChild(Node child) {
+      if (children == null) children = new ArrayList<Node>(4);
+      children.add(child);
+    }
+
+    void ended(MutableSpan span) {
+      ended = true;
+      name = span.name();
+      startTimestamp = span.startTimestamp();
+      finishTimestamp = span.finishTimestamp();
+    }
+
+    /** Returns ended children that overlap the parent interval, sorted with the comparator. */
+    List<Node> children(long start, long finish, Comparator<Node> comparator) {
+      if (children == null) return Collections.emptyList();
+      List<Node> result = new ArrayList<Node>(children.size());
+      for (int i = 0, length = children.size(); i < length; i++) {
+        Node child = children.get(i);
+        if (!child.ended || child.startTimestamp == 0L || child.finishTimestamp == 0L) continue;
+        if (child.startTimestamp >= finish || child.finishTimestamp <= start) continue;
+        result.add(child);
+      }
+      if (result.size() > 1) Collections.sort(result, comparator);
+      return result;
+    }
+  }
+
+  static final Comparator<Node> BY_START = new Comparator<Node>() {
+    @Override public int compare(Node left, Node right) {
+      return left.startTimestamp < right.startTimestamp ? -1
+        : left.startTimestamp == right.startTimestamp ? 0 : 1;
+    }
+  };
+
+  static final Comparator<Node> BY_FINISH_DESCENDING = new Comparator<Node>() {
+    @Override public int compare(Node left, Node right) {
+      return left.finishTimestamp > right.finishTimestamp ? -1
+        : left.finishTimestamp == right.finishTimestamp ? 0 : 1;
+    }
+  };
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Clock;
+import brave.Tracing;
+import brave.internal.Platform;
+import brave.propagation.TraceContext;
+import java.io.Closeable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import static brave.internal.Throwables.propagateIfFatal;
+
+/**
+ * Tags spans that overlapped a JVM pause, such as a stop-the-world garbage collection, with the
+ * total time paused in microseconds ({@value #PAUSE_TAG}). This helps tell if a latency spike was
+ * caused by the service or the JVM.
+ *
+ * <p>Ex.
+ * <pre>{@code
+ * pauses = JvmPauseSpanHandler.create();
+ * tracing = Tracing.newBuilder()
+ *   .addSpanHandler(pauses) // before handlers that report spans
+ *   ...
+ *   .build();
+ *
+ * // when done
+ * tracing.close();
+ * pauses.close();
+ * }</pre>
+ *
+ * <h3>Garbage collection pauses</h3>
+ * Pauses are read from {@linkplain GarbageCollectorMXBean garbage collector} notifications, which
+ * HotSpot and OpenJ9 JVMs send after each collection. Collectors that are mostly concurrent, such
+ * as "G1 Concurrent GC", "ZGC Cycles" or "Shenandoah Cycles", are skipped, as they don't stop
+ * application threads. Where notifications aren't supported, nothing is tagged, unless pauses are
+ * {@linkplain #recordPause(long, long) recorded} from another source, such as JFR safepoint events.
+ *
+ * <p>The duration of a notification is the wall time of the collection, not only the time
+ * application threads were stopped. For example, a G1 young collection can include work that
+ * overlaps application threads. Hence, the tag is an upper bound. For stop-the-world time only,
+ * disable {@link Builder#garbageCollectors(boolean)} and record JFR "jdk.GCPhasePause" events.
+ *
+ * <h3>Precision and overhead</h3>
+ * Pauses are reported in milliseconds and placed on the timeline of the {@linkplain
+ * Builder#clock(Clock) clock}, so overlap is approximate. The latest pauses are kept in a
+ * fixed-size ring, so a span that overlapped more pauses than its {@linkplain Builder#capacity(int)
+ * capacity} reports the most recent ones. Ending a span that started after the latest pause only
+ * costs a volatile read.
+ *
+ * @since 6.4
+ */
+public final class JvmPauseSpanHandler extends SpanHandler implements Closeable {
+  /** Tag added to spans that overlapped a pause, with the total microseconds paused. */
+  public static final String PAUSE_TAG = "jvm.pause_time_us";
+
+  static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+
+  /** Listens to garbage collector notifications, with defaults. */
+  public static JvmPauseSpanHandler create() {
+    return newBuilder().build();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    Clock clock = Platform.get().clock();
+    int capacity = 64;
+    boolean garbageCollectors = true;
+
+    /**
+     * Places pauses on the same timeline as span timestamps. Set this when you also set {@link
+     * Tracing.Builder#clock(Clock)}. Defaults to {@link Platform#clock()}.
+     */
+    public Builder clock(Clock clock) {
+      if (clock == null) throw new NullPointerException("clock == null");
+      this.clock = clock;
+      return this;
+    }
+
+    /**
+     * How many of the latest pauses to keep, rounded up to a power of two. Increase this when spans
+     * are long relative to the frequency of pauses. Defaults to 64.
+     */
+    public Builder capacity(int capacity) {
+      if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+      if (capacity > 1 << 16) throw new IllegalArgumentException("capacity > 65536: " + capacity);
+      this.capacity = capacity;
+      return this;
+    }
+
+    /**
+     * When false, pauses are only those {@linkplain JvmPauseSpanHandler#recordPause(long, long)
+     * recorded} manually. Defaults to true.
+     */
+    public Builder garbageCollectors(boolean garbageCollectors) {
+      this.garbageCollectors = garbageCollectors;
+      return this;
+    }
+
+    public JvmPauseSpanHandler build() {
+      JvmPauseSpanHandler result = new JvmPauseSpanHandler(this);
+      if (garbageCollectors) result.listenToGarbageCollectors();
+      return result;
+    }
+
+    Builder() {
+    }
+  }
+
+  /** Immutable, so that readers never see a start and end from different pauses. */
+  static final class Pause {
+    final long startTimestamp, endTimestamp;
+
+    Pause(long startTimestamp, long endTimestamp) {
+      this.startTimestamp = startTimestamp;
+      this.endTimestamp = endTimestamp;
+    }
+  }
+
+  final Clock clock;
+  final AtomicReferenceArray<Pause> pauses;
+  final int mask;
+  final AtomicInteger nextPause = new AtomicInteger();
+  volatile long latestPauseEnd; // allows spans that started after all pauses to skip the ring
+  final List<NotificationEmitter> emitters = new ArrayList<NotificationEmitter>();
+  final NotificationListener listener = new GcNotificationListener();
+  RuntimeMXBean runtime; // set when listening to garbage collectors
+
+  JvmPauseSpanHandler(Builder builder) {
+    clock = builder.clock;
+    int capacity = Integer.highestOneBit(builder.capacity);
+    if (capacity < builder.capacity) capacity <<= 1;
+    pauses = new AtomicReferenceArray<Pause>(capacity);
+    mask = capacity - 1;
+  }
+
+  void listenToGarbageCollectors() {
+    try {
+      runtime = ManagementFactory.getRuntimeMXBean();
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+        if (!(gc instanceof NotificationEmitter)) continue;
+        NotificationEmitter emitter = (NotificationEmitter) gc;
+        emitter.addNotificationListener(listener, null, null);
+        emitters.add(emitter);
+      }
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      Platform.get().log("Unable to listen to garbage collection notifications", e);
+    }
+  }
+
+  /**
+   * Records a pause from another source, such as JFR "jdk.SafepointBegin" and "jdk.SafepointEnd"
+   * events. This is safe to call from any thread.
+   *
+   * @param startTimestamp epoch microseconds on the same clock as span timestamps
+   * @param durationMicros how long application threads were paused
+   */
+  public void recordPause(long startTimestamp, long durationMicros) {
+    if (durationMicros <= 0L) return;
+    Pause pause = new Pause(startTimestamp, startTimestamp + durationMicros);
+    pauses.set(nextPause.getAndIncrement() & mask, pause);
+    // Notifications arrive on one thread, so racing writers are rare: worst case is a missed tag.
+    if (pause.endTimestamp > latestPauseEnd) latestPauseEnd = pause.endTimestamp;
+  }
+
+  @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+    long startTimestamp = span.startTimestamp(), finishTimestamp = span.finishTimestamp();
+    if (startTimestamp == 0L || finishTimestamp == 0L) return true;
+    if (startTimestamp >= latestPauseEnd) return true; // no pause since the span started
+
+    long paused = pausedMicros(startTimestamp, finishTimestamp);
+    if (paused > 0L) span.tag(PAUSE_TAG, String.valueOf(paused));
+    return true;
+  }
+
+  /** Returns the microseconds of pauses overlapping the interval. */
+  long pausedMicros(long startTimestamp, long finishTimestamp) {
+    long result = 0L;
+    for (int i = 0, length = pauses.length(); i < length; i++) {
+      Pause pause = pauses.get(i);
+      if (pause == null) continue;
+      long overlapStart = Math.max(startTimestamp, pause.startTimestamp);
+      long overlapEnd = Math.min(finishTimestamp, pause.endTimestamp);
+      if (overlapEnd > overlapStart) result += overlapEnd - overlapStart;
+    }
+    return result;
+  }
+
+  /** Stops listening to garbage collector notifications. */
+  @Override public void close() {
+    for (NotificationEmitter emitter : emitters) {
+      try {
+        emitter.removeNotificationListener(listener);
+      } catch (Throwable e) {
+        propagateIfFatal(e);
+      }
+    }
+    emitters.clear();
+  }
+
+  @Override public String toString() {
+    return "JvmPauseSpanHandler{capacity=" + pauses.length() + "}";
+  }
+
+  /** Reads {@code com.sun.management.GarbageCollectionNotificationInfo} as open data. */
+  final class GcNotificationListener implements NotificationListener {
+    @Override public void handleNotification(Notification notification, Object handback) {
+      if (!GC_NOTIFICATION.equals(notification.getType())) return;
+      try {
+        CompositeData data = (CompositeData) notification.getUserData();
+        if (isConcurrent((String) data.get("gcName"))) return;
+        CompositeData gcInfo = (CompositeData) data.get("gcInfo");
+        long startTimeMillis = (Long) gcInfo.get("startTime"); // relative to JVM start
+        long durationMillis = (Long) gcInfo.get("duration");
+        // Anchor uptime to the clock on each notification, so that clock steps don't accumulate.
+        long uptimeEpochMicros = clock.currentTimeMicroseconds() - runtime.getUptime() * 1000L;
+        recordPause(uptimeEpochMicros + startTimeMillis * 1000L, durationMillis * 1000L);
+      } catch (Throwable e) {
+        propagateIfFatal(e);
+      }
+    }
+  }
+
+  /**
+   * Names of collector beans that mostly run alongside application threads. These are matched
+   * exactly, as "ZGC Pauses" and "Shenandoah Pauses" are the stop-the-world parts of the same
+   * collectors. Note that JDK 11-16 name ZGC's concurrent cycles "ZGC".
+   */
+  static final Set<String> CONCURRENT_COLLECTORS = new LinkedHashSet<String>(Arrays.asList(
+    "ConcurrentMarkSweep",
+    "G1 Concurrent GC",
+    "Shenandoah Cycles",
+    "ZGC",
+    "ZGC Cycles",
+    "ZGC Major Cycles",
+    "ZGC Minor Cycles"
+  ));
+
+  /** Returns true for collectors that mostly run alongside application threads. */
+  static boolean isConcurrent(String gcName) {
+    return gcName == null || CONCURRENT_COLLECTORS.contains(gcName);
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Tracing;
+import brave.internal.Nullable;
+import brave.internal.collect.WeakConcurrentMap;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.CurrentTraceContext.ScopeDecorator;
+import brave.propagation.TraceContext;
+
+/**
+ * Tags spans with the CPU time and bytes allocated by threads while they were in scope. This helps
+ * tell a span that was waiting from one that was burning CPU or creating garbage.
+ *
+ * <p>This needs both the handler and its {@linkplain #scopeDecorator() scope decorator}. Add the
+ * handler before any that report spans, so that they see the tags.
+ * <pre>{@code
+ * ThreadResourceSpanHandler threadResources = ThreadResourceSpanHandler.create();
+ * tracing = Tracing.newBuilder()
+ *   .currentTraceContext(ThreadLocalCurrentTraceContext.newBuilder()
+ *     .addScopeDecorator(threadResources.scopeDecorator())
+ *     .build())
+ *   .addSpanHandler(threadResources)
+ *   .addSpanHandler(zipkinSpanHandler)
+ *   .build();
+ * }</pre>
+ *
+ * <h3>What is measured</h3>
+ * Resources are read when a scope of a recorded span opens and closes, and the difference is added
+ * to that span. When a span is in scope on multiple threads, such as across an executor, the sum
+ * is tagged. Spans never in scope, for example those only started and finished, are not tagged.
+ *
+ * <p>Like duration, this includes any children in scope on the same thread while the span was. A
+ * redundant {@link CurrentTraceContext#maybeScope(TraceContext)} doesn't count twice, but nesting
+ * {@link CurrentTraceContext#newScope(TraceContext)} for the same span does.
+ *
+ * <h3>Overhead and support</h3>
+ * Each scope of a recorded span reads the thread's CPU time and allocated bytes, so this is opt-in.
+ * Unsampled spans are not measured. Allocated bytes require {@code
+ * com.sun.management.ThreadMXBean}, present in HotSpot and OpenJ9 JVMs. When a resource isn't
+ * supported or is disabled, its tag is skipped. When neither is, this does nothing.
+ *
+ * @since 6.4
+ */
+public final class ThreadResourceSpanHandler extends SpanHandler {
+  /** Tag added when {@link Builder#cpuTime(boolean)} is supported. */
+  public static final String CPU_TIME_TAG = "thread.cpu_time_ns";
+  /** Tag added when {@link Builder#allocatedBytes(boolean)} is supported. */
+  public static final String ALLOCATED_BYTES_TAG = "thread.allocated_bytes";
+
+  /** Measures both CPU time and allocated bytes, if supported. */
+  public static ThreadResourceSpanHandler create() {
+    return newBuilder().build();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    boolean cpuTime = true, allocatedBytes = true;
+
+    /**
+     * When true, spans are tagged {@value ThreadResourceSpanHandler#CPU_TIME_TAG} with the
+     * nanoseconds of CPU time threads spent while the span was in scope. Defaults to true.
+     */
+    public Builder cpuTime(boolean cpuTime) {
+      this.cpuTime = cpuTime;
+      return this;
+    }
+
+    /**
+     * When true, spans are tagged {@value ThreadResourceSpanHandler#ALLOCATED_BYTES_TAG} with the
+     * approximate bytes threads allocated on the heap while the span was in scope. Defaults to
+     * true.
+     */
+    public Builder allocatedBytes(boolean allocatedBytes) {
+      this.allocatedBytes = allocatedBytes;
+      return this;
+    }
+
+    public ThreadResourceSpanHandler build() {
+      return new ThreadResourceSpanHandler(ThreadResources.create(cpuTime, allocatedBytes));
+    }
+
+    Builder() {
+    }
+  }
+
+  final ThreadResources resources;
+  final WeakConcurrentMap<TraceContext, Usage> usages =
+    new WeakConcurrentMap<TraceContext, Usage>();
+  final ScopeDecorator scopeDecorator;
+
+  ThreadResourceSpanHandler(ThreadResources resources) {
+    this.resources = resources;
+    this.scopeDecorator = resources.isSupported() ? new UsageScopeDecorator() : ScopeDecorator.NOOP;
+  }
+
+  /**
+   * Returns the decorator to add to the {@link Tracing.Builder#currentTraceContext current trace
+   * context} of the same tracing instance this handler is added to.
+   */
+  public ScopeDecorator scopeDecorator() {
+    return scopeDecorator;
+  }
+
+  @Override public boolean begin(TraceContext context, MutableSpan span, TraceContext parent) {
+    if (scopeDecorator != ScopeDecorator.NOOP) usages.putIfProbablyAbsent(context, new Usage());
+    return true;
+  }
+
+  @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+    if (scopeDecorator == ScopeDecorator.NOOP) return true;
+    Usage usage = usages.remove(context);
+    if (usage == null || cause == Cause.ABANDONED) return true;
+    usage.tag(span);
+    return true;
+  }
+
+  /** Returns true, so that usage of abandoned spans is released. */
+  @Override public boolean handlesAbandoned() {
+    return true;
+  }
+
+  @Override public String toString() {
+    return "ThreadResourceSpanHandler{" + resources + "}";
+  }
+
+  final class UsageScopeDecorator implements ScopeDecorator {
+    @Override public Scope decorateScope(@Nullable TraceContext context, Scope scope) {
+      // Skip clearing and redundant scopes, the latter as the span is already being measured.
+      if (context == null || scope == Scope.NOOP) return scope;
+      Usage usage = usages.getIfPresent(context);
+      if (usage == null) return scope; // not recorded, or finished
+      return new UsageScope(scope, resources, usage);
+    }
+
+    @Override public String toString() {
+      return "ThreadResourceScopeDecorator{" + resources + "}";
+    }
+  }
+
+  static final class UsageScope implements Scope {
+    final Scope delegate;
+    final ThreadResources resources;
+    final Usage usage;
+    final Thread thread = Thread.currentThread();
+    final long cpuTime, allocatedBytes;
+
+    UsageScope(Scope delegate, ThreadResources resources, Usage usage) {
+      this.delegate = delegate;
+      this.resources = resources;
+      this.usage = usage;
+      this.cpuTime = resources.cpuTime();
+      this.allocatedBytes = resources.allocatedBytes();
+    }
+
+    @Override public void close() {
+      // Readings are per-thread, so there's nothing to add if the scope was closed elsewhere.
+      if (thread == Thread.currentThread()) {
+        usage.add(delta(cpuTime, resources.cpuTime()),
+          delta(allocatedBytes, resources.allocatedBytes()));
+      }
+      delegate.close();
+    }
+
+    @Override public String toString() {
+      return "UsageScope{" + delegate + "}";
+    }
+  }
+
+  static long delta(long start, long end) {
+    return start == -1L || end == -1L ? -1L : end - start;
+  }
+
+  /** Usage of a span summed across threads. Updates are rare enough to not need striping. */
+  static final class Usage {
+    long cpuTime = -1L, allocatedBytes = -1L; // guarded by this
+
+    synchronized void add(long cpuTime, long allocatedBytes) {
+      if (cpuTime != -1L) this.cpuTime = this.cpuTime == -1L ? cpuTime : this.cpuTime + cpuTime;
+      if (allocatedBytes != -1L) {
+        this.allocatedBytes =
+          this.allocatedBytes == -1L ? allocatedBytes : this.allocatedBytes + allocatedBytes;
+      }
+    }
+
+    synchronized void tag(MutableSpan span) {
+      if (cpuTime != -1L) span.tag(CPU_TIME_TAG, String.valueOf(cpuTime));
+      if (allocatedBytes != -1L) span.tag(ALLOCATED_BYTES_TAG, String.valueOf(allocatedBytes));
+    }
+  }
+}
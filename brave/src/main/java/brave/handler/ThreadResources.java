@@ -0,0 +1,98 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.internal.Nullable;
+import brave.internal.Platform;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static brave.internal.Throwables.propagateIfFatal;
+
+/**
+ * Reads the CPU time and allocated bytes of the current thread, or -1 when unsupported or disabled.
+ *
+ * <p>Allocated bytes are read from {@code com.sun.management.ThreadMXBean}, which isn't available
+ * on all JVMs. Hence, it is only referenced by {@link AllocatedBytes}, which is only loaded after
+ * checking the type is present.
+ */
+final class ThreadResources {
+  static ThreadResources create(boolean cpuTime, boolean allocatedBytes) {
+    ThreadMXBean threadMXBean = null;
+    AllocatedBytes allocatedBytesReader = null;
+    try {
+      threadMXBean = ManagementFactory.getThreadMXBean();
+      cpuTime = cpuTime
+        && threadMXBean.isCurrentThreadCpuTimeSupported()
+        && threadMXBean.isThreadCpuTimeEnabled();
+      if (allocatedBytes) {
+        Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+        if (type.isInstance(threadMXBean)) {
+          allocatedBytesReader = AllocatedBytes.create(threadMXBean);
+        }
+      }
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      Platform.get().log("Thread resource measurement unavailable", e);
+    }
+    if (threadMXBean == null) cpuTime = false;
+    return new ThreadResources(threadMXBean, cpuTime, allocatedBytesReader);
+  }
+
+  @Nullable final ThreadMXBean threadMXBean;
+  final boolean cpuTime;
+  @Nullable final AllocatedBytes allocatedBytes;
+
+  ThreadResources(ThreadMXBean threadMXBean, boolean cpuTime, AllocatedBytes allocatedBytes) {
+    this.threadMXBean = threadMXBean;
+    this.cpuTime = cpuTime;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  /** Returns true if at least one resource can be read. */
+  boolean isSupported() {
+    return cpuTime || allocatedBytes != null;
+  }
+
+  /** Returns the CPU time of the current thread in nanoseconds, or -1 if unavailable. */
+  long cpuTime() {
+    if (!cpuTime) return -1L;
+    return threadMXBean.getCurrentThreadCpuTime(); // -1 if disabled at runtime
+  }
+
+  /** Returns the bytes allocated by the current thread so far, or -1 if unavailable. */
+  long allocatedBytes() {
+    if (allocatedBytes == null) return -1L;
+    return allocatedBytes.currentThread();
+  }
+
+  @Override public String toString() {
+    return "ThreadResources{cpuTime=" + cpuTime + ", allocatedBytes=" + (allocatedBytes != null)
+      + "}";
+  }
+
+  /** Calls {@code com.sun.management.ThreadMXBean} directly, as opposed to reflectively. */
+  static final class AllocatedBytes {
+    /** Returns null if allocated bytes are unsupported or disabled. */
+    @Nullable static AllocatedBytes create(ThreadMXBean threadMXBean) {
+      com.sun.management.ThreadMXBean sunThreadMXBean =
+        (com.sun.management.ThreadMXBean) threadMXBean;
+      if (!sunThreadMXBean.isThreadAllocatedMemorySupported()) return null;
+      if (!sunThreadMXBean.isThreadAllocatedMemoryEnabled()) return null;
+      return new AllocatedBytes(sunThreadMXBean);
+    }
+
+    final com.sun.management.ThreadMXBean threadMXBean;
+
+    AllocatedBytes(com.sun.management.ThreadMXBean threadMXBean) {
+      this.threadMXBean = threadMXBean;
+    }
+
+    /** Returns -1 if disabled at runtime. JDK 14+ skips the thread lookup for the current ID. */
+    long currentThread() {
+      return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+/**
+ * A bounded pool of strings, used to share one instance of equal strings held by spans until they
+ * are reported. For example, instrumentation often builds the same remote service name or span
+ * name for each request, such as {@code "mongodb-" + databaseName}. A handler that buffers spans
+ * otherwise retains a copy of that string per span.
+ *
+ * <p>This is a direct-mapped cache: each string has one slot, chosen by its hash code. On a miss,
+ * the string replaces what was in its slot. Memory is bounded by the slot count and the maximum
+ * length of a pooled string. Strings with high cardinality, such as a unique ID, only evict others,
+ * so callers should avoid pooling them.
+ *
+ * <p>This is safe for concurrent use without locking. Slots are plain array elements, so a thread
+ * may not see a string recently pooled by another, which only costs a miss. As {@link String} is
+ * immutable, a string read from a slot is always fully initialized.
+ *
+ * <p>Each tracer has its own pool, when {@code Tracing.Builder.poolSpanStrings} is set.
+ */
+public final class InternPool {
+  final String[] slots;
+  final int mask, maxLength;
+
+  /**
+   * @param slotCount a power of two, which is the maximum count of pooled strings.
+   * @param maxLength strings longer than this are returned as-is
+   */
+  public InternPool(int slotCount, int maxLength) {
+    if (Integer.bitCount(slotCount) != 1) {
+      throw new IllegalArgumentException("slotCount must be a power of two: " + slotCount);
+    }
+    this.slots = new String[slotCount];
+    this.mask = slotCount - 1;
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * Returns a pooled string equal to the input, or the input itself. Strings longer than the
+   * maximum length are not pooled.
+   */
+  @Nullable public String intern(@Nullable String string) {
+    if (string == null || string.length() > maxLength) return string;
+    int h = string.hashCode();
+    int i = (h ^ (h >>> 16)) & mask;
+    String pooled = slots[i];
+    if (pooled == string || (pooled != null && pooled.equals(string))) return pooled;
+    slots[i] = string;
+    return string;
+  }
+
+  @Override public String toString() {
+    return "InternPool{slots=" + slots.length + ", maxLength=" + maxLength + "}";
+  }
+}
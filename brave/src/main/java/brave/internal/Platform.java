@@ -74,6 +74,34 @@ public abstract class Platform implements Clock {
     return PLATFORM;
   }
 
+  /**
+   * Returns up to {@code maxFrames} frames of the current stack, starting with the first frame
+   * outside the tracer itself. This identifies the caller of tracing code, such as what allocated a
+   * span.
+   *
+   * <p>On Java 9+, this uses {@code java.lang.StackWalker}, which only walks as many frames as
+   * needed. Otherwise, the whole stack is captured and then trimmed.
+   */
+  public StackTraceElement[] callerFrames(int maxFrames) {
+    return callerFrames(new Throwable().getStackTrace(), maxFrames);
+  }
+
+  /** Like {@link #callerFrames(int)}, except trims an existing stack. */
+  public static StackTraceElement[] callerFrames(StackTraceElement[] stack, int maxFrames) {
+    int i = 0;
+    while (i < stack.length && isTracerFrame(stack[i].getClassName())) i++;
+    int length = Math.min(stack.length - i, maxFrames);
+    StackTraceElement[] result = new StackTraceElement[length];
+    System.arraycopy(stack, i, result, 0, length);
+    return result;
+  }
+
+  /** Returns true for classes in the package "brave" or under "brave.internal". */
+  static boolean isTracerFrame(String className) {
+    if (!className.startsWith("brave.")) return false;
+    return className.indexOf('.', 6) == -1 || className.startsWith("brave.internal.");
+  }
+
   // Use nested class to ensure logger isn't initialized unless it is accessed once.
   private static final class LoggerHolder {
     static final String LOGGER_NAME = Tracer.class.getName();
@@ -133,16 +161,6 @@ public abstract class Platform implements Clock {
    */
   public abstract long randomLong();
 
-  /**
-   * Returns the high 8-bytes for {@link brave.Tracing.Builder#traceId128Bit(boolean) 128-bit trace
-   * IDs}.
-   *
-   * <p>The upper 4-bytes are epoch seconds and the lower 4-bytes are random. This makes it
-   * convertible to <a href="http://docs.aws.amazon.com/elasticloadbalancing/latest/application/load-balancer-request-tracing.html"></a>Amazon
-   * X-Ray trace ID format v1</a>.
-   */
-  public abstract long nextTraceIdHigh();
-
   public Clock clock() {
     return new Clock() {
       @Override public long currentTimeMicroseconds() {
@@ -156,6 +174,11 @@ public abstract class Platform implements Clock {
   }
 
   static class Jre9 extends Jre7 {
+    @Override public StackTraceElement[] callerFrames(int maxFrames) {
+      StackTraceElement[] result = StackWalkerFrames.INSTANCE.walk(maxFrames);
+      return result != null ? result : super.callerFrames(maxFrames);
+    }
+
     @Override public long currentTimeMicroseconds() {
       java.time.Instant instant = java.time.Clock.systemUTC().instant();
       return (instant.getEpochSecond() * 1000000) + (instant.getNano() / 1000);
@@ -196,10 +219,6 @@ public abstract class Platform implements Clock {
       return java.util.concurrent.ThreadLocalRandom.current().nextLong();
     }
 
-    @Override public long nextTraceIdHigh() {
-      return nextTraceIdHigh(currentTimeMicroseconds(), java.util.concurrent.ThreadLocalRandom.current().nextInt());
-    }
-
     @Override
     public AssertionError assertionError(String message, Throwable cause) {
       return new AssertionError(message, cause);
@@ -210,7 +229,8 @@ public abstract class Platform implements Clock {
     }
   }
 
-  static long nextTraceIdHigh(long currentTimeMicroseconds, int random) {
+  /** Returns the upper 32 bits as epoch seconds, and the lower 32 bits as the random value. */
+  public static long nextTraceIdHigh(long currentTimeMicroseconds, int random) {
     long epochSeconds = currentTimeMicroseconds / 1000000;
     return (epochSeconds & 0xffffffffL) << 32
       | (random & 0xffffffffL);
@@ -233,10 +253,6 @@ public abstract class Platform implements Clock {
       return prng.nextLong();
     }
 
-    @Override public long nextTraceIdHigh() {
-      return nextTraceIdHigh(currentTimeMicroseconds(), prng.nextInt());
-    }
-
     final Random prng;
 
     Jre6() {
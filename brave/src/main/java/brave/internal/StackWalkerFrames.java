@@ -0,0 +1,85 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+import java.lang.reflect.Method;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Implements {@link Platform#callerFrames(int)} with {@code java.lang.StackWalker}. This is
+ * reflective, as the tracer compiles against Java 6. Only load this on Java 9+.
+ *
+ * <p>Reflection is not the fastest, but unlike {@link Throwable#getStackTrace()}, the cost is
+ * bounded by the frames returned, not the depth of the stack.
+ */
+final class StackWalkerFrames {
+  static final StackWalkerFrames INSTANCE = create();
+
+  static StackWalkerFrames create() {
+    try {
+      Class<?> stackWalker = Class.forName("java.lang.StackWalker");
+      Class<?> stackFrame = Class.forName("java.lang.StackWalker$StackFrame");
+      return new StackWalkerFrames(stackWalker.getMethod("getInstance").invoke(null),
+        stackWalker.getMethod("walk", Function.class),
+        stackFrame.getMethod("getClassName"),
+        stackFrame.getMethod("toStackTraceElement"));
+    } catch (Exception e) {
+      Platform.get().log("StackWalker unavailable; falling back to Throwable", e);
+      return new StackWalkerFrames(null, null, null, null);
+    }
+  }
+
+  @Nullable final Object stackWalker;
+  @Nullable final Method walk, getClassName, toStackTraceElement;
+
+  StackWalkerFrames(Object stackWalker, Method walk, Method getClassName,
+    Method toStackTraceElement) {
+    this.stackWalker = stackWalker;
+    this.walk = walk;
+    this.getClassName = getClassName;
+    this.toStackTraceElement = toStackTraceElement;
+  }
+
+  /** Returns null if the stack couldn't be walked. */
+  @Nullable StackTraceElement[] walk(final int maxFrames) {
+    if (stackWalker == null) return null;
+    try {
+      Object[] frames = (Object[]) walk.invoke(stackWalker, new CallerFrames(maxFrames));
+      StackTraceElement[] result = new StackTraceElement[frames.length];
+      for (int i = 0; i < frames.length; i++) {
+        result[i] = (StackTraceElement) toStackTraceElement.invoke(frames[i]);
+      }
+      return result;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  final class CallerFrames implements Function<Stream<Object>, Object[]>, Predicate<Object> {
+    final int maxFrames;
+    boolean skipping = true;
+
+    CallerFrames(int maxFrames) {
+      this.maxFrames = maxFrames;
+    }
+
+    @Override public Object[] apply(Stream<Object> frames) {
+      return frames.filter(this).limit(maxFrames).toArray();
+    }
+
+    /** Skips leading frames of the tracer, as that's not the caller. */
+    @Override public boolean test(Object frame) {
+      if (!skipping) return true;
+      try {
+        skipping = Platform.isTracerFrame((String) getClassName.invoke(frame));
+      } catch (Exception e) {
+        skipping = false;
+      }
+      return !skipping;
+    }
+  }
+}
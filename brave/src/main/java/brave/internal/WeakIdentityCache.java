@@ -0,0 +1,46 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+/**
+ * Caches values derived from objects whose lifecycle is not controlled by tracing, such as a JDBC
+ * connection. For example, this allows instrumentation to parse the remote service name, IP and
+ * port once per connection, instead of once per statement.
+ *
+ * <p>Entries are held in a {@link WeakIdentityMap}, so keys are compared by identity and an entry
+ * is dropped after its key is garbage collected.
+ */
+public abstract class WeakIdentityCache<K, V> {
+  final WeakIdentityMap<K, V> map = new WeakIdentityMap<K, V>();
+
+  /**
+   * Returns the value for this key, computing it when absent or {@linkplain #isStale(Object,
+   * Object) stale}. Returns {@code null} when the value could not be computed, in which case
+   * nothing is cached.
+   */
+  @Nullable public final V get(K key) {
+    V value = map.get(key);
+    if (value != null && !isStale(key, value)) return value;
+
+    value = compute(key);
+    if (value != null) map.put(key, value);
+    return value;
+  }
+
+  /** Returns the value for this key, or {@code null} if it cannot be computed. */
+  @Nullable protected abstract V compute(K key);
+
+  /**
+   * Override to recompute a value when state of the key it was derived from changes, such as the
+   * current database of a connection. This is called on each cache hit, so should be cheap.
+   */
+  protected boolean isStale(K key, V value) {
+    return false;
+  }
+
+  @Override public String toString() {
+    return "WeakIdentityCache" + map.target.keySet();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Associates values with objects whose lifecycle is not controlled by tracing, such as a JDBC
+ * connection or a received JMS message.
+ *
+ * <p>Keys are compared by identity and weakly referenced, so an entry is dropped after its key is
+ * garbage collected. Identity matters as types like these often implement {@link
+ * Object#equals(Object)} in terms of an ID, which can be absent or reused. Unlike {@link
+ * brave.internal.collect.WeakConcurrentMap}, keys need not know about this type, at the cost of
+ * allocating a small lookup key on each {@link #get(Object)}.
+ *
+ * <p>Similar to the weak map, stale entries are expunged inline, as there is no thread to do it.
+ */
+public final class WeakIdentityMap<K, V> extends ReferenceQueue<K> {
+  final ConcurrentMap<Object, V> target = new ConcurrentHashMap<Object, V>();
+
+  /** Returns the value for this key, or {@code null} if there is none. */
+  @Nullable public V get(K key) {
+    if (key == null) throw new NullPointerException("key == null");
+    expungeStaleEntries();
+    return target.get(new LookupKey(key));
+  }
+
+  /** Adds or replaces the value for this key. */
+  public void put(K key, V value) {
+    if (key == null) throw new NullPointerException("key == null");
+    if (value == null) throw new NullPointerException("value == null");
+    expungeStaleEntries();
+    target.put(new WeakKey<K>(key, this), value);
+  }
+
+  void expungeStaleEntries() {
+    Reference<?> reference;
+    while ((reference = poll()) != null) {
+      target.remove(reference);
+    }
+  }
+
+  @Override public String toString() {
+    expungeStaleEntries();
+    return "WeakIdentityMap" + target;
+  }
+
+  /** Strongly references the key, only during a lookup. */
+  static final class LookupKey {
+    final Object key;
+
+    LookupKey(Object key) {
+      this.key = key;
+    }
+
+    @Override public int hashCode() {
+      return System.identityHashCode(key);
+    }
+
+    @Override public boolean equals(Object o) {
+      return o instanceof WeakKey && ((WeakKey<?>) o).get() == key;
+    }
+  }
+
+  /**
+   * Caches the identity hash code, so that it can be found for removal after the key is collected.
+   * Stale keys are only equal to themselves, which is how they are removed.
+   */
+  static final class WeakKey<T> extends WeakReference<T> {
+    final int hashCode;
+
+    WeakKey(T key, ReferenceQueue<? super T> queue) {
+      super(key, queue);
+      this.hashCode = System.identityHashCode(key);
+    }
+
+    @Override public int hashCode() {
+      return hashCode;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (o == this) return true;
+      T key = get();
+      if (key == null) return false;
+      if (o instanceof LookupKey) return ((LookupKey) o).key == key;
+      return o instanceof WeakKey && ((WeakKey<?>) o).get() == key;
+    }
+
+    @Override public String toString() {
+      T value = get();
+      return value != null ? value.toString() : "ClearedReference()";
+    }
+  }
+}
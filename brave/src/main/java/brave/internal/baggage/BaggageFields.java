@@ -8,6 +8,7 @@ import brave.baggage.BaggageField;
 import brave.internal.Nullable;
 import brave.internal.collect.UnsafeArrayMap;
 import brave.internal.collect.UnsafeArrayMap.Mapper;
+import brave.internal.extra.ExtraSlots;
 import brave.internal.extra.MapExtra;
 import brave.internal.extra.MapExtraFactory;
 import brave.propagation.TraceContext;
@@ -32,6 +33,8 @@ public final class BaggageFields
   };
   static final UnsafeArrayMap.Builder<String, String> MAP_STRING_STRING_BUILDER =
       UnsafeArrayMap.<String, String>newBuilder().mapKeys(FIELD_TO_NAME);
+  /** Assigned eagerly as baggage is read on hot paths such as injection and scope decoration. */
+  static final int SLOT = ExtraSlots.slot(BaggageFields.class);
 
   public static Factory newFactory(List<BaggageField> fields, int maxDynamicEntries) {
     if (fields == null) throw new NullPointerException("fields == null");
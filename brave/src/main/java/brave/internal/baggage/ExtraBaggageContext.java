@@ -6,6 +6,7 @@ package brave.internal.baggage;
 
 import brave.baggage.BaggageField;
 import brave.internal.Nullable;
+import brave.internal.extra.ExtraSlots;
 import brave.propagation.TraceContext;
 import brave.propagation.TraceContextOrSamplingFlags;
 import java.util.Collections;
@@ -30,7 +31,9 @@ public final class ExtraBaggageContext extends BaggageContext {
   }
 
   public static Map<String, String> getAllValues(TraceContext context) {
-    return getAllValues(context.extra());
+    BaggageFields extra = findExtra(context);
+    if (extra == null) return Collections.emptyMap();
+    return extra.getAllValues();
   }
 
   @Nullable
@@ -40,7 +43,10 @@ public final class ExtraBaggageContext extends BaggageContext {
   }
 
   @Nullable public static BaggageField getFieldByName(TraceContext context, String name) {
-    return getFieldByName(getAllFields(context.extra()), name);
+    BaggageFields extra = findExtra(context);
+    List<BaggageField> fields =
+      extra != null ? extra.getAllFields() : Collections.<BaggageField>emptyList();
+    return getFieldByName(fields, name);
   }
 
   @Override public String getValue(BaggageField field, TraceContextOrSamplingFlags extracted) {
@@ -49,7 +55,9 @@ public final class ExtraBaggageContext extends BaggageContext {
   }
 
   @Override public String getValue(BaggageField field, TraceContext context) {
-    return getValue(field, context.extra());
+    BaggageFields extra = findExtra(context);
+    if (extra == null) return null;
+    return extra.getValue(field);
   }
 
   @Override public boolean updateValue(BaggageField field, TraceContextOrSamplingFlags extracted,
@@ -59,7 +67,8 @@ public final class ExtraBaggageContext extends BaggageContext {
   }
 
   @Override public boolean updateValue(BaggageField field, TraceContext context, String value) {
-    return updateValue(field, context.extra(), value);
+    BaggageFields extra = findExtra(context);
+    return extra != null && extra.updateValue(field, value);
   }
 
   static List<BaggageField> getAllFields(List<Object> extraList) {
@@ -97,6 +106,11 @@ public final class ExtraBaggageContext extends BaggageContext {
     return extra != null && extra.updateValue(field, value);
   }
 
+  /** Like {@code context.findExtra(BaggageFields.class)}, except without looking up the type. */
+  @Nullable public static BaggageFields findExtra(TraceContext context) {
+    return (BaggageFields) ExtraSlots.find(context.extra(), BaggageFields.SLOT);
+  }
+
   public static <T> T findExtra(Class<T> type, List<Object> extra) {
     if (type == null) throw new NullPointerException("type == null");
     for (int i = 0, length = extra.size(); i < length; i++) {
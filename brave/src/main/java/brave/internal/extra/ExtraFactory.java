@@ -6,6 +6,7 @@ package brave.internal.extra;
 
 import brave.Tracing;
 import brave.baggage.BaggageField;
+import brave.internal.InternalPropagation;
 import brave.internal.Platform;
 import brave.propagation.Propagation;
 import brave.propagation.TraceContext;
@@ -138,7 +139,7 @@ public abstract class ExtraFactory<E extends Extra<E, F>, F extends ExtraFactory
 
     // Easiest when there is neither existing state to assign, nor need to change context.extra()
     if (claimed != null && existingIndex == -1) {
-      return context;
+      return context; // extracted contexts are already indexed
     }
 
     // If context.extra() didn't have an unclaimed extra instance, create one for this context.
@@ -151,7 +152,9 @@ public abstract class ExtraFactory<E extends Extra<E, F>, F extends ExtraFactory
       claimed.tryToClaim(traceId, spanId);
     }
 
-    TraceContext.Builder builder = context.toBuilder().clearExtra().addExtra(claimed);
+    Object[] extra = new Object[extraLength + 1];
+    int size = 0;
+    extra[size++] = claimed;
 
     for (int i = 0; i < extraLength; i++) {
       Object next = context.extra().get(i);
@@ -164,10 +167,11 @@ public abstract class ExtraFactory<E extends Extra<E, F>, F extends ExtraFactory
           claimed.mergeStateKeepingOursOnConflict(existing);
         }
       } else if (!next.equals(claimed)) {
-        builder.addExtra(next);
+        extra[size++] = next;
       }
     }
 
-    return builder.build();
+    // Index the extra list once here, as opposed to on each lookup.
+    return InternalPropagation.instance.withExtra(context, ExtraSlots.slotted(extra, size));
   }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal.extra;
+
+import brave.internal.Nullable;
+import brave.propagation.TraceContext;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Assigns each type of {@link Extra} a fixed index, so that looking it up in a {@link TraceContext}
+ * is an array read instead of a scan of {@link TraceContext#extra()}.
+ *
+ * <p>The index is computed once, when an extracted context is built, or when {@link
+ * ExtraFactory#decorate(TraceContext)} builds the extra list of a context, such as for each child.
+ * Lists not built that way, such as from {@link TraceContext.Builder#addExtra(Object)}, are
+ * scanned instead. These are usually only one or two elements.
+ *
+ * <p>Each type is assigned a slot once, usually in a static initializer of the type that looks it
+ * up. In practice, there are very few types of extra, usually only baggage. Hence, slots are never
+ * reclaimed.
+ */
+public final class ExtraSlots {
+  static final Object lock = new Object();
+  static volatile Class<?>[] types = new Class<?>[0]; // copy-on-write, guarded by lock
+
+  /**
+   * Returns the slot of the {@link Extra} type, assigning one on first use. Call this once, for
+   * example in a static initializer, as opposed to per request.
+   */
+  public static int slot(Class<?> type) {
+    if (type == null) throw new NullPointerException("type == null");
+    int slot = indexOf(type);
+    if (slot != -1) return slot;
+    synchronized (lock) {
+      slot = indexOf(type);
+      if (slot != -1) return slot;
+      Class<?>[] next = new Class<?>[types.length + 1];
+      System.arraycopy(types, 0, next, 0, types.length);
+      next[types.length] = type;
+      types = next;
+      return types.length - 1;
+    }
+  }
+
+  /** Returns the slot assigned to the type, or -1 if it doesn't have one. */
+  static int indexOf(Class<?> type) {
+    Class<?>[] types = ExtraSlots.types;
+    for (int i = 0, length = types.length; i < length; i++) {
+      if (types[i] == type) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the first element of the extra list that is an instance of the type in the {@linkplain
+   * #slot(Class) slot}, the same as {@link TraceContext#findExtra(Class)} would.
+   */
+  @Nullable public static Object find(List<Object> extraList, int slot) {
+    if (extraList instanceof SlottedList) {
+      Object[] slots = ((SlottedList) extraList).slots;
+      if (slot < slots.length) return slots[slot];
+    }
+    // Not indexed, or the type was assigned a slot after the list was.
+    Class<?>[] types = ExtraSlots.types;
+    if (slot >= types.length) return null;
+    Class<?> type = types[slot];
+    for (int i = 0, length = extraList.size(); i < length; i++) {
+      Object next = extraList.get(i);
+      if (type.isInstance(next)) return next;
+    }
+    return null;
+  }
+
+  /**
+   * Returns an immutable copy of the list that also indexes each instance of a slotted type. This
+   * is used for extracted contexts, so that joining one doesn't copy it again just for an index.
+   */
+  public static List<Object> slotted(List<Object> extraList) {
+    if (extraList instanceof SlottedList) return extraList;
+    int size = extraList.size();
+    Object[] elements = new Object[size];
+    for (int i = 0; i < size; i++) elements[i] = extraList.get(i);
+    return slotted(elements, size);
+  }
+
+  /**
+   * Returns an immutable list of the first {@code size} elements, indexing each instance of a
+   * slotted type. The caller must not modify the array afterwards.
+   */
+  static List<Object> slotted(Object[] elements, int size) {
+    Class<?>[] types = ExtraSlots.types;
+    Object[] slots = EMPTY;
+    for (int i = 0; i < size; i++) {
+      Object next = elements[i];
+      if (!(next instanceof Extra)) continue;
+      if (slots == EMPTY && types.length != 0) slots = new Object[types.length];
+      // Check each type, so that a lookup of a supertype finds a subtype, like a scan would.
+      for (int s = 0; s < types.length; s++) {
+        if (slots[s] == null && types[s].isInstance(next)) slots[s] = next;
+      }
+    }
+    return new SlottedList(elements, size, slots);
+  }
+
+  static final Object[] EMPTY = new Object[0];
+
+  /** An immutable extra list, which indexes instances of {@link Extra} by slot. */
+  static final class SlottedList extends AbstractList<Object> implements RandomAccess {
+    final Object[] elements, slots;
+    final int size;
+
+    SlottedList(Object[] elements, int size, Object[] slots) {
+      this.elements = elements;
+      this.size = size;
+      this.slots = slots;
+    }
+
+    @Override public Object get(int index) {
+      if (index >= size) throw new IndexOutOfBoundsException("index >= size");
+      return elements[index];
+    }
+
+    @Override public int size() {
+      return size;
+    }
+  }
+
+  ExtraSlots() {
+  }
+}
@@ -4,6 +4,7 @@
  */
 package brave.internal.handler;
 
+import brave.TracingMetrics;
 import brave.handler.MutableSpan;
 import brave.handler.SpanHandler;
 import brave.internal.Platform;
@@ -18,7 +19,20 @@ public final class NoopAwareSpanHandler extends SpanHandler {
   // Array ensures no iterators are created at runtime
   public static SpanHandler create(SpanHandler[] handlers,
       AtomicBoolean noop) {
+    return create(handlers, TracingMetrics.NOOP, noop);
+  }
+
+  /** Like {@link #create(SpanHandler[], AtomicBoolean)}, except each handler call is measured. */
+  public static SpanHandler create(SpanHandler[] handlers, TracingMetrics metrics,
+      AtomicBoolean noop) {
     if (handlers.length == 0) return SpanHandler.NOOP;
+    if (metrics != TracingMetrics.NOOP) { // only wrap when measuring, to avoid overhead
+      SpanHandler[] measured = new SpanHandler[handlers.length];
+      for (int i = 0; i < handlers.length; i++) {
+        measured[i] = new MeasuredSpanHandler(handlers[i], metrics);
+      }
+      handlers = measured;
+    }
     if (handlers.length == 1) return new NoopAwareSpanHandler(handlers[0], noop);
     return new NoopAwareSpanHandler(new CompositeSpanHandler(handlers), noop);
   }
@@ -118,4 +132,65 @@ public final class NoopAwareSpanHandler extends SpanHandler {
       return Arrays.toString(handlers);
     }
   }
+
+  /**
+   * Times a handler and counts its errors. Exceptions are re-thrown, so that they are logged the
+   * same as when not measured. Checked exceptions can only be thrown sneakily, so aren't counted.
+   */
+  static final class MeasuredSpanHandler extends SpanHandler {
+    final SpanHandler delegate;
+    final TracingMetrics metrics;
+    final Platform platform = Platform.get();
+
+    MeasuredSpanHandler(SpanHandler delegate, TracingMetrics metrics) {
+      this.delegate = delegate;
+      this.metrics = metrics;
+    }
+
+    @Override public boolean begin(TraceContext context, MutableSpan span, TraceContext parent) {
+      long start = platform.nanoTime();
+      try {
+        return delegate.begin(context, span, parent);
+      } catch (RuntimeException e) {
+        metrics.handlerError(delegate, e);
+        throw e;
+      } catch (Error e) {
+        metrics.handlerError(delegate, e);
+        throw e;
+      } finally {
+        metrics.handlerCalled(delegate, null, platform.nanoTime() - start);
+      }
+    }
+
+    @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+      long start = platform.nanoTime();
+      try {
+        return delegate.end(context, span, cause);
+      } catch (RuntimeException e) {
+        metrics.handlerError(delegate, e);
+        throw e;
+      } catch (Error e) {
+        metrics.handlerError(delegate, e);
+        throw e;
+      } finally {
+        metrics.handlerCalled(delegate, cause, platform.nanoTime() - start);
+      }
+    }
+
+    @Override public boolean handlesAbandoned() {
+      return delegate.handlesAbandoned();
+    }
+
+    @Override public int hashCode() {
+      return delegate.hashCode();
+    }
+
+    @Override public boolean equals(Object obj) {
+      return delegate.equals(obj);
+    }
+
+    @Override public String toString() {
+      return delegate.toString();
+    }
+  }
 }
@@ -14,6 +14,12 @@ import brave.internal.Nullable;
 import brave.internal.Platform;
 import brave.internal.collect.WeakConcurrentMap;
 import brave.propagation.TraceContext;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,6 +42,7 @@ public class OrphanTracker extends SpanHandler {
     MutableSpan defaultSpan;
     Clock clock;
     Level logLevel = Level.FINE;
+    int sampleRate = 1, maxFrames;
 
     /**
      * When initializing a new span, defaults such as service name are copied. We need to be able to
@@ -66,6 +73,28 @@ public class OrphanTracker extends SpanHandler {
       return this;
     }
 
+    /**
+     * Captures the caller of one in this many spans, chosen by span ID. Default 1 (all spans).
+     *
+     * <p>Spans not chosen are still counted when orphaned, but without a call site.
+     */
+    public Builder sampleRate(int sampleRate) {
+      if (sampleRate < 1) throw new IllegalArgumentException("sampleRate < 1: " + sampleRate);
+      this.sampleRate = sampleRate;
+      return this;
+    }
+
+    /**
+     * When positive, the caller is captured as at most this many frames, and orphans are only
+     * counted by call site, instead of logged. Default 0, which logs the whole stack of each
+     * orphan.
+     */
+    public Builder maxFrames(int maxFrames) {
+      if (maxFrames < 0) throw new IllegalArgumentException("maxFrames < 0: " + maxFrames);
+      this.maxFrames = maxFrames;
+      return this;
+    }
+
     public SpanHandler build() {
       if (defaultSpan == null) throw new NullPointerException("defaultSpan == null");
       if (clock == null) throw new NullPointerException("clock == null");
@@ -78,25 +107,44 @@ public class OrphanTracker extends SpanHandler {
 
   final MutableSpan defaultSpan;
   final Clock clock;
-  final WeakConcurrentMap<MutableSpan, Throwable> spanToCaller =
-    new WeakConcurrentMap<MutableSpan, Throwable>();
+  // Keyed by context, as unlike the span, its hash code doesn't change after begin
+  final WeakConcurrentMap<TraceContext, Throwable> spanToCaller =
+    new WeakConcurrentMap<TraceContext, Throwable>();
   final Level logLevel;
+  final int sampleRate, maxFrames;
+  final AtomicLong orphanedSpanCount = new AtomicLong();
+  final ConcurrentMap<String, AtomicLong> callSiteToOrphanedSpanCount =
+    new ConcurrentHashMap<String, AtomicLong>();
 
   OrphanTracker(Builder builder) {
     this.defaultSpan = builder.defaultSpan;
     this.clock = builder.clock;
     this.logLevel = builder.logLevel;
+    this.sampleRate = builder.sampleRate;
+    this.maxFrames = builder.maxFrames;
   }
 
   @Override
   public boolean begin(TraceContext context, MutableSpan span, @Nullable TraceContext parent) {
-    Throwable oldCaller = spanToCaller.putIfProbablyAbsent(span,
-      new Throwable("Thread " + Thread.currentThread().getName() + " allocated span here"));
+    if (!capturesCaller(context)) return true;
+    String message = "Thread " + Thread.currentThread().getName() + " allocated span here";
+    Throwable caller =
+      maxFrames == 0 ? new Throwable(message) : new Caller(message, callerFrames(maxFrames));
+    Throwable oldCaller = spanToCaller.putIfProbablyAbsent(context, caller);
     assert oldCaller == null :
-      "Bug: unexpected to have an existing reference to a new MutableSpan!";
+      "Bug: unexpected to have an existing reference to a new span!";
     return true;
   }
 
+  /** Span IDs are random, so this selects one in {@link #sampleRate} without shared state. */
+  boolean capturesCaller(TraceContext context) {
+    return sampleRate == 1 || (context.spanId() & Long.MAX_VALUE) % sampleRate == 0;
+  }
+
+  StackTraceElement[] callerFrames(int maxFrames) {
+    return Platform.get().callerFrames(maxFrames);
+  }
+
   /**
    * In the case of {@link Cause#ORPHANED}, the calling thread will be an arbitrary invocation of
    * {@link Span} or {@link ScopedSpan} as spans orphaned from GC are expunged inline (not on the GC
@@ -104,15 +152,66 @@ public class OrphanTracker extends SpanHandler {
    * prevent harm to arbitrary callers.
    */
   @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
-    Throwable caller = spanToCaller.remove(span);
+    // Avoid the map lookup when we know there's no caller
+    Throwable caller = capturesCaller(context) ? spanToCaller.remove(context) : null;
     if (cause != Cause.ORPHANED) return true;
+    orphanedSpanCount.incrementAndGet();
     boolean allocatedButNotUsed = span.equals(new MutableSpan(context, defaultSpan));
-    if (caller != null) log(context, allocatedButNotUsed, caller);
+    if (caller != null) {
+      incrementCallSite(caller);
+      if (maxFrames == 0) log(context, allocatedButNotUsed, caller);
+    }
     if (allocatedButNotUsed) return true; // skip adding an annotation
     span.annotate(clock.currentTimeMicroseconds(), "brave.flush");
     return true;
   }
 
+  void incrementCallSite(Throwable caller) {
+    StackTraceElement[] frames = caller.getStackTrace();
+    if (maxFrames == 0) frames = Platform.callerFrames(frames, DEFAULT_CALL_SITE_FRAMES);
+    String callSite = callSite(frames);
+    AtomicLong count = callSiteToOrphanedSpanCount.get(callSite);
+    if (count == null) {
+      AtomicLong newCount = new AtomicLong();
+      count = callSiteToOrphanedSpanCount.putIfAbsent(callSite, newCount);
+      if (count == null) count = newCount;
+    }
+    count.incrementAndGet();
+  }
+
+  /** Frames used for the call site when {@link #maxFrames} is zero (the whole stack is logged) */
+  static final int DEFAULT_CALL_SITE_FRAMES = 8;
+
+  static String callSite(StackTraceElement[] frames) {
+    StringBuilder result = new StringBuilder();
+    for (StackTraceElement frame : frames) {
+      if (result.length() > 0) result.append('\n');
+      result.append(frame);
+    }
+    return result.toString();
+  }
+
+  /**
+   * Returns the count of spans orphaned since this was created, including those without a call
+   * site due to {@link Builder#sampleRate(int) sampling}.
+   */
+  public long orphanedSpanCount() {
+    return orphanedSpanCount.get();
+  }
+
+  /**
+   * Returns a snapshot of orphaned span counts, keyed by the frames that allocated them, separated
+   * by newlines. When {@link Builder#sampleRate(int) sampling}, multiply by the sample rate for an
+   * estimate.
+   */
+  public Map<String, Long> orphanedSpanCountsByCallSite() {
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    for (Map.Entry<String, AtomicLong> entry : callSiteToOrphanedSpanCount.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().get());
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
   void log(TraceContext context, boolean allocatedButNotUsed, Throwable caller) {
     Logger logger = logger();
     if (!logger.isLoggable(logLevel)) return;
@@ -127,7 +226,20 @@ public class OrphanTracker extends SpanHandler {
   }
 
   @Override public String toString() {
-    return "OrphanTracker{}";
+    if (sampleRate == 1 && maxFrames == 0) return "OrphanTracker{}";
+    return "OrphanTracker{sampleRate=" + sampleRate + ", maxFrames=" + maxFrames + "}";
+  }
+
+  /** A caller whose frames were captured without {@link Throwable#fillInStackTrace()} */
+  static final class Caller extends Throwable {
+    Caller(String message, StackTraceElement[] frames) {
+      super(message);
+      setStackTrace(frames);
+    }
+
+    @Override public Throwable fillInStackTrace() {
+      return this; // frames are captured by Platform.callerFrames
+    }
   }
 
   // Use nested class to ensure logger isn't initialized unless it is accessed once.
@@ -0,0 +1,85 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal.recorder;
+
+import brave.Clock;
+import brave.internal.Platform;
+import java.io.Closeable;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock which returns a timestamp updated by a background thread, as opposed to reading {@link
+ * Platform#nanoTime()} on each call. When this is in use, {@link PendingSpans} shares it across all
+ * spans instead of creating a {@link TickClock} per local root.
+ *
+ * <p>Ticks are derived from {@link Platform#nanoTime()}, relative to a base epoch read from the
+ * configured clock. To follow adjustments of the system clock, such as NTP, the base is re-read
+ * about once a second. Published timestamps never go backwards: when the system clock is set back,
+ * the timestamp holds still until it catches up.
+ */
+public final class CoarseClock implements Clock, Runnable, Closeable {
+  static final long RESYNC_INTERVAL_NANOS = 1000000000L; // 1 second
+
+  /** Starts a daemon thread which updates the timestamp each interval of the given resolution. */
+  public static CoarseClock start(Clock baseClock, long resolutionNanos) {
+    CoarseClock result = new CoarseClock(Platform.get(), baseClock, resolutionNanos);
+    Thread ticker = new Thread(result, "brave-coarse-clock");
+    ticker.setDaemon(true);
+    result.ticker = ticker;
+    ticker.start();
+    return result;
+  }
+
+  final Platform platform;
+  final Clock baseClock;
+  final long resolutionNanos;
+  // Only written by the ticker thread, except in the constructor
+  long baseEpochMicros, baseTickNanos;
+  volatile long currentTimeMicroseconds;
+  volatile boolean closed;
+  Thread ticker;
+
+  CoarseClock(Platform platform, Clock baseClock, long resolutionNanos) {
+    this.platform = platform;
+    this.baseClock = baseClock;
+    this.resolutionNanos = resolutionNanos;
+    resync(platform.nanoTime());
+    currentTimeMicroseconds = baseEpochMicros;
+  }
+
+  @Override public long currentTimeMicroseconds() {
+    return currentTimeMicroseconds;
+  }
+
+  @Override public void run() {
+    while (!closed) {
+      LockSupport.parkNanos(this, resolutionNanos);
+      tick();
+    }
+  }
+
+  void tick() {
+    long tickNanos = platform.nanoTime();
+    if (tickNanos - baseTickNanos >= RESYNC_INTERVAL_NANOS) resync(tickNanos);
+    long timestamp = ((tickNanos - baseTickNanos) / 1000) + baseEpochMicros;
+    if (timestamp > currentTimeMicroseconds) currentTimeMicroseconds = timestamp;
+  }
+
+  void resync(long tickNanos) {
+    baseEpochMicros = baseClock.currentTimeMicroseconds();
+    baseTickNanos = tickNanos;
+  }
+
+  /** Stops the ticker thread. Subsequent calls return the last timestamp. */
+  @Override public void close() {
+    closed = true;
+    Thread ticker = this.ticker;
+    if (ticker != null) LockSupport.unpark(ticker);
+  }
+
+  @Override public String toString() {
+    return "CoarseClock{resolutionNanos=" + resolutionNanos + ", baseClock=" + baseClock + "}";
+  }
+}
@@ -6,9 +6,11 @@ package brave.internal.recorder;
 
 import brave.Clock;
 import brave.Tracer;
+import brave.TracingMetrics;
 import brave.handler.MutableSpan;
 import brave.handler.SpanHandler;
 import brave.handler.SpanHandler.Cause;
+import brave.internal.InternPool;
 import brave.internal.Nullable;
 import brave.internal.Platform;
 import brave.internal.collect.WeakConcurrentMap;
@@ -31,17 +33,35 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
   final Platform platform;
   final Clock clock;
   final SpanHandler spanHandler;
+  final TracingMetrics metrics;
+  @Nullable final InternPool internPool;
   final AtomicBoolean noop;
 
   public PendingSpans(MutableSpan defaultSpan, Clock clock, SpanHandler spanHandler,
     AtomicBoolean noop) {
+    this(defaultSpan, clock, spanHandler, TracingMetrics.NOOP, null, noop);
+  }
+
+  public PendingSpans(MutableSpan defaultSpan, Clock clock, SpanHandler spanHandler,
+    TracingMetrics metrics, @Nullable InternPool internPool, AtomicBoolean noop) {
     this.platform = Platform.get();
     this.defaultSpan = defaultSpan;
     this.clock = clock;
     this.spanHandler = spanHandler;
+    this.metrics = metrics;
+    this.internPool = internPool;
     this.noop = noop;
   }
 
+  /**
+   * Returns a pooled string equal to the input, such as a span name or tag key, or the input when
+   * pooling is disabled.
+   */
+  @Nullable public String intern(@Nullable String string) {
+    InternPool internPool = this.internPool;
+    return internPool != null ? internPool.intern(string) : string;
+  }
+
   /**
    * Gets a pending span, or returns {@code null} if there is none.
    *
@@ -62,12 +82,16 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
     PendingSpan parentSpan = parent != null ? get(parent) : null;
 
     // save overhead calculating time if the parent is in-progress (usually is)
-    TickClock clock;
+    Clock clock;
     if (parentSpan != null) {
       TraceContext parentContext = parentSpan.context();
       if (parentContext != null) parent = parentContext;
       clock = parentSpan.clock;
       if (start) span.startTimestamp(clock.currentTimeMicroseconds());
+    } else if (this.clock instanceof CoarseClock) {
+      // A coarse clock never goes backwards, so it is shared instead of ticking per local root
+      clock = this.clock;
+      if (start) span.startTimestamp(clock.currentTimeMicroseconds());
     } else {
       long currentTimeMicroseconds = this.clock.currentTimeMicroseconds();
       clock = new TickClock(platform, currentTimeMicroseconds, platform.nanoTime());
@@ -83,6 +107,7 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
     assert parent != null || context.isLocalRoot() :
       "Bug (or unexpected call to internal code): parent can only be null in a local root!";
 
+    metrics.spanStarted();
     spanHandler.begin(newSpan.handlerContext, newSpan.span, parentSpan != null
       ? parentSpan.handlerContext : null);
     return newSpan;
@@ -91,7 +116,9 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
   /** @see brave.Span#abandon() */
   public void abandon(TraceContext context) {
     PendingSpan last = remove(context);
-    if (last != null && spanHandler.handlesAbandoned()) {
+    if (last == null) return;
+    metrics.spanEnded(Cause.ABANDONED);
+    if (spanHandler.handlesAbandoned()) {
       spanHandler.end(last.handlerContext, last.span, Cause.ABANDONED);
     }
   }
@@ -99,7 +126,9 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
   /** @see brave.Span#flush() */
   public void flush(TraceContext context) {
     PendingSpan last = remove(context);
-    if (last != null) spanHandler.end(last.handlerContext, last.span, Cause.FLUSHED);
+    if (last == null) return;
+    metrics.spanEnded(Cause.FLUSHED);
+    spanHandler.end(last.handlerContext, last.span, Cause.FLUSHED);
   }
 
   /**
@@ -113,6 +142,7 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
     PendingSpan last = remove(context);
     if (last == null) return;
     last.span.finishTimestamp(timestamp != 0L ? timestamp : last.clock.currentTimeMicroseconds());
+    metrics.spanEnded(Cause.FINISHED);
     spanHandler.end(last.handlerContext, last.span, Cause.FINISHED);
   }
 
@@ -124,6 +154,7 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
       PendingSpan value = removeStaleEntry(reference);
       if (noop || value == null) continue;
       assert value.context() == null : "unexpected for the weak referent to be present after GC!";
+      metrics.spanEnded(Cause.ORPHANED);
       spanHandler.end(value.handlerContext, value.span, Cause.ORPHANED);
     }
   }
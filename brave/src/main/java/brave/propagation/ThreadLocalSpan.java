@@ -9,7 +9,6 @@ import brave.Tracer;
 import brave.Tracer.SpanInScope;
 import brave.Tracing;
 import brave.internal.Nullable;
-import java.util.ArrayDeque;
 
 /**
  * This type allows you to place a span in scope in one method and access it in another without
@@ -108,8 +107,7 @@ public class ThreadLocalSpan {
     Tracer tracer = tracer();
     if (tracer == null) return null;
     Span next = tracer.nextSpan(extracted);
-    SpanAndScope spanAndScope = new SpanAndScope(next, tracer.withSpanInScope(next));
-    getCurrentSpanInScopeStack().addFirst(spanAndScope);
+    push(next, tracer.withSpanInScope(next));
     return next;
   }
 
@@ -121,21 +119,10 @@ public class ThreadLocalSpan {
     Tracer tracer = tracer();
     if (tracer == null) return null;
     Span next = tracer.nextSpan();
-    SpanAndScope spanAndScope = new SpanAndScope(next, tracer.withSpanInScope(next));
-    getCurrentSpanInScopeStack().addFirst(spanAndScope);
+    push(next, tracer.withSpanInScope(next));
     return next;
   }
 
-  static final class SpanAndScope {
-    final Span span;
-    final SpanInScope spanInScope;
-
-    SpanAndScope(Span span, SpanInScope spanInScope) {
-      this.span = span;
-      this.spanInScope = spanInScope;
-    }
-  }
-
   /**
    * Returns the span set in scope via {@link #next()} or null if there was none.
    *
@@ -146,31 +133,61 @@ public class ThreadLocalSpan {
    */
   @Nullable public Span remove() {
     Tracer tracer = tracer();
-    Span currentSpan = tracer != null ? tracer.currentSpan() : null;
-    SpanAndScope spanAndScope = getCurrentSpanInScopeStack().pollFirst();
-    if (spanAndScope == null) return currentSpan;
+    Object[] stack = currentSpanInScopeStack.get();
+    int top = stack != null ? top(stack) : -1;
+    if (top == -1) return tracer != null ? tracer.currentSpan() : null;
+
+    Span span = (Span) stack[top];
+    // Only look up the current span when assertions are on, as it allocates.
+    assert tracer == null || isCurrentSpan(tracer, span);
+    SpanInScope scope = (SpanInScope) stack[top + 1];
+    // Clear references so that the span can be collected.
+    stack[top] = null;
+    stack[top + 1] = null;
+    scope.close();
+    return span;
+  }
 
-    Span span = spanAndScope.span;
-    spanAndScope.spanInScope.close();
-    assert span.equals(currentSpan) :
-      "Misalignment: scoped span " + span + " !=  current span " + currentSpan;
-    return currentSpan;
+  static boolean isCurrentSpan(Tracer tracer, Span span) {
+    Span currentSpan = tracer.currentSpan();
+    if (span.equals(currentSpan)) return true;
+    throw new AssertionError(
+      "Misalignment: scoped span " + span + " !=  current span " + currentSpan);
   }
 
   /**
-   * This keeps track of a stack with a normal array dequeue. Redundant stacking of the same span is
-   * not possible because there is no api to place an arbitrary span in scope using this api.
+   * This keeps track of a stack of span and scope pairs, reused for the life of the thread. This
+   * avoids allocating per call to {@link #next()}. Redundant stacking of the same span is not
+   * possible because there is no api to place an arbitrary span in scope using this api.
+   *
+   * <p>The stack is an {@code Object[]} as opposed to a type in this library. Once its entries are
+   * cleared, it doesn't reference this library, so it doesn't prevent its class loader from being
+   * unloaded.
    */
   @SuppressWarnings("ThreadLocalUsage") // intentional: to support multiple Tracer instances
-  final ThreadLocal<ArrayDeque<SpanAndScope>> currentSpanInScopeStack =
-    new ThreadLocal<ArrayDeque<SpanAndScope>>();
+  final ThreadLocal<Object[]> currentSpanInScopeStack = new ThreadLocal<Object[]>();
 
-  ArrayDeque<SpanAndScope> getCurrentSpanInScopeStack() {
-    ArrayDeque<SpanAndScope> stack = currentSpanInScopeStack.get();
+  void push(Span span, SpanInScope scope) {
+    Object[] stack = currentSpanInScopeStack.get();
     if (stack == null) {
-      stack = new ArrayDeque<SpanAndScope>();
+      // Callbacks rarely nest, so start small. This doubles when exceeded.
+      stack = new Object[8];
       currentSpanInScopeStack.set(stack);
     }
-    return stack;
+    int next = top(stack) + 2;
+    if (next == stack.length) {
+      Object[] newStack = new Object[stack.length * 2];
+      System.arraycopy(stack, 0, newStack, 0, stack.length);
+      currentSpanInScopeStack.set(stack = newStack);
+    }
+    stack[next] = span;
+    stack[next + 1] = scope;
+  }
+
+  /** Returns the index of the top span, or -1 if empty. Scans as nesting is typically shallow. */
+  static int top(Object[] stack) {
+    int i = 0;
+    while (i < stack.length && stack[i] != null) i += 2;
+    return i - 2;
   }
 }
@@ -8,6 +8,7 @@ import brave.Tracer;
 import brave.baggage.BaggagePropagation;
 import brave.internal.InternalPropagation;
 import brave.internal.Nullable;
+import brave.internal.extra.ExtraSlots;
 import brave.propagation.TraceContext.Extractor;
 import brave.sampler.SamplerFunction;
 import java.util.List;
@@ -324,7 +325,8 @@ public final class TraceContextOrSamplingFlags {
       final TraceContextOrSamplingFlags result;
       if (!extraList.isEmpty() && type == 1) { // move extra to the trace context
         TraceContext context = (TraceContext) value;
-        context = InternalPropagation.instance.withExtra(context, ensureImmutable(extraList));
+        // Index extra once here, so that joining the extracted context needn't copy it to do so.
+        context = InternalPropagation.instance.withExtra(context, ExtraSlots.slotted(extraList));
         result = new TraceContextOrSamplingFlags(type, context, emptyList());
       } else {
         // make sure the extra state is immutable and unmodifiable
@@ -0,0 +1,74 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.sampler;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the decisions of another sampler. Use this for the sampler of each rule in a rule-based
+ * sampler function to see how many decisions each rule made.
+ *
+ * <p>Ex.
+ * <pre>{@code
+ * DecisionCountingSampler api = DecisionCountingSampler.create(RateLimitingSampler.create(100));
+ * httpTracingBuilder.serverSampler(HttpRuleSampler.newBuilder()
+ *   .putRule(pathStartsWith("/api"), api)
+ *   .build());
+ *
+ * // later
+ * metrics.gauge("sampler.api.sampled", api.sampledCount());
+ * }</pre>
+ *
+ * @see SamplerRuleReader
+ * @since 6.4
+ */
+public final class DecisionCountingSampler extends Sampler {
+  /** @since 6.4 */
+  public static DecisionCountingSampler create(Sampler delegate) {
+    if (delegate == null) throw new NullPointerException("delegate == null");
+    return new DecisionCountingSampler(delegate);
+  }
+
+  final Sampler delegate;
+  final AtomicLong sampled = new AtomicLong(), unsampled = new AtomicLong();
+
+  DecisionCountingSampler(Sampler delegate) {
+    this.delegate = delegate;
+  }
+
+  /** @since 6.4 */
+  public Sampler delegate() {
+    return delegate;
+  }
+
+  /**
+   * Returns the count of decisions to sample.
+   *
+   * @since 6.4
+   */
+  public long sampledCount() {
+    return sampled.get();
+  }
+
+  /**
+   * Returns the count of decisions not to sample.
+   *
+   * @since 6.4
+   */
+  public long unsampledCount() {
+    return unsampled.get();
+  }
+
+  @Override public boolean isSampled(long traceId) {
+    boolean result = delegate.isSampled(traceId);
+    (result ? sampled : unsampled).incrementAndGet();
+    return result;
+  }
+
+  @Override public String toString() {
+    return "DecisionCounting{delegate=" + delegate
+      + ", sampled=" + sampled.get() + ", unsampled=" + unsampled.get() + "}";
+  }
+}
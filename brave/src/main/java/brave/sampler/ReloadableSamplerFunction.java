@@ -0,0 +1,76 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.sampler;
+
+import brave.internal.Nullable;
+
+/**
+ * A sampler function whose rules can be replaced at runtime, without rebuilding tracing
+ * components that were configured with it.
+ *
+ * <p>Ex. Here's how to raise the sample rate of a path when a file of rules changes:
+ * <pre>{@code
+ * sampler = ReloadableSamplerFunction.create(HttpRuleSampler.newBuilder().build());
+ * httpTracing = httpTracing.toBuilder().serverSampler(sampler).build();
+ *
+ * // later, when a file like "/health = 0.0" or "GET /api = 100/s" is modified
+ * Map<Matcher<HttpRequest>, DecisionCountingSampler> rules =
+ *   SamplerRuleReader.read(file, HttpRuleSampler.ruleParser());
+ * sampler.set(HttpRuleSampler.newBuilder().putAllRules(rules).build());
+ * }</pre>
+ *
+ * <h3>Implementation notes</h3>
+ * This is read-copy-update: the current sampler function is an immutable snapshot read without
+ * locking, and {@link #set(SamplerFunction) updates} replace it atomically. In-flight decisions
+ * complete against the snapshot they started with.
+ *
+ * @param <P> the type of the sampler function's input, such as an HTTP request
+ * @see SamplerRuleReader
+ * @see DecisionCountingSampler
+ * @since 6.4
+ */
+public final class ReloadableSamplerFunction<P> implements SamplerFunction<P> {
+  /** @since 6.4 */
+  public static <P> ReloadableSamplerFunction<P> create(SamplerFunction<P> initial) {
+    return new ReloadableSamplerFunction<P>(initial);
+  }
+
+  volatile SamplerFunction<P> delegate;
+
+  ReloadableSamplerFunction(SamplerFunction<P> delegate) {
+    if (delegate == null) throw new NullPointerException("delegate == null");
+    this.delegate = delegate;
+  }
+
+  /**
+   * Returns the current sampler function.
+   *
+   * @since 6.4
+   */
+  public SamplerFunction<P> get() {
+    return delegate;
+  }
+
+  /**
+   * Replaces the current sampler function, effective for the next call to {@link #trySample}.
+   *
+   * <p>This can be called from any thread, such as a configuration callback or a task that reads
+   * rules from a file.
+   *
+   * @since 6.4
+   */
+  public void set(SamplerFunction<P> update) {
+    if (update == null) throw new NullPointerException("update == null");
+    delegate = update;
+  }
+
+  @Override public @Nullable Boolean trySample(P arg) {
+    return delegate.trySample(arg);
+  }
+
+  @Override public String toString() {
+    return "Reloadable(" + delegate + ")";
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.sampler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads sampler rules from text, such as a local file, so that rules can change without a
+ * rebuild. Use this with {@link ReloadableSamplerFunction}.
+ *
+ * <p>Each line is a rule in the format "{rule} = {sampler}", in order of precedence. Blank lines
+ * and lines starting with '#' are ignored. The rule "*" always matches. Other rule syntax is
+ * defined by the {@link RuleParser}, such as {@code HttpRuleSampler.ruleParser()}. The sampler is
+ * either a rate in traces per second, like "100/s", or a probability, like "0.01".
+ *
+ * <p>Ex. Here's a file for HTTP rules:
+ * <pre>{@code
+ * # don't trace health checks
+ * /health = 0.0
+ * POST /api = 10/s
+ * /api = 100/s
+ * }</pre>
+ *
+ * <p>Each sampler is wrapped in a {@link DecisionCountingSampler}, so that decisions can be
+ * counted per rule.
+ *
+ * @since 6.4
+ */
+public final class SamplerRuleReader {
+  /**
+   * Parses the rule portion of a line into a matcher.
+   *
+   * @param <P> the type of the sampler function's input, such as an HTTP request
+   * @since 6.4
+   */
+  public interface RuleParser<P> {
+    /**
+     * Returns a matcher for the rule, or throws {@link IllegalArgumentException} if it is
+     * malformed.
+     */
+    Matcher<P> parseRule(String rule);
+  }
+
+  /**
+   * Reads the UTF-8 encoded file.
+   *
+   * @see #read(Reader, RuleParser)
+   * @since 6.4
+   */
+  public static <P> Map<Matcher<P>, DecisionCountingSampler> read(File file,
+    RuleParser<P> ruleParser) throws IOException {
+    if (file == null) throw new NullPointerException("file == null");
+    Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+    try {
+      return read(reader, ruleParser);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Returns the rules in order of precedence. If the same rule is on multiple lines, the last
+   * sampler wins, but the rule keeps the precedence of its first line.
+   *
+   * @throws IllegalArgumentException if a line is malformed
+   * @since 6.4
+   */
+  public static <P> Map<Matcher<P>, DecisionCountingSampler> read(Reader reader,
+    RuleParser<P> ruleParser) throws IOException {
+    if (reader == null) throw new NullPointerException("reader == null");
+    if (ruleParser == null) throw new NullPointerException("ruleParser == null");
+    Map<Matcher<P>, DecisionCountingSampler> result =
+      new LinkedHashMap<Matcher<P>, DecisionCountingSampler>();
+    BufferedReader lines = new BufferedReader(reader);
+    int lineNumber = 0;
+    for (String line; (line = lines.readLine()) != null; ) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.charAt(0) == '#') continue;
+      int equals = line.lastIndexOf('=');
+      String rule = equals != -1 ? line.substring(0, equals).trim() : "";
+      String sampler = equals != -1 ? line.substring(equals + 1).trim() : "";
+      if (rule.isEmpty() || sampler.isEmpty()) {
+        throw new IllegalArgumentException(
+          "line " + lineNumber + ": expected {rule} = {sampler}, but was: " + line);
+      }
+      try {
+        Matcher<P> matcher = "*".equals(rule) ? Matchers.<P>alwaysMatch()
+          : ruleParser.parseRule(rule);
+        result.put(matcher, DecisionCountingSampler.create(parseSampler(sampler)));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage(), e);
+      }
+    }
+    return result;
+  }
+
+  static Sampler parseSampler(String sampler) {
+    try {
+      if (sampler.endsWith("/s")) {
+        int tracesPerSecond = Integer.parseInt(sampler.substring(0, sampler.length() - 2).trim());
+        return RateLimitingSampler.create(tracesPerSecond);
+      }
+      return Sampler.create(Float.parseFloat(sampler));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+        "expected a rate like 100/s or a probability like 0.01, but was: " + sampler);
+    }
+  }
+
+  SamplerRuleReader() {
+  }
+}
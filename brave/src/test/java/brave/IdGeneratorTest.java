@@ -0,0 +1,31 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave;
+
+import brave.internal.codec.HexCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdGeneratorTest {
+  IdGenerator generator = IdGenerator.random();
+
+  @Test void random_nextId() {
+    assertThat(generator.nextId()).isNotEqualTo(generator.nextId());
+  }
+
+  // example from X-Amzn-Trace-Id: Root=1-5759e988-bd862e3fe1be46a994272793;Sampled=1
+  @Test void random_nextTraceIdHigh_epochSecondsFromClock() {
+    Clock clock = () -> 1465510280000000L; // Thursday, June 9, 2016 10:11:20 PM
+
+    long traceIdHigh = generator.nextTraceIdHigh(clock);
+
+    assertThat(HexCodec.toLowerHex(traceIdHigh)).startsWith("5759e988");
+  }
+
+  @Test void random_hasNiceToString() {
+    assertThat(generator).hasToString("RandomIdGenerator{}");
+  }
+}
@@ -56,6 +56,9 @@ class NoopSpanTest {
     span.finish();
     span.abandon();
     span.flush();
+    span.update("input", (input, span) -> {
+      throw new AssertionError("updater shouldn't be called on a noop span");
+    });
   }
 
   @Test void equals_lazySpan_sameContext() {
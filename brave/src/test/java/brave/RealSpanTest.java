@@ -14,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import static brave.Span.Kind;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
 
 class RealSpanTest {
   TestSpanHandler spans = new TestSpanHandler();
@@ -161,6 +162,102 @@ class RealSpanTest {
       .doesNotContainKey("error");
   }
 
+  @Test void update() {
+    RuntimeException error = new RuntimeException("this cake is a lie");
+    span.update(error, (e, s) -> {
+      s.name("foo").kind(Kind.CLIENT).remoteServiceName("db").error(e);
+      s.remoteIpAndPort("1.2.3.4", 3306);
+      s.customizer().tag("foo", "bar");
+      s.annotate(2L, "baz");
+    });
+    span.flush();
+
+    MutableSpan span2 = spans.get(0);
+    assertThat(span2.name()).isEqualTo("foo");
+    assertThat(span2.kind()).isEqualTo(Kind.CLIENT);
+    assertThat(span2.remoteServiceName()).isEqualTo("db");
+    assertThat(span2.remoteIp()).isEqualTo("1.2.3.4");
+    assertThat(span2.remotePort()).isEqualTo(3306);
+    assertThat(span2.error()).isSameAs(error);
+    assertThat(span2.tags()).containsExactly(entry("foo", "bar"));
+    assertThat(span2.annotations()).containsExactly(entry(2L, "baz"));
+  }
+
+  @Test void update_doesntHoldLock() {
+    span.update(null, (input, s) -> {
+      assertThat(Thread.holdsLock(((RealSpan) span).state)).isFalse();
+    });
+  }
+
+  @Test void update_appliesAfterUpdaterReturns() {
+    span.update(null, (input, s) -> {
+      s.tag("foo", "bar");
+      assertThat(((RealSpan) span).state.tags()).isEmpty();
+    });
+
+    assertThat(((RealSpan) span).state.tags()).containsExactly(entry("foo", "bar"));
+  }
+
+  @Test void update_spanEqualsThis() {
+    span.update(null, (input, s) -> assertThat(s).isEqualTo(span).hasSameHashCodeAs(span));
+  }
+
+  @Test void update_keepsChangesBeforeException() {
+    RuntimeException error = new RuntimeException("this cake is a lie");
+    try {
+      span.update(null, (input, s) -> {
+        s.tag("foo", "bar");
+        throw error;
+      });
+      failBecauseExceptionWasNotThrown(RuntimeException.class);
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(error);
+    }
+    span.flush();
+
+    assertThat(spans.get(0).tags()).containsExactly(entry("foo", "bar"));
+  }
+
+  @Test void update_finished_client_annotation() {
+    span.start(1L).update(null, (input, s) -> s.annotate(2L, "cr"));
+
+    MutableSpan span2 = spans.get(0);
+    assertThat(span2.annotations()).isEmpty();
+    assertThat(span2.finishTimestamp()).isEqualTo(2L);
+    assertThat(span2.kind()).isEqualTo(Kind.CLIENT);
+  }
+
+  @Test void update_retainedViewIsGuardedAfterwards() {
+    SpanCustomizer[] retained = new SpanCustomizer[1];
+    span.update(null, (input, s) -> retained[0] = s.customizer());
+
+    retained[0].tag("foo", "bar"); // after update, so through the guarded span
+    span.flush();
+
+    assertThat(spans.get(0).tags()).containsExactly(entry("foo", "bar"));
+  }
+
+  @Test void update_retainedViewIsGuardedOnOtherThreads() throws Exception {
+    span.update(null, (input, s) -> {
+      Thread thread = new Thread(() -> s.tag("foo", "bar"));
+      thread.start();
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      // the other thread wrote through the guarded span, not our buffer
+      assertThat(((RealSpan) span).state.tags()).containsExactly(entry("foo", "bar"));
+    });
+    span.flush();
+
+    assertThat(spans.get(0).tags()).containsExactly(entry("foo", "bar"));
+  }
+
+  @Test void customizer_cached() {
+    assertThat(span.customizer()).isSameAs(span.customizer());
+  }
+
   @Test void equals_sameContext() {
     Span one = tracing.tracer().toSpan(context), two = tracing.tracer().toSpan(context);
 
@@ -125,6 +125,26 @@ public class TracerTest {
       .isNotZero();
   }
 
+  @Test void newTrace_idGenerator() {
+    tracer = Tracing.newBuilder().traceId128Bit(true).idGenerator(new IdGenerator() {
+      long nextId;
+
+      @Override public long nextId() {
+        return nextId++; // zero is retried
+      }
+
+      @Override public long nextTraceIdHigh(Clock clock) {
+        return clock.currentTimeMicroseconds();
+      }
+    }).clock(() -> 3L).build().tracer();
+
+    TraceContext root = tracer.newTrace().context();
+    assertThat(root.traceIdHigh()).isEqualTo(3L);
+    assertThat(root.traceId()).isEqualTo(1L);
+    assertThat(root.spanId()).isEqualTo(1L);
+    assertThat(tracer.newChild(root).context().spanId()).isEqualTo(2L);
+  }
+
   /** When we join a sampled request, we are sharing the same trace identifiers. */
   @Test void join_setsShared() {
     TraceContext fromIncomingRequest = tracer.newTrace().context();
@@ -217,6 +237,53 @@ public class TracerTest {
       .isEqualTo(notYetSampled.toBuilder().sampled(true).build());
   }
 
+  @Test void joinSpan_samplerFunction_appliesWhenUndecided() {
+    TraceContext notYetSampled =
+      tracer.newTrace().context().toBuilder().sampled(null).build();
+    TraceContextOrSamplingFlags extracted = TraceContextOrSamplingFlags.create(notYetSampled);
+
+    TraceContext joined = tracer.joinSpan(neverSample(), false, extracted).context();
+    assertThat(joined.sampled()).isFalse();
+    assertThat(joined.spanId()).isEqualTo(notYetSampled.spanId());
+  }
+
+  @Test void joinSpan_samplerFunction_ignoredWhenDecided() {
+    TraceContext sampled = tracer.newTrace().context();
+    TraceContextOrSamplingFlags extracted = TraceContextOrSamplingFlags.create(sampled);
+
+    TraceContext joined = tracer.joinSpan(neverSample(), false, extracted).context();
+    assertThat(joined.sampled()).isTrue();
+    assertThat(joined.shared()).isTrue();
+    assertThat(joined.spanId()).isEqualTo(sampled.spanId());
+  }
+
+  @Test void joinSpan_samplerFunction_extractedNothing_newTrace() {
+    TraceContext joined =
+      tracer.joinSpan(neverSample(), false, TraceContextOrSamplingFlags.EMPTY).context();
+
+    assertThat(joined.parentId()).isNull();
+    assertThat(joined.sampled()).isFalse();
+  }
+
+  @Test void nextSpan_samplerFunction_appliesWhenUndecided() {
+    TraceContext notYetSampled =
+      tracer.newTrace().context().toBuilder().sampled(null).build();
+    TraceContextOrSamplingFlags extracted = TraceContextOrSamplingFlags.create(notYetSampled);
+
+    TraceContext child = tracer.nextSpan(neverSample(), false, extracted).context();
+    assertThat(child.sampled()).isFalse();
+    assertThat(child.parentIdAsLong()).isEqualTo(notYetSampled.spanId());
+
+    assertThat(tracer.nextSpan(neverSample(), false, TraceContextOrSamplingFlags.EMPTY)
+      .context().sampled()).isFalse();
+  }
+
+  @Test void nextSpan_samplerFunction_ignoredWhenDecided() {
+    TraceContextOrSamplingFlags extracted = TraceContextOrSamplingFlags.SAMPLED;
+
+    assertThat(tracer.nextSpan(neverSample(), false, extracted).context().sampled()).isTrue();
+  }
+
   @Test void newChild_ensuresSampling() {
     TraceContext notYetSampled =
       tracer.newTrace().context().toBuilder().sampled(null).build();
@@ -1036,6 +1103,14 @@ public class TracerTest {
     assertThat(tracer.joinSpan(incoming).context()).isSameAs(joined);
   }
 
+  @Test void join_idempotent_notShared() {
+    TraceContext incoming = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(true).build();
+
+    TraceContext joined = tracer.joinSpan(incoming).context();
+    assertThat(joined.shared()).isTrue();
+    assertThat(tracer.joinSpan(incoming).context()).isSameAs(joined);
+  }
+
   @Test void join_idempotent_unsampled() {
     TraceContext incoming = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(false)
       .shared(true).build();
@@ -1046,6 +1121,94 @@ public class TracerTest {
       .isNotSameAs(joined); // unsampled spans are by definition not tracked in pending spans
   }
 
+  @Test void propagateOnlyUnsampled_joinReusesContext() {
+    propagateOnlyUnsampledTracer(false);
+    TraceContext incoming = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(false)
+      .build();
+
+    Span joined = tracer.joinSpan(incoming);
+    assertThat(joined.context()).isSameAs(incoming);
+    assertThat(tracer.joinSpan(incoming)).isSameAs(joined);
+    assertThat(tracer.nextSpan(TraceContextOrSamplingFlags.create(incoming))).isSameAs(joined);
+  }
+
+  @Test void propagateOnlyUnsampled_childReusesContext() {
+    propagateOnlyUnsampledTracer(false);
+    TraceContext incoming = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(false)
+      .build();
+
+    Span child = tracer.newChild(incoming);
+    assertThat(child.context()).isSameAs(incoming);
+    try (SpanInScope scope = tracer.withSpanInScope(child)) {
+      assertThat(tracer.nextSpan()).isSameAs(child);
+      assertThat(tracer.currentSpan()).isSameAs(child);
+    }
+  }
+
+  @Test void propagateOnlyUnsampled_decoratesReusedContext() {
+    Tracing.current().close();
+    tracer = Tracing.newBuilder()
+      .addSpanHandler(spans)
+      .propagationFactory(baggageFactory)
+      .propagateOnlyUnsampled(true)
+      .build().tracer();
+
+    Map<String, String> headers = new LinkedHashMap<>();
+    headers.put("b3", "0000000000000001-0000000000000002-0");
+    headers.put(BAGGAGE_FIELD.name(), "napkin");
+    TraceContext incoming =
+      tracer.joinSpan(baggageFactory.get().extractor(Map<String, String>::get)
+        .extract(headers).context()).context();
+
+    assertThat(incoming.sampled()).isFalse();
+    assertThat(BAGGAGE_FIELD.getValue(incoming)).isEqualTo("napkin");
+
+    TraceContext child = tracer.newChild(incoming).context();
+    assertThat(child.sampled()).isFalse();
+    assertThat(BAGGAGE_FIELD.getValue(child)).isEqualTo("napkin");
+  }
+
+  @Test void propagateOnlyUnsampled_notWhenSamplerDecides() {
+    propagateOnlyUnsampledTracer(false);
+    TraceContext incoming = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+
+    Span child = tracer.nextSpan(neverSample(), false,
+      TraceContextOrSamplingFlags.create(incoming));
+    assertThat(child.context()).isNotSameAs(incoming);
+    assertThat(child.context().sampled()).isFalse();
+  }
+
+  @Test void propagateOnlyUnsampled_notSampledOrDeferred() {
+    propagateOnlyUnsampledTracer(false);
+    TraceContext sampled = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(true)
+      .build();
+    TraceContext deferred = sampled.toBuilder().sampled(null).build();
+
+    assertThat(tracer.newChild(sampled).context()).isNotSameAs(sampled);
+    assertThat(tracer.newChild(deferred).context()).isNotSameAs(deferred);
+  }
+
+  @Test void propagateOnlyUnsampled_ignoredWhenAlwaysSampleLocal() {
+    propagateOnlyUnsampledTracer(true);
+    TraceContext incoming = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(false)
+      .build();
+
+    Span child = tracer.newChild(incoming);
+    assertThat(child.context()).isNotSameAs(incoming);
+    assertThat(child.isNoop()).isFalse();
+    child.abandon();
+  }
+
+  void propagateOnlyUnsampledTracer(boolean alwaysSampleLocal) {
+    Tracing.current().close();
+    Tracing.Builder builder = Tracing.newBuilder()
+      .addSpanHandler(spans)
+      .currentTraceContext(currentTraceContext)
+      .propagateOnlyUnsampled(true);
+    if (alwaysSampleLocal) builder.alwaysSampleLocal();
+    tracer = builder.build().tracer();
+  }
+
   @Test void toSpan_idempotent() {
     TraceContext incoming = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(true).build();
 
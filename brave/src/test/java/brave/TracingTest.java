@@ -6,19 +6,25 @@ package brave;
 
 import brave.handler.MutableSpan;
 import brave.handler.SpanHandler;
+import brave.handler.SpanHandler.Cause;
 import brave.internal.Platform;
+import brave.internal.recorder.CoarseClock;
 import brave.propagation.B3Propagation;
 import brave.propagation.Propagation;
 import brave.propagation.StrictCurrentTraceContext;
 import brave.propagation.TraceContext;
 import brave.sampler.Sampler;
+import brave.sampler.SamplerFunction;
+import brave.sampler.SamplerFunctions;
 import brave.test.TestSpanHandler;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 
 class TracingTest {
@@ -155,6 +161,39 @@ class TracingTest {
       .isGreaterThanOrEqualTo(spans.get(0).startTimestamp());
   }
 
+  /** Buffered spans shouldn't retain a copy of each string built by instrumentation. */
+  @Test void poolSpanStrings() {
+    try (Tracing tracing = Tracing.newBuilder().poolSpanStrings(true).addSpanHandler(spans)
+      .build()) {
+      recordDatabaseSpans(tracing);
+    }
+
+    assertThat(spans.get(1).name()).isSameAs(spans.get(0).name());
+    assertThat(spans.get(1).remoteServiceName()).isSameAs(spans.get(0).remoteServiceName());
+    assertThat(spans.get(1).tagKeyAt(0)).isSameAs(spans.get(0).tagKeyAt(0));
+    assertThat(spans.get(1).tagValueAt(0)).isNotSameAs(spans.get(0).tagValueAt(0));
+  }
+
+  @Test void poolSpanStrings_defaultsToFalse() {
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans).build()) {
+      recordDatabaseSpans(tracing);
+    }
+
+    assertThat(spans.get(1).name()).isNotSameAs(spans.get(0).name());
+    assertThat(spans.get(1).remoteServiceName()).isNotSameAs(spans.get(0).remoteServiceName());
+  }
+
+  static void recordDatabaseSpans(Tracing tracing) {
+    String databaseName = "db", prefix = "mongodb.";
+    for (int i = 0; i < 2; i++) {
+      tracing.tracer().nextSpan()
+        .name(new String("SELECT"))
+        .remoteServiceName("mongodb-" + databaseName)
+        .tag(prefix + "collection", new String("users"))
+        .start().finish();
+    }
+  }
+
   @Test void spanHandler_doesntRecordWhenUnsampled() {
     try (Tracing tracing = Tracing.newBuilder()
       .addSpanHandler(spans)
@@ -225,4 +264,152 @@ class TracingTest {
             .addSpanHandler(two)
             .addSpanHandler(three));
   }
+
+  @Test void coarseClock_sharedAcrossTraces() {
+    try (Tracing tracing = Tracing.newBuilder()
+      .coarseClock(100, TimeUnit.MICROSECONDS)
+      .addSpanHandler(new TestSpanHandler())
+      .build()) {
+      TraceContext one = tracing.tracer().newTrace().context();
+      TraceContext two = tracing.tracer().newTrace().context();
+
+      assertThat(tracing.clock(one))
+        .isInstanceOf(CoarseClock.class)
+        .isSameAs(tracing.clock(two));
+    }
+  }
+
+  @Test void coarseClock_baseEpochFromClock() {
+    try (Tracing tracing = Tracing.newBuilder()
+      .clock(() -> 1000L)
+      .coarseClock(1, TimeUnit.SECONDS)
+      .addSpanHandler(new TestSpanHandler())
+      .build()) {
+      Clock clock = tracing.clock(tracing.tracer().newTrace().context());
+
+      // The ticker can advance ahead of the resolution on a spurious wakeup
+      assertThat(clock.currentTimeMicroseconds()).isBetween(1000L, 1000L + 1_000_000L);
+    }
+  }
+
+  @Test void coarseClock_resolutionOutOfRange() {
+    assertThatThrownBy(() -> Tracing.newBuilder().coarseClock(9, TimeUnit.MICROSECONDS))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("resolution must be between 10 microseconds and 1 second: 9 MICROSECONDS");
+    assertThatThrownBy(() -> Tracing.newBuilder().coarseClock(1001, TimeUnit.MILLISECONDS))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test void trackOrphans_sampled_countsByCallSite() {
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans).trackOrphans(1).build()) {
+      orphanSpan(tracing.tracer());
+      GarbageCollectors.blockOnGC();
+      tracing.tracer().newTrace().start().abandon(); // trigger orphaned span check
+
+      assertThat(spans.get(0).containsAnnotation("brave.flush")).isTrue();
+      assertThat(tracing.orphanedSpanCount()).isOne();
+      assertThat(tracing.orphanedSpanCountsByCallSite()).hasSize(1).containsValue(1L);
+      assertThat(tracing.orphanedSpanCountsByCallSite().keySet().iterator().next().split("\n"))
+        .hasSizeLessThanOrEqualTo(Tracing.TRACK_ORPHANS_MAX_FRAMES);
+    }
+  }
+
+  @Test void trackOrphans_disabled() {
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans).build()) {
+      orphanSpan(tracing.tracer());
+      GarbageCollectors.blockOnGC();
+      tracing.tracer().newTrace().start().abandon(); // trigger orphaned span check
+
+      assertThat(tracing.orphanedSpanCount()).isZero();
+      assertThat(tracing.orphanedSpanCountsByCallSite()).isEmpty();
+    }
+  }
+
+  @Test void trackOrphans_sampleRateOutOfRange() {
+    assertThatThrownBy(() -> Tracing.newBuilder().trackOrphans(0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("sampleRate < 1: 0");
+  }
+
+  @Test void metrics_countsSpans() {
+    InMemoryTracingMetrics metrics = InMemoryTracingMetrics.create();
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans).metrics(metrics).build()) {
+      Tracer tracer = tracing.tracer();
+      tracer.nextSpan().start().finish();
+      tracer.nextSpan().start().flush();
+      orphanSpan(tracer);
+      GarbageCollectors.blockOnGC();
+      tracer.newTrace().start().abandon(); // trigger orphaned span check
+
+      assertThat(metrics.spansStarted()).isEqualTo(4L);
+      assertThat(metrics.spansEnded(Cause.FINISHED)).isOne();
+      assertThat(metrics.spansEnded(Cause.FLUSHED)).isOne();
+      assertThat(metrics.spansEnded(Cause.ORPHANED)).isOne();
+      assertThat(metrics.spansEnded(Cause.ABANDONED)).isOne();
+    }
+  }
+
+  @Test void metrics_countsSamplingDecisions() {
+    InMemoryTracingMetrics metrics = InMemoryTracingMetrics.create();
+    SamplerFunction<Boolean> samplerFunction = SamplerFunctions.nullSafe(arg -> arg ? null : false);
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans)
+      .sampler(Sampler.NEVER_SAMPLE).metrics(metrics).build()) {
+      Tracer tracer = tracing.tracer();
+      tracer.nextSpan(samplerFunction, false); // decided by the function
+      tracer.nextSpan(samplerFunction, true); // deferred to the sampler
+      tracer.newChild(tracer.newTrace().context()); // child uses the parent's decision
+
+      assertThat(metrics.unsampledCount(samplerFunction)).isOne();
+      assertThat(metrics.sampledCount(samplerFunction)).isZero();
+      assertThat(metrics.unsampledCount(Sampler.NEVER_SAMPLE)).isEqualTo(2L);
+      assertThat(metrics.sampledCount(Sampler.NEVER_SAMPLE)).isZero();
+    }
+  }
+
+  @Test void metrics_timesEachSpanHandler() {
+    InMemoryTracingMetrics metrics = InMemoryTracingMetrics.create();
+    SpanHandler throwing = new SpanHandler() {
+      @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        throw new IllegalStateException("boom");
+      }
+    };
+    try (Tracing tracing = Tracing.newBuilder()
+      .addSpanHandler(spans).addSpanHandler(throwing).metrics(metrics).build()) {
+      tracing.tracer().nextSpan().start().finish();
+
+      assertThat(spans).hasSize(1);
+      assertThat(metrics.handlerCalls(spans)).isEqualTo(2L); // begin and end
+      assertThat(metrics.handlerNanos(spans)).isPositive();
+      assertThat(metrics.handlerErrors(spans)).isZero();
+      assertThat(metrics.handlerCalls(throwing)).isEqualTo(2L);
+      assertThat(metrics.handlerErrors(throwing)).isOne();
+    }
+  }
+
+  @Test void metrics_defaultIsNoop() {
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans).build()) {
+      assertThat(tracing.tracer().metrics).isSameAs(TracingMetrics.NOOP);
+      assertThat(tracing.tracer().spanHandler)
+        .extracting("delegate") // not measured
+        .isSameAs(spans);
+    }
+  }
+
+  @Test void metrics_clear() {
+    InMemoryTracingMetrics metrics = InMemoryTracingMetrics.create();
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans).metrics(metrics).build()) {
+      tracing.tracer().nextSpan().start().finish();
+      metrics.clear();
+
+      assertThat(metrics.spansStarted()).isZero();
+      assertThat(metrics.spansEnded(Cause.FINISHED)).isZero();
+      assertThat(metrics.sampledCount(Sampler.ALWAYS_SAMPLE)).isZero();
+      assertThat(metrics.handlerCalls(spans)).isZero();
+    }
+  }
+
+  /** Separate method so that the span can be garbage collected */
+  static void orphanSpan(Tracer tracer) {
+    tracer.nextSpan().start();
+  }
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.CriticalPathSpanHandler.Histogram;
+import brave.propagation.TraceContext;
+import brave.sampler.Sampler;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static brave.handler.CriticalPathSpanHandler.OTHER_NAME;
+import static brave.handler.CriticalPathSpanHandler.UNKNOWN_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CriticalPathSpanHandlerTest {
+  CriticalPathSpanHandler handler = CriticalPathSpanHandler.create();
+  Tracing tracing = Tracing.newBuilder().addSpanHandler(handler).build();
+  Tracer tracer = tracing.tracer();
+
+  @AfterEach void close() {
+    tracing.close();
+  }
+
+  /**
+   * <pre>{@code
+   * root:    [0                                  100]
+   * a:         [10          40]
+   * b:              [20               60]
+   * c:                                   [70  90]
+   * }</pre>
+   */
+  @Test void selfTimeAndCriticalPath() {
+    Span root = tracer.newTrace().name("root").start(1000L);
+    span(root, "a", 10, 40);
+    span(root, "b", 20, 60);
+    span(root, "c", 70, 90);
+    root.finish(1100L);
+
+    // root isn't covered from 0-10, 60-70 and 90-100
+    assertThat(totalMicros(handler.selfTime()))
+      .containsEntry("root", 30L)
+      .containsEntry("a", 30L)
+      .containsEntry("b", 40L)
+      .containsEntry("c", 20L);
+
+    // path: root 90-100, c, root 60-70, b, root 0-20 (a finished after b started)
+    assertThat(totalMicros(handler.criticalPathTime()))
+      .containsEntry("root", 40L)
+      .containsEntry("b", 40L)
+      .containsEntry("c", 20L)
+      .doesNotContainKey("a");
+    assertThat(handler.nodes).isEmpty();
+  }
+
+  @Test void nested() {
+    Span root = tracer.newTrace().name("root").start(1000L);
+    Span child = tracer.newChild(root.context()).name("child").start(1010L);
+    span(child, "grandchild", 20, 50);
+    child.finish(1060L);
+    root.finish(1100L);
+
+    assertThat(totalMicros(handler.selfTime()))
+      .containsEntry("root", 50L)
+      .containsEntry("child", 20L)
+      .containsEntry("grandchild", 30L);
+    assertThat(totalMicros(handler.criticalPathTime()))
+      .containsEntry("root", 50L)
+      .containsEntry("child", 20L)
+      .containsEntry("grandchild", 30L);
+  }
+
+  @Test void childrenClampedToParent() {
+    Span root = tracer.newTrace().name("root").start(1000L);
+    span(root, "async", 50, 150);
+    root.finish(1100L);
+
+    assertThat(totalMicros(handler.selfTime()))
+      .containsEntry("root", 50L)
+      .containsEntry("async", 50L);
+  }
+
+  @Test void inProgressAndAbandonedChildrenIgnored() {
+    Span root = tracer.newTrace().name("root").start(1000L);
+    Span inProgress = tracer.newChild(root.context()).name("inProgress").start(1010L);
+    tracer.newChild(root.context()).name("abandoned").start(1010L).abandon();
+    root.finish(1100L);
+    inProgress.finish(1050L);
+
+    assertThat(totalMicros(handler.selfTime()))
+      .containsOnlyKeys("root")
+      .containsEntry("root", 100L);
+    assertThat(handler.nodes).isEmpty();
+  }
+
+  @Test void unfinishedLocalRoot_notAggregated() {
+    Span root = tracer.newTrace().name("root").start(1000L);
+    span(root, "child", 10, 20);
+    root.abandon();
+
+    assertThat(handler.selfTime()).isEmpty();
+    assertThat(handler.nodes).isEmpty();
+  }
+
+  @Test void unsampled_notTracked() {
+    tracing.close();
+    tracing = Tracing.newBuilder().sampler(Sampler.NEVER_SAMPLE).addSpanHandler(handler).build();
+
+    tracing.tracer().nextSpan().start();
+    assertThat(handler.nodes).isEmpty();
+  }
+
+  @Test void maxSpansPerLocalRoot() {
+    handler = CriticalPathSpanHandler.newBuilder().maxSpansPerLocalRoot(2).build();
+    tracing.close();
+    tracing = Tracing.newBuilder().addSpanHandler(handler).build();
+    tracer = tracing.tracer();
+
+    Span root = tracer.newTrace().name("root").start(1000L);
+    span(root, "a", 10, 20);
+    Span b = tracer.newChild(root.context()).name("b").start(1030L);
+    span(b, "c", 35, 40);
+    b.finish(1050L);
+    root.finish(1100L);
+
+    // b and its child are untracked, so count as root self-time
+    assertThat(totalMicros(handler.selfTime()))
+      .containsOnlyKeys("root", "a")
+      .containsEntry("root", 90L);
+  }
+
+  @Test void maxSpanNames() {
+    handler = CriticalPathSpanHandler.newBuilder().maxSpanNames(2).build();
+    tracing.close();
+    tracing = Tracing.newBuilder().addSpanHandler(handler).build();
+    tracer = tracing.tracer();
+
+    Span root = tracer.newTrace().start(1000L);
+    span(root, "a", 10, 20);
+    span(root, "b", 30, 40);
+    root.finish(1100L);
+
+    // children are aggregated first, so the unnamed root is past the limit
+    assertThat(handler.selfTime()).containsOnlyKeys("a", "b", OTHER_NAME);
+    assertThat(handler.selfTime().get(OTHER_NAME).totalMicros()).isEqualTo(80L);
+  }
+
+  @Test void unnamed() {
+    tracer.newTrace().start(1000L).finish(1010L);
+
+    assertThat(handler.selfTime()).containsOnlyKeys(UNKNOWN_NAME);
+  }
+
+  @Test void histogram() {
+    Histogram histogram = new Histogram();
+    assertThat(histogram.valueAtPercentile(0.5)).isZero();
+
+    histogram.record(0L);
+    histogram.record(1L);
+    for (int i = 0; i < 98; i++) histogram.record(100L);
+
+    assertThat(histogram.count()).isEqualTo(100L);
+    assertThat(histogram.totalMicros()).isEqualTo(9801L);
+    assertThat(histogram.valueAtPercentile(0.01)).isZero();
+    assertThat(histogram.valueAtPercentile(0.02)).isEqualTo(1L);
+    assertThat(histogram.valueAtPercentile(0.99)).isEqualTo(127L); // bucket [64, 128)
+  }
+
+  @Test void histogram_bucket() {
+    assertThat(Histogram.bucket(0L)).isZero();
+    assertThat(Histogram.bucket(1L)).isEqualTo(1);
+    assertThat(Histogram.bucket(2L)).isEqualTo(2);
+    assertThat(Histogram.bucket(3L)).isEqualTo(2);
+    assertThat(Histogram.bucket(Long.MAX_VALUE)).isEqualTo(Histogram.BUCKETS - 1);
+  }
+
+  @Test void invalidArguments() {
+    assertThatThrownBy(() -> CriticalPathSpanHandler.newBuilder().maxSpansPerLocalRoot(0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> CriticalPathSpanHandler.newBuilder().maxSpanNames(0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new Histogram().valueAtPercentile(1.1))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  /** Makes a child of the parent, offset from the local root's start at 1000. */
+  void span(Span parent, String name, long start, long finish) {
+    TraceContext parentContext = parent.context();
+    tracer.newChild(parentContext).name(name).start(1000L + start).finish(1000L + finish);
+  }
+
+  static Map<String, Long> totalMicros(Map<String, Histogram> histograms) {
+    Map<String, Long> result = new java.util.LinkedHashMap<>();
+    histograms.forEach((name, histogram) -> result.put(name, histogram.totalMicros()));
+    return result;
+  }
+}
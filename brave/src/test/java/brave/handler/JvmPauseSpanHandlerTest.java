@@ -0,0 +1,136 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.handler.SpanHandler.Cause;
+import brave.propagation.TraceContext;
+import java.util.Arrays;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static brave.handler.JvmPauseSpanHandler.PAUSE_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JvmPauseSpanHandlerTest {
+  TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(true).build();
+  JvmPauseSpanHandler handler = JvmPauseSpanHandler.newBuilder()
+    .garbageCollectors(false)
+    .capacity(4)
+    .build();
+
+  @AfterEach void close() {
+    handler.close();
+  }
+
+  @Test void tagsOverlappingPauses() {
+    handler.recordPause(900L, 200L); // overlaps the start by 100
+    handler.recordPause(1500L, 100L); // within
+    handler.recordPause(1950L, 100L); // overlaps the finish by 50
+    handler.recordPause(3000L, 100L); // after
+
+    assertThat(end(1000L, 2000L).tag(PAUSE_TAG)).isEqualTo("250");
+  }
+
+  @Test void noTagWithoutOverlap() {
+    handler.recordPause(100L, 200L);
+    handler.recordPause(3000L, 100L);
+
+    assertThat(end(1000L, 2000L).tags()).isEmpty();
+  }
+
+  @Test void noTagWhenStartedAfterLatestPause() {
+    handler.recordPause(100L, 200L);
+
+    assertThat(end(300L, 2000L).tags()).isEmpty();
+  }
+
+  @Test void noTagWhenNotFinished() {
+    handler.recordPause(1500L, 100L);
+
+    assertThat(end(1000L, 0L).tags()).isEmpty();
+  }
+
+  @Test void ringKeepsLatestPauses() {
+    for (int i = 0; i < 5; i++) {
+      handler.recordPause(1000L + i * 100L, 10L);
+    }
+
+    // The first pause was overwritten by the fifth
+    assertThat(end(1000L, 2000L).tag(PAUSE_TAG)).isEqualTo("40");
+  }
+
+  @Test void capacity_roundedUpToPowerOfTwo() {
+    assertThat(JvmPauseSpanHandler.newBuilder().garbageCollectors(false).capacity(5).build()
+      .pauses.length()).isEqualTo(8);
+  }
+
+  @Test void capacity_invalid() {
+    assertThatThrownBy(() -> JvmPauseSpanHandler.newBuilder().capacity(0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("capacity < 1: 0");
+  }
+
+  @Test void isConcurrent_stopTheWorldCollectors() {
+    for (String gcName : Arrays.asList("G1 Young Generation", "G1 Old Generation", "PS Scavenge",
+      "PS MarkSweep", "Copy", "MarkSweepCompact", "ParNew", "ZGC Pauses", "ZGC Minor Pauses",
+      "ZGC Major Pauses", "Shenandoah Pauses")) {
+      assertThat(JvmPauseSpanHandler.isConcurrent(gcName)).as(gcName).isFalse();
+    }
+  }
+
+  @Test void isConcurrent_g1ConcurrentGC() {
+    assertThat(JvmPauseSpanHandler.isConcurrent("G1 Concurrent GC")).isTrue();
+  }
+
+  @Test void isConcurrent_zgcCycles() {
+    assertThat(JvmPauseSpanHandler.isConcurrent("ZGC Cycles")).isTrue();
+    assertThat(JvmPauseSpanHandler.isConcurrent("ZGC Minor Cycles")).isTrue();
+    assertThat(JvmPauseSpanHandler.isConcurrent("ZGC Major Cycles")).isTrue();
+  }
+
+  /** JDK 11-16 name the bean for ZGC's concurrent cycles only "ZGC". */
+  @Test void isConcurrent_zgcBeforeJdk17() {
+    assertThat(JvmPauseSpanHandler.isConcurrent("ZGC")).isTrue();
+  }
+
+  @Test void isConcurrent_shenandoahCycles() {
+    assertThat(JvmPauseSpanHandler.isConcurrent("Shenandoah Cycles")).isTrue();
+  }
+
+  @Test void isConcurrent_concurrentMarkSweep() {
+    assertThat(JvmPauseSpanHandler.isConcurrent("ConcurrentMarkSweep")).isTrue();
+  }
+
+  @Test void isConcurrent_unknownIsAPause() {
+    assertThat(JvmPauseSpanHandler.isConcurrent("global")).isFalse(); // OpenJ9
+  }
+
+  @Test void listensToGarbageCollectors() throws InterruptedException {
+    handler = JvmPauseSpanHandler.create();
+    assertThat(handler.emitters).isNotEmpty();
+
+    long start = handler.clock.currentTimeMicroseconds();
+    // Notifications are asynchronous, so a collection before the start can be delivered first.
+    for (int i = 0; i < 50 && handler.latestPauseEnd <= start - 1000L; i++) {
+      System.gc();
+      Thread.sleep(100L);
+    }
+
+    assertThat(handler.latestPauseEnd)
+      .isGreaterThan(start - 1000L) // ms precision
+      .isLessThanOrEqualTo(handler.clock.currentTimeMicroseconds() + 1000L);
+    handler.close();
+    assertThat(handler.emitters).isEmpty();
+  }
+
+  MutableSpan end(long startTimestamp, long finishTimestamp) {
+    MutableSpan span = new MutableSpan(context, null);
+    span.startTimestamp(startTimestamp);
+    span.finishTimestamp(finishTimestamp);
+    handler.end(context, span, Cause.FINISHED);
+    return span;
+  }
+}
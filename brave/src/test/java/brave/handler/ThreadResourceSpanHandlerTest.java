@@ -0,0 +1,154 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.ScopedSpan;
+import brave.Span;
+import brave.Tracer;
+import brave.Tracer.SpanInScope;
+import brave.Tracing;
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.CurrentTraceContext.ScopeDecorator;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.sampler.Sampler;
+import brave.test.TestSpanHandler;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static brave.handler.ThreadResourceSpanHandler.ALLOCATED_BYTES_TAG;
+import static brave.handler.ThreadResourceSpanHandler.CPU_TIME_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+class ThreadResourceSpanHandlerTest {
+  TestSpanHandler spans = new TestSpanHandler();
+  ThreadResourceSpanHandler handler = ThreadResourceSpanHandler.create();
+  Tracing tracing = tracing(handler, Sampler.ALWAYS_SAMPLE);
+  Tracer tracer = tracing.tracer();
+
+  @AfterEach void close() {
+    tracing.close();
+  }
+
+  @Test void tagsWhileInScope() {
+    assumeThat(handler.resources.isSupported()).isTrue();
+
+    ScopedSpan span = tracer.startScopedSpan("allocate");
+    try {
+      burn();
+    } finally {
+      span.finish();
+    }
+
+    assertThat(spans.get(0).tags()).containsKeys(CPU_TIME_TAG, ALLOCATED_BYTES_TAG);
+    assertThat(Long.parseLong(spans.get(0).tag(CPU_TIME_TAG))).isNotNegative();
+    assertThat(Long.parseLong(spans.get(0).tag(ALLOCATED_BYTES_TAG)))
+      .isGreaterThanOrEqualTo(1024L * 1024L);
+    assertThat(handler.usages.iterator()).isExhausted();
+  }
+
+  @Test void sumsAcrossThreads() throws Exception {
+    assumeThat(handler.resources.allocatedBytes).isNotNull();
+
+    final Span span = tracer.nextSpan().start();
+    try (SpanInScope scope = tracer.withSpanInScope(span)) {
+      burn();
+    }
+    long allocatedOnOneThread = handler.usages.getIfPresent(span.context()).allocatedBytes;
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(() -> {
+        try (SpanInScope scope = tracer.withSpanInScope(span)) {
+          burn();
+        }
+      }).get();
+    } finally {
+      executor.shutdownNow();
+    }
+    span.finish();
+
+    assertThat(Long.parseLong(spans.get(0).tag(ALLOCATED_BYTES_TAG)))
+      .isGreaterThanOrEqualTo(allocatedOnOneThread + 1024L * 1024L);
+  }
+
+  @Test void redundantScopeNotCountedTwice() {
+    assumeThat(handler.resources.allocatedBytes).isNotNull();
+
+    Span span = tracer.nextSpan().start();
+    try (SpanInScope scope = tracer.withSpanInScope(span);
+         Scope redundant = tracing.currentTraceContext().maybeScope(span.context())) {
+      assertThat(redundant).isSameAs(Scope.NOOP);
+      burn();
+    }
+    span.finish();
+
+    // Two scopes would have counted at least twice the 1MiB allocated.
+    assertThat(Long.parseLong(spans.get(0).tag(ALLOCATED_BYTES_TAG)))
+      .isLessThan(2 * 1024L * 1024L);
+  }
+
+  @Test void notTaggedWhenNeverInScope() {
+    tracer.nextSpan().start().finish();
+
+    assertThat(spans.get(0).tags()).isEmpty();
+    assertThat(handler.usages.iterator()).isExhausted();
+  }
+
+  @Test void abandoned_releasesUsage() {
+    Span span = tracer.nextSpan().start();
+    try (SpanInScope scope = tracer.withSpanInScope(span)) {
+      span.abandon();
+    }
+
+    assertThat(spans).isEmpty();
+    assertThat(handler.usages.iterator()).isExhausted();
+  }
+
+  @Test void unsampled_notMeasured() {
+    tracing.close();
+    tracing = tracing(handler, Sampler.NEVER_SAMPLE);
+
+    Span span = tracing.tracer().nextSpan().start();
+    try (SpanInScope scope = tracing.tracer().withSpanInScope(span)) {
+      assertThat(handler.usages.iterator()).isExhausted();
+    }
+  }
+
+  @Test void unsupported_noop() {
+    tracing.close();
+    handler = ThreadResourceSpanHandler.newBuilder().cpuTime(false).allocatedBytes(false).build();
+    tracing = tracing(handler, Sampler.ALWAYS_SAMPLE);
+
+    ScopedSpan span = tracing.tracer().startScopedSpan("allocate");
+    burn();
+    span.finish();
+
+    assertThat(handler.scopeDecorator()).isSameAs(ScopeDecorator.NOOP);
+    assertThat(spans.get(0).tags()).isEmpty();
+  }
+
+  Tracing tracing(ThreadResourceSpanHandler handler, Sampler sampler) {
+    return Tracing.newBuilder()
+      .currentTraceContext(ThreadLocalCurrentTraceContext.newBuilder()
+        .addScopeDecorator(handler.scopeDecorator())
+        .build())
+      .sampler(sampler)
+      .addSpanHandler(handler)
+      .addSpanHandler(spans)
+      .build();
+  }
+
+  static volatile Object sink;
+
+  /** Allocates at least 1MiB and spends a little CPU doing so. */
+  static void burn() {
+    for (int i = 0; i < 1024; i++) {
+      sink = new byte[1024];
+    }
+  }
+}
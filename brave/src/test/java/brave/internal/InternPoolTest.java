@@ -0,0 +1,50 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InternPoolTest {
+  InternPool pool = new InternPool(16, 8);
+
+  @Test void intern_returnsPooledInstance() {
+    String first = new String("mongodb");
+    String second = new String("mongodb");
+
+    assertThat(pool.intern(first)).isSameAs(first);
+    assertThat(pool.intern(second)).isSameAs(first);
+  }
+
+  @Test void intern_null() {
+    assertThat(pool.intern(null)).isNull();
+  }
+
+  @Test void intern_tooLong() {
+    String first = new String("mongodb-db"), second = new String("mongodb-db");
+
+    pool.intern(first);
+
+    assertThat(pool.intern(second)).isSameAs(second);
+  }
+
+  @Test void intern_missReplacesSlot() {
+    pool = new InternPool(1, 8); // everything collides
+
+    String foo = new String("foo");
+    pool.intern(foo);
+    pool.intern("bar");
+
+    assertThat(pool.intern(new String("foo"))).isNotSameAs(foo);
+  }
+
+  @Test void slotCount_powerOfTwo() {
+    assertThatThrownBy(() -> new InternPool(10, 8))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("slotCount must be a power of two: 10");
+  }
+}
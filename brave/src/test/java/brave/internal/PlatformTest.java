@@ -43,15 +43,46 @@ class PlatformTest {
     assertThat(platform.clock()).hasToString("Clock.systemUTC().instant()");
   }
 
-  // example from X-Amzn-Trace-Id: Root=1-5759e988-bd862e3fe1be46a994272793;Sampled=1
-  @Test void randomLong_epochSecondsPlusRandom() {
-    Platform platform = new Platform.Jre7() {
-      @Override public long currentTimeMicroseconds() {
-        return 1465510280000000L; // Thursday, June 9, 2016 10:11:20 PM
-      }
+  @Test void callerFrames_skipsTracerFrames() {
+    StackTraceElement[] stack = {
+      new StackTraceElement("brave.internal.Platform", "callerFrames", "Platform.java", 1),
+      new StackTraceElement("brave.Tracer", "nextSpan", "Tracer.java", 2),
+      new StackTraceElement("brave.http.HttpClientHandler", "handleSend", "Handler.java", 3),
+      new StackTraceElement("brave.Tracer", "nextSpan", "Tracer.java", 4),
+      new StackTraceElement("com.acme.Client", "call", "Client.java", 5),
     };
 
-    long traceIdHigh = platform.nextTraceIdHigh();
+    assertThat(Platform.callerFrames(stack, 3))
+      .extracting(StackTraceElement::getLineNumber)
+      .containsExactly(3, 4, 5);
+    assertThat(Platform.callerFrames(stack, 1))
+      .extracting(StackTraceElement::getLineNumber)
+      .containsExactly(3);
+  }
+
+  @Test void isTracerFrame() {
+    assertThat(Platform.isTracerFrame("brave.Tracer")).isTrue();
+    assertThat(Platform.isTracerFrame("brave.Tracer$1")).isTrue();
+    assertThat(Platform.isTracerFrame("brave.internal.recorder.PendingSpans")).isTrue();
+    assertThat(Platform.isTracerFrame("brave.http.HttpClientHandler")).isFalse();
+    assertThat(Platform.isTracerFrame("brave.internalfoo.Bar")).isFalse();
+    assertThat(Platform.isTracerFrame("bravery.Foo")).isFalse();
+  }
+
+  /** This test is in a tracer package, so its frame is skipped like the tracer's. */
+  @Test void callerFrames_jre9_sameAsThrowable() {
+    StackTraceElement[] stackWalker = new Platform.Jre9().callerFrames(3);
+    StackTraceElement[] throwable = new Platform.Jre7().callerFrames(100);
+
+    assertThat(stackWalker).hasSize(3);
+    assertThat(stackWalker[0].getClassName()).doesNotStartWith("brave.");
+    assertThat(throwable).contains(stackWalker[0]);
+  }
+
+  // example from X-Amzn-Trace-Id: Root=1-5759e988-bd862e3fe1be46a994272793;Sampled=1
+  @Test void randomLong_epochSecondsPlusRandom() {
+    // Thursday, June 9, 2016 10:11:20 PM
+    long traceIdHigh = Platform.nextTraceIdHigh(1465510280000000L, 0x12345678);
 
     assertThat(HexCodec.toLowerHex(traceIdHigh)).startsWith("5759e988");
   }
@@ -0,0 +1,101 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+import brave.GarbageCollectors;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeakIdentityCacheTest {
+  List<Object> computed = new ArrayList<>();
+  boolean stale;
+
+  WeakIdentityCache<Object, String> cache = new WeakIdentityCache<Object, String>() {
+    @Override protected String compute(Object key) {
+      computed.add(key);
+      return "value" + computed.size();
+    }
+
+    @Override protected boolean isStale(Object key, String value) {
+      return stale;
+    }
+  };
+
+  @Test void get_computesOnce() {
+    Object key = new Object();
+
+    assertThat(cache.get(key)).isEqualTo("value1");
+    assertThat(cache.get(key)).isEqualTo("value1");
+
+    assertThat(computed).containsExactly(key);
+  }
+
+  /** Ensures keys which override equals, such as a JDBC connection proxy, are not conflated. */
+  @Test void get_comparesByIdentity() {
+    String key1 = new String("connection");
+    String key2 = new String("connection");
+
+    assertThat(cache.get(key1)).isEqualTo("value1");
+    assertThat(cache.get(key2)).isEqualTo("value2");
+    assertThat(cache.get(key1)).isEqualTo("value1");
+
+    assertThat(computed).containsExactly(key1, key2);
+  }
+
+  @Test void get_recomputesWhenStale() {
+    Object key = new Object();
+    cache.get(key);
+
+    stale = true;
+    assertThat(cache.get(key)).isEqualTo("value2");
+
+    assertThat(cache.map.target).hasSize(1);
+  }
+
+  @Test void get_doesntCacheNull() {
+    WeakIdentityCache<Object, String> cache = new WeakIdentityCache<Object, String>() {
+      @Override protected String compute(Object key) {
+        computed.add(key);
+        return null;
+      }
+    };
+    Object key = new Object();
+
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.get(key)).isNull();
+
+    assertThat(computed).containsExactly(key, key);
+    assertThat(cache.map.target).isEmpty();
+  }
+
+  @Test void get_nullKey() {
+    assertThatThrownBy(() -> cache.get(null))
+      .isInstanceOf(NullPointerException.class)
+      .hasMessage("key == null");
+  }
+
+  @Test void expungeStaleEntries_afterGC() {
+    Object key1 = new Object(), key2 = new Object(), key3 = new Object();
+    cache.get(key1);
+    cache.get(key2);
+    cache.get(key3);
+
+    // By clearing strong references in this test, we are left with the weak ones in the map
+    key1 = key2 = null;
+    computed.clear();
+    GarbageCollectors.blockOnGC();
+
+    cache.map.expungeStaleEntries();
+
+    assertThat(cache.map.target.keySet())
+      .extracting(k -> (Object) ((WeakReference<?>) k).get())
+      .containsExactly(key3);
+  }
+}
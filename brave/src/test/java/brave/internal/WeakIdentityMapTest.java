@@ -0,0 +1,94 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+import brave.GarbageCollectors;
+import java.lang.ref.WeakReference;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeakIdentityMapTest {
+  WeakIdentityMap<Object, String> map = new WeakIdentityMap<>();
+
+  @Test void get_nullWhenAbsent() {
+    assertThat(map.get(new Object())).isNull();
+  }
+
+  @Test void put() {
+    Object key = new Object();
+    map.put(key, "value");
+
+    assertThat(map.get(key)).isEqualTo("value");
+  }
+
+  @Test void put_replaces() {
+    Object key = new Object();
+    map.put(key, "value1");
+    map.put(key, "value2");
+
+    assertThat(map.get(key)).isEqualTo("value2");
+    assertThat(map.target).hasSize(1);
+  }
+
+  /** Types like JMS messages often implement equals in terms of an ID. */
+  @Test void get_comparesByIdentity() {
+    String key = new String("message"), equalKey = new String("message");
+    map.put(key, "value");
+
+    assertThat(map.get(equalKey)).isNull();
+  }
+
+  @Test void nullKey() {
+    assertThatThrownBy(() -> map.get(null))
+      .isInstanceOf(NullPointerException.class)
+      .hasMessage("key == null");
+    assertThatThrownBy(() -> map.put(null, "value"))
+      .isInstanceOf(NullPointerException.class)
+      .hasMessage("key == null");
+  }
+
+  @Test void nullValue() {
+    assertThatThrownBy(() -> map.put(new Object(), null))
+      .isInstanceOf(NullPointerException.class)
+      .hasMessage("value == null");
+  }
+
+  /** Stale keys are only equal to themselves, so removing one doesn't remove another. */
+  @Test void expungeStaleEntries() {
+    map.put(new Object(), "value1");
+    map.put(new Object(), "value2");
+    for (Object key : map.target.keySet()) {
+      WeakIdentityMap.WeakKey<?> weakKey = (WeakIdentityMap.WeakKey<?>) key;
+      weakKey.clear();
+      assertThat(weakKey).isNotEqualTo(new WeakIdentityMap.WeakKey<>(null, map));
+    }
+
+    WeakIdentityMap.WeakKey<?> first =
+      (WeakIdentityMap.WeakKey<?>) map.target.keySet().iterator().next();
+    first.enqueue();
+    map.expungeStaleEntries();
+
+    assertThat(map.target).hasSize(1).doesNotContainKey(first);
+  }
+
+  @Test void expungeStaleEntries_afterGC() {
+    Object key1 = new Object(), key2 = new Object(), key3 = new Object();
+    map.put(key1, "value1");
+    map.put(key2, "value2");
+    map.put(key3, "value3");
+
+    // By clearing strong references in this test, we are left with the weak ones in the map
+    key1 = key2 = null;
+    GarbageCollectors.blockOnGC();
+
+    map.expungeStaleEntries();
+
+    assertThat(map.target.keySet())
+      .extracting(k -> (Object) ((WeakReference<?>) k).get())
+      .containsExactly(key3);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal.extra;
+
+import brave.internal.extra.ExtraSlots.SlottedList;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExtraSlotsTest {
+  BasicMapExtra.Factory factory = new BasicMapExtra.FactoryBuilder()
+      .addInitialKey("1")
+      .build();
+  BasicMapExtra.Factory factory2 = new BasicMapExtra.FactoryBuilder()
+      .addInitialKey("1")
+      .build();
+  TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+
+  @Test void slot_assignedOncePerType() {
+    factory.create();
+
+    assertThat(ExtraSlots.slot(BasicMapExtra.class))
+        .isEqualTo(ExtraSlots.indexOf(BasicMapExtra.class))
+        .isNotEqualTo(-1);
+  }
+
+  @Test void indexOf_notExtra() {
+    assertThat(ExtraSlots.indexOf(String.class)).isEqualTo(-1);
+  }
+
+  @Test void slotted_noExtra() {
+    List<Object> empty = Collections.emptyList(), strings = asList((Object) "foo");
+    assertThat(ExtraSlots.slotted(empty)).isEmpty();
+    assertThat(ExtraSlots.slotted(strings)).containsExactly("foo");
+  }
+
+  @Test void slotted_size() {
+    BasicMapExtra extra = factory.create();
+    int slot = ExtraSlots.slot(BasicMapExtra.class);
+
+    List<Object> slotted = ExtraSlots.slotted(new Object[] {extra, "foo", null}, 2);
+    assertThat(slotted).containsExactly(extra, "foo");
+    assertThat(ExtraSlots.find(slotted, slot)).isSameAs(extra);
+  }
+
+  @Test void slotted_firstInstanceOfType() {
+    BasicMapExtra extra1 = factory.create(), extra2 = factory2.create();
+    int slot = ExtraSlots.slot(BasicMapExtra.class);
+
+    List<Object> slotted = ExtraSlots.slotted(asList("foo", extra1, extra2));
+    assertThat(slotted).containsExactly("foo", extra1, extra2);
+    assertThat(ExtraSlots.find(slotted, slot)).isSameAs(extra1);
+    assertThat(ExtraSlots.slotted(slotted)).isSameAs(slotted);
+  }
+
+  @Test void find_supertype() {
+    BasicMapExtra extra = factory.create();
+    int slot = ExtraSlots.slot(MapExtra.class);
+
+    assertThat(ExtraSlots.find(asList("foo", extra), slot)).isSameAs(extra);
+    assertThat(ExtraSlots.find(ExtraSlots.slotted(asList("foo", extra)), slot)).isSameAs(extra);
+  }
+
+  @Test void find_notIndexed() {
+    BasicMapExtra extra = factory.create();
+    int slot = ExtraSlots.slot(BasicMapExtra.class);
+
+    assertThat(ExtraSlots.find(asList("foo", extra), slot)).isSameAs(extra);
+  }
+
+  @Test void find_absent() {
+    int slot = ExtraSlots.slot(BasicMapExtra.class);
+
+    assertThat(ExtraSlots.find(asList((Object) "foo"), slot)).isNull();
+    assertThat(ExtraSlots.find(asList((Object) "foo"), Integer.MAX_VALUE)).isNull();
+  }
+
+  @Test void decorate_indexesExtra() {
+    context = factory.decorate(context.toBuilder().addExtra("foo").build());
+
+    assertThat(context.extra()).isInstanceOf(SlottedList.class);
+    BasicMapExtra extra = context.findExtra(BasicMapExtra.class);
+    assertThat(ExtraSlots.find(context.extra(), ExtraSlots.slot(BasicMapExtra.class)))
+        .isSameAs(extra);
+    assertThat(context.findExtra(String.class)).isEqualTo("foo");
+
+    // a child is indexed as well
+    TraceContext child = factory.decorate(context.toBuilder().spanId(3L).build());
+    assertThat(child.extra()).isInstanceOf(SlottedList.class);
+  }
+
+  @Test void extract_indexesExtra() {
+    ExtraSlots.slot(BasicMapExtra.class);
+    BasicMapExtra extra = factory.create();
+    TraceContext extracted = TraceContextOrSamplingFlags.newBuilder(context)
+        .addExtra(extra).build().context();
+
+    assertThat(extracted.extra()).isInstanceOf(SlottedList.class);
+
+    // claiming the extracted extra doesn't copy the context
+    assertThat(factory.decorate(extracted)).isSameAs(extracted);
+  }
+}
@@ -4,6 +4,8 @@
  */
 package brave.internal.handler;
 
+import brave.InMemoryTracingMetrics;
+import brave.TracingMetrics;
 import brave.handler.MutableSpan;
 import brave.handler.SpanHandler;
 import brave.handler.SpanHandler.Cause;
@@ -48,6 +50,28 @@ class NoopAwareSpanHandlerTest {
     verify(one).end(context, span, Cause.FINISHED);
   }
 
+  @Test void create_measured() {
+    InMemoryTracingMetrics metrics = InMemoryTracingMetrics.create();
+    SpanHandler handler =
+        NoopAwareSpanHandler.create(new SpanHandler[] {one, two}, metrics, noop);
+    when(one.end(context, span, Cause.FINISHED)).thenReturn(true);
+    when(two.end(context, span, Cause.FINISHED)).thenThrow(new IllegalStateException());
+
+    assertThat(handler.end(context, span, Cause.FINISHED)).isTrue();
+
+    assertThat(metrics.handlerCalls(one)).isOne();
+    assertThat(metrics.handlerErrors(one)).isZero();
+    assertThat(metrics.handlerCalls(two)).isOne();
+    assertThat(metrics.handlerErrors(two)).isOne();
+  }
+
+  @Test void create_measured_noopMetricsNotWrapped() {
+    NoopAwareSpanHandler handler = (NoopAwareSpanHandler)
+        NoopAwareSpanHandler.create(new SpanHandler[] {one}, TracingMetrics.NOOP, noop);
+
+    assertThat(handler.delegate).isSameAs(one);
+  }
+
   @Test void honorsNoop() {
     SpanHandler handler = NoopAwareSpanHandler.create(new SpanHandler[] {one}, noop);
 
@@ -20,6 +20,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 class OrphanTrackerTest {
   String testName;
@@ -99,4 +100,73 @@ class OrphanTrackerTest {
       }
     };
   }
+
+  @Test void sampled_countsByCallSiteInsteadOfLogging() {
+    StackTraceElement frame = new StackTraceElement("com.acme.Foo", "bar", "Foo.java", 42);
+    tracker = new OrphanTracker(OrphanTracker.newBuilder()
+      .clock(clock::getAndIncrement).defaultSpan(defaultSpan).sampleRate(1).maxFrames(1)) {
+      @Override StackTraceElement[] callerFrames(int maxFrames) {
+        assertThat(maxFrames).isOne();
+        return new StackTraceElement[] {frame};
+      }
+
+      @Override Logger logger() {
+        throw new AssertionError("shouldn't log");
+      }
+    };
+
+    for (int i = 0; i < 2; i++) {
+      MutableSpan span = new MutableSpan(context, defaultSpan);
+      tracker.begin(context, span, null);
+      tracker.end(context, span, SpanHandler.Cause.ORPHANED);
+    }
+
+    assertThat(tracker.orphanedSpanCount()).isEqualTo(2);
+    assertThat(tracker.orphanedSpanCountsByCallSite())
+      .containsOnly(entry("com.acme.Foo.bar(Foo.java:42)", 2L));
+  }
+
+  @Test void sampled_countsOrphansWithoutCallSite() {
+    tracker = new OrphanTracker(OrphanTracker.newBuilder()
+      .clock(clock::getAndIncrement).defaultSpan(defaultSpan).sampleRate(3).maxFrames(8));
+    assertThat(tracker.capturesCaller(context)).isFalse(); // span ID 2
+
+    tracker.begin(context, span, null);
+    assertThat(tracker.spanToCaller.getIfPresent(context)).isNull();
+    tracker.end(context, span, SpanHandler.Cause.ORPHANED);
+
+    assertThat(tracker.orphanedSpanCount()).isOne();
+    assertThat(tracker.orphanedSpanCountsByCallSite()).isEmpty();
+  }
+
+  @Test void sampled_finishedNotCounted() {
+    tracker = new OrphanTracker(OrphanTracker.newBuilder()
+      .clock(clock::getAndIncrement).defaultSpan(defaultSpan).sampleRate(2).maxFrames(8));
+    assertThat(tracker.capturesCaller(context)).isTrue(); // span ID 2
+
+    tracker.begin(context, span, null);
+    assertThat(tracker.spanToCaller.getIfPresent(context)).isNotNull();
+    tracker.end(context, span, SpanHandler.Cause.FINISHED);
+
+    assertThat(tracker.spanToCaller.getIfPresent(context)).isNull();
+    assertThat(tracker.orphanedSpanCount()).isZero();
+  }
+
+  /** The span is mutated after begin, which changes its hash code */
+  @Test void notSampled_countsByCallSiteAndLogs() {
+    tracker.begin(context, span, null);
+    span.startTimestamp(1L);
+    span.name("get");
+    tracker.end(context, span, SpanHandler.Cause.ORPHANED);
+
+    assertThat(messages).hasSize(1);
+    assertThat(tracker.orphanedSpanCountsByCallSite()).hasSize(1).containsValue(1L);
+  }
+
+  @Test void toString_sampled() {
+    assertThat(tracker).hasToString("OrphanTracker{}");
+    assertThat(OrphanTracker.newBuilder()
+      .clock(clock::getAndIncrement).defaultSpan(defaultSpan).sampleRate(100).maxFrames(8).build())
+      .hasToString("OrphanTracker{sampleRate=100, maxFrames=8}");
+  }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal.recorder;
+
+import brave.Clock;
+import brave.internal.Platform;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CoarseClockTest {
+  static final long RESOLUTION_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  @Mock Platform platform;
+  @Mock Clock baseClock;
+
+  @Test void initialTimestampIsBaseEpoch() {
+    when(baseClock.currentTimeMicroseconds()).thenReturn(1000L);
+
+    CoarseClock clock = new CoarseClock(platform, baseClock, RESOLUTION_NANOS);
+
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(1000L);
+  }
+
+  @Test void tick_incrementsAccordingToNanoTick() {
+    when(baseClock.currentTimeMicroseconds()).thenReturn(1000L); // 1ms
+    CoarseClock clock = new CoarseClock(platform, baseClock, RESOLUTION_NANOS);
+
+    when(platform.nanoTime()).thenReturn(100000L); // 100 microseconds
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(1000L); // not until a tick
+
+    clock.tick();
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(1100L);
+  }
+
+  @Test void tick_resyncsBaseEpoch() {
+    when(baseClock.currentTimeMicroseconds()).thenReturn(1000L);
+    CoarseClock clock = new CoarseClock(platform, baseClock, RESOLUTION_NANOS);
+
+    // the system clock was adjusted forward by 1 second
+    when(baseClock.currentTimeMicroseconds()).thenReturn(2001000L);
+    when(platform.nanoTime()).thenReturn(CoarseClock.RESYNC_INTERVAL_NANOS);
+    clock.tick();
+
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(2001000L);
+  }
+
+  @Test void tick_neverGoesBackwards() {
+    when(baseClock.currentTimeMicroseconds()).thenReturn(5000000L);
+    CoarseClock clock = new CoarseClock(platform, baseClock, RESOLUTION_NANOS);
+
+    // the system clock was set back by 2 seconds
+    when(baseClock.currentTimeMicroseconds()).thenReturn(4000000L);
+    when(platform.nanoTime()).thenReturn(CoarseClock.RESYNC_INTERVAL_NANOS);
+    clock.tick();
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(5000000L); // holds still
+
+    // two seconds later, the system clock caught up
+    when(baseClock.currentTimeMicroseconds()).thenReturn(6000000L);
+    when(platform.nanoTime()).thenReturn(CoarseClock.RESYNC_INTERVAL_NANOS * 3);
+    clock.tick();
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(6000000L);
+  }
+
+  @Test void start_ticksUntilClosed() throws InterruptedException {
+    CoarseClock clock = CoarseClock.start(Platform.get().clock(), RESOLUTION_NANOS);
+    long initial = clock.currentTimeMicroseconds();
+
+    while (clock.currentTimeMicroseconds() == initial) {
+      Thread.sleep(1L);
+    }
+
+    assertThat(clock.ticker.isDaemon()).isTrue();
+    assertThat(clock.ticker.getName()).isEqualTo("brave-coarse-clock");
+
+    clock.close();
+    clock.ticker.join(10000L);
+    assertThat(clock.ticker.isAlive()).isFalse();
+  }
+}
@@ -4,12 +4,15 @@
  */
 package brave.propagation;
 
+import brave.Span;
+import brave.Tracer;
 import brave.Tracing;
 import brave.test.TestSpanHandler;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class ThreadLocalSpanTest {
   StrictCurrentTraceContext currentTraceContext = StrictCurrentTraceContext.create();
@@ -35,4 +38,50 @@ class ThreadLocalSpanTest {
     assertThat(threadLocalSpan.next(TraceContextOrSamplingFlags.DEBUG))
       .isEqualTo(threadLocalSpan.remove());
   }
+
+  @Test void next_placesSpanInScope() {
+    Span span = threadLocalSpan.next();
+
+    assertThat(currentTraceContext.get()).isSameAs(span.context());
+
+    assertThat(threadLocalSpan.remove()).isSameAs(span);
+    assertThat(currentTraceContext.get()).isNull();
+  }
+
+  /** Nesting beyond the initial capacity of the stack exercises growth. */
+  @Test void next_nested() {
+    Span[] spans = new Span[10];
+    for (int i = 0; i < spans.length; i++) {
+      spans[i] = threadLocalSpan.next();
+      if (i > 0) {
+        assertThat(spans[i].context().parentIdAsLong()).isEqualTo(spans[i - 1].context().spanId());
+      }
+    }
+
+    for (int i = spans.length - 1; i >= 0; i--) {
+      assertThat(threadLocalSpan.remove()).isSameAs(spans[i]);
+    }
+    assertThat(currentTraceContext.get()).isNull();
+    assertThat(threadLocalSpan.currentSpanInScopeStack.get()).containsOnlyNulls();
+  }
+
+  @Test void remove_withoutNext_returnsCurrentSpan() {
+    assertThat(threadLocalSpan.remove()).isNull();
+
+    Span span = tracing.tracer().nextSpan();
+    try (Tracer.SpanInScope scope = tracing.tracer().withSpanInScope(span)) {
+      assertThat(threadLocalSpan.remove()).isEqualTo(span);
+    }
+  }
+
+  @Test void remove_misaligned() {
+    Span span = threadLocalSpan.next();
+    try (Tracer.SpanInScope scope = tracing.tracer().withSpanInScope(null)) {
+      assertThatThrownBy(threadLocalSpan::remove)
+        .isInstanceOf(AssertionError.class)
+        .hasMessage("Misalignment: scoped span " + span + " !=  current span null");
+    }
+
+    assertThat(threadLocalSpan.remove()).isSameAs(span);
+  }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.sampler;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DecisionCountingSamplerTest {
+  @Test void countsDecisions() {
+    DecisionCountingSampler always = DecisionCountingSampler.create(Sampler.ALWAYS_SAMPLE);
+    DecisionCountingSampler never = DecisionCountingSampler.create(Sampler.NEVER_SAMPLE);
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(always.isSampled(i)).isTrue();
+      assertThat(never.isSampled(i)).isFalse();
+    }
+
+    assertThat(always.sampledCount()).isEqualTo(3);
+    assertThat(always.unsampledCount()).isZero();
+    assertThat(never.sampledCount()).isZero();
+    assertThat(never.unsampledCount()).isEqualTo(3);
+  }
+
+  @Test void delegate() {
+    assertThat(DecisionCountingSampler.create(Sampler.ALWAYS_SAMPLE).delegate())
+      .isSameAs(Sampler.ALWAYS_SAMPLE);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.sampler;
+
+import org.junit.jupiter.api.Test;
+
+import static brave.sampler.SamplerFunctions.deferDecision;
+import static brave.sampler.SamplerFunctions.neverSample;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReloadableSamplerFunctionTest {
+  ReloadableSamplerFunction<Object> sampler = ReloadableSamplerFunction.create(deferDecision());
+
+  @Test void create_nullNotOk() {
+    assertThatThrownBy(() -> ReloadableSamplerFunction.create(null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test void set_nullNotOk() {
+    assertThatThrownBy(() -> sampler.set(null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test void set_replacesDelegate() {
+    assertThat(sampler.trySample("1")).isNull();
+
+    sampler.set(neverSample());
+
+    assertThat(sampler.get()).isSameAs(neverSample());
+    assertThat(sampler.trySample("1")).isFalse();
+  }
+
+  @Test void toStringIncludesDelegate() {
+    assertThat(sampler).hasToString("Reloadable(DeferDecision)");
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.sampler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SamplerRuleReaderTest {
+  /** Rules are strings, matching when equal to the input */
+  SamplerRuleReader.RuleParser<String> ruleParser = rule -> new Equals(rule);
+
+  @Test void read() throws IOException {
+    Map<Matcher<String>, DecisionCountingSampler> rules = read(""
+      + "# comment\n"
+      + "\n"
+      + "  foo = 0.0  \n"
+      + "bar=10/s\n"
+      + "* = 1.0\n");
+
+    assertThat(new ArrayList<>(rules.keySet()))
+      .containsExactly(new Equals("foo"), new Equals("bar"), Matchers.alwaysMatch());
+    assertThat(rules.get(new Equals("foo")).delegate()).isSameAs(Sampler.NEVER_SAMPLE);
+    assertThat(rules.get(new Equals("bar")).delegate()).isInstanceOf(RateLimitingSampler.class);
+    assertThat(rules.get(Matchers.alwaysMatch()).delegate()).isSameAs(Sampler.ALWAYS_SAMPLE);
+  }
+
+  @Test void read_duplicateKeepsFirstPosition() throws IOException {
+    Map<Matcher<String>, DecisionCountingSampler> rules = read(""
+      + "foo = 0.0\n"
+      + "bar = 0.0\n"
+      + "foo = 1.0\n");
+
+    assertThat(new ArrayList<>(rules.keySet()))
+      .containsExactly(new Equals("foo"), new Equals("bar"));
+    assertThat(rules.get(new Equals("foo")).delegate()).isSameAs(Sampler.ALWAYS_SAMPLE);
+  }
+
+  @Test void read_file(@TempDir File folder) throws IOException {
+    File file = new File(folder, "rules.txt");
+    Files.write(file.toPath(), "foo = 0.0\n".getBytes(UTF_8));
+
+    assertThat(SamplerRuleReader.read(file, ruleParser).keySet())
+      .containsExactly(new Equals("foo"));
+  }
+
+  @Test void read_malformed() {
+    assertThatThrownBy(() -> read("foo = 0.0\nbar\n"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("line 2: expected {rule} = {sampler}, but was: bar");
+
+    assertThatThrownBy(() -> read("foo =\n"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("line 1: expected {rule} = {sampler}, but was: foo =");
+  }
+
+  @Test void read_badSampler() {
+    assertThatThrownBy(() -> read("foo = fast\n"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("line 1: expected a rate like 100/s or a probability like 0.01, but was: fast");
+
+    assertThatThrownBy(() -> read("foo = 1.5\n"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessageStartingWith("line 1: ");
+  }
+
+  @Test void read_badRule() {
+    ruleParser = rule -> {
+      throw new IllegalArgumentException("bad rule: " + rule);
+    };
+
+    assertThatThrownBy(() -> read("foo = 0.0\n"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("line 1: bad rule: foo");
+  }
+
+  Map<Matcher<String>, DecisionCountingSampler> read(String text) throws IOException {
+    return SamplerRuleReader.read(new StringReader(text), ruleParser);
+  }
+
+  static final class Equals implements Matcher<String> {
+    final String value;
+
+    Equals(String value) {
+      this.value = value;
+    }
+
+    @Override public boolean matches(String parameters) {
+      return value.equals(parameters);
+    }
+
+    @Override public boolean equals(Object o) {
+      return o instanceof Equals && value.equals(((Equals) o).value);
+    }
+
+    @Override public int hashCode() {
+      return value.hashCode();
+    }
+  }
+}
@@ -19,6 +19,11 @@ import jdk.jfr.Label;
  * brave.Tracer#currentSpan() span is current}. These can be used to correlate JDK Flight recorder
  * events with logs or Zipkin.
  *
+ * <p>As a scope event has the thread and the time range a span was current, execution samples and
+ * other thread events can be attributed to a span by joining on both. Use {@link JfrSpanHandler}
+ * to record the spans themselves. When scopes are frequent, {@link #numericIds()} records a
+ * separate event type which doesn't allocate hex strings.
+ *
  * <p>Ex.
  * <pre>{@code
  * tracing = Tracing.newBuilder()
@@ -31,7 +36,8 @@ import jdk.jfr.Label;
  * }</pre>
  */
 public final class JfrScopeDecorator implements ScopeDecorator {
-  static final ScopeDecorator INSTANCE = new JfrScopeDecorator();
+  static final ScopeDecorator INSTANCE = new JfrScopeDecorator(false);
+  static final ScopeDecorator NUMERIC_IDS = new JfrScopeDecorator(true);
 
   /**
    * Returns a singleton that configures {@link BaggageFields#TRACE_ID} and {@link
@@ -43,6 +49,18 @@ public final class JfrScopeDecorator implements ScopeDecorator {
     return INSTANCE;
   }
 
+  /**
+   * Like {@link #get()}, except this records a "Zipkin/Numeric Scope" event, whose properties
+   * "traceIdHigh", "traceId", "parentId" and "spanId" are numbers, zero when absent. This avoids
+   * allocating three hex strings per scope. The "Zipkin/Scope" event is unchanged, so recordings,
+   * templates and queries that read it are unaffected.
+   *
+   * @since 6.4
+   */
+  public static ScopeDecorator numericIds() {
+    return NUMERIC_IDS;
+  }
+
   @Category("Zipkin")
   @Label("Scope")
   @Description("Zipkin event representing a span being placed in scope")
@@ -52,17 +70,23 @@ public final class JfrScopeDecorator implements ScopeDecorator {
     @Label("Span Id") String spanId;
   }
 
+  @Category("Zipkin")
+  @Label("Numeric Scope")
+  @Description("Zipkin event representing a span being placed in scope, with numeric IDs")
+  static final class NumericScopeEvent extends Event {
+    @Label("Trace Id High") long traceIdHigh;
+    @Label("Trace Id") long traceId;
+    @Label("Parent Id") long parentId;
+    @Label("Span Id") long spanId;
+  }
+
+  final boolean numericIds;
+
   @Override public Scope decorateScope(@Nullable TraceContext context, Scope scope) {
     if (scope == Scope.NOOP) return scope; // we only scope fields constant in the context
 
-    ScopeEvent event = new ScopeEvent();
-    if (!event.isEnabled()) return scope;
-
-    if (context != null) {
-      event.traceId = context.traceIdString();
-      event.parentId = context.parentIdString();
-      event.spanId = context.spanIdString();
-    }
+    Event event = numericIds ? numericScopeEvent(context) : scopeEvent(context);
+    if (event == null) return scope;
 
     event.begin();
 
@@ -75,6 +99,34 @@ public final class JfrScopeDecorator implements ScopeDecorator {
     return new JfrCurrentTraceContextScope();
   }
 
-  JfrScopeDecorator() {
+  /** Returns null if the event isn't enabled. */
+  @Nullable static Event scopeEvent(@Nullable TraceContext context) {
+    ScopeEvent event = new ScopeEvent();
+    if (!event.isEnabled()) return null;
+
+    if (context != null) {
+      event.traceId = context.traceIdString();
+      event.parentId = context.parentIdString();
+      event.spanId = context.spanIdString();
+    }
+    return event;
+  }
+
+  /** Returns null if the event isn't enabled. */
+  @Nullable static Event numericScopeEvent(@Nullable TraceContext context) {
+    NumericScopeEvent event = new NumericScopeEvent();
+    if (!event.isEnabled()) return null;
+
+    if (context != null) {
+      event.traceIdHigh = context.traceIdHigh();
+      event.traceId = context.traceId();
+      event.parentId = context.parentIdAsLong();
+      event.spanId = context.spanId();
+    }
+    return event;
+  }
+
+  JfrScopeDecorator(boolean numericIds) {
+    this.numericIds = numericIds;
   }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.context.jfr;
+
+import brave.Span.Kind;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.internal.Nullable;
+import brave.propagation.TraceContext;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Timespan;
+
+/**
+ * Records a JDK Flight Recorder "Span" event for each recorded span, with its IDs, name, kind and
+ * error. The event begins when the span is created and ends with it, so it lines up with other
+ * events on the recording's timeline.
+ *
+ * <p>Ex.
+ * <pre>{@code
+ * tracing = Tracing.newBuilder()
+ *                  .addSpanHandler(JfrSpanHandler.create())
+ *                  ...
+ *                  .build();
+ * }</pre>
+ *
+ * <p>IDs are recorded as numbers, zero when absent, to avoid encoding hex strings. Only spans
+ * sampled or {@linkplain brave.Tracing.Builder#alwaysSampleLocal() sampled locally} reach span
+ * handlers, so unsampled requests add no events. To attribute execution samples to a span, also
+ * add {@link JfrScopeDecorator}, which records the thread and time range a span is current.
+ *
+ * @since 6.4
+ */
+public final class JfrSpanHandler extends SpanHandler {
+  /** Returns a new handler. Add one per {@link brave.Tracing} instance. */
+  public static JfrSpanHandler create() {
+    return new JfrSpanHandler();
+  }
+
+  @Category("Zipkin")
+  @Label("Span")
+  @Description("Zipkin span, from when it was created until it ended")
+  static final class SpanEvent extends Event {
+    @Label("Trace Id High") long traceIdHigh;
+    @Label("Trace Id") long traceId;
+    @Label("Parent Id") long parentId;
+    @Label("Span Id") long spanId;
+    @Label("Name") String name;
+    @Label("Kind") String kind;
+    @Label("Remote Service Name") String remoteServiceName;
+    @Label("Span Duration")
+    @Description("Duration of the span, from its start and finish timestamps")
+    @Timespan(Timespan.MICROSECONDS) long spanDuration;
+    @Label("Error") String error;
+  }
+
+  /** Events of spans that began while recording. Every begin has an end, so entries don't leak. */
+  final ConcurrentMap<TraceContext, SpanEvent> events = new ConcurrentHashMap<>();
+
+  @Override
+  public boolean begin(TraceContext context, MutableSpan span, @Nullable TraceContext parent) {
+    SpanEvent event = new SpanEvent();
+    if (!event.isEnabled()) return true;
+    event.begin();
+    events.put(context, event);
+    return true;
+  }
+
+  @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+    SpanEvent event = events.remove(context);
+    if (event == null || cause == Cause.ABANDONED) return true;
+
+    event.end();
+    if (!event.shouldCommit()) return true;
+
+    event.traceIdHigh = context.traceIdHigh();
+    event.traceId = context.traceId();
+    event.parentId = context.parentIdAsLong();
+    event.spanId = context.spanId();
+    event.name = span.name();
+    Kind kind = span.kind();
+    if (kind != null) event.kind = kind.name();
+    event.remoteServiceName = span.remoteServiceName();
+    long startTimestamp = span.startTimestamp(), finishTimestamp = span.finishTimestamp();
+    if (startTimestamp != 0L && finishTimestamp != 0L) {
+      event.spanDuration = finishTimestamp - startTimestamp;
+    }
+    Throwable error = span.error();
+    if (error != null) {
+      event.error = error.getClass().getName();
+    } else {
+      event.error = span.tag("error"); // possibly set by a parser
+    }
+    event.commit();
+    return true;
+  }
+
+  /** Returns true, so that events of abandoned spans are released. */
+  @Override public boolean handlesAbandoned() {
+    return true;
+  }
+
+  @Override public String toString() {
+    return "JfrSpanHandler{}";
+  }
+
+  JfrSpanHandler() {
+  }
+}
@@ -70,9 +70,40 @@ class JfrScopeDecoratorTest {
       );
   }
 
+  @Test void numericIds() throws Exception {
+    currentTraceContext = StrictCurrentTraceContext.newBuilder()
+      .addScopeDecorator(JfrScopeDecorator.numericIds())
+      .build();
+    executor = currentTraceContext.executor(wrappedExecutor);
+    Path destination = File.createTempFile("execute.jfr", null, folder).toPath();
+
+    try (Recording recording = new Recording()) {
+      recording.start();
+
+      makeFiveScopes();
+
+      recording.dump(destination);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(destination);
+    assertThat(events).extracting(e -> e.getEventType().getLabel())
+      .containsOnly("Numeric Scope");
+    assertThat(events).extracting(e -> tuple(e.getLong("traceIdHigh"), e.getLong("traceId"),
+        e.getLong("parentId"), e.getLong("spanId")))
+      .containsExactlyInAnyOrder(
+        tuple(0L, 1L, 0L, 1L),
+        tuple(0L, 1L, 0L, 1L),
+        tuple(0L, 0L, 0L, 0L),
+        tuple(0L, 1L, 1L, 2L),
+        tuple(0L, 2L, 0L, 3L)
+      );
+  }
+
   @Test void doesntDecorateNoop() {
     assertThat(decorator.decorateScope(context, Scope.NOOP)).isSameAs(Scope.NOOP);
     assertThat(decorator.decorateScope(null, Scope.NOOP)).isSameAs(Scope.NOOP);
+    assertThat(JfrScopeDecorator.numericIds().decorateScope(context, Scope.NOOP))
+      .isSameAs(Scope.NOOP);
   }
 
   /**
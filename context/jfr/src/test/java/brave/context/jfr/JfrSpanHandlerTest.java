@@ -0,0 +1,88 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.context.jfr;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.sampler.Sampler;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class JfrSpanHandlerTest {
+  @TempDir
+  public File folder;
+
+  JfrSpanHandler handler = JfrSpanHandler.create();
+  Tracing tracing = Tracing.newBuilder().addSpanHandler(handler).build();
+  Tracer tracer = tracing.tracer();
+
+  @AfterEach void close() {
+    tracing.close();
+  }
+
+  @Test void endToEndTest() throws Exception {
+    Path destination = File.createTempFile("execute.jfr", null, folder).toPath();
+
+    Span parent, child;
+    try (Recording recording = new Recording()) {
+      recording.start();
+
+      parent = tracer.newTrace().name("get /users").kind(Span.Kind.SERVER).start();
+      child = tracer.newChild(parent.context()).name("query").kind(Span.Kind.CLIENT)
+        .remoteServiceName("db").start();
+      child.error(new IllegalStateException("timeout"));
+      child.finish();
+      tracer.newChild(parent.context()).start().abandon();
+      parent.finish();
+
+      recording.dump(destination);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(destination);
+    assertThat(events).extracting(e -> tuple(e.getLong("traceId"), e.getLong("parentId"),
+        e.getLong("spanId"), e.getString("name"), e.getString("kind"),
+        e.getString("remoteServiceName"), e.getString("error")))
+      .containsExactly(
+        tuple(child.context().traceId(), parent.context().spanId(), child.context().spanId(),
+          "query", "CLIENT", "db", IllegalStateException.class.getName()),
+        tuple(parent.context().traceId(), 0L, parent.context().spanId(),
+          "get /users", "SERVER", null, null)
+      );
+    assertThat(events).allSatisfy(e -> {
+      assertThat(e.getLong("traceIdHigh")).isZero();
+      assertThat(e.getLong("spanDuration")).isNotNegative();
+    });
+    assertThat(handler.events).isEmpty();
+  }
+
+  @Test void notRecording_noEvents() {
+    tracer.nextSpan().start().finish();
+
+    assertThat(handler.events).isEmpty();
+  }
+
+  @Test void unsampled_noEvents() throws Exception {
+    tracing.close();
+    tracing = Tracing.newBuilder().sampler(Sampler.NEVER_SAMPLE).addSpanHandler(handler).build();
+
+    try (Recording recording = new Recording()) {
+      recording.start();
+
+      tracing.tracer().nextSpan().start();
+      assertThat(handler.events).isEmpty();
+    }
+  }
+}
@@ -33,6 +33,7 @@ import okhttp3.Call;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
@@ -85,6 +86,18 @@ public class EndToEndBenchmarks extends HttpServerBenchmarks {
     }
   }
 
+  public static class UnsampledPropagateOnly extends ForwardingTracingFilter {
+    public UnsampledPropagateOnly() {
+      super(Tracing.newBuilder()
+        .sampler(Sampler.NEVER_SAMPLE)
+        .propagateOnlyUnsampled(true)
+        .addSpanHandler(new SpanHandler() {
+          // intentionally not NOOP to ensure spans report
+        })
+        .build());
+    }
+  }
+
   public static class OnlySampledLocal extends ForwardingTracingFilter {
     public OnlySampledLocal() {
       super(Tracing.newBuilder()
@@ -156,6 +169,9 @@ public class EndToEndBenchmarks extends HttpServerBenchmarks {
     servletBuilder.addFilter(new FilterInfo("Unsampled", Unsampled.class))
       .addFilterUrlMapping("Unsampled", "/unsampled", REQUEST)
       .addFilterUrlMapping("Unsampled", "/unsampled/api", REQUEST)
+      .addFilter(new FilterInfo("UnsampledPropagateOnly", UnsampledPropagateOnly.class))
+      .addFilterUrlMapping("UnsampledPropagateOnly", "/unsampledpropagateonly", REQUEST)
+      .addFilterUrlMapping("UnsampledPropagateOnly", "/unsampledpropagateonly/api", REQUEST)
       .addFilter(new FilterInfo("OnlySampledLocal", OnlySampledLocal.class))
       .addFilterUrlMapping("OnlySampledLocal", "/onlysampledlocal", REQUEST)
       .addFilterUrlMapping("OnlySampledLocal", "/onlysampledlocal/api", REQUEST)
@@ -174,6 +190,15 @@ public class EndToEndBenchmarks extends HttpServerBenchmarks {
       .addServlets(Servlets.servlet("HelloServlet", HelloServlet.class).addMapping("/*"));
   }
 
+  /** Compare with {@link #unsampledServer_get()} for the savings of reusing the context. */
+  @Benchmark public void unsampledPropagateOnlyServer_get() throws Exception {
+    get("/unsampledpropagateonly");
+  }
+
+  @Benchmark public void unsampledPropagateOnlyServer_get_resumeTrace() throws Exception {
+    getUnsampled("/unsampledpropagateonly");
+  }
+
   @Override protected int initServer() throws Exception {
     return PORT = super.initServer();
   }
@@ -62,6 +62,7 @@ public class TracerBenchmarks {
 
   Tracer tracer;
   Tracer tracerBaggage;
+  Tracer tracer128, tracer128CoarseClock, tracer128Xoroshiro;
 
   @Setup(Level.Trial) public void init() {
     tracer = Tracing.newBuilder()
@@ -74,6 +75,23 @@ public class TracerBenchmarks {
         // anonymous subtype prevents all recording from being no-op
       })
       .build().tracer();
+    tracer128 = Tracing.newBuilder().traceId128Bit(true)
+      .addSpanHandler(new SpanHandler() {
+        // anonymous subtype prevents all recording from being no-op
+      })
+      .build().tracer();
+    tracer128CoarseClock = Tracing.newBuilder().traceId128Bit(true)
+      .coarseClock(100, TimeUnit.MICROSECONDS)
+      .addSpanHandler(new SpanHandler() {
+        // anonymous subtype prevents all recording from being no-op
+      })
+      .build().tracer();
+    tracer128Xoroshiro = Tracing.newBuilder().traceId128Bit(true)
+      .idGenerator(new ThreadLocalXoroshiroIdGenerator())
+      .addSpanHandler(new SpanHandler() {
+        // anonymous subtype prevents all recording from being no-op
+      })
+      .build().tracer();
   }
 
   @TearDown(Level.Trial) public void close() {
@@ -208,6 +226,81 @@ public class TracerBenchmarks {
     }
   }
 
+  /** Sets fields typical of a client request one at a time, each taking the span's lock. */
+  @Benchmark public void newChild_parseRequest() {
+    Span span = tracer.newChild(context);
+    parseRequest("/api", span);
+    span.start().finish();
+  }
+
+  /** Like {@link #newChild_parseRequest()}, except using a single critical section. */
+  @Benchmark public void newChild_parseRequest_update() {
+    Span span = tracer.newChild(context);
+    span.update("/api", PARSE_REQUEST).start().finish();
+  }
+
+  static final SpanUpdater<String> PARSE_REQUEST = new SpanUpdater<String>() {
+    @Override public void update(String path, Span span) {
+      parseRequest(path, span);
+    }
+  };
+
+  static void parseRequest(String path, Span span) {
+    span.kind(Span.Kind.CLIENT).remoteServiceName("backend");
+    span.remoteIpAndPort("1.2.3.4", 8080);
+    SpanCustomizer customizer = span.customizer();
+    customizer.name("GET " + path);
+    customizer.tag("http.method", "GET");
+    customizer.tag("http.path", path);
+  }
+
+  @Benchmark public long nextId() {
+    return tracer.nextId();
+  }
+
+  @Benchmark public long nextId_xoroshiro() {
+    return tracer128Xoroshiro.nextId();
+  }
+
+  @Benchmark public void newTrace_traceId128Bit() {
+    tracer128.newTrace().start().finish();
+  }
+
+  /** Reads epoch seconds for the trace ID from the coarse clock, instead of the system time. */
+  @Benchmark public void newTrace_traceId128Bit_coarseClock() {
+    tracer128CoarseClock.newTrace().start().finish();
+  }
+
+  @Benchmark public void newTrace_traceId128Bit_xoroshiro() {
+    tracer128Xoroshiro.newTrace().start().finish();
+  }
+
+  /**
+   * Compares the default, which uses {@link java.util.concurrent.ThreadLocalRandom}, against
+   * xoroshiro128++ state in a {@link ThreadLocal}.
+   */
+  static final class ThreadLocalXoroshiroIdGenerator extends IdGenerator {
+    static final ThreadLocal<long[]> STATE = ThreadLocal.withInitial(() -> new long[] {
+      java.util.concurrent.ThreadLocalRandom.current().nextLong() | 1L,
+      java.util.concurrent.ThreadLocalRandom.current().nextLong()
+    });
+
+    @Override public long nextId() {
+      long[] s = STATE.get();
+      long s0 = s[0], s1 = s[1];
+      long result = Long.rotateLeft(s0 + s1, 17) + s0;
+      s1 ^= s0;
+      s[0] = Long.rotateLeft(s0, 49) ^ s1 ^ (s1 << 21);
+      s[1] = Long.rotateLeft(s1, 28);
+      return result;
+    }
+
+    @Override public long nextTraceIdHigh(Clock clock) {
+      long epochSeconds = clock.currentTimeMicroseconds() / 1000000;
+      return (epochSeconds & 0xffffffffL) << 32 | (nextId() & 0xffffffffL);
+    }
+  }
+
   @Benchmark public void currentSpan() {
     currentSpan(tracer, extracted.context(), false);
   }
@@ -59,6 +59,15 @@ public class BaggagePropagationBenchmarks {
 
   static final TraceContext contextWithBaggage = extractor.extract(incoming).context();
 
+  // Baggage is after other extra, which a scan of TraceContext.extra() would visit first
+  static final TraceContext contextWithOtherExtra = contextWithBaggage.toBuilder()
+    .clearExtra()
+    .addExtra(new Object())
+    .addExtra(new Object())
+    .addExtra(new Object())
+    .addExtra(contextWithBaggage.extra().get(0))
+    .build();
+
   static final Map<String, String> incomingNoBaggage = new LinkedHashMap<String, String>() {
     {
       injector.inject(context, this);
@@ -80,6 +89,19 @@ public class BaggagePropagationBenchmarks {
     injector.inject(context, request);
   }
 
+  @Benchmark public void inject_withBaggage() {
+    Map<String, String> request = new LinkedHashMap<>();
+    injector.inject(contextWithBaggage, request);
+  }
+
+  @Benchmark public String getValue() {
+    return BAGGAGE_FIELD.getValue(contextWithBaggage);
+  }
+
+  @Benchmark public String getValue_afterOtherExtra() {
+    return BAGGAGE_FIELD.getValue(contextWithOtherExtra);
+  }
+
   @Benchmark public TraceContextOrSamplingFlags extract() {
     return extractor.extract(incoming);
   }
@@ -0,0 +1,74 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the overhead {@link CriticalPathSpanHandler} adds to a local trace, which is tracking
+ * each span and aggregating the trace when its local root finishes.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Threads(1)
+public class CriticalPathSpanHandlerBenchmarks {
+  Tracing tracing = Tracing.newBuilder().build();
+  Tracing profiled = Tracing.newBuilder().addSpanHandler(CriticalPathSpanHandler.create()).build();
+
+  @TearDown public void close() {
+    tracing.close();
+    profiled.close();
+  }
+
+  @Benchmark public void localTrace_fiveSpans() {
+    localTrace(tracing.tracer());
+  }
+
+  @Benchmark public void localTrace_fiveSpans_criticalPath() {
+    localTrace(profiled.tracer());
+  }
+
+  /** A local root with two children, each with a child, named like an RPC server. */
+  static void localTrace(Tracer tracer) {
+    Span root = tracer.newTrace().name("get /api").start();
+    for (int i = 0; i < 2; i++) {
+      Span child = tracer.newChild(root.context()).name(i == 0 ? "auth" : "query").start();
+      tracer.newChild(child.context()).name("jdbc").start().finish();
+      child.finish();
+    }
+    root.finish();
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(".*" + CriticalPathSpanHandlerBenchmarks.class.getSimpleName() + ".*")
+      .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.handler.SpanHandler.Cause;
+import brave.propagation.TraceContext;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the overhead {@link JvmPauseSpanHandler} adds when a span ends. Most spans start after
+ * the latest pause, which is a volatile read. Otherwise, the ring of pauses is scanned.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Threads(1)
+public class JvmPauseSpanHandlerBenchmarks {
+  static final TraceContext context =
+    TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(true).build();
+
+  // Manual pauses, so that garbage collection during the benchmark doesn't skew results
+  JvmPauseSpanHandler handler =
+    JvmPauseSpanHandler.newBuilder().garbageCollectors(false).build();
+  MutableSpan afterPauses = new MutableSpan(), overlapsPause = new MutableSpan(),
+    betweenPauses = new MutableSpan();
+
+  @Setup(Level.Trial) public void init() {
+    // fill the ring with pauses of 1ms, every 100ms
+    for (int i = 0; i < 64; i++) {
+      handler.recordPause(1_000_000L + i * 100_000L, 1_000L);
+    }
+    afterPauses.startTimestamp(100_000_000L);
+    afterPauses.finishTimestamp(100_001_000L);
+    overlapsPause.startTimestamp(1_000_500L);
+    overlapsPause.finishTimestamp(1_050_000L);
+    betweenPauses.startTimestamp(1_002_000L);
+    betweenPauses.finishTimestamp(1_050_000L);
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    handler.close();
+  }
+
+  @Benchmark public boolean end_afterPauses() {
+    return handler.end(context, afterPauses, Cause.FINISHED);
+  }
+
+  @Benchmark public boolean end_overlapsPause() {
+    return handler.end(context, overlapsPause, Cause.FINISHED);
+  }
+
+  @Benchmark public boolean end_betweenPauses() {
+    return handler.end(context, betweenPauses, Cause.FINISHED);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(".*" + JvmPauseSpanHandlerBenchmarks.class.getSimpleName() + ".*")
+      .build();
+
+    new Runner(opt).run();
+  }
+}
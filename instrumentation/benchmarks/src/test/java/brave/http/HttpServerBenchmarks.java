@@ -85,6 +85,11 @@ public abstract class HttpServerBenchmarks {
     get("/unsampled");
   }
 
+  /** The incoming trace context was explicitly not sampled upstream. */
+  @Benchmark public void unsampledServer_get_resumeTrace() throws Exception {
+    getUnsampled("/unsampled");
+  }
+
   @Benchmark public void onlySampledLocalServer_get() throws Exception {
     get("/onlysampledlocal");
   }
@@ -117,6 +122,15 @@ public abstract class HttpServerBenchmarks {
       .execute().body().close();
   }
 
+  /** The server sampler decides, as the incoming trace context has no sampling decision. */
+  @Benchmark public void tracedServer_get_resumeTrace_deferred() throws Exception {
+    client.newCall(new Request.Builder().url(baseUrl() + "/traced")
+      .header("X-B3-TraceId", "216a2aea45d08fc9")
+      .header("X-B3-SpanId", "5b4185666d50f68b")
+      .build())
+      .execute().body().close();
+  }
+
   @Benchmark public void traced128Server_get() throws Exception {
     get("/traced128");
   }
@@ -130,7 +144,16 @@ public abstract class HttpServerBenchmarks {
       .execute().body().close();
   }
 
-  void get(String path) throws IOException {
+  protected void getUnsampled(String path) throws IOException {
+    client.newCall(new Request.Builder().url(baseUrl() + path)
+      .header("X-B3-TraceId", "216a2aea45d08fc9")
+      .header("X-B3-SpanId", "5b4185666d50f68b")
+      .header("X-B3-Sampled", "0")
+      .build())
+      .execute().body().close();
+  }
+
+  protected void get(String path) throws IOException {
     client.newCall(new Request.Builder().url(baseUrl() + path).build()).execute().body().close();
   }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+import brave.handler.MutableSpan;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of pooling strings, and the heap retained by a handler which buffers spans
+ * whose strings were built per request. The "retainedBytes" counter is the growth of used heap,
+ * after garbage collection, while buffering.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class InternPoolBenchmarks {
+  static final int BUFFERED_SPANS = 100000;
+  static final String[] DATABASES = {"users", "orders", "inventory", "billing"};
+  static final String[] STATEMENTS = {"SELECT * FROM t", "INSERT INTO t", "UPDATE t SET"};
+
+  InternPool pool;
+  // Not constants, so that concatenation allocates a new string, as in instrumentation
+  String databaseName = "users", prefix = "mongodb-", command = "command";
+
+  @Setup(Level.Trial) public void init() {
+    pool = new InternPool(1024, 64);
+    pool.intern(prefix + databaseName);
+  }
+
+  @Benchmark public String intern_hit() {
+    return pool.intern(prefix + databaseName);
+  }
+
+  @Benchmark public String intern_constant() {
+    return pool.intern("http.method");
+  }
+
+  @Benchmark public String baseCase_noIntern() {
+    return prefix + databaseName;
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class RetainedHeap {
+    public long retainedBytes;
+  }
+
+  /** Buffers spans using the pool, as a tracer does with {@code poolSpanStrings(true)}. */
+  @Benchmark @BenchmarkMode(Mode.SingleShotTime) @Measurement(iterations = 5, batchSize = 1)
+  @Warmup(iterations = 3, batchSize = 1)
+  public List<MutableSpan> bufferSpans(RetainedHeap heap) {
+    long before = usedHeap();
+    List<MutableSpan> buffer = new ArrayList<>(BUFFERED_SPANS);
+    for (int i = 0; i < BUFFERED_SPANS; i++) {
+      String sql = STATEMENTS[i % STATEMENTS.length];
+      MutableSpan span = new MutableSpan();
+      span.name(pool.intern(sql.substring(0, sql.indexOf(' '))));
+      span.remoteServiceName(pool.intern("mongodb-" + DATABASES[i % DATABASES.length]));
+      span.tag(pool.intern("mongodb." + command), span.name().toLowerCase());
+      buffer.add(span);
+    }
+    heap.retainedBytes = usedHeap() - before;
+    return buffer;
+  }
+
+  /** Like {@link #bufferSpans}, except strings are held as-is, as before they were pooled. */
+  @Benchmark @BenchmarkMode(Mode.SingleShotTime) @Measurement(iterations = 5, batchSize = 1)
+  @Warmup(iterations = 3, batchSize = 1)
+  public List<String[]> bufferStrings_unpooled(RetainedHeap heap) {
+    return bufferStrings(heap, false);
+  }
+
+  /** Like {@link #bufferStrings_unpooled}, except each string is pooled. */
+  @Benchmark @BenchmarkMode(Mode.SingleShotTime) @Measurement(iterations = 5, batchSize = 1)
+  @Warmup(iterations = 3, batchSize = 1)
+  public List<String[]> bufferStrings_pooled(RetainedHeap heap) {
+    return bufferStrings(heap, true);
+  }
+
+  List<String[]> bufferStrings(RetainedHeap heap, boolean pooled) {
+    long before = usedHeap();
+    List<String[]> buffer = new ArrayList<>(BUFFERED_SPANS);
+    for (int i = 0; i < BUFFERED_SPANS; i++) {
+      String sql = STATEMENTS[i % STATEMENTS.length];
+      String name = sql.substring(0, sql.indexOf(' '));
+      String[] strings = {
+        name,
+        "mongodb-" + DATABASES[i % DATABASES.length],
+        "mongodb." + command,
+        name.toLowerCase()
+      };
+      if (pooled) {
+        for (int j = 0; j < strings.length; j++) strings[j] = pool.intern(strings[j]);
+      }
+      buffer.add(strings);
+    }
+    heap.retainedBytes = usedHeap() - before;
+    return buffer;
+  }
+
+  static long usedHeap() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++) System.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(".*" + InternPoolBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
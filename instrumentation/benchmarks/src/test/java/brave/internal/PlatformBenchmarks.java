@@ -5,6 +5,8 @@
 package brave.internal;
 
 import brave.Clock;
+import brave.Tracing;
+import brave.propagation.TraceContext;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -31,21 +33,11 @@ public class PlatformBenchmarks {
   static final Platform jre9 = new Platform.Jre9();
   static final Clock jre7Clock = jre7.clock();
   static final Clock jre9Clock = jre9.clock();
-
-  @Benchmark @Group("no_contention") @GroupThreads(1)
-  public long no_contention_nextTraceIdHigh_jre6() {
-    return jre6.nextTraceIdHigh();
-  }
-
-  @Benchmark @Group("mild_contention") @GroupThreads(2)
-  public long mild_contention_nextTraceIdHigh_jre6() {
-    return jre6.nextTraceIdHigh();
-  }
-
-  @Benchmark @Group("high_contention") @GroupThreads(8)
-  public long high_contention_nextTraceIdHigh_jre6() {
-    return jre6.nextTraceIdHigh();
-  }
+  // Clocks used by spans, which tick from a base timestamp per trace
+  static final TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(1L).build();
+  static final Clock tickClock = Tracing.newBuilder().build().clock(context);
+  static final Clock coarseClock = Tracing.newBuilder()
+    .coarseClock(100, TimeUnit.MICROSECONDS).build().clock(context);
 
   @Benchmark @Group("no_contention") @GroupThreads(1)
   public long no_contention_randomLong_jre6() {
@@ -62,21 +54,6 @@ public class PlatformBenchmarks {
     return jre6.randomLong();
   }
 
-  @Benchmark @Group("no_contention") @GroupThreads(1)
-  public long no_contention_nextTraceIdHigh_jre7() {
-    return jre7.nextTraceIdHigh();
-  }
-
-  @Benchmark @Group("mild_contention") @GroupThreads(2)
-  public long mild_contention_nextTraceIdHigh_jre7() {
-    return jre7.nextTraceIdHigh();
-  }
-
-  @Benchmark @Group("high_contention") @GroupThreads(8)
-  public long high_contention_nextTraceIdHigh_jre7() {
-    return jre7.nextTraceIdHigh();
-  }
-
   @Benchmark @Group("no_contention") @GroupThreads(1)
   public long no_contention_randomLong_jre7() {
     return jre7.randomLong();
@@ -122,6 +99,36 @@ public class PlatformBenchmarks {
     return jre9Clock.currentTimeMicroseconds();
   }
 
+  @Benchmark @Group("no_contention") @GroupThreads(1)
+  public long no_contention_clock_tick() {
+    return tickClock.currentTimeMicroseconds();
+  }
+
+  @Benchmark @Group("mild_contention") @GroupThreads(2)
+  public long mild_contention_clock_tick() {
+    return tickClock.currentTimeMicroseconds();
+  }
+
+  @Benchmark @Group("high_contention") @GroupThreads(8)
+  public long high_contention_clock_tick() {
+    return tickClock.currentTimeMicroseconds();
+  }
+
+  @Benchmark @Group("no_contention") @GroupThreads(1)
+  public long no_contention_clock_coarse() {
+    return coarseClock.currentTimeMicroseconds();
+  }
+
+  @Benchmark @Group("mild_contention") @GroupThreads(2)
+  public long mild_contention_clock_coarse() {
+    return coarseClock.currentTimeMicroseconds();
+  }
+
+  @Benchmark @Group("high_contention") @GroupThreads(8)
+  public long high_contention_clock_coarse() {
+    return coarseClock.currentTimeMicroseconds();
+  }
+
   // Convenience main entry-point
   public static void main(String[] args) throws RunnerException {
     Options opt = new OptionsBuilder()
@@ -4,6 +4,7 @@
  */
 package brave.internal.handler;
 
+import brave.InMemoryTracingMetrics;
 import brave.handler.MutableSpan;
 import brave.handler.SpanHandler;
 import brave.handler.SpanHandler.Cause;
@@ -70,6 +71,8 @@ public class NoopAwareSpanHandlerBenchmarks {
 
   final SpanHandler composite =
     NoopAwareSpanHandler.create(new SpanHandler[] {one, two, three}, noop);
+  final SpanHandler measuredComposite = NoopAwareSpanHandler.create(
+    new SpanHandler[] {one, two, three}, InMemoryTracingMetrics.create(), noop);
   final SpanHandler listIndexComposite = new SpanHandler() {
 
     List<SpanHandler> delegates = asList(one, two, three);
@@ -97,6 +100,10 @@ public class NoopAwareSpanHandlerBenchmarks {
     composite.end(context, new MutableSpan(), Cause.FINISHED);
   }
 
+  @Benchmark public void compose_measured() {
+    measuredComposite.end(context, new MutableSpan(), Cause.FINISHED);
+  }
+
   @Benchmark public void compose_index() {
     listIndexComposite.end(context, new MutableSpan(), Cause.FINISHED);
   }
@@ -0,0 +1,98 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal.handler;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.SpanHandler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the overhead of tracking orphans on spans that begin and end normally. The call stack
+ * of the benchmark is deep, due to JMH, which is realistic for applications.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(2)
+@State(Scope.Benchmark)
+public class OrphanTrackerBenchmarks {
+  Tracing tracing, trackOrphans, trackOrphansSampled, trackOrphansSampledAll;
+
+  @Setup(Level.Trial) public void init() {
+    tracing = newBuilder().build();
+    trackOrphans = newBuilder().trackOrphans().build();
+    trackOrphansSampled = newBuilder().trackOrphans(1000).build();
+    trackOrphansSampledAll = newBuilder().trackOrphans(1).build();
+  }
+
+  static Tracing.Builder newBuilder() {
+    return Tracing.newBuilder().addSpanHandler(new SpanHandler() {
+      // anonymous subtype prevents all recording from being no-op
+    });
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    tracing.close();
+    trackOrphans.close();
+    trackOrphansSampled.close();
+    trackOrphansSampledAll.close();
+  }
+
+  @Benchmark public Span startFinish() {
+    return startFinish(tracing.tracer());
+  }
+
+  /** Captures a full stack trace per span. */
+  @Benchmark public Span startFinish_trackOrphans() {
+    return startFinish(trackOrphans.tracer());
+  }
+
+  /** Captures a few frames for 1 in 1000 spans. */
+  @Benchmark public Span startFinish_trackOrphans_sampled() {
+    return startFinish(trackOrphansSampled.tracer());
+  }
+
+  /** Captures a few frames per span. */
+  @Benchmark public Span startFinish_trackOrphans_sampledAll() {
+    return startFinish(trackOrphansSampledAll.tracer());
+  }
+
+  static Span startFinish(Tracer tracer) {
+    Span span = tracer.nextSpan().name("encode").start();
+    span.finish();
+    return span;
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + OrphanTrackerBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import brave.Tracing;
+import brave.handler.SpanHandler;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.TraceContext;
+import brave.sampler.Sampler;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures per-statement overhead of JDBC tracing, when a prepared statement is executed once per
+ * row under the same parent span.
+ *
+ * <p>The connection and statement are proxies returning constants, so this only measures tracing
+ * overhead.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(1)
+@State(Scope.Thread)
+public class JdbcBenchmarks {
+  static final String SQL = "INSERT INTO foo VALUES (?)";
+  static final int ROWS = 1000;
+
+  Tracing tracing, unsampledTracing;
+  TraceContext parent, unsampledParent;
+  Connection connection, tracedConnection, tracedConnection_unsampled,
+    tracedConnection_aggregated;
+
+  @Setup(Level.Trial) public void init() {
+    tracing = Tracing.newBuilder()
+      .addSpanHandler(new SpanHandler() {
+        // anonymous subtype prevents all recording from being no-op
+      })
+      .sampler(Sampler.ALWAYS_SAMPLE)
+      .build();
+    unsampledTracing = Tracing.newBuilder().sampler(Sampler.NEVER_SAMPLE).build();
+    parent = tracing.tracer().newTrace().context();
+    unsampledParent = unsampledTracing.tracer().newTrace().context();
+
+    connection = fakeConnection();
+    tracedConnection = JdbcTracing.create(tracing).connection(connection);
+    tracedConnection_unsampled = JdbcTracing.create(unsampledTracing).connection(connection);
+    tracedConnection_aggregated = JdbcTracing.newBuilder(tracing)
+      .aggregateExecutions(ROWS).build().connection(connection);
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    tracing.close();
+    unsampledTracing.close();
+  }
+
+  @Benchmark @OperationsPerInvocation(ROWS) public int executeUpdate() throws SQLException {
+    return executeUpdates(connection);
+  }
+
+  @Benchmark @OperationsPerInvocation(ROWS) public int executeUpdate_traced()
+    throws SQLException {
+    try (CurrentTraceContext.Scope scope = tracing.currentTraceContext().newScope(parent)) {
+      return executeUpdates(tracedConnection);
+    }
+  }
+
+  @Benchmark @OperationsPerInvocation(ROWS) public int executeUpdate_traced_unsampled()
+    throws SQLException {
+    CurrentTraceContext current = unsampledTracing.currentTraceContext();
+    try (CurrentTraceContext.Scope scope = current.newScope(unsampledParent)) {
+      return executeUpdates(tracedConnection_unsampled);
+    }
+  }
+
+  @Benchmark @OperationsPerInvocation(ROWS) public int executeUpdate_traced_aggregated()
+    throws SQLException {
+    try (CurrentTraceContext.Scope scope = tracing.currentTraceContext().newScope(parent)) {
+      return executeUpdates(tracedConnection_aggregated);
+    }
+  }
+
+  @Benchmark @OperationsPerInvocation(ROWS) public int[] executeBatch_traced()
+    throws SQLException {
+    try (CurrentTraceContext.Scope scope = tracing.currentTraceContext().newScope(parent);
+         PreparedStatement statement = tracedConnection.prepareStatement(SQL)) {
+      for (int i = 0; i < ROWS; i++) {
+        statement.setInt(1, i);
+        statement.addBatch();
+      }
+      return statement.executeBatch();
+    }
+  }
+
+  static int executeUpdates(Connection connection) throws SQLException {
+    int updated = 0;
+    try (PreparedStatement statement = connection.prepareStatement(SQL)) {
+      for (int i = 0; i < ROWS; i++) {
+        statement.setInt(1, i);
+        updated += statement.executeUpdate();
+      }
+    }
+    return updated;
+  }
+
+  static Connection fakeConnection() {
+    DatabaseMetaData metaData = proxy(DatabaseMetaData.class, (proxy, method, args) -> {
+      if (method.getName().equals("getURL")) return "jdbc:postgresql://127.0.0.1:5432/testdb";
+      throw new UnsupportedOperationException(method.getName());
+    });
+    int[] batchResult = new int[ROWS];
+    PreparedStatement statement = proxy(PreparedStatement.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "executeUpdate":
+          return 1;
+        case "executeBatch":
+          return batchResult;
+        default:
+          return null; // setters, addBatch and close
+      }
+    });
+    return proxy(Connection.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getMetaData":
+          return metaData;
+        case "prepareStatement":
+          return statement;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+
+  static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(
+      Proxy.newProxyInstance(JdbcBenchmarks.class.getClassLoader(), new Class[] {type}, handler));
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + JdbcBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -5,6 +5,7 @@
 package brave.jersey.server;
 
 import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.MatchResult;
 import javax.ws.rs.core.MultivaluedMap;
@@ -19,10 +20,17 @@ import org.glassfish.jersey.uri.UriTemplate;
 class FakeExtendedUriInfo implements ExtendedUriInfo {
   final URI baseURI;
   final List<UriTemplate> matchedTemplates;
+  final ResourceMethod matchedResourceMethod;
 
   FakeExtendedUriInfo(URI baseURI, List<UriTemplate> matchedTemplates) {
+    this(baseURI, matchedTemplates, null);
+  }
+
+  FakeExtendedUriInfo(URI baseURI, List<UriTemplate> matchedTemplates,
+    ResourceMethod matchedResourceMethod) {
     this.baseURI = baseURI;
     this.matchedTemplates = matchedTemplates;
+    this.matchedResourceMethod = matchedResourceMethod;
   }
 
   @Override public Throwable getMappedThrowable() {
@@ -50,7 +58,7 @@ class FakeExtendedUriInfo implements ExtendedUriInfo {
   }
 
   @Override public ResourceMethod getMatchedResourceMethod() {
-    return null;
+    return matchedResourceMethod;
   }
 
   @Override public Resource getMatchedModelResource() {
@@ -58,7 +66,7 @@ class FakeExtendedUriInfo implements ExtendedUriInfo {
   }
 
   @Override public List<ResourceMethod> getMatchedResourceLocators() {
-    return null;
+    return Collections.emptyList();
   }
 
   @Override public List<Resource> getLocatorSubResources() {
@@ -8,11 +8,15 @@ import brave.jersey.server.TracingApplicationEventListener.ContainerRequestWrapp
 import java.net.URI;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
+import javax.ws.rs.container.ContainerRequestContext;
 import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.process.Inflector;
 import org.glassfish.jersey.server.ContainerRequest;
 import org.glassfish.jersey.server.ContainerResponse;
 import org.glassfish.jersey.server.ExtendedUriInfo;
 import org.glassfish.jersey.server.internal.monitoring.RequestEventImpl;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
 import org.glassfish.jersey.server.monitoring.RequestEvent;
 import org.glassfish.jersey.uri.PathTemplate;
 import org.jboss.resteasy.core.ServerResponse;
@@ -71,6 +75,18 @@ public class TracingApplicationEventListenerAdapterBenchmarks {
     }
   };
 
+  FakeExtendedUriInfo matchedMethodUriInfo = new FakeExtendedUriInfo(URI.create("/"),
+    nestedUriInfo.matchedTemplates,
+    resourceMethod()
+  );
+  ContainerRequest matchedMethodRequest = new ContainerRequest(
+    URI.create("/"), null, null, null, new MapPropertiesDelegate()
+  ) {
+    @Override public ExtendedUriInfo getUriInfo() {
+      return matchedMethodUriInfo;
+    }
+  };
+
   @Benchmark public String parseRoute() {
     return new ContainerRequestWrapper(nestedRequest).route();
   }
@@ -79,6 +95,21 @@ public class TracingApplicationEventListenerAdapterBenchmarks {
     return new ContainerRequestWrapper(nestedRequest).route();
   }
 
+  /** The route is cached by the matched resource method, so this doesn't re-parse templates. */
+  @Benchmark public String parseRoute_nested_cached() {
+    return new ContainerRequestWrapper(matchedMethodRequest).route();
+  }
+
+  static ResourceMethod resourceMethod() {
+    Resource.Builder builder = Resource.builder("/items/{itemId}");
+    builder.addMethod("GET").handledBy(new Inflector<ContainerRequestContext, String>() {
+      @Override public String apply(ContainerRequestContext context) {
+        return "";
+      }
+    });
+    return builder.build().getResourceMethods().get(0);
+  }
+
   // Convenience main entry-point
   public static void main(String[] args) throws RunnerException {
     Options opt = new OptionsBuilder()
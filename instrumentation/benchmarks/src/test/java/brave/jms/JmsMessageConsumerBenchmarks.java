@@ -0,0 +1,114 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jms;
+
+import brave.Tracing;
+import java.util.concurrent.TimeUnit;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class JmsMessageConsumerBenchmarks {
+  /** Count of properties besides trace IDs, which are copied when clearing trace IDs. */
+  @Param({"0", "20"})
+  int otherProperties;
+
+  ActiveMQTextMessage message = new ActiveMQTextMessage();
+  MessageConsumer consumer, tracingConsumer, tracingConsumer_retainTraceIdProperties;
+
+  @Setup(Level.Trial) public void init() throws JMSException {
+    Tracing tracing = Tracing.newBuilder().build();
+    message.setText("value");
+    message.setStringProperty("b3", "80f198ee56343ba864fe8b2a57d3eff7-e457b5a2e4d86bd1-1");
+    for (int i = 0; i < otherProperties; i++) {
+      message.setStringProperty("property" + i, "value" + i);
+    }
+    consumer = new FakeMessageConsumer();
+    tracingConsumer = TracingMessageConsumer.create(consumer, JmsTracing.create(tracing));
+    tracingConsumer_retainTraceIdProperties = TracingMessageConsumer.create(consumer,
+      JmsTracing.newBuilder(tracing).clearTraceIdProperties(false).build());
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    Tracing.current().close();
+  }
+
+  /** Includes the cost of copying the message, as a broker would deliver a new one. */
+  @Benchmark public Message receive_baseCase() throws Exception {
+    return consumer.receive();
+  }
+
+  @Benchmark public Message receive_traced() throws Exception {
+    return tracingConsumer.receive();
+  }
+
+  @Benchmark public Message receive_traced_retainTraceIdProperties() throws Exception {
+    return tracingConsumer_retainTraceIdProperties.receive();
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + JmsMessageConsumerBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+
+  final class FakeMessageConsumer implements MessageConsumer {
+
+    @Override public String getMessageSelector() {
+      return null;
+    }
+
+    @Override public MessageListener getMessageListener() {
+      return null;
+    }
+
+    @Override public void setMessageListener(MessageListener listener) {
+    }
+
+    @Override public Message receive() {
+      return (Message) message.copy();
+    }
+
+    @Override public Message receive(long timeout) {
+      return receive();
+    }
+
+    @Override public Message receiveNoWait() {
+      return receive();
+    }
+
+    @Override public void close() {
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.mongodb;
+
+import brave.Tracing;
+import brave.handler.SpanHandler;
+import brave.propagation.ThreadLocalSpan;
+import brave.sampler.Sampler;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the overhead of correlating command events by request ID, using a stub server: events
+ * are constructed up front, as a driver would from server responses.
+ *
+ * <p>The "interleaved" benchmarks model an asynchronous or reactive driver, which has many
+ * commands in flight before any completes. "sequential" models the synchronous driver, and is
+ * compared against {@link ThreadLocalSpan}, which was used before, but only supports that case.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(2)
+@State(Scope.Thread)
+public class TraceMongoCommandListenerBenchmarks {
+  static final int IN_FLIGHT_COMMANDS = 16;
+  static final BsonDocument COMMAND = BsonDocument.parse("{\"find\": \"myCollection\"}");
+  static final BsonDocument RESPONSE = BsonDocument.parse("{\"ok\": 1}");
+
+  // Shared across threads, as the listener is shared by all connections of a client
+  static Tracing tracing;
+  static CommandListener listener;
+  static ThreadLocalSpan threadLocalSpan;
+
+  CommandStartedEvent[] started = new CommandStartedEvent[IN_FLIGHT_COMMANDS];
+  CommandSucceededEvent[] succeeded = new CommandSucceededEvent[IN_FLIGHT_COMMANDS];
+  CommandFailedEvent failed;
+
+  @Setup(Level.Trial) public void init() {
+    synchronized (TraceMongoCommandListenerBenchmarks.class) {
+      if (tracing == null) {
+        tracing = Tracing.newBuilder()
+          .sampler(Sampler.ALWAYS_SAMPLE)
+          .addSpanHandler(new SpanHandler() {
+            // anonymous subtype prevents all recording from being no-op
+          }).build();
+        listener = MongoDBTracing.create(tracing).commandListener();
+        threadLocalSpan = ThreadLocalSpan.create(tracing.tracer());
+      }
+    }
+
+    ConnectionDescription[] connections = new ConnectionDescription[IN_FLIGHT_COMMANDS];
+    ServerId serverId = new ServerId(new ClusterId(), new ServerAddress("127.0.0.1", 27017));
+    for (int i = 0; i < IN_FLIGHT_COMMANDS; i++) {
+      connections[i] = new ConnectionDescription(serverId);
+    }
+
+    // Like the driver, request IDs are unique across threads
+    for (int i = 0; i < IN_FLIGHT_COMMANDS; i++) {
+      int requestId = nextRequestId();
+      started[i] = new CommandStartedEvent(null, i, requestId, connections[i], "dbName", "find",
+        COMMAND);
+      succeeded[i] = new CommandSucceededEvent(null, i, requestId, connections[i], "dbName",
+        "find", RESPONSE, 1000L);
+    }
+    failed = new CommandFailedEvent(null, 0, started[0].getRequestId(), connections[0], "dbName",
+      "find", 1000L, new IllegalStateException("timeout"));
+  }
+
+  static int requestId;
+
+  static synchronized int nextRequestId() {
+    return ++requestId;
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    synchronized (TraceMongoCommandListenerBenchmarks.class) {
+      if (tracing != null) {
+        tracing.close();
+        tracing = null;
+      }
+    }
+  }
+
+  @Benchmark public void threadLocalSpan_sequential() {
+    if (threadLocalSpan.next() == null) return;
+    threadLocalSpan.remove().finish();
+  }
+
+  @Benchmark public void listener_sequential() {
+    listener.commandStarted(started[0]);
+    listener.commandSucceeded(succeeded[0]);
+  }
+
+  @Benchmark public void listener_sequential_failed() {
+    listener.commandStarted(started[0]);
+    listener.commandFailed(failed);
+  }
+
+  /** Completes commands in the reverse order they started, which ThreadLocalSpan can't do. */
+  @Benchmark @OperationsPerInvocation(IN_FLIGHT_COMMANDS)
+  public void listener_interleaved() {
+    for (int i = 0; i < IN_FLIGHT_COMMANDS; i++) {
+      listener.commandStarted(started[i]);
+    }
+    for (int i = IN_FLIGHT_COMMANDS - 1; i >= 0; i--) {
+      listener.commandSucceeded(succeeded[i]);
+    }
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + TraceMongoCommandListenerBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
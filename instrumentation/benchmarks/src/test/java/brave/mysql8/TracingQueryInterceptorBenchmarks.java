@@ -0,0 +1,109 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.mysql8;
+
+import brave.Span;
+import brave.Tracing;
+import brave.mysql8.TracingQueryInterceptor.RemoteEndpoint;
+import brave.sampler.Sampler;
+import com.mysql.cj.jdbc.JdbcConnection;
+import java.lang.reflect.Proxy;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the cost of adding the remote endpoint to each span of many statements run on the same
+ * connection, when parsing the connection metadata each time vs once per connection.
+ *
+ * <p>The connection is a proxy returning constants, so this only measures tracing overhead.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(1)
+@State(Scope.Thread)
+public class TracingQueryInterceptorBenchmarks {
+  static final int STATEMENTS_PER_CONNECTION = 5000;
+
+  Tracing tracing;
+  Span span;
+  JdbcConnection connection;
+
+  @Setup(Level.Trial) public void init() {
+    tracing = Tracing.newBuilder().sampler(Sampler.ALWAYS_SAMPLE).build();
+    span = tracing.tracer().nextSpan();
+    Properties properties = new Properties();
+    connection = (JdbcConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+      new Class[] {JdbcConnection.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getURL":
+            return "jdbc:mysql://myhost:5555/mydatabase";
+          case "getProperties":
+            return properties;
+          case "getCatalog":
+            return "mydatabase";
+          case "getHost":
+            return "1.2.3.4";
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "equals":
+            return proxy == args[0];
+          default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+      });
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    span.abandon();
+    tracing.close();
+  }
+
+  @Benchmark @OperationsPerInvocation(STATEMENTS_PER_CONNECTION)
+  public void parseServerIpAndPort_eachStatement() {
+    for (int i = 0; i < STATEMENTS_PER_CONNECTION; i++) {
+      RemoteEndpoint endpoint = TracingQueryInterceptor.parseRemoteEndpoint(connection);
+      span.remoteServiceName(endpoint.serviceName);
+      span.remoteIpAndPort(endpoint.host, endpoint.port);
+    }
+  }
+
+  @Benchmark @OperationsPerInvocation(STATEMENTS_PER_CONNECTION)
+  public void parseServerIpAndPort_oncePerConnection() {
+    for (int i = 0; i < STATEMENTS_PER_CONNECTION; i++) {
+      TracingQueryInterceptor.parseServerIpAndPort(connection, span);
+    }
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + TracingQueryInterceptorBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
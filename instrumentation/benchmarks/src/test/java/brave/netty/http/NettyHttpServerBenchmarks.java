@@ -23,9 +23,18 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
 import io.netty.util.AttributeKey;
 import io.undertow.servlet.api.DeploymentInfo;
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.Collections;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.runner.Runner;
@@ -41,6 +50,8 @@ public class NettyHttpServerBenchmarks extends HttpServerBenchmarks {
 
   EventLoopGroup bossGroup;
   EventLoopGroup workerGroup;
+  OkHttpClient h2Client;
+  String h2BaseUrl;
 
   @Override protected void init(DeploymentInfo servletBuilder) {
   }
@@ -68,6 +79,9 @@ public class NettyHttpServerBenchmarks extends HttpServerBenchmarks {
     final ChannelDuplexHandler traced128 = NettyHttpTracing.create(
       Tracing.newBuilder().traceId128Bit(true).build()
     ).serverHandler();
+    final ChannelDuplexHandler tracedFastThreadLocal = NettyHttpTracing.create(
+      Tracing.newBuilder().currentTraceContext(FastThreadLocalCurrentTraceContext.create()).build()
+    ).serverHandler();
 
     @Override public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
       if (!(msg instanceof HttpRequest)) {
@@ -88,6 +102,9 @@ public class NettyHttpServerBenchmarks extends HttpServerBenchmarks {
       } else if ("/traced128".equals(uri)) {
         ctx.channel().attr(URI_ATTRIBUTE).set(uri);
         traced128.channelRead(ctx, msg);
+      } else if ("/tracedFastThreadLocal".equals(uri)) {
+        ctx.channel().attr(URI_ATTRIBUTE).set(uri);
+        tracedFastThreadLocal.channelRead(ctx, msg);
       } else {
         ctx.fireChannelRead(msg);
       }
@@ -106,6 +123,8 @@ public class NettyHttpServerBenchmarks extends HttpServerBenchmarks {
         traced.write(ctx, msg, prm);
       } else if ("/traced128".equals(uri)) {
         traced128.write(ctx, msg, prm);
+      } else if ("/tracedFastThreadLocal".equals(uri)) {
+        tracedFastThreadLocal.write(ctx, msg, prm);
       } else {
         ctx.write(msg, prm);
       }
@@ -131,10 +150,74 @@ public class NettyHttpServerBenchmarks extends HttpServerBenchmarks {
       });
 
     Channel ch = b.bind(0).sync().channel();
+    h2BaseUrl = "http://127.0.0.1:" + initH2Server();
+    h2Client = new OkHttpClient.Builder()
+      .protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE))
+      .build();
     return ((InetSocketAddress) ch.localAddress()).getPort();
   }
 
+  /** Many concurrent streams share one connection, each stream being a child channel. */
+  int initH2Server() throws InterruptedException {
+    ServerBootstrap b = new ServerBootstrap();
+    b.option(ChannelOption.SO_BACKLOG, 1024);
+    b.group(bossGroup, workerGroup)
+      .channel(NioServerSocketChannel.class)
+      .childHandler(new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(final Channel ch) throws Exception {
+          ch.pipeline().addLast(Http2FrameCodecBuilder.forServer().build());
+          ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+            @Override protected void initChannel(Channel stream) {
+              ChannelPipeline p = stream.pipeline();
+              p.addLast(new Http2StreamFrameToHttpObjectCodec(true));
+              p.addLast(new TracingDispatchHandler());
+              p.addLast(new HelloWorldHandler());
+            }
+          }));
+        }
+      });
+
+    Channel ch = b.bind(0).sync().channel();
+    return ((InetSocketAddress) ch.localAddress()).getPort();
+  }
+
+  /** Compare with {@link #tracedServer_get()}, which uses {@link ThreadLocal} for scoping. */
+  @Benchmark public void tracedFastThreadLocalServer_get() throws Exception {
+    get("/tracedFastThreadLocal");
+  }
+
+  @Benchmark public void server_get_h2() throws Exception {
+    getH2("/nottraced");
+  }
+
+  @Benchmark public void unsampledServer_get_h2() throws Exception {
+    getH2("/unsampled");
+  }
+
+  @Benchmark public void tracedServer_get_h2() throws Exception {
+    getH2("/traced");
+  }
+
+  @Benchmark public void tracedFastThreadLocalServer_get_h2() throws Exception {
+    getH2("/tracedFastThreadLocal");
+  }
+
+  @Benchmark public void tracedServer_get_h2_resumeTrace() throws Exception {
+    h2Client.newCall(new Request.Builder().url(h2BaseUrl + "/traced")
+      .header("X-B3-TraceId", "216a2aea45d08fc9")
+      .header("X-B3-SpanId", "5b4185666d50f68b")
+      .header("X-B3-Sampled", "1")
+      .build())
+      .execute().body().close();
+  }
+
+  void getH2(String path) throws IOException {
+    h2Client.newCall(new Request.Builder().url(h2BaseUrl + path).build()).execute().body().close();
+  }
+
   @TearDown(Level.Trial) public void closeNetty() {
+    if (h2Client != null) h2Client.dispatcher().executorService().shutdown();
     if (bossGroup != null) bossGroup.shutdownGracefully();
     if (workerGroup != null) workerGroup.shutdownGracefully();
   }
@@ -40,6 +40,13 @@ public class B3PropagationBenchmarks {
     .sampled(true)
     .build();
 
+  // Types that aren't Extra, such as these, are found by scanning TraceContext.extra()
+  static final TraceContext contextWithExtra = context.toBuilder()
+    .addExtra(new Object())
+    .addExtra(new Object())
+    .addExtra(1L)
+    .build();
+
   static final Map<String, String> incoming = new LinkedHashMap<String, String>() {
     {
       b3Injector.inject(context, this);
@@ -68,6 +75,15 @@ public class B3PropagationBenchmarks {
     b3Injector.inject(context, request);
   }
 
+  @Benchmark public void inject_withExtra() {
+    Map<String, String> request = new LinkedHashMap<>();
+    b3Injector.inject(contextWithExtra, request);
+  }
+
+  @Benchmark public Long findExtra() {
+    return contextWithExtra.findExtra(Long.class);
+  }
+
   @Benchmark public TraceContextOrSamplingFlags extract() {
     return b3Extractor.extract(incoming);
   }
@@ -9,6 +9,8 @@ import brave.baggage.BaggagePropagation;
 import brave.baggage.BaggagePropagationConfig;
 import brave.baggage.CorrelationScopeConfig.SingleCorrelationField;
 import brave.context.log4j2.ThreadContextScopeDecorator;
+import brave.handler.MutableSpan;
+import brave.handler.ThreadResourceSpanHandler;
 import brave.propagation.CurrentTraceContext.Scope;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -66,8 +68,24 @@ public class CurrentTraceContextBenchmarks {
     .sampled(true)
     .build());
 
+  static final TraceContext unrecordedContext = context.toBuilder().spanId(4L).build();
+
+  static final ThreadResourceSpanHandler threadResources = ThreadResourceSpanHandler.create();
+  static final CurrentTraceContext threadResourcesBoth = ThreadLocalCurrentTraceContext.newBuilder()
+    .addScopeDecorator(threadResources.scopeDecorator())
+    .build();
+  static final ThreadResourceSpanHandler threadResourcesCpuTime =
+    ThreadResourceSpanHandler.newBuilder().allocatedBytes(false).build();
+  static final CurrentTraceContext threadResourcesOnlyCpuTime =
+    ThreadLocalCurrentTraceContext.newBuilder()
+      .addScopeDecorator(threadResourcesCpuTime.scopeDecorator())
+      .build();
+
   static {
     BAGGAGE_FIELD.updateValue(context, "romeo");
+    // Simulates the span being recorded, as only then are its scopes measured
+    threadResources.begin(context, new MutableSpan(), null);
+    threadResourcesCpuTime.begin(context, new MutableSpan(), null);
   }
 
   final Scope log4j2Scope = log4j2.newScope(context);
@@ -101,6 +119,22 @@ public class CurrentTraceContextBenchmarks {
     }
   }
 
+  @Benchmark public void newScope_threadResources() {
+    try (Scope scope = threadResourcesBoth.newScope(context)) {
+    }
+  }
+
+  @Benchmark public void newScope_threadResources_onlyCpuTime() {
+    try (Scope scope = threadResourcesOnlyCpuTime.newScope(context)) {
+    }
+  }
+
+  /** Shows the overhead of looking up a span that isn't recorded, such as when unsampled. */
+  @Benchmark public void newScope_threadResources_unrecorded() {
+    try (Scope scope = threadResourcesBoth.newScope(unrecordedContext)) {
+    }
+  }
+
   @Benchmark public void newScope_redundant_default() {
     try (Scope scope = base.newScope(context)) {
     }
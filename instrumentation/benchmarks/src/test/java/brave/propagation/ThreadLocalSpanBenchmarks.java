@@ -0,0 +1,109 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.propagation;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.SpanHandler;
+import brave.sampler.Sampler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the callback pair used by instrumentation such as MySQL and JDBI: {@link
+ * ThreadLocalSpan#next()} in one callback and {@link ThreadLocalSpan#remove()} in another.
+ *
+ * <p>Run with the "gc" profiler to see allocation: other than the span, allocation is by the tracer
+ * and its scope, as seen in the "tracer" baseline.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(2)
+@State(Scope.Benchmark)
+public class ThreadLocalSpanBenchmarks {
+  Tracing tracing, unsampledTracing;
+  Tracer tracer;
+  ThreadLocalSpan threadLocalSpan, unsampledThreadLocalSpan;
+
+  @Setup(Level.Trial) public void init() {
+    tracing = Tracing.newBuilder()
+      .addSpanHandler(new SpanHandler() {
+        // anonymous subtype prevents all recording from being no-op
+      }).build();
+    unsampledTracing = Tracing.newBuilder().sampler(Sampler.NEVER_SAMPLE).build();
+    tracer = tracing.tracer();
+    threadLocalSpan = ThreadLocalSpan.create(tracer);
+    unsampledThreadLocalSpan = ThreadLocalSpan.create(unsampledTracing.tracer());
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    tracing.close();
+    unsampledTracing.close();
+  }
+
+  /** Baseline of the same work without a thread-local stack. */
+  @Benchmark public Span tracer() {
+    Span span = tracer.nextSpan().start();
+    try (Tracer.SpanInScope scope = tracer.withSpanInScope(span)) {
+      return span;
+    } finally {
+      span.finish();
+    }
+  }
+
+  @Benchmark public Span nextRemove() {
+    threadLocalSpan.next().start();
+    Span span = threadLocalSpan.remove();
+    span.finish();
+    return span;
+  }
+
+  @Benchmark public Span nextRemove_unsampled() {
+    unsampledThreadLocalSpan.next().start();
+    Span span = unsampledThreadLocalSpan.remove();
+    span.finish();
+    return span;
+  }
+
+  /** For example, a query made while a connection is being opened. */
+  @Benchmark public Span nextRemove_nested() {
+    threadLocalSpan.next().start();
+    threadLocalSpan.next().start();
+    threadLocalSpan.remove().finish();
+    Span span = threadLocalSpan.remove();
+    span.finish();
+    return span;
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + ThreadLocalSpanBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.rocketmq.client;
+
+import brave.Tracing;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of tracing a batch of messages passed to a listener, invoked once per
+ * message by default, or once per batch with batch processing.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class RocketMQConsumerBenchmarks {
+  /** 32 is the maximum batch size RocketMQ pulls by default. */
+  @Param({"1", "32"})
+  int batchSize;
+
+  List<MessageExt> batch;
+  MessageListenerConcurrently listener, tracingListener, batchTracingListener;
+  Tracing tracing;
+
+  @Setup(Level.Trial) public void init() {
+    tracing = Tracing.newBuilder().build();
+    listener = (msgs, context) -> ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+    tracingListener = RocketMQTracing.create(tracing).messageListenerConcurrently(listener);
+    batchTracingListener = RocketMQTracing.newBuilder(tracing).batchProcessing(true).build()
+        .messageListenerConcurrently(listener);
+    batch = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      MessageExt message = new MessageExt();
+      message.setTopic("zipkin");
+      message.setBody("zipkin".getBytes());
+      batch.add(message);
+    }
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    tracing.close();
+  }
+
+  @Benchmark public ConsumeConcurrentlyStatus consumeMessage_baseCase() {
+    return listener.consumeMessage(batch, null);
+  }
+
+  @Benchmark public ConsumeConcurrentlyStatus consumeMessage_traced() {
+    return tracingListener.consumeMessage(batch, null);
+  }
+
+  @Benchmark public ConsumeConcurrentlyStatus consumeMessage_traced_batchProcessing() {
+    return batchTracingListener.consumeMessage(batch, null);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .addProfiler("gc")
+        .include(".*" + RocketMQConsumerBenchmarks.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
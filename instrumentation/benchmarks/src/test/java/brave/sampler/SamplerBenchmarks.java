@@ -4,6 +4,9 @@
  */
 package brave.sampler;
 
+import brave.http.HttpRequest;
+import brave.http.HttpRuleSampler;
+import brave.http.HttpServerRequest;
 import com.amazonaws.xray.strategy.sampling.reservoir.Reservoir;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
@@ -15,6 +18,7 @@ import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
@@ -23,6 +27,8 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import static brave.http.HttpRequestMatchers.pathStartsWith;
+
 /**
  * <p>Brave uses before-the-fact sampling. This means that the decision to keep or drop the trace
  * is made before any work is measured, or annotations are added. As such, the input parameter to
@@ -122,6 +128,78 @@ public class SamplerBenchmarks {
 
   static final Reservoir RESERVOIR_RATE_LIMITED_100 = new Reservoir(100);
 
+  /** Typical of a service that maintains a sample rate per API path. */
+  static final int HTTP_RULE_COUNT = 300;
+
+  @State(Scope.Benchmark)
+  public static class HttpArgs {
+    /** Paths matching the first rule, the last rule, or no rule. */
+    @Param({"/api/v0/users", "/api/v299/users", "/health"})
+    String path;
+
+    HttpRequest request;
+
+    @Setup public void setup() {
+      request = new FakeHttpRequest("GET", path);
+    }
+  }
+
+  /** Each rule calls {@link HttpRequest#path()} until one matches. */
+  @Benchmark public Boolean httpRules_parameterized(HttpArgs args) {
+    return HTTP_RULES_PARAMETERIZED.trySample(args.request);
+  }
+
+  static final SamplerFunction<HttpRequest> HTTP_RULES_PARAMETERIZED;
+
+  /** Rules are indexed by path prefix, so the cost is linear in path length. */
+  @Benchmark public Boolean httpRules_compiled(HttpArgs args) {
+    return HTTP_RULES_COMPILED.trySample(args.request);
+  }
+
+  static final SamplerFunction<HttpRequest> HTTP_RULES_COMPILED;
+
+  static {
+    ParameterizedSampler.Builder<HttpRequest> parameterized = ParameterizedSampler.newBuilder();
+    HttpRuleSampler.Builder compiled = HttpRuleSampler.newBuilder();
+    for (int i = 0; i < HTTP_RULE_COUNT; i++) {
+      Matcher<HttpRequest> matcher = pathStartsWith("/api/v" + i + "/");
+      Sampler sampler = RateLimitingSampler.create(100);
+      parameterized.putRule(matcher, sampler);
+      compiled.putRule(matcher, sampler);
+    }
+    HTTP_RULES_PARAMETERIZED = parameterized.build();
+    HTTP_RULES_COMPILED = compiled.build();
+  }
+
+  static final class FakeHttpRequest extends HttpServerRequest {
+    final String method, path;
+
+    FakeHttpRequest(String method, String path) {
+      this.method = method;
+      this.path = path;
+    }
+
+    @Override public Object unwrap() {
+      return this;
+    }
+
+    @Override public String method() {
+      return method;
+    }
+
+    @Override public String path() {
+      return path;
+    }
+
+    @Override public String url() {
+      return "http://localhost" + path;
+    }
+
+    @Override public String header(String name) {
+      return null;
+    }
+  }
+
   // Convenience main entry-point
   public static void main(String[] args) throws RunnerException {
     Options opt = new OptionsBuilder()
@@ -0,0 +1,144 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.vertx.web;
+
+import brave.Tracing;
+import brave.http.HttpTracing;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares request overhead of Vert.x Web tracing, when the current trace context is stored in a
+ * thread local vs the local data of the Vert.x context. Each route starts a child span, so reads
+ * the current trace context on the event loop. Client overhead is measured against the same
+ * untraced server.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(2)
+@State(Scope.Benchmark)
+public class VertxWebBenchmarks {
+  Vertx vertx;
+  HttpClient client;
+  VertxWebTracing clientTracing;
+  Tracing threadLocalTracing, vertxContextTracing;
+  int port, threadLocalPort, vertxContextPort;
+
+  @Setup(Level.Trial) public void init() throws Exception {
+    vertx = Vertx.vertx();
+    client = vertx.createHttpClient();
+
+    threadLocalTracing = Tracing.newBuilder()
+      .currentTraceContext(ThreadLocalCurrentTraceContext.create())
+      .build();
+    vertxContextTracing = Tracing.newBuilder()
+      .currentTraceContext(VertxContextCurrentTraceContext.create())
+      .build();
+    clientTracing = VertxWebTracing.create(HttpTracing.create(threadLocalTracing));
+
+    port = listen(null);
+    threadLocalPort = listen(threadLocalTracing);
+    vertxContextPort = listen(vertxContextTracing);
+  }
+
+  @TearDown(Level.Trial) public void close() throws Exception {
+    CompletableFuture<Void> closed = new CompletableFuture<>();
+    vertx.close(result -> closed.complete(null));
+    closed.get(10, TimeUnit.SECONDS);
+    threadLocalTracing.close();
+    vertxContextTracing.close();
+  }
+
+  @Benchmark public int server_get() throws Exception {
+    return get(client.get(port, "127.0.0.1", "/child"));
+  }
+
+  @Benchmark public int tracedServer_get() throws Exception {
+    return get(client.get(threadLocalPort, "127.0.0.1", "/child"));
+  }
+
+  @Benchmark public int tracedServer_get_vertxContext() throws Exception {
+    return get(client.get(vertxContextPort, "127.0.0.1", "/child"));
+  }
+
+  @Benchmark public int tracedClient_get() throws Exception {
+    return get(clientTracing.clientRequest(client.get(port, "127.0.0.1", "/child")));
+  }
+
+  int listen(Tracing tracing) throws Exception {
+    Router router = Router.router(vertx);
+    if (tracing != null) {
+      Handler<RoutingContext> routingContextHandler =
+        VertxWebTracing.create(HttpTracing.create(tracing)).routingContextHandler();
+      router.route()
+        .order(-1)
+        .handler(routingContextHandler)
+        .failureHandler(routingContextHandler);
+    }
+    CurrentTraceContext current = tracing != null ? tracing.currentTraceContext() : null;
+    router.route("/child").handler(ctx -> {
+      if (tracing != null && current.get() != null) {
+        tracing.tracer().nextSpan().name("child").start().finish();
+      }
+      ctx.response().end("happy");
+    });
+
+    CompletableFuture<HttpServer> server = new CompletableFuture<>();
+    vertx.createHttpServer().requestHandler(router).listen(0, "127.0.0.1", result -> {
+      if (result.succeeded()) {
+        server.complete(result.result());
+      } else {
+        server.completeExceptionally(result.cause());
+      }
+    });
+    return server.get(10, TimeUnit.SECONDS).actualPort();
+  }
+
+  static int get(HttpClientRequest request) throws Exception {
+    CompletableFuture<Integer> result = new CompletableFuture<>();
+    request.handler(response -> response.bodyHandler(b -> result.complete(response.statusCode())))
+      .exceptionHandler(result::completeExceptionally)
+      .end();
+    return result.get(10, TimeUnit.SECONDS);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(".*" + VertxWebBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -5,6 +5,7 @@
 package brave.http;
 
 import brave.Span;
+import brave.SpanUpdater;
 import brave.internal.Platform;
 
 import static brave.internal.Throwables.propagateIfFatal;
@@ -18,11 +19,27 @@ abstract class HttpHandler {
     this.responseParser = responseParser;
   }
 
+  // Parsing is done with a span updater, so that all fields are set under the same lock.
+  final SpanUpdater<HttpRequest> requestUpdater = new SpanUpdater<HttpRequest>() {
+    @Override public void update(HttpRequest request, Span span) {
+      parseRequest(request, span);
+    }
+  };
+
+  final SpanUpdater<HttpResponse> responseUpdater = new SpanUpdater<HttpResponse>() {
+    @Override public void update(HttpResponse response, Span span) {
+      if (response.error() != null) {
+        span.error(response.error()); // Ensures MutableSpan.error() for SpanHandler
+      }
+      parseResponse(response, span);
+    }
+  };
+
   Span handleStart(HttpRequest request, Span span) {
     if (span.isNoop()) return span;
 
     try {
-      parseRequest(request, span);
+      span.update(request, requestUpdater);
     } catch (Throwable t) {
       propagateIfFatal(t);
       Platform.get().log("error parsing request {0}", request, t);
@@ -52,12 +69,8 @@ abstract class HttpHandler {
     if (span == null) throw new NullPointerException("span == null");
     if (span.isNoop()) return;
 
-    if (response.error() != null) {
-      span.error(response.error()); // Ensures MutableSpan.error() for SpanHandler
-    }
-
     try {
-      parseResponse(response, span);
+      span.update(response, responseUpdater);
     } catch (Throwable t) {
       propagateIfFatal(t);
       Platform.get().log("error parsing response {0}", response, t);
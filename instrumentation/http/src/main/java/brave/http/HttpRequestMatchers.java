@@ -82,4 +82,38 @@ public final class HttpRequestMatchers {
       return "PathStartsWith(" + pathPrefix + ")";
     }
   }
+
+  /**
+   * Same as {@code Matchers.and(methodEquals(method), pathStartsWith(pathPrefix))}, except the
+   * {@link HttpRuleSampler} can index it by path prefix.
+   */
+  static final class MethodAndPathStartsWith implements Matcher<HttpRequest> {
+    final String method, pathPrefix;
+
+    MethodAndPathStartsWith(String method, String pathPrefix) {
+      this.method = method;
+      this.pathPrefix = pathPrefix;
+    }
+
+    @Override public boolean matches(HttpRequest request) {
+      if (!method.equals(request.method())) return false;
+      String requestPath = request.path();
+      return requestPath != null && requestPath.startsWith(pathPrefix);
+    }
+
+    @Override public boolean equals(Object o) {
+      if (o == this) return true;
+      if (!(o instanceof MethodAndPathStartsWith)) return false;
+      MethodAndPathStartsWith that = (MethodAndPathStartsWith) o;
+      return method.equals(that.method) && pathPrefix.equals(that.pathPrefix);
+    }
+
+    @Override public int hashCode() {
+      return method.hashCode() * 1000003 ^ pathPrefix.hashCode();
+    }
+
+    @Override public String toString() {
+      return "MethodAndPathStartsWith(" + method + ", " + pathPrefix + ")";
+    }
+  }
 }
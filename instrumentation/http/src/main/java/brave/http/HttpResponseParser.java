@@ -87,7 +87,7 @@ public interface HttpResponseParser {
       if (method == null) return null; // don't undo a valid name elsewhere
       String route = response.route();
       if (route == null) return null; // don't undo a valid name elsewhere
-      if (!"".equals(route)) return method + " " + route;
+      if (!"".equals(route)) return HttpRouteCache.SPAN_NAMES.spanName(method, route);
       return catchAllName(method, statusCode);
     }
 
@@ -128,9 +128,9 @@ public interface HttpResponseParser {
         case 305:
         case 306:
         case 307:
-          return method + " redirected";
+          return HttpRouteCache.SPAN_NAMES.spanName(method, "redirected");
         case 404:
-          return method + " not_found";
+          return HttpRouteCache.SPAN_NAMES.spanName(method, "not_found");
         default:
           return null;
       }
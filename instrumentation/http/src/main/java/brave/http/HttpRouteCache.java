@@ -0,0 +1,219 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.http;
+
+import brave.internal.Nullable;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caches {@linkplain HttpRequest#route() HTTP routes} and span names derived from them, so that
+ * each is built once as opposed to per request.
+ *
+ * <p>Frameworks key routes by the object that represents them, such as a resource method. When
+ * that object is long-lived, the route string is computed on the first request and reused after.
+ * Equal route strings are interned, so that the same instance is held by all spans that use it.
+ *
+ * <p>Ex. Here's how instrumentation could cache a route that is expensive to compute.
+ * <pre>{@code
+ * String route = routeCache.route(resourceMethod, basePath);
+ * if (route == null) {
+ *   route = routeCache.putRoute(resourceMethod, basePath, computeRoute(request));
+ * }
+ * }</pre>
+ *
+ * <h3>Implementation notes</h3>
+ * This is bounded and evicts entries least recently used when full. Eviction is approximate
+ * (second-chance or "clock") so that lookups don't lock or reorder a list.
+ *
+ * @since 6.4
+ */
+public final class HttpRouteCache {
+  /** Used by {@link HttpResponseParser.Default} to name spans by route. */
+  static final HttpRouteCache SPAN_NAMES = create(1024);
+  /** Bounds methods per route, in case a client sends arbitrary HTTP methods. */
+  static final int MAX_METHODS_PER_ROUTE = 16;
+
+  /**
+   * @param maxSize the maximum count of routes to retain. Routes not recently used are evicted
+   * when this is exceeded.
+   * @since 6.4
+   */
+  public static HttpRouteCache create(int maxSize) {
+    if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+    return new HttpRouteCache(maxSize);
+  }
+
+  final int maxSize;
+  final BoundedMap<Object, RouteEntry> routes;
+  final BoundedMap<String, NameEntry> names;
+
+  HttpRouteCache(int maxSize) {
+    this.maxSize = maxSize;
+    routes = new BoundedMap<Object, RouteEntry>(maxSize);
+    names = new BoundedMap<String, NameEntry>(maxSize);
+  }
+
+  /**
+   * Returns the route previously {@linkplain #putRoute(Object, String, String) put} for this key,
+   * or null if absent or put with a different base path.
+   *
+   * @param routeKey a long-lived object representing the route, such as a resource method. This
+   * should use identity equality unless equal keys always have the same route.
+   * @param basePath when the same route key can be mounted at different paths, the one this
+   * request was received on. Otherwise, null.
+   * @since 6.4
+   */
+  @Nullable public String route(Object routeKey, @Nullable String basePath) {
+    if (routeKey == null) throw new NullPointerException("routeKey == null");
+    RouteEntry entry = routes.get(routeKey);
+    if (entry == null) return null;
+    if (basePath == null ? entry.basePath != null : !basePath.equals(entry.basePath)) return null;
+    return entry.route;
+  }
+
+  /**
+   * Caches the route for this key and returns the interned route, which may be a different
+   * instance than the input.
+   *
+   * @see #route(Object, String)
+   * @since 6.4
+   */
+  public String putRoute(Object routeKey, @Nullable String basePath, String route) {
+    if (routeKey == null) throw new NullPointerException("routeKey == null");
+    if (route == null) throw new NullPointerException("route == null");
+    route = nameEntry(route).route;
+    routes.put(routeKey, new RouteEntry(basePath, route));
+    return route;
+  }
+
+  /**
+   * Returns a span name in the format "{method} {route}", such as "GET /users/{userId}", building
+   * it only once per method and route.
+   *
+   * @since 6.4
+   */
+  public String spanName(String method, String route) {
+    if (method == null) throw new NullPointerException("method == null");
+    if (route == null) throw new NullPointerException("route == null");
+    NameEntry entry = nameEntry(route);
+    String[] methodsAndNames = entry.methodsAndNames;
+    for (int i = 0; i < methodsAndNames.length; i += 2) {
+      if (method.equals(methodsAndNames[i])) return methodsAndNames[i + 1];
+    }
+
+    String result = method + " " + entry.route;
+    int length = methodsAndNames.length;
+    if (length < MAX_METHODS_PER_ROUTE * 2) {
+      // Copy-on-write: a racing thread could lose an update, which only costs a rebuild later.
+      String[] update = new String[length + 2];
+      System.arraycopy(methodsAndNames, 0, update, 0, length);
+      update[length] = method;
+      update[length + 1] = result;
+      entry.methodsAndNames = update;
+    }
+    return result;
+  }
+
+  NameEntry nameEntry(String route) {
+    NameEntry result = names.get(route);
+    if (result != null) return result;
+    result = new NameEntry(route);
+    NameEntry race = names.putIfAbsent(route, result);
+    return race != null ? race : result;
+  }
+
+  @Override public String toString() {
+    return "HttpRouteCache{maxSize=" + maxSize + "}";
+  }
+
+  abstract static class Entry {
+    // Starts false, so that entries never read after put are evicted first. Only written when
+    // false, so that hot entries don't keep dirtying the cache line.
+    volatile boolean recentlyUsed;
+
+    final void markUsed() {
+      if (!recentlyUsed) recentlyUsed = true;
+    }
+  }
+
+  static final class RouteEntry extends Entry {
+    @Nullable final String basePath;
+    final String route;
+
+    RouteEntry(@Nullable String basePath, String route) {
+      this.basePath = basePath;
+      this.route = route;
+    }
+  }
+
+  static final class NameEntry extends Entry {
+    final String route;
+    volatile String[] methodsAndNames = new String[0];
+
+    NameEntry(String route) {
+      this.route = route;
+    }
+  }
+
+  /**
+   * A concurrent map that clears {@link Entry#recentlyUsed} on the first pass of eviction, and
+   * removes entries that weren't used since on the next.
+   */
+  static final class BoundedMap<K, E extends Entry> {
+    final ConcurrentMap<K, E> delegate = new ConcurrentHashMap<K, E>();
+    final AtomicBoolean evicting = new AtomicBoolean();
+    final int maxSize;
+
+    BoundedMap(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    @Nullable E get(K key) {
+      E result = delegate.get(key);
+      if (result != null) result.markUsed();
+      return result;
+    }
+
+    void put(K key, E entry) {
+      delegate.put(key, entry);
+      maybeEvict();
+    }
+
+    @Nullable E putIfAbsent(K key, E entry) {
+      E result = delegate.putIfAbsent(key, entry);
+      if (result == null) maybeEvict();
+      return result;
+    }
+
+    int size() {
+      return delegate.size();
+    }
+
+    void maybeEvict() {
+      if (delegate.size() <= maxSize) return;
+      if (!evicting.compareAndSet(false, true)) return; // another thread is evicting
+      try {
+        // Evict a quarter, so that a full cache isn't scanned on each miss.
+        int targetSize = maxSize - (maxSize >> 2);
+        for (int pass = 0; pass < 2 && delegate.size() > targetSize; pass++) {
+          Iterator<E> i = delegate.values().iterator();
+          while (i.hasNext() && delegate.size() > targetSize) {
+            E next = i.next();
+            if (next.recentlyUsed) {
+              next.recentlyUsed = false;
+            } else {
+              i.remove();
+            }
+          }
+        }
+      } finally {
+        evicting.set(false);
+      }
+    }
+  }
+}
@@ -5,10 +5,24 @@
 package brave.http;
 
 import brave.Tracing;
+import brave.http.HttpRequestMatchers.MethodAndPathStartsWith;
+import brave.http.HttpRequestMatchers.MethodEquals;
+import brave.http.HttpRequestMatchers.PathStartsWith;
+import brave.internal.Nullable;
 import brave.sampler.Matcher;
-import brave.sampler.ParameterizedSampler;
+import brave.sampler.Matchers;
+import brave.sampler.ReloadableSamplerFunction;
 import brave.sampler.Sampler;
 import brave.sampler.SamplerFunction;
+import brave.sampler.SamplerRuleReader;
+import brave.sampler.SamplerRuleReader.RuleParser;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static brave.http.HttpRequestMatchers.methodEquals;
+import static brave.http.HttpRequestMatchers.pathStartsWith;
 
 /**
  * Assigns sample rates to http routes.
@@ -45,6 +59,17 @@ import brave.sampler.SamplerFunction;
  * <h3>Implementation notes</h3>
  * Be careful when implementing matchers as {@link HttpRequest} methods can return null.
  *
+ * <p>Rules are compiled when built, so that large rule sets don't scan each rule per request.
+ * {@link HttpRequestMatchers#pathStartsWith(String)} rules are indexed in a prefix trie and {@link
+ * HttpRequestMatchers#methodEquals(String)} rules by method, so each request reads {@link
+ * HttpRequest#path()} and {@link HttpRequest#method()} at most once. Other matchers, including
+ * composites such as {@link Matchers#and(Matcher[])}, are evaluated in order, but only when they
+ * were added before the best indexed match. Either way, the first matching rule wins.
+ *
+ * <p>A built sampler is immutable. To change rules at runtime, wrap it in a {@link
+ * ReloadableSamplerFunction}. Rules can be read from text with {@link SamplerRuleReader} and
+ * {@link #ruleParser()}.
+ *
  * @since 4.4
  */
 public final class HttpRuleSampler implements SamplerFunction<HttpRequest> {
@@ -53,9 +78,50 @@ public final class HttpRuleSampler implements SamplerFunction<HttpRequest> {
     return new Builder();
   }
 
+  /**
+   * Parses rules in the format "[{method} ]{pathPrefix}" for {@link SamplerRuleReader}.
+   *
+   * <p>Ex. "/health" is {@link HttpRequestMatchers#pathStartsWith(String)
+   * pathStartsWith("/health")}, "POST" is {@link HttpRequestMatchers#methodEquals(String)
+   * methodEquals("POST")} and "POST /api" is both.
+   *
+   * @since 6.4
+   */
+  public static RuleParser<HttpRequest> ruleParser() {
+    return HttpRuleParser.INSTANCE;
+  }
+
+  enum HttpRuleParser implements RuleParser<HttpRequest> {
+    INSTANCE;
+
+    @Override public Matcher<HttpRequest> parseRule(String rule) {
+      if (rule == null) throw new NullPointerException("rule == null");
+      String trimmed = rule.trim();
+      if (trimmed.isEmpty()) throw invalidRule(rule);
+      int space = trimmed.indexOf(' ');
+      if (space == -1) {
+        return trimmed.charAt(0) == '/' ? pathStartsWith(trimmed) : methodEquals(trimmed);
+      }
+      String path = trimmed.substring(space + 1).trim();
+      if (path.isEmpty() || path.charAt(0) != '/') throw invalidRule(rule);
+      String method = trimmed.substring(0, space);
+      // Not Matchers.and(...), so that HttpRuleSampler can index it by path prefix.
+      return new MethodAndPathStartsWith(method, path);
+    }
+
+    static IllegalArgumentException invalidRule(String rule) {
+      return new IllegalArgumentException("expected [{method} ]{pathPrefix}, but was: " + rule);
+    }
+
+    @Override public String toString() {
+      return "HttpRuleParser";
+    }
+  }
+
   /** @since 4.4 */
   public static final class Builder {
-    final ParameterizedSampler.Builder<HttpRequest> delegate = ParameterizedSampler.newBuilder();
+    final Map<Matcher<HttpRequest>, Sampler> rules =
+      new LinkedHashMap<Matcher<HttpRequest>, Sampler>();
 
     /**
      * Adds or replaces all rules in this sampler with those of the input.
@@ -64,7 +130,22 @@ public final class HttpRuleSampler implements SamplerFunction<HttpRequest> {
      */
     public Builder putAllRules(HttpRuleSampler sampler) {
       if (sampler == null) throw new NullPointerException("sampler == null");
-      delegate.putAllRules(sampler.delegate);
+      for (int i = 0; i < sampler.matchers.length; i++) {
+        putRule(sampler.matchers[i], sampler.samplers[i]);
+      }
+      return this;
+    }
+
+    /**
+     * Adds or replaces rules in iteration order, such as those read by {@link SamplerRuleReader}.
+     *
+     * @since 6.4
+     */
+    public Builder putAllRules(Map<Matcher<HttpRequest>, ? extends Sampler> rules) {
+      if (rules == null) throw new NullPointerException("rules == null");
+      for (Map.Entry<Matcher<HttpRequest>, ? extends Sampler> rule : rules.entrySet()) {
+        putRule(rule.getKey(), rule.getValue());
+      }
       return this;
     }
 
@@ -81,25 +162,176 @@ public final class HttpRuleSampler implements SamplerFunction<HttpRequest> {
      * @since 5.8
      */
     public Builder putRule(Matcher<HttpRequest> matcher, Sampler sampler) {
-      delegate.putRule(matcher, sampler);
+      if (matcher == null) throw new NullPointerException("matcher == null");
+      if (sampler == null) throw new NullPointerException("sampler == null");
+      rules.put(matcher, sampler);
       return this;
     }
 
     public HttpRuleSampler build() {
-      return new HttpRuleSampler(delegate.build());
+      return new HttpRuleSampler(this);
     }
 
     Builder() {
     }
   }
 
-  final ParameterizedSampler<HttpRequest> delegate;
+  /** Indicates no rule matched, and also sorts after all rule indices. */
+  static final int NO_MATCH = Integer.MAX_VALUE;
+
+  // Rules are in insertion order: index is precedence.
+  final Matcher<HttpRequest>[] matchers;
+  final Sampler[] samplers;
+  /** Indices of rules that aren't indexed, so have to be evaluated in order. */
+  final int[] unindexed;
+  /** Lowest index of a rule that always matches, or {@link #NO_MATCH}. */
+  final int alwaysMatch;
+  /** Lowest index of a {@link MethodEquals} rule by method, or null when there are none. */
+  @Nullable final Map<String, Integer> methodIndex;
+  /**
+   * Lowest index of a {@link PathStartsWith} or {@link MethodAndPathStartsWith} rule by prefix, or
+   * null when there are none.
+   */
+  @Nullable final PathTrie pathIndex;
 
-  HttpRuleSampler(ParameterizedSampler<HttpRequest> delegate) {
-    this.delegate = delegate;
+  HttpRuleSampler(Builder builder) {
+    int ruleCount = builder.rules.size();
+    matchers = new Matcher[ruleCount];
+    samplers = new Sampler[ruleCount];
+    int[] unindexed = new int[ruleCount];
+    int unindexedCount = 0, alwaysMatch = NO_MATCH;
+    Map<String, Integer> methodIndex = new HashMap<String, Integer>();
+    PathTrie pathIndex = new PathTrie();
+
+    int i = 0;
+    for (Map.Entry<Matcher<HttpRequest>, Sampler> rule : builder.rules.entrySet()) {
+      Matcher<HttpRequest> matcher = rule.getKey();
+      matchers[i] = matcher;
+      samplers[i] = rule.getValue();
+      if (matcher instanceof PathStartsWith) {
+        pathIndex.put(((PathStartsWith) matcher).pathPrefix, null, i);
+      } else if (matcher instanceof MethodAndPathStartsWith) {
+        MethodAndPathStartsWith methodAndPath = (MethodAndPathStartsWith) matcher;
+        pathIndex.put(methodAndPath.pathPrefix, methodAndPath.method, i);
+      } else if (matcher instanceof MethodEquals) {
+        String method = ((MethodEquals) matcher).method;
+        if (!methodIndex.containsKey(method)) methodIndex.put(method, i);
+      } else if (matcher == Matchers.<HttpRequest>alwaysMatch()) {
+        if (alwaysMatch == NO_MATCH) alwaysMatch = i;
+      } else if (matcher != Matchers.<HttpRequest>neverMatch()) {
+        unindexed[unindexedCount++] = i;
+      }
+      i++;
+    }
+
+    this.unindexed = Arrays.copyOf(unindexed, unindexedCount);
+    this.alwaysMatch = alwaysMatch;
+    this.methodIndex = methodIndex.isEmpty() ? null : methodIndex;
+    this.pathIndex = pathIndex.isEmpty() ? null : pathIndex;
+  }
+
+  @Override public @Nullable Boolean trySample(HttpRequest request) {
+    if (request == null) return null;
+    int match = alwaysMatch;
+    String method = null;
+    if (methodIndex != null || pathIndex != null) method = request.method();
+    if (methodIndex != null && match > 0) {
+      Integer index = method != null ? methodIndex.get(method) : null;
+      if (index != null && index < match) match = index;
+    }
+    if (pathIndex != null && match > 0) {
+      String path = request.path();
+      if (path != null) match = pathIndex.lowestMatch(path, method, match);
+    }
+    for (int index : unindexed) {
+      if (index > match) break; // an earlier rule already matched
+      if (matchers[index].matches(request)) {
+        match = index;
+        break;
+      }
+    }
+    if (match == NO_MATCH) return null;
+    return samplers[match].isSampled(0L); // counting sampler ignores the input
+  }
+
+  @Override public String toString() {
+    return "HttpRuleSampler{rules=" + matchers.length + "}";
   }
 
-  @Override public Boolean trySample(HttpRequest request) {
-    return delegate.trySample(request);
+  /**
+   * Prefix trie of path characters, where each node holds the lowest index of a rule whose prefix
+   * ends there. Lookup is linear in the length of the path as opposed to the count of rules.
+   *
+   * <p>Rules that also require a method are held separately by method, and only apply when the
+   * request's method is the same.
+   */
+  static final class PathTrie {
+    final Node root = new Node();
+
+    boolean isEmpty() {
+      return root.keys.length == 0;
+    }
+
+    void put(String pathPrefix, @Nullable String method, int ruleIndex) {
+      Node node = root;
+      node.min = Math.min(node.min, ruleIndex);
+      for (int i = 0, length = pathPrefix.length(); i < length; i++) {
+        node = node.child(pathPrefix.charAt(i), true);
+        node.min = Math.min(node.min, ruleIndex);
+      }
+      if (method == null) {
+        node.rule = Math.min(node.rule, ruleIndex);
+        return;
+      }
+      if (node.methodRules == null) node.methodRules = new HashMap<String, Integer>();
+      Integer existing = node.methodRules.get(method);
+      if (existing == null || ruleIndex < existing) node.methodRules.put(method, ruleIndex);
+    }
+
+    /** Returns the lowest rule index matching the path, if lower than the current match. */
+    int lowestMatch(String path, @Nullable String method, int match) {
+      Node node = root;
+      for (int i = 0, length = path.length(); i < length; i++) {
+        node = node.child(path.charAt(i), false);
+        // Stop when no rule under this node could precede the current match.
+        if (node == null || node.min >= match) return match;
+        if (node.rule < match) match = node.rule;
+        if (node.methodRules != null && method != null) {
+          Integer index = node.methodRules.get(method);
+          if (index != null && index < match) match = index;
+        }
+      }
+      return match;
+    }
+
+    static final class Node {
+      char[] keys = new char[0]; // sorted, for binary search
+      Node[] children = new Node[0];
+      int rule = NO_MATCH; // lowest index of a rule whose prefix ends here
+      // lowest index by method of a rule whose prefix ends here, or null when there are none
+      @Nullable Map<String, Integer> methodRules;
+      int min = NO_MATCH; // lowest index of a rule at or under this node
+
+      @Nullable Node child(char key, boolean create) {
+        int i = Arrays.binarySearch(keys, key);
+        if (i >= 0) return children[i];
+        if (!create) return null;
+
+        // Builds are rare, so grow the arrays in place as opposed to using a map.
+        int insert = -i - 1, length = keys.length;
+        char[] newKeys = new char[length + 1];
+        Node[] newChildren = new Node[length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, insert);
+        System.arraycopy(children, 0, newChildren, 0, insert);
+        System.arraycopy(keys, insert, newKeys, insert + 1, length - insert);
+        System.arraycopy(children, insert, newChildren, insert + 1, length - insert);
+        Node result = new Node();
+        newKeys[insert] = key;
+        newChildren[insert] = result;
+        keys = newKeys;
+        children = newChildren;
+        return result;
+      }
+    }
   }
 }
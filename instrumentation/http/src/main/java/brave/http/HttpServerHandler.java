@@ -95,14 +95,8 @@ public final class HttpServerHandler<Req, Resp> extends HttpHandler {
 
   /** Creates a potentially noop span representing this request */
   Span nextSpan(TraceContextOrSamplingFlags extracted, HttpServerRequest request) {
-    Boolean sampled = extracted.sampled();
-    // only recreate the context if the http sampler made a decision
-    if (sampled == null && (sampled = sampler.trySample(request)) != null) {
-      extracted = extracted.sampled(sampled.booleanValue());
-    }
-    return extracted.context() != null
-      ? tracer.joinSpan(extracted.context())
-      : tracer.nextSpan(extracted);
+    // the http sampler is only invoked if there was no sampling decision extracted
+    return tracer.joinSpan(sampler, request, extracted);
   }
 
   /**
@@ -132,13 +132,15 @@ public class HttpClientHandlerTest {
   }
 
   @Test void handleReceive_finishesSpanEvenIfUnwrappedNull() {
-    brave.Span span = mock(brave.Span.class);
+    brave.Span span = mock(brave.Span.class, CALLS_REAL_METHODS);
     when(span.context()).thenReturn(context);
     when(span.customizer()).thenReturn(span);
 
-    handler.handleReceive(mock(HttpClientResponse.class), span);
+    HttpClientResponse response = mock(HttpClientResponse.class);
+    handler.handleReceive(response, span);
 
     verify(span).isNoop();
+    verify(span).update(response, handler.responseUpdater);
     verify(span).context();
     verify(span).customizer();
     verify(span).finish();
@@ -146,7 +148,7 @@ public class HttpClientHandlerTest {
   }
 
   @Test void handleReceive_finishesSpanEvenIfUnwrappedNull_withError() {
-    brave.Span span = mock(brave.Span.class);
+    brave.Span span = mock(brave.Span.class, CALLS_REAL_METHODS);
     when(span.context()).thenReturn(context);
     when(span.customizer()).thenReturn(span);
 
@@ -156,6 +158,7 @@ public class HttpClientHandlerTest {
     handler.handleReceive(response, span);
 
     verify(span).isNoop();
+    verify(span).update(response, handler.responseUpdater);
     verify(span).context();
     verify(span).customizer();
     verify(span).error(error);
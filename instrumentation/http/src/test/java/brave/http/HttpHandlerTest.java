@@ -16,6 +16,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import static org.mockito.Answers.CALLS_REAL_METHODS;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -25,7 +26,7 @@ import static org.mockito.Mockito.when;
 @MockitoSettings(strictness = Strictness.LENIENT) // TODO: hunt down these
 public class HttpHandlerTest {
   TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(10L).build();
-  @Mock Span span;
+  @Mock(answer = CALLS_REAL_METHODS) Span span;
   @Mock SpanCustomizer spanCustomizer;
   @Mock HttpRequest request;
   @Mock HttpResponse response;
@@ -86,6 +87,20 @@ public class HttpHandlerTest {
     verify(span, never()).finish();
   }
 
+  @Test void handleStart_parsesInOneUpdate() {
+    when(span.isNoop()).thenReturn(false);
+
+    handler.handleStart(request, span);
+
+    verify(span).update(request, handler.requestUpdater);
+  }
+
+  @Test void handleFinish_parsesInOneUpdate() {
+    handler.handleFinish(response, span);
+
+    verify(span).update(response, handler.responseUpdater);
+  }
+
   @Test void handleFinish_parsesTagsWithCustomizer() {
     when(span.customizer()).thenReturn(spanCustomizer);
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.http;
+
+import org.junit.jupiter.api.Test;
+
+import static brave.http.HttpRouteCache.MAX_METHODS_PER_ROUTE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HttpRouteCacheTest {
+  HttpRouteCache cache = HttpRouteCache.create(8);
+  Object routeKey = new Object();
+
+  @Test void create_badMaxSize() {
+    assertThatThrownBy(() -> HttpRouteCache.create(0))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test void route_nullWhenAbsent() {
+    assertThat(cache.route(routeKey, null)).isNull();
+  }
+
+  @Test void putRoute() {
+    String route = cache.putRoute(routeKey, "/api", "/api/users/{userId}");
+
+    assertThat(cache.route(routeKey, "/api")).isSameAs(route);
+  }
+
+  @Test void putRoute_internsEqualRoutes() {
+    String route = cache.putRoute(routeKey, null, "/users/{userId}");
+
+    assertThat(cache.putRoute(new Object(), null, new String("/users/{userId}")))
+      .isSameAs(route);
+  }
+
+  @Test void route_nullWhenBasePathDiffers() {
+    cache.putRoute(routeKey, "/v1", "/v1/users/{userId}");
+
+    assertThat(cache.route(routeKey, "/v2")).isNull();
+    assertThat(cache.route(routeKey, null)).isNull();
+  }
+
+  @Test void spanName() {
+    assertThat(cache.spanName("GET", "/users/{userId}"))
+      .isEqualTo("GET /users/{userId}");
+  }
+
+  @Test void spanName_cachedPerMethod() {
+    String get = cache.spanName("GET", "/users/{userId}");
+    String post = cache.spanName("POST", "/users/{userId}");
+
+    assertThat(cache.spanName("GET", "/users/{userId}")).isSameAs(get);
+    assertThat(cache.spanName("POST", "/users/{userId}")).isSameAs(post);
+  }
+
+  @Test void spanName_boundsMethods() {
+    for (int i = 0; i < MAX_METHODS_PER_ROUTE + 1; i++) {
+      cache.spanName("METHOD" + i, "/users");
+    }
+
+    assertThat(cache.nameEntry("/users").methodsAndNames)
+      .hasSize(MAX_METHODS_PER_ROUTE * 2);
+    assertThat(cache.spanName("METHOD" + MAX_METHODS_PER_ROUTE, "/users"))
+      .isEqualTo("METHOD" + MAX_METHODS_PER_ROUTE + " /users");
+  }
+
+  @Test void evictsWhenFull() {
+    for (int i = 0; i < 100; i++) {
+      cache.putRoute(new Object(), null, "/route" + i);
+    }
+
+    assertThat(cache.routes.size()).isLessThanOrEqualTo(8);
+    assertThat(cache.names.size()).isLessThanOrEqualTo(8);
+  }
+
+  @Test void evictsLeastRecentlyUsed() {
+    cache.putRoute(routeKey, null, "/hot");
+    for (int i = 0; i < 100; i++) {
+      cache.route(routeKey, null); // keep it hot
+      cache.putRoute(new Object(), null, "/route" + i);
+    }
+
+    assertThat(cache.route(routeKey, null)).isEqualTo("/hot");
+  }
+}
@@ -4,12 +4,20 @@
  */
 package brave.http;
 
+import brave.http.HttpRequestMatchers.MethodAndPathStartsWith;
+import brave.sampler.DecisionCountingSampler;
 import brave.sampler.Matcher;
+import brave.sampler.Matchers;
+import brave.sampler.ParameterizedSampler;
 import brave.sampler.RateLimitingSampler;
+import brave.sampler.ReloadableSamplerFunction;
 import brave.sampler.Sampler;
+import brave.sampler.SamplerRuleReader;
+import java.io.StringReader;
 import java.net.URI;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -19,6 +27,9 @@ import static brave.http.HttpRequestMatchers.methodEquals;
 import static brave.http.HttpRequestMatchers.pathStartsWith;
 import static brave.sampler.Matchers.and;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -124,6 +135,209 @@ public class HttpRuleSamplerTest {
       .isFalse();
   }
 
+  @Test void pathStartsWith_firstMatchWins() {
+    HttpRuleSampler ruleSampler = HttpRuleSampler.newBuilder()
+      .putRule(pathStartsWith("/foo/bar"), Sampler.NEVER_SAMPLE)
+      .putRule(pathStartsWith("/foo"), Sampler.ALWAYS_SAMPLE)
+      .putRule(pathStartsWith("/foo/bar/baz"), Sampler.ALWAYS_SAMPLE)
+      .build();
+
+    when(httpServerRequest.path()).thenReturn("/foo/bar/baz");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isFalse();
+
+    when(httpServerRequest.path()).thenReturn("/foo/ba");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isTrue();
+
+    when(httpServerRequest.path()).thenReturn("/fo");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isNull();
+  }
+
+  @Test void methodEquals_firstMatchWins() {
+    HttpRuleSampler ruleSampler = HttpRuleSampler.newBuilder()
+      .putRule(pathStartsWith("/foo"), Sampler.NEVER_SAMPLE)
+      .putRule(methodEquals("GET"), Sampler.ALWAYS_SAMPLE)
+      .build();
+
+    when(httpServerRequest.method()).thenReturn("GET");
+    when(httpServerRequest.path()).thenReturn("/foo");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isFalse();
+
+    when(httpServerRequest.path()).thenReturn("/bar");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isTrue();
+  }
+
+  @Test void customMatcher_beforeIndexedRule() {
+    HttpRuleSampler ruleSampler = HttpRuleSampler.newBuilder()
+      .putRule(and(methodEquals("POST"), pathStartsWith("/foo")), Sampler.NEVER_SAMPLE)
+      .putRule(pathStartsWith("/foo"), Sampler.ALWAYS_SAMPLE)
+      .build();
+
+    when(httpServerRequest.method()).thenReturn("POST");
+    when(httpServerRequest.path()).thenReturn("/foo");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isFalse();
+
+    when(httpServerRequest.method()).thenReturn("GET");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isTrue();
+  }
+
+  @Test void customMatcher_notEvaluatedAfterIndexedMatch() {
+    Matcher<HttpRequest> unexpected = request -> {
+      throw new AssertionError("shouldn't evaluate rules after the first match");
+    };
+
+    HttpRuleSampler ruleSampler = HttpRuleSampler.newBuilder()
+      .putRule(pathStartsWith("/foo"), Sampler.ALWAYS_SAMPLE)
+      .putRule(unexpected, Sampler.NEVER_SAMPLE)
+      .build();
+
+    when(httpServerRequest.path()).thenReturn("/foo");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isTrue();
+  }
+
+  @Test void alwaysAndNeverMatch() {
+    HttpRuleSampler ruleSampler = HttpRuleSampler.newBuilder()
+      .putRule(Matchers.neverMatch(), Sampler.ALWAYS_SAMPLE)
+      .putRule(pathStartsWith("/foo"), Sampler.ALWAYS_SAMPLE)
+      .putRule(Matchers.alwaysMatch(), Sampler.NEVER_SAMPLE)
+      .build();
+
+    when(httpServerRequest.path()).thenReturn("/foo");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isTrue();
+
+    when(httpServerRequest.path()).thenReturn("/bar");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isFalse();
+  }
+
+  @Test void readsPathAndMethodOnce() {
+    HttpRuleSampler.Builder builder = HttpRuleSampler.newBuilder();
+    for (int i = 0; i < 100; i++) {
+      builder.putRule(pathStartsWith("/api/v" + i), Sampler.NEVER_SAMPLE);
+      builder.putRule(methodEquals("METHOD" + i), Sampler.NEVER_SAMPLE);
+    }
+    HttpRuleSampler ruleSampler = builder.build();
+
+    when(httpServerRequest.method()).thenReturn("GET");
+    when(httpServerRequest.path()).thenReturn("/api/v99/users");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isFalse();
+
+    verify(httpServerRequest, times(1)).method();
+    verify(httpServerRequest, times(1)).path();
+  }
+
+  /** Compares against evaluating each rule in order. */
+  @Test void sameDecisionsAsParameterizedSampler() {
+    Random random = new Random(1000);
+    String[] segments = {"/a", "/b", "/ab", "/"};
+    String[] methods = {"GET", "POST"};
+
+    HttpRuleSampler.Builder builder = HttpRuleSampler.newBuilder();
+    ParameterizedSampler.Builder<HttpRequest> expectedBuilder = ParameterizedSampler.newBuilder();
+    for (int i = 0; i < 200; i++) {
+      String path = randomPath(random, segments);
+      String method = methods[random.nextInt(methods.length)];
+      Matcher<HttpRequest> matcher;
+      switch (random.nextInt(4)) {
+        case 0:
+          matcher = pathStartsWith(path);
+          break;
+        case 1:
+          matcher = methodEquals(method);
+          break;
+        case 2:
+          matcher = new MethodAndPathStartsWith(method, path);
+          break;
+        default:
+          matcher = and(methodEquals(method), pathStartsWith(path));
+      }
+      Sampler sampler = random.nextBoolean() ? Sampler.ALWAYS_SAMPLE : Sampler.NEVER_SAMPLE;
+      builder.putRule(matcher, sampler);
+      expectedBuilder.putRule(matcher, sampler);
+    }
+    HttpRuleSampler ruleSampler = builder.build();
+    ParameterizedSampler<HttpRequest> expected = expectedBuilder.build();
+
+    for (int i = 0; i < 1000; i++) {
+      when(httpServerRequest.method()).thenReturn(methods[random.nextInt(methods.length)]);
+      when(httpServerRequest.path()).thenReturn(randomPath(random, segments));
+
+      assertThat(ruleSampler.trySample(httpServerRequest))
+        .isEqualTo(expected.trySample(httpServerRequest));
+    }
+  }
+
+  static String randomPath(Random random, String[] segments) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0, length = 1 + random.nextInt(4); i < length; i++) {
+      result.append(segments[random.nextInt(segments.length)]);
+    }
+    return result.toString();
+  }
+
+  @Test void ruleParser() {
+    assertThat(HttpRuleSampler.ruleParser().parseRule("/foo"))
+      .isEqualTo(pathStartsWith("/foo"));
+    assertThat(HttpRuleSampler.ruleParser().parseRule("GET"))
+      .isEqualTo(methodEquals("GET"));
+    assertThat(HttpRuleSampler.ruleParser().parseRule("GET /foo"))
+      .isEqualTo(new MethodAndPathStartsWith("GET", "/foo"));
+  }
+
+  @Test void ruleParser_methodAndPathIsIndexed() {
+    HttpRuleSampler ruleSampler = HttpRuleSampler.newBuilder()
+      .putRule(HttpRuleSampler.ruleParser().parseRule("POST /foo"), Sampler.NEVER_SAMPLE)
+      .putRule(HttpRuleSampler.ruleParser().parseRule("GET /foo/bar"), Sampler.ALWAYS_SAMPLE)
+      .build();
+
+    assertThat(ruleSampler.unindexed).isEmpty();
+
+    when(httpServerRequest.method()).thenReturn("GET");
+    when(httpServerRequest.path()).thenReturn("/foo/bar");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isTrue();
+
+    when(httpServerRequest.path()).thenReturn("/foo");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isNull();
+
+    when(httpServerRequest.method()).thenReturn("POST");
+    when(httpServerRequest.path()).thenReturn("/foo/bar");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isFalse();
+  }
+
+  @Test void ruleParser_badPath() {
+    assertThatThrownBy(() -> HttpRuleSampler.ruleParser().parseRule("GET foo"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("expected [{method} ]{pathPrefix}, but was: GET foo");
+  }
+
+  @Test void ruleParser_trims() {
+    assertThat(HttpRuleSampler.ruleParser().parseRule(" GET /foo "))
+      .isEqualTo(new MethodAndPathStartsWith("GET", "/foo"));
+  }
+
+  @Test void ruleParser_empty() {
+    assertThatThrownBy(() -> HttpRuleSampler.ruleParser().parseRule(""))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("expected [{method} ]{pathPrefix}, but was: ");
+    assertThatThrownBy(() -> HttpRuleSampler.ruleParser().parseRule("  "))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("expected [{method} ]{pathPrefix}, but was:   ");
+  }
+
+  @Test void reloadRules() throws Exception {
+    Map<Matcher<HttpRequest>, DecisionCountingSampler> rules = SamplerRuleReader.read(
+      new StringReader("/foo = 0.0\n"), HttpRuleSampler.ruleParser());
+    ReloadableSamplerFunction<HttpRequest> sampler = ReloadableSamplerFunction.create(
+      HttpRuleSampler.newBuilder().putAllRules(rules).build());
+
+    when(httpServerRequest.path()).thenReturn("/foo");
+    assertThat(sampler.trySample(httpServerRequest)).isFalse();
+    assertThat(rules.get(pathStartsWith("/foo")).unsampledCount()).isEqualTo(1);
+
+    sampler.set(HttpRuleSampler.newBuilder().putAllRules(SamplerRuleReader.read(
+      new StringReader("/foo = 1.0\n"), HttpRuleSampler.ruleParser())).build());
+
+    assertThat(sampler.trySample(httpServerRequest)).isTrue();
+  }
+
   // empty may sound unintuitive, but it allows use of the same type when always deferring
   @Test void noRulesOk() {
     HttpRuleSampler.newBuilder().build();
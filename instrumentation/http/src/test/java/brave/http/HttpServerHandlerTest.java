@@ -111,13 +111,14 @@ public class HttpServerHandlerTest {
   }
 
   @Test void handleSend_finishesSpanEvenIfUnwrappedNull() {
-    brave.Span span = mock(brave.Span.class);
+    brave.Span span = mock(brave.Span.class, CALLS_REAL_METHODS);
     when(span.context()).thenReturn(context);
     when(span.customizer()).thenReturn(span);
 
     handler.handleSend(response, span);
 
     verify(span).isNoop();
+    verify(span).update(response, handler.responseUpdater);
     verify(span).context();
     verify(span).customizer();
     verify(span).finish();
@@ -125,7 +126,7 @@ public class HttpServerHandlerTest {
   }
 
   @Test void handleSend_finishesSpanEvenIfUnwrappedNull_withError() {
-    brave.Span span = mock(brave.Span.class);
+    brave.Span span = mock(brave.Span.class, CALLS_REAL_METHODS);
     when(span.context()).thenReturn(context);
     when(span.customizer()).thenReturn(span);
 
@@ -135,6 +136,7 @@ public class HttpServerHandlerTest {
     handler.handleSend(response, span);
 
     verify(span).isNoop();
+    verify(span).update(response, handler.responseUpdater);
     verify(span).context();
     verify(span).customizer();
     verify(span).error(error);
@@ -0,0 +1,135 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import brave.Tracing;
+import brave.internal.Nullable;
+import java.sql.Connection;
+import javax.sql.DataSource;
+
+/**
+ * Use this class to decorate your JDBC {@link DataSource} or {@link Connection} and enable
+ * Tracing.
+ *
+ * <p>To use it, wrap your data source like this:
+ * <pre>{@code
+ * dataSource = JdbcTracing.create(tracing).dataSource(dataSource);
+ * }</pre>
+ *
+ * @since 6.4
+ */
+public final class JdbcTracing {
+
+  /**
+   * @since 6.4
+   */
+  public static JdbcTracing create(Tracing tracing) {
+    return newBuilder(tracing).build();
+  }
+
+  /**
+   * @since 6.4
+   */
+  public static Builder newBuilder(Tracing tracing) {
+    return new Builder(tracing);
+  }
+
+  /**
+   * Returns a data source whose connections trace statements.
+   *
+   * @since 6.4
+   */
+  public DataSource dataSource(DataSource dataSource) {
+    if (dataSource == null) throw new NullPointerException("dataSource == null");
+    if (dataSource instanceof TracingDataSource) return dataSource;
+    return new TracingDataSource(this, dataSource);
+  }
+
+  /**
+   * Returns a connection that traces {@link java.sql.Statement} and {@link
+   * java.sql.PreparedStatement} executions.
+   *
+   * <p>{@link java.sql.CallableStatement} executions are not traced.
+   *
+   * @since 6.4
+   */
+  public Connection connection(Connection connection) {
+    if (connection == null) throw new NullPointerException("connection == null");
+    if (connection instanceof TracingConnection) return connection;
+    return new TracingConnection(this, connection);
+  }
+
+  public static final class Builder {
+    final Tracing tracing;
+    @Nullable String remoteServiceName;
+    int aggregateExecutions = 1;
+
+    Builder(Tracing tracing) {
+      if (tracing == null) throw new NullPointerException("tracing == null");
+      this.tracing = tracing;
+    }
+
+    /**
+     * The remote service name that describes the database.
+     *
+     * <p>Defaults to {@code $databaseType-$databaseName} e.g. "postgresql-mydb", parsed from the
+     * JDBC URL.
+     *
+     * @since 6.4
+     */
+    public Builder remoteServiceName(String remoteServiceName) {
+      if (remoteServiceName != null && remoteServiceName.isEmpty()) {
+        remoteServiceName = null;
+      }
+      this.remoteServiceName = remoteServiceName;
+      return this;
+    }
+
+    /**
+     * When above one, repeated executions of the same {@link java.sql.PreparedStatement} under the
+     * same parent span are reported as one span, instead of one span per execution. Defaults to
+     * one, which means each execution has its own span.
+     *
+     * <p>This is for batch workloads which execute a prepared statement per row, as opposed to
+     * using {@link java.sql.PreparedStatement#executeBatch()}. The span is finished when the
+     * statement is closed, when the current span changes, on error, or after this count of
+     * executions.
+     *
+     * <p>The aggregated span starts with the first execution and finishes with the last. It is
+     * tagged with the count of executions ("sql.execution.count") and the sum of their durations
+     * in microseconds ("sql.execution.micros"), which excludes time spent between executions.
+     *
+     * <p>Executions without a current span are not aggregated, as they are unrelated traces.
+     *
+     * <p>The current span is only checked when executing. If a statement stays open after its
+     * parent ends, such as in a statement cache, the aggregated span is reported late: on the next
+     * execution under a different parent, or when the statement is closed. Only enable this for
+     * workloads that close statements when done with them.
+     *
+     * @since 6.4
+     */
+    public Builder aggregateExecutions(int maxExecutions) {
+      if (maxExecutions < 1) {
+        throw new IllegalArgumentException("maxExecutions < 1: " + maxExecutions);
+      }
+      this.aggregateExecutions = maxExecutions;
+      return this;
+    }
+
+    public JdbcTracing build() {
+      return new JdbcTracing(this);
+    }
+  }
+
+  final Tracing tracing;
+  @Nullable final String remoteServiceName;
+  final int aggregateExecutions;
+
+  JdbcTracing(Builder builder) {
+    tracing = builder.tracing;
+    remoteServiceName = builder.remoteServiceName;
+    aggregateExecutions = builder.aggregateExecutions;
+  }
+}
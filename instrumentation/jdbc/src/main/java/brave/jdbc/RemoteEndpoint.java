@@ -0,0 +1,68 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import brave.Span;
+import brave.internal.Nullable;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/** The remote service name, IP and port of a database, parsed from its JDBC URL. */
+final class RemoteEndpoint {
+  static final String JDBC_PREFIX = "jdbc:";
+
+  /** Indicates the JDBC URL could not be read or parsed, so that this isn't retried. */
+  static final RemoteEndpoint NONE = new RemoteEndpoint("", null, 0);
+
+  /** Returns the endpoint of the connection's JDBC URL, or {@link #NONE}. */
+  static RemoteEndpoint read(Connection connection) {
+    try {
+      RemoteEndpoint result = parse(connection.getMetaData().getURL());
+      return result != null ? result : NONE;
+    } catch (SQLException | RuntimeException e) {
+      return NONE; // remote address is optional
+    }
+  }
+
+  @Nullable static RemoteEndpoint parse(@Nullable String jdbcUrl) {
+    if (jdbcUrl == null || !jdbcUrl.startsWith(JDBC_PREFIX)) {
+      return null; // unlikely, and no way to parse it
+    }
+
+    URI url = URI.create(jdbcUrl.substring(JDBC_PREFIX.length()));
+    String serviceName;
+    if (url.getPath() != null) {
+      // e.g. postgresql://localhost:5432/testdb -> postgresql-testdb
+      serviceName = url.getScheme() + "-" + url.getPath().replace("/", "");
+    } else if (url.getSchemeSpecificPart() != null) {
+      // e.g. h2:mem:testdb;DB_CLOSE_DELAY=-1 -> h2-testdb
+      String ssp = url.getSchemeSpecificPart();
+      int semicolon = ssp.indexOf(';');
+      if (semicolon != -1) ssp = ssp.substring(0, semicolon);
+      int lastColon = ssp.lastIndexOf(':');
+      ssp = lastColon != -1 ? ssp.substring(lastColon + 1) : ssp;
+      serviceName = url.getScheme() + "-" + ssp;
+    } else {
+      serviceName = url.getScheme();
+    }
+    return new RemoteEndpoint(serviceName, url.getHost(), url.getPort());
+  }
+
+  final String serviceName;
+  @Nullable final String host;
+  final int port;
+
+  RemoteEndpoint(String serviceName, @Nullable String host, int port) {
+    this.serviceName = serviceName;
+    this.host = host;
+    this.port = port;
+  }
+
+  void apply(Span span, boolean addRemoteServiceName) {
+    if (host != null) span.remoteIpAndPort(host, port);
+    if (addRemoteServiceName) span.remoteServiceName(serviceName);
+  }
+}
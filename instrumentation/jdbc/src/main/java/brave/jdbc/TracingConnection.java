@@ -0,0 +1,303 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import brave.Span;
+import brave.Tracer;
+import brave.internal.Nullable;
+import brave.propagation.CurrentTraceContext;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import static brave.Span.Kind.CLIENT;
+
+final class TracingConnection implements Connection {
+  final JdbcTracing jdbcTracing;
+  final Tracer tracer;
+  final CurrentTraceContext currentTraceContext;
+  final Connection delegate;
+  // Set by the first traced statement, so getMetaData() isn't called for each one.
+  @Nullable RemoteEndpoint remoteEndpoint;
+
+  TracingConnection(JdbcTracing jdbcTracing, Connection delegate) {
+    this.jdbcTracing = jdbcTracing;
+    this.tracer = jdbcTracing.tracing.tracer();
+    this.currentTraceContext = jdbcTracing.tracing.currentTraceContext();
+    this.delegate = delegate;
+  }
+
+  /** Returns an unstarted client span for the SQL statement, as a child of any current span. */
+  Span nextSpan(@Nullable String sql) {
+    Span span = tracer.nextSpan();
+    if (span.isNoop()) return span;
+
+    span.kind(CLIENT);
+    if (sql != null) {
+      int spaceIndex = sql.indexOf(' '); // Allow span names of single-word statements like COMMIT
+      span.name(spaceIndex == -1 ? sql : sql.substring(0, spaceIndex));
+      span.tag("sql.query", sql);
+    }
+
+    String remoteServiceName = jdbcTracing.remoteServiceName;
+    if (remoteServiceName != null) span.remoteServiceName(remoteServiceName);
+    RemoteEndpoint endpoint = remoteEndpoint;
+    if (endpoint == null) remoteEndpoint = endpoint = RemoteEndpoint.read(delegate);
+    if (endpoint != RemoteEndpoint.NONE) endpoint.apply(span, remoteServiceName == null);
+    return span;
+  }
+
+  @Override public Statement createStatement() throws SQLException {
+    return new TracingStatement<>(this, delegate.createStatement());
+  }
+
+  @Override public Statement createStatement(int resultSetType, int resultSetConcurrency)
+    throws SQLException {
+    return new TracingStatement<>(this,
+      delegate.createStatement(resultSetType, resultSetConcurrency));
+  }
+
+  @Override public Statement createStatement(int resultSetType, int resultSetConcurrency,
+    int resultSetHoldability) throws SQLException {
+    return new TracingStatement<>(this,
+      delegate.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql) throws SQLException {
+    return new TracingPreparedStatement(this, delegate.prepareStatement(sql), sql);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, int resultSetType,
+    int resultSetConcurrency) throws SQLException {
+    return new TracingPreparedStatement(this,
+      delegate.prepareStatement(sql, resultSetType, resultSetConcurrency), sql);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, int resultSetType,
+    int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    return new TracingPreparedStatement(this,
+      delegate.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability),
+      sql);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys)
+    throws SQLException {
+    return new TracingPreparedStatement(this, delegate.prepareStatement(sql, autoGeneratedKeys),
+      sql);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, int[] columnIndexes)
+    throws SQLException {
+    return new TracingPreparedStatement(this, delegate.prepareStatement(sql, columnIndexes), sql);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, String[] columnNames)
+    throws SQLException {
+    return new TracingPreparedStatement(this, delegate.prepareStatement(sql, columnNames), sql);
+  }
+
+  @Override public CallableStatement prepareCall(String sql) throws SQLException {
+    return delegate.prepareCall(sql);
+  }
+
+  @Override public CallableStatement prepareCall(String sql, int resultSetType,
+    int resultSetConcurrency) throws SQLException {
+    return delegate.prepareCall(sql, resultSetType, resultSetConcurrency);
+  }
+
+  @Override public CallableStatement prepareCall(String sql, int resultSetType,
+    int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    return delegate.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override public String nativeSQL(String sql) throws SQLException {
+    return delegate.nativeSQL(sql);
+  }
+
+  @Override public void setAutoCommit(boolean autoCommit) throws SQLException {
+    delegate.setAutoCommit(autoCommit);
+  }
+
+  @Override public boolean getAutoCommit() throws SQLException {
+    return delegate.getAutoCommit();
+  }
+
+  @Override public void commit() throws SQLException {
+    delegate.commit();
+  }
+
+  @Override public void rollback() throws SQLException {
+    delegate.rollback();
+  }
+
+  @Override public void close() throws SQLException {
+    delegate.close();
+  }
+
+  @Override public boolean isClosed() throws SQLException {
+    return delegate.isClosed();
+  }
+
+  @Override public DatabaseMetaData getMetaData() throws SQLException {
+    return delegate.getMetaData();
+  }
+
+  @Override public void setReadOnly(boolean readOnly) throws SQLException {
+    delegate.setReadOnly(readOnly);
+  }
+
+  @Override public boolean isReadOnly() throws SQLException {
+    return delegate.isReadOnly();
+  }
+
+  @Override public void setCatalog(String catalog) throws SQLException {
+    delegate.setCatalog(catalog);
+  }
+
+  @Override public String getCatalog() throws SQLException {
+    return delegate.getCatalog();
+  }
+
+  @Override public void setTransactionIsolation(int level) throws SQLException {
+    delegate.setTransactionIsolation(level);
+  }
+
+  @Override public int getTransactionIsolation() throws SQLException {
+    return delegate.getTransactionIsolation();
+  }
+
+  @Override public SQLWarning getWarnings() throws SQLException {
+    return delegate.getWarnings();
+  }
+
+  @Override public void clearWarnings() throws SQLException {
+    delegate.clearWarnings();
+  }
+
+  @Override public Map<String, Class<?>> getTypeMap() throws SQLException {
+    return delegate.getTypeMap();
+  }
+
+  @Override public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+    delegate.setTypeMap(map);
+  }
+
+  @Override public void setHoldability(int holdability) throws SQLException {
+    delegate.setHoldability(holdability);
+  }
+
+  @Override public int getHoldability() throws SQLException {
+    return delegate.getHoldability();
+  }
+
+  @Override public Savepoint setSavepoint() throws SQLException {
+    return delegate.setSavepoint();
+  }
+
+  @Override public Savepoint setSavepoint(String name) throws SQLException {
+    return delegate.setSavepoint(name);
+  }
+
+  @Override public void rollback(Savepoint savepoint) throws SQLException {
+    delegate.rollback(savepoint);
+  }
+
+  @Override public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+    delegate.releaseSavepoint(savepoint);
+  }
+
+  @Override public Clob createClob() throws SQLException {
+    return delegate.createClob();
+  }
+
+  @Override public Blob createBlob() throws SQLException {
+    return delegate.createBlob();
+  }
+
+  @Override public NClob createNClob() throws SQLException {
+    return delegate.createNClob();
+  }
+
+  @Override public SQLXML createSQLXML() throws SQLException {
+    return delegate.createSQLXML();
+  }
+
+  @Override public boolean isValid(int timeout) throws SQLException {
+    return delegate.isValid(timeout);
+  }
+
+  @Override public void setClientInfo(String name, String value) throws SQLClientInfoException {
+    delegate.setClientInfo(name, value);
+  }
+
+  @Override public void setClientInfo(Properties properties) throws SQLClientInfoException {
+    delegate.setClientInfo(properties);
+  }
+
+  @Override public String getClientInfo(String name) throws SQLException {
+    return delegate.getClientInfo(name);
+  }
+
+  @Override public Properties getClientInfo() throws SQLException {
+    return delegate.getClientInfo();
+  }
+
+  @Override public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+    return delegate.createArrayOf(typeName, elements);
+  }
+
+  @Override public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+    return delegate.createStruct(typeName, attributes);
+  }
+
+  @Override public void setSchema(String schema) throws SQLException {
+    delegate.setSchema(schema);
+  }
+
+  @Override public String getSchema() throws SQLException {
+    return delegate.getSchema();
+  }
+
+  @Override public void abort(Executor executor) throws SQLException {
+    delegate.abort(executor);
+  }
+
+  @Override public void setNetworkTimeout(Executor executor, int milliseconds)
+    throws SQLException {
+    delegate.setNetworkTimeout(executor, milliseconds);
+  }
+
+  @Override public int getNetworkTimeout() throws SQLException {
+    return delegate.getNetworkTimeout();
+  }
+
+  @Override public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(delegate)) return iface.cast(delegate);
+    return delegate.unwrap(iface);
+  }
+
+  @Override public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+  }
+
+  @Override public String toString() {
+    return "TracingConnection{" + delegate + "}";
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+final class TracingDataSource implements DataSource {
+  final JdbcTracing jdbcTracing;
+  final DataSource delegate;
+
+  TracingDataSource(JdbcTracing jdbcTracing, DataSource delegate) {
+    this.jdbcTracing = jdbcTracing;
+    this.delegate = delegate;
+  }
+
+  @Override public Connection getConnection() throws SQLException {
+    return jdbcTracing.connection(delegate.getConnection());
+  }
+
+  @Override public Connection getConnection(String username, String password)
+    throws SQLException {
+    return jdbcTracing.connection(delegate.getConnection(username, password));
+  }
+
+  @Override public PrintWriter getLogWriter() throws SQLException {
+    return delegate.getLogWriter();
+  }
+
+  @Override public void setLogWriter(PrintWriter out) throws SQLException {
+    delegate.setLogWriter(out);
+  }
+
+  @Override public void setLoginTimeout(int seconds) throws SQLException {
+    delegate.setLoginTimeout(seconds);
+  }
+
+  @Override public int getLoginTimeout() throws SQLException {
+    return delegate.getLoginTimeout();
+  }
+
+  @Override public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    return delegate.getParentLogger();
+  }
+
+  @Override public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(delegate)) return iface.cast(delegate);
+    return delegate.unwrap(iface);
+  }
+
+  @Override public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+  }
+
+  @Override public String toString() {
+    return "TracingDataSource{" + delegate + "}";
+  }
+}
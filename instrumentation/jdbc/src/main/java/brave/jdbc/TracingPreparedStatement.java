@@ -0,0 +1,428 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import brave.Span;
+import brave.Clock;
+import brave.Tracer.SpanInScope;
+import brave.internal.Nullable;
+import brave.propagation.TraceContext;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+import static brave.internal.Throwables.propagateIfFatal;
+
+/**
+ * Traces each execution of a prepared statement, or when {@link
+ * JdbcTracing.Builder#aggregateExecutions(int)} is above one, aggregates repeated executions under
+ * the same parent into one span.
+ *
+ * <p>The parent is only checked when executing, as there is no notification when its scope
+ * closes. Hence, an aggregate that hasn't reached its maximum count finishes on the next
+ * execution under a different parent, or when the statement is closed.
+ */
+final class TracingPreparedStatement extends TracingStatement<PreparedStatement>
+  implements PreparedStatement {
+  final String sql;
+  final int maxExecutions;
+
+  // Below are only used when aggregating executions
+  @Nullable Span aggregate;
+  @Nullable TraceContext aggregateParent;
+  @Nullable Clock aggregateClock;
+  int executionCount;
+  long executionMicros, executionStart, lastFinish;
+  /** True when the current execution is aggregated, so must end with {@link #endAggregated}. */
+  boolean aggregating;
+
+  TracingPreparedStatement(TracingConnection connection, PreparedStatement delegate, String sql) {
+    super(connection, delegate);
+    this.sql = sql;
+    this.maxExecutions = connection.jdbcTracing.aggregateExecutions;
+  }
+
+  void beginExecution() {
+    if (maxExecutions == 1) {
+      begin(sql);
+      return;
+    }
+
+    TraceContext parent = connection.currentTraceContext.get();
+    if (aggregate != null && !aggregateParent.equals(parent)) finishAggregate();
+    if (parent == null) { // executions in different traces are unrelated
+      begin(sql);
+      return;
+    }
+
+    if (aggregate == null) {
+      aggregate = connection.nextSpan(sql);
+      aggregateParent = parent;
+      aggregateClock = connection.jdbcTracing.tracing.clock(aggregate.context());
+    }
+    aggregating = true;
+    executionStart = aggregateClock.currentTimeMicroseconds();
+    if (executionCount == 0) aggregate.start(executionStart);
+    // Like an execution that isn't aggregated, the span is current while the driver executes.
+    scope = connection.tracer.withSpanInScope(aggregate);
+  }
+
+  void endExecution(@Nullable Throwable error) {
+    if (!aggregating) {
+      end(error);
+      return;
+    }
+    aggregating = false;
+    SpanInScope scope = this.scope;
+    this.scope = null;
+    scope.close();
+
+    long finish = aggregateClock.currentTimeMicroseconds();
+    executionCount++;
+    executionMicros += finish - executionStart;
+    lastFinish = finish;
+    if (error != null) {
+      aggregate.error(error);
+      finishAggregate();
+    } else if (executionCount >= maxExecutions) {
+      finishAggregate();
+    }
+  }
+
+  void finishAggregate() {
+    Span aggregate = this.aggregate;
+    if (aggregate == null) return;
+    if (!aggregate.isNoop()) {
+      aggregate.tag("sql.execution.count", String.valueOf(executionCount));
+      aggregate.tag("sql.execution.micros", String.valueOf(executionMicros));
+    }
+    aggregate.finish(lastFinish);
+
+    this.aggregate = null;
+    aggregateParent = null;
+    aggregateClock = null;
+    executionCount = 0;
+    executionMicros = executionStart = lastFinish = 0L;
+  }
+
+  @Override void beginBatch() {
+    finishAggregate();
+    super.beginBatch();
+  }
+
+  @Override public ResultSet executeQuery() throws SQLException {
+    beginExecution();
+    Throwable error = null;
+    try {
+      return delegate.executeQuery();
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      endExecution(error);
+    }
+  }
+
+  @Override public int executeUpdate() throws SQLException {
+    beginExecution();
+    Throwable error = null;
+    try {
+      return delegate.executeUpdate();
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      endExecution(error);
+    }
+  }
+
+  @Override public long executeLargeUpdate() throws SQLException {
+    beginExecution();
+    Throwable error = null;
+    try {
+      return delegate.executeLargeUpdate();
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      endExecution(error);
+    }
+  }
+
+  @Override public boolean execute() throws SQLException {
+    beginExecution();
+    Throwable error = null;
+    try {
+      return delegate.execute();
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      endExecution(error);
+    }
+  }
+
+  @Override public void addBatch() throws SQLException {
+    delegate.addBatch();
+    if (batchSql == null) batchSql = sql;
+    batchSize++;
+  }
+
+  @Override public void close() throws SQLException {
+    finishAggregate();
+    delegate.close();
+  }
+
+  @Override public void clearParameters() throws SQLException {
+    delegate.clearParameters();
+  }
+
+  @Override public ResultSetMetaData getMetaData() throws SQLException {
+    return delegate.getMetaData();
+  }
+
+  @Override public ParameterMetaData getParameterMetaData() throws SQLException {
+    return delegate.getParameterMetaData();
+  }
+
+  @Override public void setNull(int parameterIndex, int sqlType) throws SQLException {
+    delegate.setNull(parameterIndex, sqlType);
+  }
+
+  @Override public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+    delegate.setBoolean(parameterIndex, x);
+  }
+
+  @Override public void setByte(int parameterIndex, byte x) throws SQLException {
+    delegate.setByte(parameterIndex, x);
+  }
+
+  @Override public void setShort(int parameterIndex, short x) throws SQLException {
+    delegate.setShort(parameterIndex, x);
+  }
+
+  @Override public void setInt(int parameterIndex, int x) throws SQLException {
+    delegate.setInt(parameterIndex, x);
+  }
+
+  @Override public void setLong(int parameterIndex, long x) throws SQLException {
+    delegate.setLong(parameterIndex, x);
+  }
+
+  @Override public void setFloat(int parameterIndex, float x) throws SQLException {
+    delegate.setFloat(parameterIndex, x);
+  }
+
+  @Override public void setDouble(int parameterIndex, double x) throws SQLException {
+    delegate.setDouble(parameterIndex, x);
+  }
+
+  @Override public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+    delegate.setBigDecimal(parameterIndex, x);
+  }
+
+  @Override public void setString(int parameterIndex, String x) throws SQLException {
+    delegate.setString(parameterIndex, x);
+  }
+
+  @Override public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+    delegate.setBytes(parameterIndex, x);
+  }
+
+  @Override public void setDate(int parameterIndex, Date x) throws SQLException {
+    delegate.setDate(parameterIndex, x);
+  }
+
+  @Override public void setTime(int parameterIndex, Time x) throws SQLException {
+    delegate.setTime(parameterIndex, x);
+  }
+
+  @Override public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+    delegate.setTimestamp(parameterIndex, x);
+  }
+
+  @Override public void setAsciiStream(int parameterIndex, InputStream x, int length)
+    throws SQLException {
+    delegate.setAsciiStream(parameterIndex, x, length);
+  }
+
+  @Override public void setUnicodeStream(int parameterIndex, InputStream x, int length)
+    throws SQLException {
+    delegate.setUnicodeStream(parameterIndex, x, length);
+  }
+
+  @Override public void setBinaryStream(int parameterIndex, InputStream x, int length)
+    throws SQLException {
+    delegate.setBinaryStream(parameterIndex, x, length);
+  }
+
+  @Override public void setObject(int parameterIndex, Object x, int targetSqlType)
+    throws SQLException {
+    delegate.setObject(parameterIndex, x, targetSqlType);
+  }
+
+  @Override public void setObject(int parameterIndex, Object x) throws SQLException {
+    delegate.setObject(parameterIndex, x);
+  }
+
+  @Override public void setCharacterStream(int parameterIndex, Reader reader, int length)
+    throws SQLException {
+    delegate.setCharacterStream(parameterIndex, reader, length);
+  }
+
+  @Override public void setRef(int parameterIndex, Ref x) throws SQLException {
+    delegate.setRef(parameterIndex, x);
+  }
+
+  @Override public void setBlob(int parameterIndex, Blob x) throws SQLException {
+    delegate.setBlob(parameterIndex, x);
+  }
+
+  @Override public void setClob(int parameterIndex, Clob x) throws SQLException {
+    delegate.setClob(parameterIndex, x);
+  }
+
+  @Override public void setArray(int parameterIndex, Array x) throws SQLException {
+    delegate.setArray(parameterIndex, x);
+  }
+
+  @Override public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+    delegate.setDate(parameterIndex, x, cal);
+  }
+
+  @Override public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+    delegate.setTime(parameterIndex, x, cal);
+  }
+
+  @Override public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal)
+    throws SQLException {
+    delegate.setTimestamp(parameterIndex, x, cal);
+  }
+
+  @Override public void setNull(int parameterIndex, int sqlType, String typeName)
+    throws SQLException {
+    delegate.setNull(parameterIndex, sqlType, typeName);
+  }
+
+  @Override public void setURL(int parameterIndex, URL x) throws SQLException {
+    delegate.setURL(parameterIndex, x);
+  }
+
+  @Override public void setRowId(int parameterIndex, RowId x) throws SQLException {
+    delegate.setRowId(parameterIndex, x);
+  }
+
+  @Override public void setNString(int parameterIndex, String value) throws SQLException {
+    delegate.setNString(parameterIndex, value);
+  }
+
+  @Override public void setNCharacterStream(int parameterIndex, Reader value, long length)
+    throws SQLException {
+    delegate.setNCharacterStream(parameterIndex, value, length);
+  }
+
+  @Override public void setNClob(int parameterIndex, NClob value) throws SQLException {
+    delegate.setNClob(parameterIndex, value);
+  }
+
+  @Override public void setClob(int parameterIndex, Reader reader, long length)
+    throws SQLException {
+    delegate.setClob(parameterIndex, reader, length);
+  }
+
+  @Override public void setBlob(int parameterIndex, InputStream inputStream, long length)
+    throws SQLException {
+    delegate.setBlob(parameterIndex, inputStream, length);
+  }
+
+  @Override public void setNClob(int parameterIndex, Reader reader, long length)
+    throws SQLException {
+    delegate.setNClob(parameterIndex, reader, length);
+  }
+
+  @Override public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+    delegate.setSQLXML(parameterIndex, xmlObject);
+  }
+
+  @Override public void setObject(int parameterIndex, Object x, int targetSqlType,
+    int scaleOrLength) throws SQLException {
+    delegate.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+  }
+
+  @Override public void setAsciiStream(int parameterIndex, InputStream x, long length)
+    throws SQLException {
+    delegate.setAsciiStream(parameterIndex, x, length);
+  }
+
+  @Override public void setBinaryStream(int parameterIndex, InputStream x, long length)
+    throws SQLException {
+    delegate.setBinaryStream(parameterIndex, x, length);
+  }
+
+  @Override public void setCharacterStream(int parameterIndex, Reader reader, long length)
+    throws SQLException {
+    delegate.setCharacterStream(parameterIndex, reader, length);
+  }
+
+  @Override public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+    delegate.setAsciiStream(parameterIndex, x);
+  }
+
+  @Override public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+    delegate.setBinaryStream(parameterIndex, x);
+  }
+
+  @Override public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+    delegate.setCharacterStream(parameterIndex, reader);
+  }
+
+  @Override public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+    delegate.setNCharacterStream(parameterIndex, value);
+  }
+
+  @Override public void setClob(int parameterIndex, Reader reader) throws SQLException {
+    delegate.setClob(parameterIndex, reader);
+  }
+
+  @Override public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+    delegate.setBlob(parameterIndex, inputStream);
+  }
+
+  @Override public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+    delegate.setNClob(parameterIndex, reader);
+  }
+
+  @Override public void setObject(int parameterIndex, Object x, SQLType targetSqlType,
+    int scaleOrLength) throws SQLException {
+    delegate.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+  }
+
+  @Override public void setObject(int parameterIndex, Object x, SQLType targetSqlType)
+    throws SQLException {
+    delegate.setObject(parameterIndex, x, targetSqlType);
+  }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import brave.Span;
+import brave.Tracer.SpanInScope;
+import brave.internal.Nullable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+import static brave.internal.Throwables.propagateIfFatal;
+
+/**
+ * Traces each execution of a statement, including {@link #executeBatch()}, which results in one
+ * span tagged with the count of batched statements ("sql.batch.size").
+ *
+ * <p>Like the JDBC statement it wraps, this is not thread-safe.
+ */
+class TracingStatement<S extends Statement> implements Statement {
+  final TracingConnection connection;
+  final S delegate;
+
+  /** The first SQL added to the batch, as the span name and "sql.query" tag. */
+  @Nullable String batchSql;
+  int batchSize;
+
+  // The span and scope of the current execution, as statements cannot execute concurrently
+  @Nullable Span span;
+  @Nullable SpanInScope scope;
+
+  TracingStatement(TracingConnection connection, S delegate) {
+    this.connection = connection;
+    this.delegate = delegate;
+  }
+
+  /** Starts a span for the SQL statement, which must be followed by {@link #end(Throwable)}. */
+  void begin(@Nullable String sql) {
+    Span span = connection.nextSpan(sql).start();
+    this.span = span;
+    this.scope = connection.tracer.withSpanInScope(span);
+  }
+
+  void beginBatch() {
+    begin(batchSql);
+    if (!span.isNoop()) span.tag("sql.batch.size", String.valueOf(batchSize));
+    batchSql = null;
+    batchSize = 0;
+  }
+
+  void end(@Nullable Throwable error) {
+    Span span = this.span;
+    SpanInScope scope = this.scope;
+    this.span = null;
+    this.scope = null;
+    if (error != null) span.error(error);
+    span.finish();
+    scope.close();
+  }
+
+  @Override public ResultSet executeQuery(String sql) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.executeQuery(sql);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public int executeUpdate(String sql) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.executeUpdate(sql);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.executeUpdate(sql, autoGeneratedKeys);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.executeUpdate(sql, columnIndexes);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.executeUpdate(sql, columnNames);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public long executeLargeUpdate(String sql) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.executeLargeUpdate(sql);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public long executeLargeUpdate(String sql, int autoGeneratedKeys)
+    throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.executeLargeUpdate(sql, autoGeneratedKeys);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public long executeLargeUpdate(String sql, int[] columnIndexes)
+    throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.executeLargeUpdate(sql, columnIndexes);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public long executeLargeUpdate(String sql, String[] columnNames)
+    throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.executeLargeUpdate(sql, columnNames);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public boolean execute(String sql) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.execute(sql);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.execute(sql, autoGeneratedKeys);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.execute(sql, columnIndexes);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public boolean execute(String sql, String[] columnNames) throws SQLException {
+    begin(sql);
+    Throwable error = null;
+    try {
+      return delegate.execute(sql, columnNames);
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public void addBatch(String sql) throws SQLException {
+    delegate.addBatch(sql);
+    if (batchSql == null) batchSql = sql;
+    batchSize++;
+  }
+
+  @Override public void clearBatch() throws SQLException {
+    delegate.clearBatch();
+    batchSql = null;
+    batchSize = 0;
+  }
+
+  @Override public int[] executeBatch() throws SQLException {
+    beginBatch();
+    Throwable error = null;
+    try {
+      return delegate.executeBatch();
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public long[] executeLargeBatch() throws SQLException {
+    beginBatch();
+    Throwable error = null;
+    try {
+      return delegate.executeLargeBatch();
+    } catch (Throwable e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      end(error);
+    }
+  }
+
+  @Override public Connection getConnection() {
+    return connection;
+  }
+
+  @Override public void close() throws SQLException {
+    delegate.close();
+  }
+
+  @Override public int getMaxFieldSize() throws SQLException {
+    return delegate.getMaxFieldSize();
+  }
+
+  @Override public void setMaxFieldSize(int max) throws SQLException {
+    delegate.setMaxFieldSize(max);
+  }
+
+  @Override public int getMaxRows() throws SQLException {
+    return delegate.getMaxRows();
+  }
+
+  @Override public void setMaxRows(int max) throws SQLException {
+    delegate.setMaxRows(max);
+  }
+
+  @Override public long getLargeMaxRows() throws SQLException {
+    return delegate.getLargeMaxRows();
+  }
+
+  @Override public void setLargeMaxRows(long max) throws SQLException {
+    delegate.setLargeMaxRows(max);
+  }
+
+  @Override public void setEscapeProcessing(boolean enable) throws SQLException {
+    delegate.setEscapeProcessing(enable);
+  }
+
+  @Override public int getQueryTimeout() throws SQLException {
+    return delegate.getQueryTimeout();
+  }
+
+  @Override public void setQueryTimeout(int seconds) throws SQLException {
+    delegate.setQueryTimeout(seconds);
+  }
+
+  @Override public void cancel() throws SQLException {
+    delegate.cancel();
+  }
+
+  @Override public SQLWarning getWarnings() throws SQLException {
+    return delegate.getWarnings();
+  }
+
+  @Override public void clearWarnings() throws SQLException {
+    delegate.clearWarnings();
+  }
+
+  @Override public void setCursorName(String name) throws SQLException {
+    delegate.setCursorName(name);
+  }
+
+  @Override public ResultSet getResultSet() throws SQLException {
+    return delegate.getResultSet();
+  }
+
+  @Override public int getUpdateCount() throws SQLException {
+    return delegate.getUpdateCount();
+  }
+
+  @Override public long getLargeUpdateCount() throws SQLException {
+    return delegate.getLargeUpdateCount();
+  }
+
+  @Override public boolean getMoreResults() throws SQLException {
+    return delegate.getMoreResults();
+  }
+
+  @Override public boolean getMoreResults(int current) throws SQLException {
+    return delegate.getMoreResults(current);
+  }
+
+  @Override public void setFetchDirection(int direction) throws SQLException {
+    delegate.setFetchDirection(direction);
+  }
+
+  @Override public int getFetchDirection() throws SQLException {
+    return delegate.getFetchDirection();
+  }
+
+  @Override public void setFetchSize(int rows) throws SQLException {
+    delegate.setFetchSize(rows);
+  }
+
+  @Override public int getFetchSize() throws SQLException {
+    return delegate.getFetchSize();
+  }
+
+  @Override public int getResultSetConcurrency() throws SQLException {
+    return delegate.getResultSetConcurrency();
+  }
+
+  @Override public int getResultSetType() throws SQLException {
+    return delegate.getResultSetType();
+  }
+
+  @Override public ResultSet getGeneratedKeys() throws SQLException {
+    return delegate.getGeneratedKeys();
+  }
+
+  @Override public int getResultSetHoldability() throws SQLException {
+    return delegate.getResultSetHoldability();
+  }
+
+  @Override public boolean isClosed() throws SQLException {
+    return delegate.isClosed();
+  }
+
+  @Override public void setPoolable(boolean poolable) throws SQLException {
+    delegate.setPoolable(poolable);
+  }
+
+  @Override public boolean isPoolable() throws SQLException {
+    return delegate.isPoolable();
+  }
+
+  @Override public void closeOnCompletion() throws SQLException {
+    delegate.closeOnCompletion();
+  }
+
+  @Override public boolean isCloseOnCompletion() throws SQLException {
+    return delegate.isCloseOnCompletion();
+  }
+
+  @Override public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(delegate)) return iface.cast(delegate);
+    return delegate.unwrap(iface);
+  }
+
+  @Override public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+  }
+
+  @Override public String toString() {
+    return getClass().getSimpleName() + "{" + delegate + "}";
+  }
+}
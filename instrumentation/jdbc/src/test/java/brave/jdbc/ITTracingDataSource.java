@@ -0,0 +1,148 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import brave.handler.MutableSpan;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.SamplingFlags;
+import brave.propagation.TraceContext;
+import brave.test.ITRemote;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static brave.Span.Kind.CLIENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/** Runs against an in-memory H2 database, so doesn't need Docker. */
+class ITTracingDataSource extends ITRemote {
+  static final String QUERY = "SELECT 'hello world'";
+  static final String ERROR_QUERY = "SELECT unknown_field FROM unknown_table";
+  static final String INSERT = "INSERT INTO foo VALUES (?)";
+
+  JdbcDataSource h2 = new JdbcDataSource();
+  DataSource dataSource;
+
+  @BeforeEach void createTable() throws SQLException {
+    h2.setURL("jdbc:h2:mem:zipkin;DB_CLOSE_DELAY=-1");
+    dataSource = JdbcTracing.create(tracing).dataSource(h2);
+    try (Connection connection = h2.getConnection(); Statement statement =
+      connection.createStatement()) {
+      statement.execute("CREATE TABLE foo (id INT)");
+    }
+  }
+
+  @AfterEach void dropTable() throws SQLException {
+    try (Connection connection = h2.getConnection(); Statement statement =
+      connection.createStatement()) {
+      statement.execute("DROP TABLE foo");
+    }
+  }
+
+  @Test void makesChildOfCurrentSpan() throws SQLException {
+    TraceContext parent = newTraceContext(SamplingFlags.SAMPLED);
+    try (CurrentTraceContext.Scope scope = currentTraceContext.newScope(parent)) {
+      executeQuery(QUERY);
+    }
+
+    assertChildOf(testSpanHandler.takeRemoteSpan(CLIENT), parent);
+  }
+
+  @Test void defaultSpanNameIsOperationName() throws SQLException {
+    executeQuery(QUERY);
+
+    assertThat(testSpanHandler.takeRemoteSpan(CLIENT).name())
+      .isEqualTo("SELECT");
+  }
+
+  @Test void addsQueryTag() throws SQLException {
+    executeQuery(QUERY);
+
+    assertThat(testSpanHandler.takeRemoteSpan(CLIENT).tags()).containsOnly(
+      entry("sql.query", QUERY)
+    );
+  }
+
+  @Test void reportsRemoteServiceName() throws SQLException {
+    executeQuery(QUERY);
+
+    assertThat(testSpanHandler.takeRemoteSpan(CLIENT).remoteServiceName())
+      .isEqualTo("h2-zipkin");
+  }
+
+  @Test void setsError() {
+    assertThatThrownBy(() -> executeQuery(ERROR_QUERY)).isInstanceOf(SQLException.class);
+
+    testSpanHandler.takeRemoteSpanWithErrorMessage(CLIENT, ".*UNKNOWN_TABLE.*");
+  }
+
+  @Test void prepareStatement() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+         PreparedStatement statement = connection.prepareStatement(INSERT)) {
+      statement.setInt(1, 1);
+      assertThat(statement.executeUpdate()).isEqualTo(1);
+    }
+
+    MutableSpan span = testSpanHandler.takeRemoteSpan(CLIENT);
+    assertThat(span.name()).isEqualTo("INSERT");
+    assertThat(span.tags()).containsOnly(entry("sql.query", INSERT));
+  }
+
+  @Test void executeBatch_oneSpan() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+         PreparedStatement statement = connection.prepareStatement(INSERT)) {
+      for (int i = 0; i < 10; i++) {
+        statement.setInt(1, i);
+        statement.addBatch();
+      }
+      assertThat(statement.executeBatch()).hasSize(10);
+    }
+
+    assertThat(testSpanHandler.takeRemoteSpan(CLIENT).tags()).containsOnly(
+      entry("sql.query", INSERT),
+      entry("sql.batch.size", "10")
+    );
+  }
+
+  @Test void aggregateExecutions() throws SQLException {
+    dataSource = JdbcTracing.newBuilder(tracing).aggregateExecutions(100).build().dataSource(h2);
+
+    TraceContext parent = newTraceContext(SamplingFlags.SAMPLED);
+    try (CurrentTraceContext.Scope scope = currentTraceContext.newScope(parent);
+         Connection connection = dataSource.getConnection();
+         PreparedStatement statement = connection.prepareStatement(INSERT)) {
+      for (int i = 0; i < 10; i++) {
+        statement.setInt(1, i);
+        statement.executeUpdate();
+      }
+    }
+
+    MutableSpan span = testSpanHandler.takeRemoteSpan(CLIENT);
+    assertChildOf(span, parent);
+    assertThat(span.tags())
+      .containsEntry("sql.query", INSERT)
+      .containsEntry("sql.execution.count", "10")
+      .containsKey("sql.execution.micros");
+  }
+
+  void executeQuery(String query) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(query)) {
+      while (resultSet.next()) {
+        resultSet.getString(1);
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RemoteEndpointTest {
+  @Test void parse_h2() {
+    RemoteEndpoint endpoint = RemoteEndpoint.parse("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1");
+
+    assertThat(endpoint.serviceName).isEqualTo("h2-testdb");
+    assertThat(endpoint.host).isNull();
+  }
+
+  @Test void parse_hsqldb() {
+    RemoteEndpoint endpoint = RemoteEndpoint.parse("jdbc:hsqldb:mem:testdb");
+
+    assertThat(endpoint.serviceName).isEqualTo("hsqldb-testdb");
+    assertThat(endpoint.host).isNull();
+  }
+
+  @Test void parse_postgresql() {
+    RemoteEndpoint endpoint = RemoteEndpoint.parse("jdbc:postgresql://localhost:5432/testdb");
+
+    assertThat(endpoint.serviceName).isEqualTo("postgresql-testdb");
+    assertThat(endpoint.host).isEqualTo("localhost");
+    assertThat(endpoint.port).isEqualTo(5432);
+  }
+
+  @Test void parse_oracle() {
+    RemoteEndpoint endpoint = RemoteEndpoint.parse("jdbc:oracle:thin:@localhost:1521:testdb");
+
+    assertThat(endpoint.serviceName).isEqualTo("oracle-testdb");
+  }
+
+  @Test void parse_invalid() {
+    assertThat(RemoteEndpoint.parse("jobc")).isNull();
+    assertThat(RemoteEndpoint.parse(null)).isNull();
+  }
+
+  @Test void read_noneWhenUnreadable() throws SQLException {
+    Connection connection = mock(Connection.class);
+    when(connection.getMetaData()).thenThrow(new SQLException("closed"));
+
+    assertThat(RemoteEndpoint.read(connection)).isSameAs(RemoteEndpoint.NONE);
+  }
+
+  @Test void read_noneWhenUnparseable() throws SQLException {
+    Connection connection = mock(Connection.class);
+    DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+    when(connection.getMetaData()).thenReturn(metaData);
+    when(metaData.getURL()).thenReturn("jdbc:%");
+
+    assertThat(RemoteEndpoint.read(connection)).isSameAs(RemoteEndpoint.NONE);
+  }
+}
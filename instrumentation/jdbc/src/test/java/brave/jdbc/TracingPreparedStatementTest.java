@@ -0,0 +1,266 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdbc;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.StrictCurrentTraceContext;
+import brave.propagation.TraceContext;
+import brave.test.TestSpanHandler;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static brave.Span.Kind.CLIENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TracingPreparedStatementTest {
+  static final String SQL = "insert into foo values (?)";
+
+  StrictCurrentTraceContext currentTraceContext = StrictCurrentTraceContext.create();
+  TestSpanHandler spans = new TestSpanHandler();
+  Tracing tracing = Tracing.newBuilder()
+    .currentTraceContext(currentTraceContext)
+    .addSpanHandler(spans)
+    .build();
+  TraceContext parent = tracing.tracer().newTrace().context();
+
+  @Mock Connection delegate;
+  @Mock DatabaseMetaData metaData;
+  @Mock PreparedStatement statement;
+
+  @BeforeEach void setup() throws SQLException {
+    lenient().when(delegate.getMetaData()).thenReturn(metaData);
+    lenient().when(metaData.getURL()).thenReturn("jdbc:postgresql://127.0.0.1:5432/testdb");
+    lenient().when(delegate.prepareStatement(SQL)).thenReturn(statement);
+  }
+
+  @AfterEach void close() {
+    tracing.close();
+    currentTraceContext.close();
+  }
+
+  @Test void executeUpdate() throws SQLException {
+    try (PreparedStatement ps = connection(JdbcTracing.create(tracing)).prepareStatement(SQL)) {
+      ps.setInt(1, 1);
+      ps.executeUpdate();
+    }
+
+    verify(statement).setInt(1, 1);
+    MutableSpan span = spans.get(0);
+    assertThat(span.kind()).isEqualTo(CLIENT);
+    assertThat(span.name()).isEqualTo("insert");
+    assertThat(span.tags()).containsOnly(entry("sql.query", SQL));
+    assertThat(span.remoteServiceName()).isEqualTo("postgresql-testdb");
+    assertThat(span.remoteIp()).isEqualTo("127.0.0.1");
+    assertThat(span.remotePort()).isEqualTo(5432);
+  }
+
+  @Test void executeUpdate_remoteServiceName() throws SQLException {
+    JdbcTracing jdbcTracing = JdbcTracing.newBuilder(tracing).remoteServiceName("db").build();
+    try (PreparedStatement ps = connection(jdbcTracing).prepareStatement(SQL)) {
+      ps.executeUpdate();
+    }
+
+    assertThat(spans.get(0).remoteServiceName()).isEqualTo("db");
+  }
+
+  @Test void executeUpdate_error() throws SQLException {
+    SQLException error = new SQLException("oops");
+    when(statement.executeUpdate()).thenThrow(error);
+
+    try (PreparedStatement ps = connection(JdbcTracing.create(tracing)).prepareStatement(SQL)) {
+      assertThatThrownBy(ps::executeUpdate).isSameAs(error);
+    }
+
+    assertThat(spans.get(0).error()).isSameAs(error);
+  }
+
+  @Test void executeBatch_oneSpan() throws SQLException {
+    try (PreparedStatement ps = connection(JdbcTracing.create(tracing)).prepareStatement(SQL)) {
+      for (int i = 0; i < 3; i++) {
+        ps.setInt(1, i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+
+    assertThat(spans).hasSize(1);
+    assertThat(spans.get(0).tags())
+      .containsEntry("sql.query", SQL)
+      .containsEntry("sql.batch.size", "3");
+  }
+
+  @Test void aggregateExecutions() throws SQLException {
+    JdbcTracing jdbcTracing = JdbcTracing.newBuilder(tracing).aggregateExecutions(3).build();
+    try (Scope scope = currentTraceContext.newScope(parent);
+         PreparedStatement ps = connection(jdbcTracing).prepareStatement(SQL)) {
+      for (int i = 0; i < 5; i++) {
+        ps.setInt(1, i);
+        ps.executeUpdate();
+      }
+    }
+
+    // one span when max executions were reached, the other when the statement was closed
+    assertThat(spans).hasSize(2);
+    assertThat(spans.get(0).tags()).containsEntry("sql.execution.count", "3");
+    assertThat(spans.get(1).tags()).containsEntry("sql.execution.count", "2");
+    for (MutableSpan span : spans) {
+      assertThat(span.parentId()).isEqualTo(parent.spanIdString());
+      assertThat(span.name()).isEqualTo("insert");
+      assertThat(Long.parseLong(span.tag("sql.execution.micros")))
+        .isLessThanOrEqualTo(span.finishTimestamp() - span.startTimestamp());
+    }
+  }
+
+  @Test void aggregateExecutions_executionsInScope() throws SQLException {
+    List<TraceContext> current = new ArrayList<>();
+    when(statement.executeUpdate()).then(invocation -> {
+      current.add(currentTraceContext.get());
+      return 1;
+    });
+
+    JdbcTracing jdbcTracing = JdbcTracing.newBuilder(tracing).aggregateExecutions(10).build();
+    try (Scope scope = currentTraceContext.newScope(parent);
+         PreparedStatement ps = connection(jdbcTracing).prepareStatement(SQL)) {
+      ps.executeUpdate();
+      assertThat(currentTraceContext.get()).isSameAs(parent);
+      ps.executeUpdate();
+    }
+
+    assertThat(spans).hasSize(1);
+    assertThat(current).extracting(TraceContext::spanIdString)
+      .containsExactly(spans.get(0).id(), spans.get(0).id());
+  }
+
+  @Test void aggregateExecutions_finishesWhenParentChanges() throws SQLException {
+    JdbcTracing jdbcTracing = JdbcTracing.newBuilder(tracing).aggregateExecutions(10).build();
+    TraceContext otherParent = tracing.tracer().newTrace().context();
+    try (PreparedStatement ps = connection(jdbcTracing).prepareStatement(SQL)) {
+      try (Scope scope = currentTraceContext.newScope(parent)) {
+        ps.executeUpdate();
+        ps.executeUpdate();
+      }
+      try (Scope scope = currentTraceContext.newScope(otherParent)) {
+        ps.executeUpdate();
+
+        assertThat(spans).hasSize(1);
+      }
+    }
+
+    assertThat(spans).hasSize(2);
+    assertThat(spans.get(0).parentId()).isEqualTo(parent.spanIdString());
+    assertThat(spans.get(0).tags()).containsEntry("sql.execution.count", "2");
+    assertThat(spans.get(1).parentId()).isEqualTo(otherParent.spanIdString());
+    assertThat(spans.get(1).tags()).containsEntry("sql.execution.count", "1");
+  }
+
+  @Test void aggregateExecutions_finishesOnError() throws SQLException {
+    SQLException error = new SQLException("oops");
+    when(statement.executeUpdate()).thenReturn(1).thenThrow(error).thenReturn(1);
+
+    JdbcTracing jdbcTracing = JdbcTracing.newBuilder(tracing).aggregateExecutions(10).build();
+    try (Scope scope = currentTraceContext.newScope(parent);
+         PreparedStatement ps = connection(jdbcTracing).prepareStatement(SQL)) {
+      ps.executeUpdate();
+      assertThatThrownBy(ps::executeUpdate).isSameAs(error);
+      ps.executeUpdate();
+    }
+
+    assertThat(spans).hasSize(2);
+    assertThat(spans.get(0).error()).isSameAs(error);
+    assertThat(spans.get(0).tags()).containsEntry("sql.execution.count", "2");
+    assertThat(spans.get(1).error()).isNull();
+    assertThat(spans.get(1).tags()).containsEntry("sql.execution.count", "1");
+  }
+
+  @Test void aggregateExecutions_notWithoutParent() throws SQLException {
+    JdbcTracing jdbcTracing = JdbcTracing.newBuilder(tracing).aggregateExecutions(10).build();
+    try (PreparedStatement ps = connection(jdbcTracing).prepareStatement(SQL)) {
+      ps.executeUpdate();
+      ps.executeUpdate();
+    }
+
+    assertThat(spans).hasSize(2);
+    assertThat(spans).allSatisfy(span -> {
+      assertThat(span.parentId()).isNull();
+      assertThat(span.tags()).containsOnly(entry("sql.query", SQL));
+    });
+  }
+
+  @Test void aggregateExecutions_executeBatchFinishesAggregate() throws SQLException {
+    JdbcTracing jdbcTracing = JdbcTracing.newBuilder(tracing).aggregateExecutions(10).build();
+    try (Scope scope = currentTraceContext.newScope(parent);
+         PreparedStatement ps = connection(jdbcTracing).prepareStatement(SQL)) {
+      ps.executeUpdate();
+      ps.addBatch();
+      ps.executeBatch();
+    }
+
+    assertThat(spans).hasSize(2);
+    assertThat(spans.get(0).tags()).containsEntry("sql.execution.count", "1");
+    assertThat(spans.get(1).tags()).containsEntry("sql.batch.size", "1");
+  }
+
+  @Test void aggregateExecutions_invalid() {
+    assertThatThrownBy(() -> JdbcTracing.newBuilder(tracing).aggregateExecutions(0))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("maxExecutions < 1: 0");
+  }
+
+  @Test void getConnection_isTracingConnection() throws SQLException {
+    Connection connection = connection(JdbcTracing.create(tracing));
+    try (PreparedStatement ps = connection.prepareStatement(SQL)) {
+      assertThat(ps.getConnection()).isSameAs(connection);
+      assertThat(ps.unwrap(PreparedStatement.class)).isSameAs(statement);
+    }
+  }
+
+  @Test void remoteEndpoint_parsedOncePerConnection() throws SQLException {
+    Connection connection = connection(JdbcTracing.create(tracing));
+    for (int i = 0; i < 3; i++) {
+      try (PreparedStatement ps = connection.prepareStatement(SQL)) {
+        ps.executeUpdate();
+      }
+    }
+
+    verify(delegate).getMetaData();
+    assertThat(spans).extracting(MutableSpan::remoteServiceName)
+      .containsExactly("postgresql-testdb", "postgresql-testdb", "postgresql-testdb");
+  }
+
+  @Test void remoteEndpoint_unparseableReadOncePerConnection() throws SQLException {
+    when(metaData.getURL()).thenReturn("jobc");
+    Connection connection = connection(JdbcTracing.create(tracing));
+    for (int i = 0; i < 3; i++) {
+      try (PreparedStatement ps = connection.prepareStatement(SQL)) {
+        ps.executeUpdate();
+      }
+    }
+
+    verify(delegate).getMetaData();
+    assertThat(spans).extracting(MutableSpan::remoteServiceName).containsOnlyNulls();
+  }
+
+  Connection connection(JdbcTracing jdbcTracing) {
+    return jdbcTracing.connection(delegate);
+  }
+}
@@ -6,8 +6,11 @@ package brave.jdbi3;
 
 import brave.Span;
 import brave.Tracing;
+import brave.internal.Nullable;
+import brave.internal.WeakIdentityCache;
 import brave.propagation.ThreadLocalSpan;
 import java.net.URI;
+import java.sql.Connection;
 import java.sql.SQLException;
 import org.jdbi.v3.core.statement.SqlLogger;
 import org.jdbi.v3.core.statement.SqlStatements;
@@ -47,12 +50,10 @@ final class TracingSqlLogger implements SqlLogger {
     }
 
     span.remoteServiceName(remoteServiceName);
-    if (ctx.getConnection() != null) {
-      try {
-        String jdbcUrl = ctx.getConnection().getMetaData().getURL();
-        parseServerIpAndPort(jdbcUrl, span, remoteServiceName == null);
-      } catch (SQLException ignored) {
-      }
+    Connection connection = ctx.getConnection();
+    if (connection != null) {
+      RemoteEndpoint endpoint = REMOTE_ENDPOINTS.get(connection);
+      if (endpoint != null) endpoint.apply(span, remoteServiceName == null);
     }
 
     span.start();
@@ -71,26 +72,57 @@ final class TracingSqlLogger implements SqlLogger {
     span.finish();
   }
 
+  // Jdbi passes the same Connection for each statement of a handle, so read its URL once.
+  static final WeakIdentityCache<Connection, RemoteEndpoint> REMOTE_ENDPOINTS =
+    new WeakIdentityCache<Connection, RemoteEndpoint>() {
+      @Override protected RemoteEndpoint compute(Connection connection) {
+        try {
+          return parseRemoteEndpoint(connection.getMetaData().getURL());
+        } catch (SQLException ignored) {
+          return null;
+        }
+      }
+    };
+
   static void parseServerIpAndPort(String jdbcUrl, Span span, boolean addRemoteServiceName) {
-    if (!jdbcUrl.startsWith(JDBC_PREFIX)) return; // unlikely, and no way to parse it
+    RemoteEndpoint endpoint = parseRemoteEndpoint(jdbcUrl);
+    if (endpoint != null) endpoint.apply(span, addRemoteServiceName);
+  }
+
+  @Nullable static RemoteEndpoint parseRemoteEndpoint(String jdbcUrl) {
+    if (!jdbcUrl.startsWith(JDBC_PREFIX)) return null; // unlikely, and no way to parse it
 
     URI url = URI.create(jdbcUrl.substring(JDBC_PREFIX.length()));
-    if (url.getHost() != null) {
-      span.remoteIpAndPort(url.getHost(), url.getPort());
+    String serviceName;
+    if (url.getPath() != null) {
+      // e.g. mysql://localhost:3306/testdb -> mysql-testdb
+      serviceName = url.getScheme() + "-" + url.getPath().replace("/", "");
+    } else if (url.getSchemeSpecificPart() != null) {
+      // e.g. h2:mem:testdb -> h2-testdb
+      String ssp = url.getSchemeSpecificPart();
+      int lastColon = ssp.lastIndexOf(':');
+      ssp = lastColon != -1 ? ssp.substring(lastColon + 1) : ssp;
+      serviceName = url.getScheme() + "-" + ssp;
+    } else {
+      serviceName = url.getScheme();
     }
-    if (addRemoteServiceName) {
-      if (url.getPath() != null) {
-        // e.g. mysql://localhost:3306/testdb -> mysql-testdb
-        span.remoteServiceName(url.getScheme() + "-" + url.getPath().replace("/", ""));
-      } else if (url.getSchemeSpecificPart() != null) {
-        // e.g. h2:mem:testdb -> h2-testdb
-        String ssp = url.getSchemeSpecificPart();
-        int lastColon = ssp.lastIndexOf(':');
-        ssp = lastColon != -1 ? ssp.substring(lastColon + 1) : ssp;
-        span.remoteServiceName(url.getScheme() + "-" + ssp);
-      } else {
-        span.remoteServiceName(url.getScheme());
-      }
+    return new RemoteEndpoint(serviceName, url.getHost(), url.getPort());
+  }
+
+  static final class RemoteEndpoint {
+    final String serviceName;
+    @Nullable final String host;
+    final int port;
+
+    RemoteEndpoint(String serviceName, @Nullable String host, int port) {
+      this.serviceName = serviceName;
+      this.host = host;
+      this.port = port;
+    }
+
+    void apply(Span span, boolean addRemoteServiceName) {
+      if (host != null) span.remoteIpAndPort(host, port);
+      if (addRemoteServiceName) span.remoteServiceName(serviceName);
     }
   }
 }
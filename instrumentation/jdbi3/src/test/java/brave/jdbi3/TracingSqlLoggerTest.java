@@ -5,14 +5,21 @@
 package brave.jdbi3;
 
 import brave.Span;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class TracingSqlLoggerTest {
@@ -70,6 +77,30 @@ public class TracingSqlLoggerTest {
     verify(span).remoteServiceName("sqlite-test.db");
   }
 
+  @Test void remoteEndpoints_parsesOncePerConnection() throws SQLException {
+    Connection connection = mock(Connection.class);
+    DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+    when(connection.getMetaData()).thenReturn(metaData);
+    when(metaData.getURL()).thenReturn("jdbc:mysql://localhost:3306/testdb");
+
+    TracingSqlLogger.REMOTE_ENDPOINTS.get(connection).apply(span, true);
+    TracingSqlLogger.REMOTE_ENDPOINTS.get(connection).apply(span, true);
+
+    verify(span, times(2)).remoteServiceName("mysql-testdb");
+    verify(span, times(2)).remoteIpAndPort("localhost", 3306);
+    verify(connection).getMetaData();
+  }
+
+  @Test void remoteEndpoints_doesntCacheFailure() throws SQLException {
+    Connection connection = mock(Connection.class);
+    when(connection.getMetaData()).thenThrow(new SQLException());
+
+    assertThat(TracingSqlLogger.REMOTE_ENDPOINTS.get(connection)).isNull();
+    assertThat(TracingSqlLogger.REMOTE_ENDPOINTS.get(connection)).isNull();
+
+    verify(connection, times(2)).getMetaData();
+  }
+
   @Test void parseServerIpAndPort_invalid() {
     TracingSqlLogger.parseServerIpAndPort("jobc", span, false);
 
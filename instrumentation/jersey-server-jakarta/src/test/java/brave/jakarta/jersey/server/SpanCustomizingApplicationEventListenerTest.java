@@ -9,6 +9,7 @@ import java.net.URI;
 import java.util.Arrays;
 import org.glassfish.jersey.server.ContainerRequest;
 import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.ResourceMethod;
 import org.glassfish.jersey.server.monitoring.RequestEvent;
 import org.glassfish.jersey.uri.PathTemplate;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +21,8 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -201,6 +204,36 @@ public class SpanCustomizingApplicationEventListenerTest {
       .isEqualTo("/nested/items/{itemId}");
   }
 
+  @Test void route_cachedByResourceMethod() {
+    setBaseUri("/base");
+    when(uriInfo.getMatchedResourceMethod()).thenReturn(mock(ResourceMethod.class));
+    when(uriInfo.getMatchedTemplates()).thenReturn(Arrays.asList(
+      new PathTemplate("/items/{itemId}"),
+      new PathTemplate("/nested")
+    ));
+
+    String route = SpanCustomizingApplicationEventListener.route(request);
+    assertThat(route).isEqualTo("/base/nested/items/{itemId}");
+    assertThat(SpanCustomizingApplicationEventListener.route(request)).isSameAs(route);
+
+    verify(uriInfo, times(1)).getMatchedTemplates();
+  }
+
+  @Test void route_cachedByResourceMethod_checksBasePath() {
+    when(uriInfo.getMatchedResourceMethod()).thenReturn(mock(ResourceMethod.class));
+    when(uriInfo.getMatchedTemplates()).thenReturn(Arrays.asList(
+      new PathTemplate("/items/{itemId}")
+    ));
+
+    setBaseUri("/v1");
+    assertThat(SpanCustomizingApplicationEventListener.route(request))
+      .isEqualTo("/v1/items/{itemId}");
+
+    setBaseUri("/v2");
+    assertThat(SpanCustomizingApplicationEventListener.route(request))
+      .isEqualTo("/v2/items/{itemId}");
+  }
+
   void setBaseUri(String path) {
     when(uriInfo.getBaseUri()).thenReturn(URI.create(path));
   }
@@ -5,6 +5,7 @@
 package brave.jersey.server;
 
 import brave.SpanCustomizer;
+import brave.http.HttpRouteCache;
 import brave.internal.Nullable;
 import java.util.List;
 import javax.inject.Inject;
@@ -13,6 +14,7 @@ import javax.ws.rs.ext.Provider;
 import org.glassfish.jersey.server.ContainerRequest;
 import org.glassfish.jersey.server.ExtendedUriInfo;
 import org.glassfish.jersey.server.internal.process.MappableException;
+import org.glassfish.jersey.server.model.ResourceMethod;
 import org.glassfish.jersey.server.monitoring.ApplicationEvent;
 import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
 import org.glassfish.jersey.server.monitoring.RequestEvent;
@@ -39,6 +41,9 @@ public class SpanCustomizingApplicationEventListener
     return new SpanCustomizingApplicationEventListener(parser);
   }
 
+  /** Caches routes by the matched resource method, as building them allocates. */
+  static final HttpRouteCache ROUTES = HttpRouteCache.create(1024);
+
   final EventParser parser;
 
   @Inject SpanCustomizingApplicationEventListener(EventParser parser) {
@@ -90,9 +95,21 @@ public class SpanCustomizingApplicationEventListener
    * {@link org.glassfish.jersey.server.internal.routing.RoutingContext#pushTemplates(UriTemplate,
    * UriTemplate)}. This code skips redundant slashes from either source caused by Path("/") or
    * Path("").
+   *
+   * <p>As templates are the same each time a resource method matches, the result is cached by it.
    */
   @Nullable static String route(ContainerRequest request) {
     ExtendedUriInfo uriInfo = request.getUriInfo();
+    ResourceMethod method = uriInfo.getMatchedResourceMethod();
+    // Sub-resource locators can reach the same method by different paths: don't cache those.
+    if (method == null || !uriInfo.getMatchedResourceLocators().isEmpty()) return route(uriInfo);
+    String basePath = uriInfo.getBaseUri().getPath();
+    String result = ROUTES.route(method, basePath);
+    if (result != null) return result;
+    return ROUTES.putRoute(method, basePath, route(uriInfo));
+  }
+
+  static String route(ExtendedUriInfo uriInfo) {
     List<UriTemplate> templates = uriInfo.getMatchedTemplates();
     int templateCount = templates.size();
     if (templateCount == 0) return "";
@@ -260,6 +260,14 @@ public class JmsTracingTest extends ITJms {
       .containsOnlyKeys(MessageUtil.JMSXDELIVERYCOUNT); /* always added by getPropertyNames() */
   }
 
+  @Test void nextSpan_should_not_clear_propagation_headers_when_configured() {
+    jmsTracing = JmsTracing.newBuilder(messagingTracing).clearTraceIdProperties(false).build();
+    setStringProperty(message, "b3", B3SingleFormat.writeB3SingleFormat(parent));
+
+    assertChildOf(jmsTracing.nextSpan(message).context(), parent);
+    assertThat(ITJms.propertiesToMap(message)).containsKey("b3");
+  }
+
   @Test void nextSpan_should_retain_baggage_headers() throws JMSException {
     message.setStringProperty(BAGGAGE_FIELD_KEY, "");
 
@@ -81,6 +81,24 @@ public class TracingJMSConsumerTest extends ITJms {
     testSpanHandler.takeRemoteSpan(CONSUMER);
   }
 
+  @Test void receive_retains_trace_properties_when_not_clearing() throws Exception {
+    jmsTracing = JmsTracing.newBuilder(messagingTracing).clearTraceIdProperties(false).build();
+    tracingJMSConsumer = new TracingJMSConsumer(delegate, null, jmsTracing);
+    ActiveMQTextMessage message = new ActiveMQTextMessage(clientSession);
+    String b3 = B3SingleFormat.writeB3SingleFormatWithoutParentId(parent);
+    message.setStringProperty("b3", b3);
+
+    receive(message);
+
+    MutableSpan consumer = testSpanHandler.takeRemoteSpan(CONSUMER);
+    assertChildOf(consumer, parent);
+    assertThat(message.getStringProperty("b3")).isEqualTo(b3);
+
+    // Processing continues from the consumer span, not the producer in the properties
+    assertThat(jmsTracing.nextSpan(message).context().parentIdString())
+      .isEqualTo(consumer.id());
+  }
+
   void receive(Message message) {
     when(delegate.receive()).thenReturn(message);
     tracingJMSConsumer.receive();
@@ -9,10 +9,12 @@ import brave.SpanCustomizer;
 import brave.Tracer;
 import brave.Tracing;
 import brave.internal.Nullable;
+import brave.internal.WeakIdentityMap;
 import brave.messaging.MessagingRequest;
 import brave.messaging.MessagingTracing;
 import brave.propagation.Propagation;
 import brave.propagation.Propagation.Getter;
+import brave.propagation.TraceContext;
 import brave.propagation.TraceContext.Extractor;
 import brave.propagation.TraceContext.Injector;
 import brave.propagation.TraceContextOrSamplingFlags;
@@ -97,6 +99,7 @@ public final class JmsTracing {
   public static final class Builder {
     final MessagingTracing messagingTracing;
     String remoteServiceName = "jms";
+    boolean clearTraceIdProperties = true;
 
     Builder(MessagingTracing messagingTracing) {
       if (messagingTracing == null) throw new NullPointerException("messagingTracing == null");
@@ -111,6 +114,27 @@ public final class JmsTracing {
       return this;
     }
 
+    /**
+     * When false, trace ID properties are left on received messages, and the consumer span's
+     * context is remembered per message instead of being written back as properties. Defaults to
+     * true.
+     *
+     * <p>The JMS spec only allows writing properties of a received message after {@link
+     * Message#clearProperties()}, so clearing trace ID properties implies copying and re-setting
+     * all others. Set this to false when messages have many properties and nothing downstream reads
+     * trace ID properties directly. Note that such properties will then reflect the producer, not
+     * the consumer.
+     *
+     * <p>Either way, {@link #nextSpan(Message)} and {@link #messageListener(MessageListener,
+     * boolean) listeners} continue the trace of the consumer span.
+     *
+     * @since 6.4
+     */
+    public Builder clearTraceIdProperties(boolean clearTraceIdProperties) {
+      this.clearTraceIdProperties = clearTraceIdProperties;
+      return this;
+    }
+
     public JmsTracing build() {
       return new JmsTracing(this);
     }
@@ -126,6 +150,11 @@ public final class JmsTracing {
   final SamplerFunction<MessagingRequest> producerSampler, consumerSampler;
   final String remoteServiceName;
   final Set<String> traceIdProperties;
+  /**
+   * Consumer span context of received messages, so that trace ID properties needn't be rewritten.
+   * Null when clearing trace ID properties.
+   */
+  @Nullable final WeakIdentityMap<Message, TraceContext> receivedContexts;
 
   // raw types to avoid accessing JMS 2.0 types unless we are sure they are present
   // Caching here instead of deferring further as there is overhead creating extractors and
@@ -153,6 +182,8 @@ public final class JmsTracing {
     this.consumerSampler = builder.messagingTracing.consumerSampler();
     this.remoteServiceName = builder.remoteServiceName;
     this.traceIdProperties = new LinkedHashSet<String>(propagation.keys());
+    this.receivedContexts = builder.clearTraceIdProperties ? null
+      : new WeakIdentityMap<Message, TraceContext>();
   }
 
   public Connection connection(Connection connection) {
@@ -241,6 +272,12 @@ public final class JmsTracing {
   <R> TraceContextOrSamplingFlags extractAndClearTraceIdProperties(
     Extractor<R> extractor, R request, Message message
   ) {
+    if (receivedContexts != null) {
+      // Trace ID properties are left in place, so prefer the context of a traced receive
+      TraceContext received = receivedContexts.get(message);
+      if (received != null) return TraceContextOrSamplingFlags.create(received);
+      return extractor.extract(request);
+    }
     TraceContextOrSamplingFlags extracted = extractor.extract(request);
     // Clear propagation regardless of extraction as JMS requires clearing as a means to make the
     // message writable
@@ -254,12 +291,8 @@ public final class JmsTracing {
     MessagingRequest request,
     TraceContextOrSamplingFlags extracted
   ) {
-    Boolean sampled = extracted.sampled();
-    // only recreate the context if the messaging sampler made a decision
-    if (sampled == null && (sampled = sampler.trySample(request)) != null) {
-      extracted = extracted.sampled(sampled.booleanValue());
-    }
-    return tracer.nextSpan(extracted);
+    // the messaging sampler is only invoked if there was no sampling decision extracted
+    return tracer.nextSpan(sampler, request, extracted);
   }
 
   void tagQueueOrTopic(MessagingRequest request, SpanCustomizer span) {
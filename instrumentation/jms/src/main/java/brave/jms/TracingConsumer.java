@@ -52,7 +52,11 @@ abstract class TracingConsumer<C> {
       long timestamp = tracing.clock(span.context()).currentTimeMicroseconds();
       span.start(timestamp).finish(timestamp);
     }
-    injector.inject(span.context(), request);
+    if (jmsTracing.receivedContexts != null) {
+      jmsTracing.receivedContexts.put(message, span.context());
+    } else {
+      injector.inject(span.context(), request);
+    }
   }
 
   abstract @Nullable Destination destination(Message message);
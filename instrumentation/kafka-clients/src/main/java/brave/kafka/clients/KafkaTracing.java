@@ -209,12 +209,8 @@ public final class KafkaTracing {
     MessagingRequest request,
     TraceContextOrSamplingFlags extracted
   ) {
-    Boolean sampled = extracted.sampled();
-    // only recreate the context if the messaging sampler made a decision
-    if (sampled == null && (sampled = sampler.trySample(request)) != null) {
-      extracted = extracted.sampled(sampled.booleanValue());
-    }
-    return tracer.nextSpan(extracted);
+    // the messaging sampler is only invoked if there was no sampling decision extracted
+    return tracer.nextSpan(sampler, request, extracted);
   }
 
   // We can't just skip clearing headers we use because we might inject B3 single, yet have stale B3
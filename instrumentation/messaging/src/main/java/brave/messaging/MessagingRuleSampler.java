@@ -6,9 +6,17 @@ package brave.messaging;
 
 import brave.Tracing;
 import brave.sampler.Matcher;
+import brave.sampler.Matchers;
 import brave.sampler.ParameterizedSampler;
+import brave.sampler.ReloadableSamplerFunction;
 import brave.sampler.Sampler;
 import brave.sampler.SamplerFunction;
+import brave.sampler.SamplerRuleReader;
+import brave.sampler.SamplerRuleReader.RuleParser;
+import java.util.Map;
+
+import static brave.messaging.MessagingRequestMatchers.channelKindEquals;
+import static brave.messaging.MessagingRequestMatchers.channelNameEquals;
 
 /**
  * Assigns sample rates to messaging requests.
@@ -31,6 +39,10 @@ import brave.sampler.SamplerFunction;
  * <h3>Implementation notes</h3>
  * Be careful when implementing matchers as {@link MessagingRequest} operations can return null.
  *
+ * <p>A built sampler is immutable. To change rules at runtime, wrap it in a {@link
+ * ReloadableSamplerFunction}. Rules can be read from text with {@link SamplerRuleReader} and
+ * {@link #ruleParser()}.
+ *
  * @see MessagingRequestMatchers
  * @since 5.9
  */
@@ -42,6 +54,38 @@ public final class MessagingRuleSampler implements SamplerFunction<MessagingRequ
     return new Builder();
   }
 
+  /**
+   * Parses rules in the format "[{channelKind} ]{channelName}" for {@link SamplerRuleReader}. Use
+   * "*" in place of the channel name to match any channel of that kind.
+   *
+   * <p>Ex. "alerts" is {@link MessagingRequestMatchers#channelNameEquals(String)
+   * channelNameEquals("alerts")}, "queue *" is {@link
+   * MessagingRequestMatchers#channelKindEquals(String) channelKindEquals("queue")} and "queue
+   * alerts" is both.
+   *
+   * @since 6.4
+   */
+  public static RuleParser<MessagingRequest> ruleParser() {
+    return MessagingRuleParser.INSTANCE;
+  }
+
+  enum MessagingRuleParser implements RuleParser<MessagingRequest> {
+    INSTANCE;
+
+    @Override public Matcher<MessagingRequest> parseRule(String rule) {
+      int space = rule.indexOf(' ');
+      if (space == -1) return channelNameEquals(rule);
+      String channelKind = rule.substring(0, space);
+      String channelName = rule.substring(space + 1).trim();
+      if ("*".equals(channelName)) return channelKindEquals(channelKind);
+      return Matchers.and(channelKindEquals(channelKind), channelNameEquals(channelName));
+    }
+
+    @Override public String toString() {
+      return "MessagingRuleParser";
+    }
+  }
+
   /** @since 5.9 */
   public static final class Builder {
     final ParameterizedSampler.Builder<MessagingRequest> delegate =
@@ -58,6 +102,19 @@ public final class MessagingRuleSampler implements SamplerFunction<MessagingRequ
       return this;
     }
 
+    /**
+     * Adds or replaces rules in iteration order, such as those read by {@link SamplerRuleReader}.
+     *
+     * @since 6.4
+     */
+    public Builder putAllRules(Map<Matcher<MessagingRequest>, ? extends Sampler> rules) {
+      if (rules == null) throw new NullPointerException("rules == null");
+      for (Map.Entry<Matcher<MessagingRequest>, ? extends Sampler> rule : rules.entrySet()) {
+        putRule(rule.getKey(), rule.getValue());
+      }
+      return this;
+    }
+
     /**
      * Adds or replaces the sampler for the matcher.
      *
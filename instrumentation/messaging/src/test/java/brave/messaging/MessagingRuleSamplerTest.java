@@ -4,9 +4,13 @@
  */
 package brave.messaging;
 
+import brave.sampler.DecisionCountingSampler;
 import brave.sampler.Matcher;
 import brave.sampler.RateLimitingSampler;
+import brave.sampler.ReloadableSamplerFunction;
 import brave.sampler.Sampler;
+import brave.sampler.SamplerRuleReader;
+import java.io.StringReader;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
@@ -14,7 +18,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static brave.messaging.MessagingRequestMatchers.channelKindEquals;
+import static brave.messaging.MessagingRequestMatchers.channelNameEquals;
 import static brave.messaging.MessagingRequestMatchers.operationEquals;
+import static brave.sampler.Matchers.and;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
@@ -101,6 +108,31 @@ public class MessagingRuleSamplerTest {
       .isNull();
   }
 
+  @Test void ruleParser() {
+    assertThat(MessagingRuleSampler.ruleParser().parseRule("alerts"))
+      .isEqualTo(channelNameEquals("alerts"));
+    assertThat(MessagingRuleSampler.ruleParser().parseRule("queue *"))
+      .isEqualTo(channelKindEquals("queue"));
+    assertThat(MessagingRuleSampler.ruleParser().parseRule("queue alerts"))
+      .hasToString(and(channelKindEquals("queue"), channelNameEquals("alerts")).toString());
+  }
+
+  @Test void reloadRules() throws Exception {
+    Map<Matcher<MessagingRequest>, DecisionCountingSampler> rules = SamplerRuleReader.read(
+      new StringReader("alerts = 0.0\n"), MessagingRuleSampler.ruleParser());
+    ReloadableSamplerFunction<MessagingRequest> sampler = ReloadableSamplerFunction.create(
+      MessagingRuleSampler.newBuilder().putAllRules(rules).build());
+
+    when(request.channelName()).thenReturn("alerts");
+    assertThat(sampler.trySample(request)).isFalse();
+    assertThat(rules.get(channelNameEquals("alerts")).unsampledCount()).isEqualTo(1);
+
+    sampler.set(MessagingRuleSampler.newBuilder().putAllRules(SamplerRuleReader.read(
+      new StringReader("alerts = 1.0\n"), MessagingRuleSampler.ruleParser())).build());
+
+    assertThat(sampler.trySample(request)).isTrue();
+  }
+
   // empty may sound unintuitive, but it allows use of the same type when always deferring
   @Test void noRulesOk() {
     MessagingRuleSampler.newBuilder().build();
@@ -0,0 +1,93 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.mongodb;
+
+import brave.Span;
+import brave.internal.Nullable;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds the span of each command between its started and completed events, which can happen on
+ * different threads when using the asynchronous or reactive drivers.
+ *
+ * <p>This is a fixed-size, open-addressed table keyed by a primitive long, so that neither keys
+ * nor table growth allocate. A key can occupy one of {@link #MAX_PROBES} slots after its home slot.
+ * When all of these are in use, the command in the home slot is evicted and its span {@linkplain
+ * Span#abandon() abandoned}. This bounds memory when completion events are lost, such as when the
+ * driver closes a connection without notifying listeners.
+ */
+final class InFlightCommands {
+  static final int MAX_PROBES = 8;
+
+  /**
+   * Returns a key that is unique while the command is in flight.
+   *
+   * <p>Request IDs are generated by a JVM-wide counter, but can wrap. Mixing in the connection ID
+   * means a wrapped request ID would only collide with a command in flight on the same connection.
+   */
+  static long key(long localConnectionId, int requestId) {
+    return (localConnectionId << 32) | (requestId & 0xffffffffL);
+  }
+
+  final AtomicReferenceArray<Entry> entries;
+  final int mask;
+
+  /** @param capacity a power of two */
+  InFlightCommands(int capacity) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+    }
+    this.entries = new AtomicReferenceArray<Entry>(capacity);
+    this.mask = capacity - 1;
+  }
+
+  void put(long key, Span span) {
+    Entry entry = new Entry(key, span);
+    int home = index(key);
+    for (int i = 0; i < MAX_PROBES; i++) {
+      if (entries.compareAndSet((home + i) & mask, null, entry)) return;
+    }
+    Entry evicted = entries.getAndSet(home, entry);
+    if (evicted != null) evicted.span.abandon();
+  }
+
+  /** Returns the span of the command with this key, or null if it was never added or evicted. */
+  @Nullable Span remove(long key) {
+    int home = index(key);
+    for (int i = 0; i < MAX_PROBES; i++) {
+      int index = (home + i) & mask;
+      Entry entry = entries.get(index);
+      // Removal leaves a gap, so we continue probing instead of stopping at the first empty slot.
+      if (entry != null && entry.key == key && entries.compareAndSet(index, entry, null)) {
+        return entry.span;
+      }
+    }
+    return null;
+  }
+
+  int index(long key) {
+    // Spread the bits, as request IDs are sequential and connection IDs are in the upper half.
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  @Override public String toString() {
+    int size = 0;
+    for (int i = 0, length = entries.length(); i < length; i++) {
+      if (entries.get(i) != null) size++;
+    }
+    return "InFlightCommands{size=" + size + ", capacity=" + entries.length() + "}";
+  }
+
+  static final class Entry {
+    final long key;
+    final Span span;
+
+    Entry(long key, Span span) {
+      this.key = key;
+      this.span = span;
+    }
+  }
+}
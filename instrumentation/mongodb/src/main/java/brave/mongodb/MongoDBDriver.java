@@ -5,7 +5,9 @@
 package brave.mongodb;
 
 import brave.Span;
+import brave.internal.Nullable;
 import com.mongodb.ServerAddress;
+import com.mongodb.connection.ConnectionId;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
@@ -21,12 +23,31 @@ import static brave.internal.Throwables.propagateIfFatal;
 class MongoDBDriver {
   private static final MongoDBDriver MONGO_DB_DRIVER = findMongoDBDriver();
 
+  /** {@link ConnectionId#getLocalValue()} returns int in 3.x and long in 5.x. */
+  @Nullable final MethodHandle getLocalValue;
+
   /** adds the remote IP and port to the span */
   void setRemoteIpAndPort(Span span, ServerAddress address) {
     // default to no-op instead of crash on future drift
   }
 
+  /** Returns the client-generated ID of the connection, or zero if unknown. */
+  long localConnectionId(ConnectionId connectionId) {
+    if (getLocalValue == null) return 0L;
+    try {
+      return (long) getLocalValue.invokeExact(connectionId);
+    } catch (Throwable t) {
+      propagateIfFatal(t);
+      return 0L;
+    }
+  }
+
   MongoDBDriver() {
+    this(null);
+  }
+
+  MongoDBDriver(@Nullable MethodHandle getLocalValue) {
+    this.getLocalValue = getLocalValue;
   }
 
   public static MongoDBDriver get() {
@@ -43,31 +64,51 @@ class MongoDBDriver {
    */
   private static MongoDBDriver findMongoDBDriver() {
     MethodHandles.Lookup lookup = MethodHandles.lookup();
+    MethodHandle getLocalValue = findGetLocalValue(lookup);
     try {
       MethodHandle getHost =
         lookup.findVirtual(ServerAddress.class, "getHost", MethodType.methodType(String.class));
       MethodHandle getPort =
         lookup.findVirtual(ServerAddress.class, "getPort", MethodType.methodType(int.class));
-      return new Driver5x(getHost, getPort);
+      return new Driver5x(getLocalValue, getHost, getPort);
     } catch (NoSuchMethodException | IllegalAccessException e) {
       // not 5.x
     }
     try {
       MethodHandle getSocketAddress = lookup.findVirtual(ServerAddress.class, "getSocketAddress",
         MethodType.methodType(InetSocketAddress.class));
-      return new Driver3x(getSocketAddress);
+      return new Driver3x(getLocalValue, getSocketAddress);
     } catch (NoSuchMethodException | IllegalAccessException e) {
       // unknown version
     }
 
     // Unknown
-    return new MongoDBDriver();
+    return new MongoDBDriver(getLocalValue);
+  }
+
+  /** Returns a handle of type {@code (ConnectionId)long} or null if unknown. */
+  @Nullable static MethodHandle findGetLocalValue(MethodHandles.Lookup lookup) {
+    MethodType longType = MethodType.methodType(long.class, ConnectionId.class);
+    try {
+      return lookup.findVirtual(ConnectionId.class, "getLocalValue",
+        MethodType.methodType(long.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      // not 5.x
+    }
+    try {
+      return lookup.findVirtual(ConnectionId.class, "getLocalValue",
+        MethodType.methodType(int.class)).asType(longType);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      // unknown version
+    }
+    return null;
   }
 
   static final class Driver3x extends MongoDBDriver {
     final MethodHandle getSocketAddress;
 
-    Driver3x(MethodHandle getSocketAddress) {
+    Driver3x(MethodHandle getLocalValue, MethodHandle getSocketAddress) {
+      super(getLocalValue);
       this.getSocketAddress = getSocketAddress;
     }
 
@@ -85,7 +126,8 @@ class MongoDBDriver {
   static final class Driver5x extends MongoDBDriver {
     final MethodHandle getHost, getPort;
 
-    Driver5x(MethodHandle getHost, MethodHandle getPort) {
+    Driver5x(MethodHandle getLocalValue, MethodHandle getHost, MethodHandle getPort) {
+      super(getLocalValue);
       this.getHost = getHost;
       this.getPort = getPort;
     }
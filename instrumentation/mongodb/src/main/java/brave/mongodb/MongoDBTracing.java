@@ -14,8 +14,8 @@ import com.mongodb.event.CommandListener;
  * on the {@link com.mongodb.MongoClientOptions} or {@link com.mongodb.MongoClientSettings} object
  * that is used to create the {@code MongoClient} to be instrumented.
  *
- * As of now, this instrumentation can only be used with the synchronous MongoDB driver. Do not use
- * it with the asynchronous or reactive drivers as tracing data will be incorrect.
+ * <p>This works with the synchronous, asynchronous and reactive drivers, as spans are correlated by
+ * request ID instead of by thread.
  */
 public final class MongoDBTracing {
   public static MongoDBTracing create(final Tracing tracing) {
@@ -5,12 +5,13 @@
 package brave.mongodb;
 
 import brave.Span;
+import brave.Tracer;
 import brave.internal.Nullable;
-import brave.propagation.ThreadLocalSpan;
 import com.mongodb.MongoSocketException;
 import com.mongodb.connection.ConnectionDescription;
 import com.mongodb.connection.ConnectionId;
 import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandEvent;
 import com.mongodb.event.CommandListener;
 import com.mongodb.event.CommandStartedEvent;
 import com.mongodb.event.CommandSucceededEvent;
@@ -37,26 +38,32 @@ final class TraceMongoCommandListener implements CommandListener {
     "insert", "update", "collMod", "compact", "convertToCapped", "create", "createIndexes", "drop",
     "dropIndexes", "killCursors", "listIndexes", "reIndex"));
 
-  final ThreadLocalSpan threadLocalSpan;
+  /** Commands in flight per listener. This is generous, as a connection has one at a time. */
+  static final int MAX_IN_FLIGHT_COMMANDS = 4096;
+
+  final Tracer tracer;
+  final InFlightCommands inFlightCommands;
 
   TraceMongoCommandListener(MongoDBTracing mongoDBTracing) {
-    this(ThreadLocalSpan.create(mongoDBTracing.tracing.tracer()));
+    this(mongoDBTracing.tracing.tracer(), new InFlightCommands(MAX_IN_FLIGHT_COMMANDS));
   }
 
-  TraceMongoCommandListener(ThreadLocalSpan threadLocalSpan) {
-    this.threadLocalSpan = threadLocalSpan;
+  TraceMongoCommandListener(Tracer tracer, InFlightCommands inFlightCommands) {
+    this.tracer = tracer;
+    this.inFlightCommands = inFlightCommands;
   }
 
   /**
-   * Uses {@link ThreadLocalSpan} as there's no attribute namespace shared between callbacks, but
-   * all callbacks happen on the same thread.
+   * There's no attribute namespace shared between callbacks, and asynchronous drivers complete
+   * commands on a different thread than they started on. Hence, we correlate callbacks by their
+   * request and connection IDs instead of using {@link brave.propagation.ThreadLocalSpan}.
    */
   @Override public void commandStarted(CommandStartedEvent event) {
     String databaseName = event.getDatabaseName();
     if ("admin".equals(databaseName)) return; // don't trace commands like "endSessions"
 
-    Span span = threadLocalSpan.next();
-    if (span == null || span.isNoop()) return;
+    Span span = tracer.nextSpan();
+    if (span.isNoop()) return;
 
     String commandName = event.getCommandName();
     BsonDocument command = event.getCommand();
@@ -82,21 +89,32 @@ final class TraceMongoCommandListener implements CommandListener {
     }
 
     span.start();
+    inFlightCommands.put(key(event), span);
   }
 
   @Override public void commandSucceeded(CommandSucceededEvent event) {
-    Span span = threadLocalSpan.remove();
+    Span span = inFlightCommands.remove(key(event));
     if (span == null) return;
     span.finish();
   }
 
   @Override public void commandFailed(CommandFailedEvent event) {
-    Span span = threadLocalSpan.remove();
+    Span span = inFlightCommands.remove(key(event));
     if (span == null) return;
     span.error(event.getThrowable());
     span.finish();
   }
 
+  static long key(CommandEvent event) {
+    long localConnectionId = 0L;
+    ConnectionDescription connectionDescription = event.getConnectionDescription();
+    if (connectionDescription != null && connectionDescription.getConnectionId() != null) {
+      localConnectionId =
+        MongoDBDriver.get().localConnectionId(connectionDescription.getConnectionId());
+    }
+    return InFlightCommands.key(localConnectionId, event.getRequestId());
+  }
+
   @Nullable String getCollectionName(BsonDocument command, String commandName) {
     if (COMMANDS_WITH_COLLECTION_NAME.contains(commandName)) {
       String collectionName = getNonEmptyBsonString(command.get(commandName));
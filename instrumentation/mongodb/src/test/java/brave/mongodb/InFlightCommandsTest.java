@@ -0,0 +1,87 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.mongodb;
+
+import brave.Span;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static brave.mongodb.InFlightCommands.MAX_PROBES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class InFlightCommandsTest {
+  @Mock Span span, otherSpan;
+  InFlightCommands inFlightCommands = new InFlightCommands(16);
+
+  @Test void key() {
+    assertThat(InFlightCommands.key(1L, 2)).isEqualTo(0x100000002L);
+    assertThat(InFlightCommands.key(1L, -1)).isEqualTo(0x1ffffffffL);
+  }
+
+  @Test void remove() {
+    inFlightCommands.put(1L, span);
+    inFlightCommands.put(2L, otherSpan);
+
+    assertThat(inFlightCommands.remove(2L)).isSameAs(otherSpan);
+    assertThat(inFlightCommands.remove(1L)).isSameAs(span);
+    assertThat(inFlightCommands.remove(1L)).isNull();
+    assertThat(inFlightCommands).hasToString("InFlightCommands{size=0, capacity=16}");
+  }
+
+  @Test void remove_unknown() {
+    inFlightCommands.put(1L, span);
+
+    assertThat(inFlightCommands.remove(2L)).isNull();
+    assertThat(inFlightCommands).hasToString("InFlightCommands{size=1, capacity=16}");
+  }
+
+  /** Removing a key shouldn't hide keys that probed past it. */
+  @Test void remove_afterGap() {
+    inFlightCommands = new InFlightCommands(MAX_PROBES);
+    Span[] spans = new Span[MAX_PROBES];
+    for (int i = 0; i < MAX_PROBES; i++) {
+      inFlightCommands.put(i, spans[i] = mock(Span.class));
+    }
+
+    for (int i = 0; i < MAX_PROBES; i++) {
+      assertThat(inFlightCommands.remove(i)).isSameAs(spans[i]);
+    }
+  }
+
+  @Test void put_evictsAndAbandonsWhenFull() {
+    inFlightCommands = new InFlightCommands(MAX_PROBES);
+    Span[] spans = new Span[MAX_PROBES];
+    for (int i = 0; i < MAX_PROBES; i++) {
+      inFlightCommands.put(i, spans[i] = mock(Span.class));
+    }
+
+    inFlightCommands.put(MAX_PROBES, span);
+
+    int evicted = -1;
+    for (int i = 0; i < MAX_PROBES; i++) {
+      if (inFlightCommands.remove(i) == null) {
+        evicted = i;
+      } else {
+        verifyNoInteractions(spans[i]);
+      }
+    }
+    assertThat(evicted).isNotEqualTo(-1);
+    verify(spans[evicted]).abandon();
+    assertThat(inFlightCommands.remove(MAX_PROBES)).isSameAs(span);
+  }
+
+  @Test void capacity_powerOfTwo() {
+    assertThatThrownBy(() -> new InFlightCommands(10))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("capacity must be a power of two: 10");
+  }
+}
@@ -6,11 +6,15 @@ package brave.mongodb;
 
 import brave.Span;
 import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ServerId;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -19,6 +23,14 @@ public class MongoDBDriverTest {
   @Mock ServerAddress serverAddress;
   @Mock Span span;
 
+  @Test void localConnectionId() {
+    ConnectionId connectionId =
+      new ConnectionId(new ServerId(new ClusterId(), new ServerAddress()));
+
+    assertThat(MongoDBDriver.get().localConnectionId(connectionId))
+      .isEqualTo(connectionId.getLocalValue());
+  }
+
   @Test void setRemoteIpAndPort() {
     when(serverAddress.getHost()).thenReturn("127.0.0.1");
     when(serverAddress.getPort()).thenReturn(27017);
@@ -38,6 +38,6 @@ public class MongoDBTracingTest {
 
     CommandListener listener = MongoDBTracing.newBuilder(tracing).build().commandListener();
     assertThat(listener).isInstanceOf(TraceMongoCommandListener.class);
-    assertThat(listener).extracting("threadLocalSpan").extracting("tracer").isEqualTo(tracer);
+    assertThat(listener).extracting("tracer").isEqualTo(tracer);
   }
 }
@@ -5,7 +5,11 @@
 package brave.mongodb;
 
 import brave.Span;
-import brave.propagation.ThreadLocalSpan;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.propagation.StrictCurrentTraceContext;
+import brave.test.TestSpanHandler;
 import com.mongodb.ServerAddress;
 import com.mongodb.connection.ClusterId;
 import com.mongodb.connection.ConnectionDescription;
@@ -14,10 +18,13 @@ import com.mongodb.event.CommandFailedEvent;
 import com.mongodb.event.CommandStartedEvent;
 import com.mongodb.event.CommandSucceededEvent;
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.bson.BsonBoolean;
 import org.bson.BsonDocument;
 import org.bson.BsonElement;
 import org.bson.BsonString;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,6 +34,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static brave.mongodb.TraceMongoCommandListener.getNonEmptyBsonString;
 import static brave.mongodb.TraceMongoCommandListener.getSpanName;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
@@ -46,13 +54,26 @@ public class TraceMongoCommandListenerTest {
 
   static Throwable EXCEPTION = new RuntimeException("Error occurred");
 
-  @Mock ThreadLocalSpan threadLocalSpan;
+  @Mock Tracer tracer;
   @Mock Span span;
 
+  ConnectionDescription connectionDescription = createConnectionDescription();
   TraceMongoCommandListener listener;
 
+  StrictCurrentTraceContext currentTraceContext = StrictCurrentTraceContext.create();
+  TestSpanHandler spans = new TestSpanHandler();
+  Tracing tracing = Tracing.newBuilder()
+    .currentTraceContext(currentTraceContext)
+    .addSpanHandler(spans)
+    .build();
+
   @BeforeEach void setUp() {
-    listener = new TraceMongoCommandListener(threadLocalSpan);
+    listener = new TraceMongoCommandListener(tracer, new InFlightCommands(16));
+  }
+
+  @AfterEach void close() {
+    tracing.close();
+    currentTraceContext.close();
   }
 
   @Test void getCollectionName_missingCommand() {
@@ -126,14 +147,14 @@ public class TraceMongoCommandListenerTest {
   }
 
   @Test void commandStarted_noopSpan() {
-    when(threadLocalSpan.next()).thenReturn(span);
+    when(tracer.nextSpan()).thenReturn(span);
     when(span.isNoop()).thenReturn(true);
 
     listener.commandStarted(createCommandStartedEvent());
 
-    verify(threadLocalSpan).next();
+    verify(tracer).nextSpan();
     verify(span).isNoop();
-    verifyNoMoreInteractions(threadLocalSpan, span);
+    verifyNoMoreInteractions(tracer, span);
   }
 
   @Test void commandStarted_normal() {
@@ -142,36 +163,30 @@ public class TraceMongoCommandListenerTest {
     listener.commandStarted(createCommandStartedEvent());
 
     verifyCommandStartedMocks();
-    verifyNoMoreInteractions(threadLocalSpan, span);
+    verifyNoMoreInteractions(tracer, span);
   }
 
   @Test void commandSucceeded_withoutCommandStarted() {
     listener.commandSucceeded(createCommandSucceededEvent());
 
-    verify(threadLocalSpan).remove();
-    verifyNoMoreInteractions(threadLocalSpan);
+    verifyNoMoreInteractions(tracer);
   }
 
   @Test void commandSucceeded_normal() {
     setupCommandStartedMocks();
 
     listener.commandStarted(createCommandStartedEvent());
-
-    when(threadLocalSpan.remove()).thenReturn(span);
-
     listener.commandSucceeded(createCommandSucceededEvent());
 
     verifyCommandStartedMocks();
-    verify(threadLocalSpan).remove();
     verify(span).finish();
-    verifyNoMoreInteractions(threadLocalSpan);
+    verifyNoMoreInteractions(tracer, span);
   }
 
   @Test void commandFailed_withoutCommandStarted() {
     listener.commandFailed(createCommandFailedEvent(EXCEPTION));
 
-    verify(threadLocalSpan).remove();
-    verifyNoMoreInteractions(threadLocalSpan);
+    verifyNoMoreInteractions(tracer);
   }
 
   @Test void commandFailed_normal() {
@@ -179,20 +194,70 @@ public class TraceMongoCommandListenerTest {
 
     listener.commandStarted(createCommandStartedEvent());
 
-    when(threadLocalSpan.remove()).thenReturn(span);
     when(span.error(EXCEPTION)).thenReturn(span);
 
     listener.commandFailed(createCommandFailedEvent(EXCEPTION));
 
     verifyCommandStartedMocks();
-    verify(threadLocalSpan).remove();
     verify(span).error(EXCEPTION);
     verify(span).finish();
-    verifyNoMoreInteractions(threadLocalSpan);
+    verifyNoMoreInteractions(tracer, span);
+  }
+
+  /** Asynchronous drivers complete commands on a different thread than they started on. */
+  @Test void commandSucceeded_differentThread() throws Exception {
+    listener = new TraceMongoCommandListener(tracing.tracer(), new InFlightCommands(16));
+
+    listener.commandStarted(createCommandStartedEvent(1, connectionDescription));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(() -> listener.commandSucceeded(
+        createCommandSucceededEvent(1, connectionDescription))).get();
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(spans.get(0).name()).isEqualTo("insert myCollection");
+  }
+
+  @Test void commandSucceeded_interleaved() {
+    listener = new TraceMongoCommandListener(tracing.tracer(), new InFlightCommands(16));
+    ConnectionDescription otherConnection = createConnectionDescription();
+
+    Span parent1 = tracing.tracer().newTrace(), parent2 = tracing.tracer().newTrace();
+    try (Tracer.SpanInScope scope = tracing.tracer().withSpanInScope(parent1)) {
+      listener.commandStarted(createCommandStartedEvent(1, connectionDescription));
+    }
+    try (Tracer.SpanInScope scope = tracing.tracer().withSpanInScope(parent2)) {
+      listener.commandStarted(createCommandStartedEvent(2, otherConnection));
+    }
+
+    listener.commandFailed(createCommandFailedEvent(2, otherConnection, EXCEPTION));
+    listener.commandSucceeded(createCommandSucceededEvent(1, connectionDescription));
+
+    assertThat(spans).extracting(MutableSpan::traceId, MutableSpan::error).containsExactly(
+      tuple(parent2.context().traceIdString(), EXCEPTION),
+      tuple(parent1.context().traceIdString(), null)
+    );
+  }
+
+  /** Request IDs are only unique per JVM until they wrap, so connection ID is part of the key */
+  @Test void commandSucceeded_sameRequestIdDifferentConnection() {
+    listener = new TraceMongoCommandListener(tracing.tracer(), new InFlightCommands(16));
+    ConnectionDescription otherConnection = createConnectionDescription();
+
+    listener.commandStarted(createCommandStartedEvent(1, connectionDescription));
+    listener.commandSucceeded(createCommandSucceededEvent(1, otherConnection));
+
+    assertThat(spans).isEmpty();
+
+    listener.commandSucceeded(createCommandSucceededEvent(1, connectionDescription));
+
+    assertThat(spans).hasSize(1);
   }
 
   void setupCommandStartedMocks() {
-    when(threadLocalSpan.next()).thenReturn(span);
+    when(tracer.nextSpan()).thenReturn(span);
     when(span.isNoop()).thenReturn(false);
     when(span.name("insert myCollection")).thenReturn(span);
     when(span.kind(Span.Kind.CLIENT)).thenReturn(span);
@@ -205,7 +270,7 @@ public class TraceMongoCommandListenerTest {
   }
 
   void verifyCommandStartedMocks() {
-    verify(threadLocalSpan).next();
+    verify(tracer).nextSpan();
     verify(span).isNoop();
     verify(span).name("insert myCollection");
     verify(span).kind(Span.Kind.CLIENT);
@@ -218,9 +283,14 @@ public class TraceMongoCommandListenerTest {
   }
 
   CommandStartedEvent createCommandStartedEvent() {
+    return createCommandStartedEvent(1, connectionDescription);
+  }
+
+  CommandStartedEvent createCommandStartedEvent(int requestId,
+    ConnectionDescription connectionDescription) {
     CommandStartedEvent event = mock(CommandStartedEvent.class);
-    lenient().when(event.getRequestId()).thenReturn(1);
-    lenient().when(event.getConnectionDescription()).thenReturn(createConnectionDescription());
+    lenient().when(event.getRequestId()).thenReturn(requestId);
+    lenient().when(event.getConnectionDescription()).thenReturn(connectionDescription);
     when(event.getDatabaseName()).thenReturn("dbName");
     lenient().when(event.getCommandName()).thenReturn("insert");
     lenient().when(event.getCommand()).thenReturn(LONG_COMMAND);
@@ -228,11 +298,26 @@ public class TraceMongoCommandListenerTest {
   }
 
   CommandSucceededEvent createCommandSucceededEvent() {
-    return mock(CommandSucceededEvent.class);
+    return createCommandSucceededEvent(1, connectionDescription);
+  }
+
+  CommandSucceededEvent createCommandSucceededEvent(int requestId,
+    ConnectionDescription connectionDescription) {
+    CommandSucceededEvent event = mock(CommandSucceededEvent.class);
+    lenient().when(event.getRequestId()).thenReturn(requestId);
+    lenient().when(event.getConnectionDescription()).thenReturn(connectionDescription);
+    return event;
   }
 
   CommandFailedEvent createCommandFailedEvent(Throwable throwable) {
+    return createCommandFailedEvent(1, connectionDescription, throwable);
+  }
+
+  CommandFailedEvent createCommandFailedEvent(int requestId,
+    ConnectionDescription connectionDescription, Throwable throwable) {
     CommandFailedEvent event = mock(CommandFailedEvent.class);
+    lenient().when(event.getRequestId()).thenReturn(requestId);
+    lenient().when(event.getConnectionDescription()).thenReturn(connectionDescription);
     lenient().when(event.getThrowable()).thenReturn(throwable);
     return event;
   }
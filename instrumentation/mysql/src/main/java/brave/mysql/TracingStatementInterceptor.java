@@ -5,6 +5,7 @@
 package brave.mysql;
 
 import brave.Span;
+import brave.internal.WeakIdentityCache;
 import brave.propagation.ThreadLocalSpan;
 import com.mysql.jdbc.Connection;
 import com.mysql.jdbc.PreparedStatement;
@@ -67,29 +68,68 @@ public class TracingStatementInterceptor implements StatementInterceptorV2 {
     return null;
   }
 
+  /** Caches {@link #parseRemoteEndpoint(Connection)} until the connection's catalog changes. */
+  static final WeakIdentityCache<Connection, RemoteEndpoint> REMOTE_ENDPOINTS =
+    new WeakIdentityCache<Connection, RemoteEndpoint>() {
+      @Override protected RemoteEndpoint compute(Connection connection) {
+        return parseRemoteEndpoint(connection);
+      }
+
+      @Override protected boolean isStale(Connection connection, RemoteEndpoint endpoint) {
+        if (endpoint.databaseName == null) return false; // service name doesn't use it
+        try {
+          String databaseName = connection.getCatalog();
+          return !endpoint.databaseName.equals(databaseName != null ? databaseName : "");
+        } catch (Exception e) {
+          return false;
+        }
+      }
+    };
+
+  static void parseServerIpAndPort(Connection connection, Span span) {
+    RemoteEndpoint endpoint = REMOTE_ENDPOINTS.get(connection);
+    if (endpoint == null) return;
+    span.remoteServiceName(endpoint.serviceName);
+    if (endpoint.host != null) span.remoteIpAndPort(endpoint.host, endpoint.port);
+  }
+
   /**
    * MySQL exposes the host connecting to, but not the port. This attempts to get the port from the
    * JDBC URL. Ex. 5555 from {@code jdbc:mysql://localhost:5555/database}, or 3306 if absent.
    */
-  static void parseServerIpAndPort(Connection connection, Span span) {
+  static RemoteEndpoint parseRemoteEndpoint(Connection connection) {
     try {
       URI url = URI.create(connection.getMetaData().getURL().substring(5)); // strip "jdbc:"
       String remoteServiceName = connection.getProperties().getProperty("zipkinServiceName");
+      String databaseName = null;
       if (remoteServiceName == null || "".equals(remoteServiceName)) {
-        String databaseName = connection.getCatalog();
+        databaseName = connection.getCatalog();
         if (databaseName != null && !databaseName.isEmpty()) {
           remoteServiceName = "mysql-" + databaseName;
         } else {
+          databaseName = "";
           remoteServiceName = "mysql";
         }
       }
-      span.remoteServiceName(remoteServiceName);
-      String host = connection.getHost();
-      if (host != null) {
-        span.remoteIpAndPort(host, url.getPort() == -1 ? 3306 : url.getPort());
-      }
+      return new RemoteEndpoint(remoteServiceName, databaseName, connection.getHost(),
+        url.getPort() == -1 ? 3306 : url.getPort());
     } catch (Exception e) {
-      // remote address is optional
+      return null; // remote address is optional
+    }
+  }
+
+  static final class RemoteEndpoint {
+    final String serviceName;
+    /** The database the service name was derived from, or null if it was explicitly set. */
+    final String databaseName;
+    final String host;
+    final int port;
+
+    RemoteEndpoint(String serviceName, String databaseName, String host, int port) {
+      this.serviceName = serviceName;
+      this.databaseName = databaseName;
+      this.host = host;
+      this.port = port;
     }
   }
 
@@ -71,6 +71,15 @@ public class TracingStatementInterceptorTest {
     verifyNoMoreInteractions(span);
   }
 
+  @Test void parseServerIpAndPort_readsConnectionOnce() throws SQLException {
+    setupAndReturnPropertiesForHost("1.2.3.4");
+
+    TracingStatementInterceptor.parseServerIpAndPort(connection, span);
+    TracingStatementInterceptor.parseServerIpAndPort(connection, span);
+
+    verify(connection).getMetaData();
+  }
+
   Properties setupAndReturnPropertiesForHost(String host) throws SQLException {
     when(connection.getMetaData()).thenReturn(metaData);
     when(metaData.getURL()).thenReturn(url);
@@ -5,6 +5,7 @@
 package brave.mysql6;
 
 import brave.Span;
+import brave.internal.WeakIdentityCache;
 import brave.propagation.ThreadLocalSpan;
 import com.mysql.cj.api.MysqlConnection;
 import com.mysql.cj.api.jdbc.JdbcConnection;
@@ -73,29 +74,68 @@ public class TracingStatementInterceptor implements StatementInterceptor {
     return null;
   }
 
+  /** Avoids re-reading the URL and properties of a connection for each statement. */
+  static final WeakIdentityCache<MysqlConnection, RemoteEndpoint> REMOTE_ENDPOINTS =
+    new WeakIdentityCache<MysqlConnection, RemoteEndpoint>() {
+      @Override protected RemoteEndpoint compute(MysqlConnection connection) {
+        return parseRemoteEndpoint(connection);
+      }
+
+      @Override protected boolean isStale(MysqlConnection connection, RemoteEndpoint endpoint) {
+        if (endpoint.databaseName == null) return false; // service name doesn't use it
+        try {
+          String databaseName = getDatabaseName(connection);
+          return !endpoint.databaseName.equals(databaseName != null ? databaseName : "");
+        } catch (Exception e) {
+          return false;
+        }
+      }
+    };
+
+  static void parseServerIpAndPort(MysqlConnection connection, Span span) {
+    RemoteEndpoint endpoint = REMOTE_ENDPOINTS.get(connection);
+    if (endpoint == null) return;
+    span.remoteServiceName(endpoint.serviceName);
+    if (endpoint.host != null) span.remoteIpAndPort(endpoint.host, endpoint.port);
+  }
+
   /**
    * MySQL exposes the host connecting to, but not the port. This attempts to get the port from the
    * JDBC URL. Ex. 5555 from {@code jdbc:mysql://localhost:5555/database}, or 3306 if absent.
    */
-  static void parseServerIpAndPort(MysqlConnection connection, Span span) {
+  static RemoteEndpoint parseRemoteEndpoint(MysqlConnection connection) {
     try {
       URI url = URI.create(connection.getURL().substring(5)); // strip "jdbc:"
       String remoteServiceName = connection.getProperties().getProperty("zipkinServiceName");
+      String databaseName = null;
       if (remoteServiceName == null || "".equals(remoteServiceName)) {
-        String databaseName = getDatabaseName(connection);
+        databaseName = getDatabaseName(connection);
         if (databaseName != null && !databaseName.isEmpty()) {
           remoteServiceName = "mysql-" + databaseName;
         } else {
+          databaseName = "";
           remoteServiceName = "mysql";
         }
       }
-      span.remoteServiceName(remoteServiceName);
-      String host = getHost(connection);
-      if (host != null) {
-        span.remoteIpAndPort(host, url.getPort() == -1 ? 3306 : url.getPort());
-      }
+      return new RemoteEndpoint(remoteServiceName, databaseName, getHost(connection),
+        url.getPort() == -1 ? 3306 : url.getPort());
     } catch (Exception e) {
-      // remote address is optional
+      return null; // remote address is optional
+    }
+  }
+
+  static final class RemoteEndpoint {
+    final String serviceName;
+    /** The database the service name was derived from, or null if it was explicitly set. */
+    final String databaseName;
+    final String host;
+    final int port;
+
+    RemoteEndpoint(String serviceName, String databaseName, String host, int port) {
+      this.serviceName = serviceName;
+      this.databaseName = databaseName;
+      this.host = host;
+      this.port = port;
     }
   }
 
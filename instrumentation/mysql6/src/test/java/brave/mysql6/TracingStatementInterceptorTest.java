@@ -69,6 +69,15 @@ public class TracingStatementInterceptorTest {
     verifyNoMoreInteractions(span);
   }
 
+  @Test void parseServerIpAndPort_readsConnectionOnce() throws SQLException {
+    setupAndReturnPropertiesForHost("1.2.3.4");
+
+    TracingStatementInterceptor.parseServerIpAndPort(connection, span);
+    TracingStatementInterceptor.parseServerIpAndPort(connection, span);
+
+    verify(connection).getURL();
+  }
+
   Properties setupAndReturnPropertiesForHost(String host) {
     when(connection.getURL()).thenReturn(url);
     Properties properties = new Properties();
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -68,6 +69,27 @@ public class TracingQueryInterceptorTest {
     verifyNoMoreInteractions(span);
   }
 
+  @Test void parseServerIpAndPort_readsConnectionOnce() throws SQLException {
+    setupAndReturnPropertiesForHost("1.2.3.4");
+
+    TracingQueryInterceptor.parseServerIpAndPort(connection, span);
+    TracingQueryInterceptor.parseServerIpAndPort(connection, span);
+
+    verify(connection).getURL();
+  }
+
+  @Test void parseServerIpAndPort_reparsesWhenDatabaseChanges() throws SQLException {
+    setupAndReturnPropertiesForHost("1.2.3.4");
+    when(connection.getCatalog()).thenReturn("mydatabase", "otherdatabase");
+
+    TracingQueryInterceptor.parseServerIpAndPort(connection, span);
+    TracingQueryInterceptor.parseServerIpAndPort(connection, span);
+
+    verify(span).remoteServiceName("mysql-mydatabase");
+    verify(span).remoteServiceName("mysql-otherdatabase");
+    verify(span, times(2)).remoteIpAndPort("1.2.3.4", 5555);
+  }
+
   Properties setupAndReturnPropertiesForHost(String host) {
     when(connection.getURL()).thenReturn(url);
     Properties properties = new Properties();
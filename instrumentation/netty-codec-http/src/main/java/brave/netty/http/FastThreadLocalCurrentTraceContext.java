@@ -0,0 +1,102 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.netty.http;
+
+import brave.internal.Nullable;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.propagation.TraceContext;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.FastThreadLocalThread;
+
+/**
+ * In-process trace context propagation backed by a static Netty {@link FastThreadLocal}.
+ *
+ * <p>Netty event loops run on {@link FastThreadLocalThread}s, where reading or writing a {@link
+ * FastThreadLocal} is an array index as opposed to a hash lookup in {@link ThreadLocal}. As
+ * tracing handlers switch scopes on every message, this reduces the cost of scope switches on the
+ * event loop. On other threads, this falls back to a slower lookup than {@link
+ * ThreadLocalCurrentTraceContext}, so only use this when most traced work runs on Netty threads.
+ *
+ * <p>Contexts in scope here are not visible to other {@link CurrentTraceContext} instances, such as
+ * the default. Configure this on {@link brave.Tracing.Builder#currentTraceContext} so that all
+ * instrumentation uses it.
+ *
+ * <pre>{@code
+ * tracing = Tracing.newBuilder()
+ *   .currentTraceContext(FastThreadLocalCurrentTraceContext.create())
+ *   ...
+ *   .build();
+ * }</pre>
+ *
+ * @since 6.4
+ */
+public final class FastThreadLocalCurrentTraceContext extends CurrentTraceContext {
+  public static CurrentTraceContext create() {
+    return new Builder().build();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * This component is backed by a static shared fast thread local. Call this to clear the
+   * reference when you are sure any residual state is due to a leak. This is generally only useful
+   * in tests.
+   */
+  public void clear() {
+    LOCAL.remove();
+  }
+
+  public static final class Builder extends CurrentTraceContext.Builder {
+    Builder() {
+    }
+
+    @Override public Builder addScopeDecorator(ScopeDecorator scopeDecorator) {
+      return (Builder) super.addScopeDecorator(scopeDecorator);
+    }
+
+    @Override public FastThreadLocalCurrentTraceContext build() {
+      return new FastThreadLocalCurrentTraceContext(this);
+    }
+  }
+
+  static final FastThreadLocal<TraceContext> LOCAL = new FastThreadLocal<TraceContext>();
+  static final Scope REVERT_TO_NULL = new RevertToNullScope();
+
+  FastThreadLocalCurrentTraceContext(Builder builder) {
+    super(builder);
+  }
+
+  @Override public TraceContext get() {
+    return LOCAL.get();
+  }
+
+  @Override public Scope newScope(@Nullable TraceContext currentSpan) {
+    final TraceContext previous = LOCAL.get();
+    LOCAL.set(currentSpan);
+    Scope result = previous != null ? new RevertToPreviousScope(previous) : REVERT_TO_NULL;
+    return decorateScope(currentSpan, result);
+  }
+
+  static final class RevertToNullScope implements Scope {
+    @Override public void close() {
+      LOCAL.set(null);
+    }
+  }
+
+  static final class RevertToPreviousScope implements Scope {
+    final TraceContext previous;
+
+    RevertToPreviousScope(TraceContext previous) {
+      this.previous = previous;
+    }
+
+    @Override public void close() {
+      LOCAL.set(previous);
+    }
+  }
+}
@@ -4,17 +4,25 @@
  */
 package brave.netty.http;
 
-import brave.Span;
 import brave.Tracing;
-import brave.http.HttpServerRequest;
 import brave.http.HttpTracing;
+import brave.internal.Nullable;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.Queue;
 
 public final class NettyHttpTracing {
-  static final AttributeKey<HttpServerRequest> REQUEST_ATTRIBUTE =
-    AttributeKey.valueOf(HttpServerRequest.class.getName());
-  static final AttributeKey<Span> SPAN_ATTRIBUTE = AttributeKey.valueOf(Span.class.getName());
+  static final AttributeKey<Queue<TracingHttpServerHandler.HttpRequestWrapper>>
+    SERVER_IN_FLIGHT_ATTRIBUTE = AttributeKey.valueOf("brave.netty.http.serverInFlight");
+  static final AttributeKey<Queue<TracingHttpClientHandler.HttpRequestWrapper>>
+    CLIENT_IN_FLIGHT_ATTRIBUTE = AttributeKey.valueOf("brave.netty.http.clientInFlight");
 
   public static NettyHttpTracing create(Tracing tracing) {
     return new NettyHttpTracing(HttpTracing.create(tracing));
@@ -24,16 +32,97 @@ public final class NettyHttpTracing {
     return new NettyHttpTracing(httpTracing);
   }
 
-  final ChannelDuplexHandler serverHandler;
+  final HttpTracing httpTracing;
+  final ChannelDuplexHandler serverHandler, clientHandler;
+  volatile ChannelDuplexHandler http2ServerHandler; // lazy as netty-codec-http2 is optional
 
   NettyHttpTracing(HttpTracing httpTracing) { // intentionally hidden constructor
+    this.httpTracing = httpTracing;
     serverHandler = new TracingHttpServerHandler(httpTracing);
+    clientHandler = new TracingHttpClientHandler(httpTracing);
   }
 
   /**
    * Returns a duplex handler that traces {@link io.netty.handler.codec.http.HttpRequest} messages.
+   *
+   * <p>The returned handler is sharable and supports HTTP/1.1 pipelining. To trace HTTP/2, add it
+   * to the child pipeline of {@code Http2MultiplexHandler}, after {@code
+   * Http2StreamFrameToHttpObjectCodec}, or use {@link #http2ServerHandler()}.
    */
   public ChannelDuplexHandler serverHandler() {
     return serverHandler;
   }
+
+  /**
+   * Returns a duplex handler that traces {@code Http2HeadersFrame} messages, for pipelines that
+   * don't convert HTTP/2 frames to HTTP/1.x objects.
+   *
+   * <p>The returned handler can be added to the child pipeline of {@code Http2MultiplexHandler},
+   * or after {@code Http2FrameCodec} when not multiplexing. In the latter case, state is tracked
+   * per stream ID on the connection.
+   *
+   * <p><em>Note</em>: This requires {@code io.netty:netty-codec-http2} on the classpath.
+   *
+   * @since 6.4
+   */
+  public ChannelDuplexHandler http2ServerHandler() {
+    ChannelDuplexHandler result = http2ServerHandler;
+    if (result == null) {
+      synchronized (this) {
+        result = http2ServerHandler;
+        if (result == null) {
+          http2ServerHandler = result = new TracingHttp2ServerHandler(httpTracing);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a duplex handler that traces {@link io.netty.handler.codec.http.HttpRequest} messages
+   * written by an HTTP client. Add this after {@code HttpClientCodec}.
+   *
+   * <p>The parent of each client span is the {@linkplain brave.propagation.CurrentTraceContext
+   * current span} when the request reaches this handler. Requests written from outside the event
+   * loop are dispatched to it later, so should be sent with an explicit parent in scope on the
+   * event loop.
+   *
+   * @since 6.4
+   */
+  public ChannelDuplexHandler clientHandler() {
+    return clientHandler;
+  }
+
+  /** Returns the in-flight FIFO for the channel, creating it if needed. */
+  static <T> Queue<T> inFlight(Channel channel, AttributeKey<Queue<T>> key) {
+    Attribute<Queue<T>> attr = channel.attr(key);
+    Queue<T> result = attr.get();
+    if (result == null) { // Only the event loop reads or writes this attribute.
+      attr.set(result = new ArrayDeque<T>(2));
+    }
+    return result;
+  }
+
+  /** Returns the in-flight FIFO for the channel or null if no request was read or written. */
+  @Nullable static <T> Queue<T> peekInFlight(Channel channel, AttributeKey<Queue<T>> key) {
+    return channel.hasAttr(key) ? channel.attr(key).get() : null;
+  }
+
+  /** HTTP/2 stream channels don't have a remote address, rather their parent does. */
+  @Nullable static InetSocketAddress remoteAddress(Channel channel) {
+    SocketAddress result = channel.remoteAddress();
+    if (result == null && channel.parent() != null) result = channel.parent().remoteAddress();
+    return result instanceof InetSocketAddress ? (InetSocketAddress) result : null;
+  }
+
+  /**
+   * Interim responses such as "100 Continue" precede the final response of the same request, so
+   * they must not complete it. "101 Switching Protocols" is final for the HTTP exchange.
+   */
+  static boolean isInformational(HttpResponse response) {
+    HttpResponseStatus status = response.status();
+    if (status == null) return false;
+    int code = status.code();
+    return code >= 100 && code < 200 && code != 101;
+  }
 }
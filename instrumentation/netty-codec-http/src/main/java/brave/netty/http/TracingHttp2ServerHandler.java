@@ -0,0 +1,328 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.netty.http;
+
+import brave.Span;
+import brave.http.HttpServerHandler;
+import brave.http.HttpServerRequest;
+import brave.http.HttpServerResponse;
+import brave.http.HttpTracing;
+import brave.internal.Nullable;
+import brave.internal.Platform;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.CurrentTraceContext.Scope;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2FrameStream;
+import io.netty.handler.codec.http2.Http2FrameStreamEvent;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2ResetFrame;
+import io.netty.handler.codec.http2.Http2Stream;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrame;
+import io.netty.util.AsciiString;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+
+import static brave.internal.Throwables.propagateIfFatal;
+import static brave.netty.http.NettyHttpTracing.remoteAddress;
+
+/**
+ * Traces {@link Http2HeadersFrame} messages, keeping state per HTTP/2 stream.
+ *
+ * <p>Under {@code Http2MultiplexHandler}, each stream is a child channel, so the in-flight request
+ * is a single channel attribute. Directly after {@code Http2FrameCodec}, all streams share the
+ * connection channel, so in-flight requests are kept in a primitive map keyed by stream ID.
+ *
+ * <p>A stream reset, in either direction, finishes its span with an error. So does a stream that
+ * closes without response headers, or a channel that closes with requests in flight.
+ */
+@Sharable
+final class TracingHttp2ServerHandler extends ChannelDuplexHandler {
+  static final AttributeKey<Http2RequestWrapper> STREAM_ATTRIBUTE =
+    AttributeKey.valueOf("brave.netty.http.http2Stream");
+  static final AttributeKey<IntObjectMap<Http2RequestWrapper>> STREAMS_ATTRIBUTE =
+    AttributeKey.valueOf("brave.netty.http.http2Streams");
+
+  final CurrentTraceContext currentTraceContext;
+  final HttpServerHandler<HttpServerRequest, HttpServerResponse> handler;
+
+  TracingHttp2ServerHandler(HttpTracing httpTracing) {
+    currentTraceContext = httpTracing.tracing().currentTraceContext();
+    handler = HttpServerHandler.create(httpTracing);
+  }
+
+  @Override public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    if (msg instanceof Http2ResetFrame) { // the client cancelled the stream
+      finishReset(ctx.channel(), (Http2ResetFrame) msg);
+      ctx.fireChannelRead(msg);
+      return;
+    }
+
+    Http2Headers headers = headers(msg);
+    if (headers == null || headers.method() == null) { // not request headers, ex. trailers
+      ctx.fireChannelRead(msg); // superclass does not throw
+      return;
+    }
+
+    Channel channel = ctx.channel();
+    Http2RequestWrapper request = new Http2RequestWrapper(headers, remoteAddress(channel));
+
+    Span span = handler.handleReceive(request);
+    request.span = span;
+    int streamId = streamId(channel, (Http2HeadersFrame) msg);
+    put(channel, streamId, request);
+    Scope scope = currentTraceContext.newScope(span.context());
+
+    // Place the span in scope so that downstream code can read trace IDs
+    Throwable error = null;
+    try {
+      ctx.fireChannelRead(msg);
+    } catch (RuntimeException e) {
+      error = e;
+      throw e;
+    } catch (Error e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      // Only finish here if a response wasn't already written for this request
+      if (error != null && remove(channel, streamId) != null) span.error(error).finish();
+      scope.close();
+    }
+  }
+
+  @Override public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise prm) {
+    if (msg instanceof Http2ResetFrame) { // the server cancelled the stream instead of responding
+      finishReset(ctx.channel(), (Http2ResetFrame) msg);
+      ctx.write(msg, prm);
+      return;
+    }
+
+    Http2Headers headers = headers(msg);
+    if (headers == null || !isFinalStatus(headers.status())) { // ex. 100 Continue or trailers
+      ctx.write(msg, prm);
+      return;
+    }
+
+    Channel channel = ctx.channel();
+    Http2RequestWrapper request = remove(channel, streamId(channel, (Http2HeadersFrame) msg));
+    if (request == null) {
+      ctx.write(msg, prm);
+      return;
+    }
+
+    Span span = request.span;
+    Scope scope = currentTraceContext.maybeScope(span.context());
+    Throwable error = null;
+    try {
+      ctx.write(msg, prm);
+    } catch (RuntimeException e) {
+      error = e;
+      throw e;
+    } catch (Error e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      handler.handleSend(new Http2ResponseWrapper(request, headers, error), span);
+      scope.close();
+    }
+  }
+
+  /**
+   * Finishes a stream that closed without a response, such as when {@code Http2FrameCodec} resets
+   * it on a protocol error. Under multiplexing, {@link #channelInactive} does this instead.
+   */
+  @Override public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+    if (evt instanceof Http2FrameStreamEvent) {
+      Http2FrameStream stream = ((Http2FrameStreamEvent) evt).stream();
+      if (stream != null && stream.state() == Http2Stream.State.CLOSED) {
+        finish(ctx.channel(), stream.id(), new ClosedChannelException());
+      }
+    }
+    ctx.fireUserEventTriggered(evt);
+  }
+
+  /** Finishes any streams in flight when the channel closes, such as on connection loss. */
+  @Override public void channelInactive(ChannelHandlerContext ctx) {
+    Channel channel = ctx.channel();
+    ClosedChannelException error = null;
+    if (channel instanceof Http2StreamChannel) {
+      Http2RequestWrapper request = channel.hasAttr(STREAM_ATTRIBUTE)
+        ? channel.attr(STREAM_ATTRIBUTE).getAndSet(null) : null;
+      if (request != null) {
+        error = new ClosedChannelException();
+        handler.handleSend(new Http2ResponseWrapper(request, null, error), request.span);
+      }
+    } else if (channel.hasAttr(STREAMS_ATTRIBUTE)) {
+      IntObjectMap<Http2RequestWrapper> streams = channel.attr(STREAMS_ATTRIBUTE).get();
+      for (Http2RequestWrapper request : streams.values()) {
+        if (error == null) error = new ClosedChannelException();
+        handler.handleSend(new Http2ResponseWrapper(request, null, error), request.span);
+      }
+      streams.clear();
+    }
+    ctx.fireChannelInactive();
+  }
+
+  void finishReset(Channel channel, Http2ResetFrame reset) {
+    int streamId = streamId(channel, reset);
+    Http2RequestWrapper request = remove(channel, streamId);
+    if (request == null) return; // already responded, or not traced
+
+    Http2Error code = Http2Error.valueOf(reset.errorCode());
+    if (code == null) code = Http2Error.INTERNAL_ERROR; // unknown codes are treated as such
+    Throwable error = Http2Exception.streamError(streamId, code, "Stream reset: %s", code);
+    handler.handleSend(new Http2ResponseWrapper(request, null, error), request.span);
+  }
+
+  void finish(Channel channel, int streamId, Throwable error) {
+    Http2RequestWrapper request = remove(channel, streamId);
+    if (request == null) return;
+    handler.handleSend(new Http2ResponseWrapper(request, null, error), request.span);
+  }
+
+  @Nullable static Http2Headers headers(Object msg) {
+    return msg instanceof Http2HeadersFrame ? ((Http2HeadersFrame) msg).headers() : null;
+  }
+
+  /** Returns zero when the stream is the channel, as is the case under multiplexing. */
+  static int streamId(Channel channel, Http2StreamFrame frame) {
+    if (channel instanceof Http2StreamChannel) return 0;
+    Http2FrameStream stream = frame.stream();
+    return stream != null ? stream.id() : 0;
+  }
+
+  static void put(Channel channel, int streamId, Http2RequestWrapper request) {
+    if (channel instanceof Http2StreamChannel) {
+      channel.attr(STREAM_ATTRIBUTE).set(request);
+      return;
+    }
+    Attribute<IntObjectMap<Http2RequestWrapper>> attr = channel.attr(STREAMS_ATTRIBUTE);
+    IntObjectMap<Http2RequestWrapper> streams = attr.get();
+    if (streams == null) { // Only the event loop reads or writes this attribute.
+      attr.set(streams = new IntObjectHashMap<Http2RequestWrapper>());
+    }
+    streams.put(streamId, request);
+  }
+
+  @Nullable static Http2RequestWrapper remove(Channel channel, int streamId) {
+    if (channel instanceof Http2StreamChannel) {
+      return channel.hasAttr(STREAM_ATTRIBUTE) ? channel.attr(STREAM_ATTRIBUTE).getAndSet(null)
+        : null;
+    }
+    if (!channel.hasAttr(STREAMS_ATTRIBUTE)) return null;
+    IntObjectMap<Http2RequestWrapper> streams = channel.attr(STREAMS_ATTRIBUTE).get();
+    return streams != null ? streams.remove(streamId) : null;
+  }
+
+  /** Interim responses such as "100 Continue" precede the final response of the same stream. */
+  static boolean isFinalStatus(@Nullable CharSequence status) {
+    if (status == null || status.length() != 3) return false;
+    return status.charAt(0) != '1';
+  }
+
+  static final class Http2RequestWrapper extends HttpServerRequest {
+    final Http2Headers headers;
+    @Nullable final InetSocketAddress remoteAddress;
+    Span span; // assigned after handleReceive, read when the response is written
+
+    Http2RequestWrapper(Http2Headers headers, @Nullable InetSocketAddress remoteAddress) {
+      this.headers = headers;
+      this.remoteAddress = remoteAddress;
+    }
+
+    @Override public Http2Headers unwrap() {
+      return headers;
+    }
+
+    @Override public boolean parseClientIpAndPort(Span span) {
+      if (parseClientIpFromXForwardedFor(span)) return true;
+      if (remoteAddress == null || remoteAddress.getAddress() == null) return false;
+      return span.remoteIpAndPort(
+        Platform.get().getHostString(remoteAddress),
+        remoteAddress.getPort()
+      );
+    }
+
+    @Override public String method() {
+      CharSequence method = headers.method();
+      return method != null ? method.toString() : null;
+    }
+
+    @Override public String path() {
+      CharSequence path = headers.path();
+      if (path == null) return null;
+      String result = path.toString();
+      int queryIndex = result.indexOf('?');
+      return queryIndex != -1 ? result.substring(0, queryIndex) : result;
+    }
+
+    @Override public String url() {
+      CharSequence authority = headers.authority(), path = headers.path();
+      if (authority == null || path == null) return null;
+      CharSequence scheme = headers.scheme();
+      return (scheme != null ? scheme : "http") + "://" + authority + path;
+    }
+
+    @Override public String header(String name) {
+      CharSequence result = headers.get(name);
+      // HTTP/2 header names are lowercase, but propagation formats often use mixed case.
+      if (result == null) result = headers.get(AsciiString.of(name).toLowerCase());
+      return result != null ? result.toString() : null;
+    }
+  }
+
+  static final class Http2ResponseWrapper extends HttpServerResponse {
+    @Nullable final Http2RequestWrapper request;
+    @Nullable final Http2Headers headers;
+    @Nullable final Throwable error;
+
+    Http2ResponseWrapper(
+      @Nullable Http2RequestWrapper request,
+      @Nullable Http2Headers headers,
+      @Nullable Throwable error
+    ) {
+      this.request = request;
+      this.headers = headers;
+      this.error = error;
+    }
+
+    @Override @Nullable public Http2Headers unwrap() {
+      return headers;
+    }
+
+    @Override @Nullable public HttpServerRequest request() {
+      return request;
+    }
+
+    @Override public Throwable error() {
+      return error;
+    }
+
+    @Override public int statusCode() {
+      CharSequence status = headers != null ? headers.status() : null;
+      if (status == null || status.length() != 3) return 0;
+      int result = 0;
+      for (int i = 0; i < 3; i++) {
+        char c = status.charAt(i);
+        if (c < '0' || c > '9') return 0;
+        result = result * 10 + (c - '0');
+      }
+      return result;
+    }
+  }
+}
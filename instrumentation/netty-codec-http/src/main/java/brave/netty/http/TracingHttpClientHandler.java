@@ -0,0 +1,192 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.netty.http;
+
+import brave.Span;
+import brave.http.HttpClientHandler;
+import brave.http.HttpClientRequest;
+import brave.http.HttpClientResponse;
+import brave.http.HttpTracing;
+import brave.internal.Nullable;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.CurrentTraceContext.Scope;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.util.Queue;
+
+import static brave.internal.Throwables.propagateIfFatal;
+import static brave.netty.http.NettyHttpTracing.CLIENT_IN_FLIGHT_ATTRIBUTE;
+import static brave.netty.http.NettyHttpTracing.inFlight;
+import static brave.netty.http.NettyHttpTracing.isInformational;
+import static brave.netty.http.NettyHttpTracing.peekInFlight;
+
+/**
+ * Traces {@link HttpRequest} messages written by a client, keeping a FIFO of in-flight requests
+ * per channel.
+ *
+ * <p>Like the server side, this supports HTTP/1.1 pipelining: the next final response read
+ * completes the oldest in-flight request.
+ */
+@Sharable
+final class TracingHttpClientHandler extends ChannelDuplexHandler {
+  final CurrentTraceContext currentTraceContext;
+  final HttpClientHandler<HttpClientRequest, HttpClientResponse> handler;
+
+  TracingHttpClientHandler(HttpTracing httpTracing) {
+    currentTraceContext = httpTracing.tracing().currentTraceContext();
+    handler = HttpClientHandler.create(httpTracing);
+  }
+
+  @Override public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise prm) {
+    if (!(msg instanceof HttpRequest)) {
+      ctx.write(msg, prm);
+      return;
+    }
+
+    HttpRequestWrapper request = new HttpRequestWrapper((HttpRequest) msg);
+    Span span = handler.handleSend(request);
+    request.span = span;
+    Queue<HttpRequestWrapper> inFlight = inFlight(ctx.channel(), CLIENT_IN_FLIGHT_ATTRIBUTE);
+    inFlight.add(request);
+
+    // Place the span in scope so that downstream handlers can read trace IDs
+    Scope scope = currentTraceContext.maybeScope(span.context());
+    Throwable error = null;
+    try {
+      ctx.write(msg, prm);
+    } catch (RuntimeException e) {
+      error = e;
+      throw e;
+    } catch (Error e) {
+      propagateIfFatal(e);
+      error = e;
+      throw e;
+    } finally {
+      if (error != null && inFlight.remove(request)) {
+        handler.handleReceive(new HttpResponseWrapper(request, null, error), span);
+      }
+      scope.close();
+    }
+  }
+
+  @Override public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    if (!(msg instanceof HttpResponse) || isInformational((HttpResponse) msg)) {
+      ctx.fireChannelRead(msg); // superclass does not throw
+      return;
+    }
+
+    Queue<HttpRequestWrapper> inFlight = peekInFlight(ctx.channel(), CLIENT_IN_FLIGHT_ATTRIBUTE);
+    HttpRequestWrapper request = inFlight != null ? inFlight.poll() : null;
+    if (request != null) {
+      // Finish before the response is processed, so that callbacks aren't attributed to the span.
+      handler.handleReceive(new HttpResponseWrapper(request, (HttpResponse) msg, null),
+        request.span);
+    }
+    ctx.fireChannelRead(msg);
+  }
+
+  @Override public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+    finishInFlight(ctx, cause);
+    ctx.fireExceptionCaught(cause);
+  }
+
+  /** Finishes any requests that will never see a response, for example on connection reset. */
+  @Override public void channelInactive(ChannelHandlerContext ctx) {
+    finishInFlight(ctx, null);
+    ctx.fireChannelInactive();
+  }
+
+  void finishInFlight(ChannelHandlerContext ctx, @Nullable Throwable error) {
+    Queue<HttpRequestWrapper> inFlight = peekInFlight(ctx.channel(), CLIENT_IN_FLIGHT_ATTRIBUTE);
+    if (inFlight == null || inFlight.isEmpty()) return;
+    if (error == null) error = new ClosedChannelException();
+    for (HttpRequestWrapper request; (request = inFlight.poll()) != null; ) {
+      handler.handleReceive(new HttpResponseWrapper(request, null, error), request.span);
+    }
+  }
+
+  static final class HttpRequestWrapper extends HttpClientRequest {
+    final HttpRequest request;
+    Span span; // assigned after handleSend, read when the response is read
+
+    HttpRequestWrapper(HttpRequest request) {
+      this.request = request;
+    }
+
+    @Override public HttpRequest unwrap() {
+      return request;
+    }
+
+    @Override public String method() {
+      return request.method().name();
+    }
+
+    @Override public String path() {
+      String uri = request.uri();
+      // Requests to a proxy use an absolute URI, otherwise this is the path and query.
+      if (uri.indexOf("://") != -1) return URI.create(uri).getPath();
+      int queryIndex = uri.indexOf('?');
+      return queryIndex != -1 ? uri.substring(0, queryIndex) : uri;
+    }
+
+    @Override public String url() {
+      String uri = request.uri();
+      if (uri.indexOf("://") != -1) return uri;
+      String host = header("Host");
+      if (host == null) return null;
+      // TODO: we don't know if this is really http or https!
+      return "http://" + host + uri;
+    }
+
+    @Override public String header(String name) {
+      return request.headers().get(name);
+    }
+
+    @Override public void header(String name, String value) {
+      request.headers().set(name, value);
+    }
+  }
+
+  static final class HttpResponseWrapper extends HttpClientResponse {
+    final HttpRequestWrapper request;
+    @Nullable final HttpResponse response;
+    @Nullable final Throwable error;
+
+    HttpResponseWrapper(
+      HttpRequestWrapper request,
+      @Nullable HttpResponse response,
+      @Nullable Throwable error
+    ) {
+      this.request = request;
+      this.response = response;
+      this.error = error;
+    }
+
+    @Override @Nullable public HttpResponse unwrap() {
+      return response;
+    }
+
+    @Override public HttpRequestWrapper request() {
+      return request;
+    }
+
+    @Override public Throwable error() {
+      return error;
+    }
+
+    @Override public int statusCode() {
+      if (response == null) return 0;
+      HttpResponseStatus status = response.status();
+      return status != null ? status.code() : 0;
+    }
+  }
+}
@@ -14,17 +14,34 @@ import brave.internal.Platform;
 import brave.propagation.CurrentTraceContext;
 import brave.propagation.CurrentTraceContext.Scope;
 import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
-import io.netty.util.Attribute;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.util.Queue;
 
 import static brave.internal.Throwables.propagateIfFatal;
-
+import static brave.netty.http.NettyHttpTracing.SERVER_IN_FLIGHT_ATTRIBUTE;
+import static brave.netty.http.NettyHttpTracing.inFlight;
+import static brave.netty.http.NettyHttpTracing.isInformational;
+import static brave.netty.http.NettyHttpTracing.peekInFlight;
+import static brave.netty.http.NettyHttpTracing.remoteAddress;
+
+/**
+ * Traces {@link HttpRequest} messages, keeping a FIFO of in-flight requests per channel.
+ *
+ * <p>HTTP/1.1 pipelining means a connection can read several requests before the first response
+ * is written. Responses are written in request order, so the oldest in-flight request is the one
+ * completed by the next final response. When used with {@code Http2MultiplexHandler} and {@code
+ * Http2StreamFrameToHttpObjectCodec}, each stream is a child channel, so this FIFO holds at most
+ * one request per stream.
+ */
+@Sharable
 final class TracingHttpServerHandler extends ChannelDuplexHandler {
   final CurrentTraceContext currentTraceContext;
   final HttpServerHandler<HttpServerRequest, HttpServerResponse> handler;
@@ -41,11 +58,12 @@ final class TracingHttpServerHandler extends ChannelDuplexHandler {
     }
 
     HttpRequestWrapper request =
-      new HttpRequestWrapper((HttpRequest) msg, (InetSocketAddress) ctx.channel().remoteAddress());
+      new HttpRequestWrapper((HttpRequest) msg, remoteAddress(ctx.channel()));
 
-    ctx.channel().attr(NettyHttpTracing.REQUEST_ATTRIBUTE).set(request);
     Span span = handler.handleReceive(request);
-    ctx.channel().attr(NettyHttpTracing.SPAN_ATTRIBUTE).set(span);
+    request.span = span;
+    Queue<HttpRequestWrapper> inFlight = inFlight(ctx.channel(), SERVER_IN_FLIGHT_ATTRIBUTE);
+    inFlight.add(request);
     Scope scope = currentTraceContext.newScope(span.context());
 
     // Place the span in scope so that downstream code can read trace IDs
@@ -60,20 +78,28 @@ final class TracingHttpServerHandler extends ChannelDuplexHandler {
       error = e;
       throw e;
     } finally {
-      if (error != null) span.error(error).finish();
+      // Only finish here if a response wasn't already written for this request
+      if (error != null && inFlight.remove(request)) {
+        span.error(error).finish();
+      }
       scope.close();
     }
   }
 
   @Override public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise prm) {
-    Attribute<Span> spanAttr = ctx.channel().attr(NettyHttpTracing.SPAN_ATTRIBUTE);
-    Span span = spanAttr.get();
-    spanAttr.compareAndSet(span, null);
-    if (span == null || !(msg instanceof HttpResponse)) {
+    if (!(msg instanceof HttpResponse) || isInformational((HttpResponse) msg)) {
       ctx.write(msg, prm);
       return;
     }
 
+    Queue<HttpRequestWrapper> inFlight = peekInFlight(ctx.channel(), SERVER_IN_FLIGHT_ATTRIBUTE);
+    HttpRequestWrapper request = inFlight != null ? inFlight.poll() : null;
+    if (request == null) {
+      ctx.write(msg, prm);
+      return;
+    }
+
+    Span span = request.span;
     HttpResponse response = (HttpResponse) msg;
 
     Scope scope = currentTraceContext.maybeScope(span.context());
@@ -88,17 +114,29 @@ final class TracingHttpServerHandler extends ChannelDuplexHandler {
       error = e;
       throw e;
     } finally {
-      HttpServerRequest request = ctx.channel().attr(NettyHttpTracing.REQUEST_ATTRIBUTE).get();
       handler.handleSend(new HttpResponseWrapper(request, response, error), span);
       scope.close();
     }
   }
 
+  /** Finishes any requests that will never see a response, for example on connection reset. */
+  @Override public void channelInactive(ChannelHandlerContext ctx) {
+    Queue<HttpRequestWrapper> inFlight = peekInFlight(ctx.channel(), SERVER_IN_FLIGHT_ATTRIBUTE);
+    if (inFlight != null && !inFlight.isEmpty()) {
+      ClosedChannelException error = new ClosedChannelException();
+      for (HttpRequestWrapper request; (request = inFlight.poll()) != null; ) {
+        handler.handleSend(new HttpResponseWrapper(request, null, error), request.span);
+      }
+    }
+    ctx.fireChannelInactive();
+  }
+
   static final class HttpRequestWrapper extends HttpServerRequest {
     final HttpRequest request;
     @Nullable final InetSocketAddress remoteAddress;
+    Span span; // assigned after handleReceive, read when the response is written
 
-    HttpRequestWrapper(HttpRequest request, InetSocketAddress remoteAddress) {
+    HttpRequestWrapper(HttpRequest request, @Nullable InetSocketAddress remoteAddress) {
       this.request = request;
       this.remoteAddress = remoteAddress;
     }
@@ -138,12 +176,12 @@ final class TracingHttpServerHandler extends ChannelDuplexHandler {
 
   static final class HttpResponseWrapper extends HttpServerResponse {
     @Nullable final HttpServerRequest request;
-    final HttpResponse delegate;
+    @Nullable final HttpResponse delegate;
     @Nullable final Throwable error;
 
     HttpResponseWrapper(
       @Nullable HttpServerRequest request,
-      HttpResponse response,
+      @Nullable HttpResponse response,
       @Nullable Throwable error
     ) {
       this.request = request;
@@ -151,7 +189,7 @@ final class TracingHttpServerHandler extends ChannelDuplexHandler {
       this.error = error;
     }
 
-    @Override public HttpResponse unwrap() {
+    @Override @Nullable public HttpResponse unwrap() {
       return delegate;
     }
 
@@ -164,6 +202,7 @@ final class TracingHttpServerHandler extends ChannelDuplexHandler {
     }
 
     @Override public int statusCode() {
+      if (delegate == null) return 0;
       HttpResponseStatus status = delegate.status();
       return status != null ? status.code() : 0;
     }
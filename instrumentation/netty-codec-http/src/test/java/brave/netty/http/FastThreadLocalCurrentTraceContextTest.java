@@ -0,0 +1,56 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.netty.http;
+
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.TraceContext;
+import brave.test.propagation.CurrentTraceContextTest;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastThreadLocalCurrentTraceContextTest extends CurrentTraceContextTest {
+  @Override protected Class<? extends Supplier<CurrentTraceContext.Builder>> builderSupplier() {
+    return BuilderSupplier.class;
+  }
+
+  /** Since the fast thread-local is static, this helps code avoid leaks made by others. */
+  @Test void clear_unleaks() {
+    currentTraceContext.newScope(context); // leak a scope
+
+    assertThat(currentTraceContext.get()).isEqualTo(context);
+
+    ((FastThreadLocalCurrentTraceContext) currentTraceContext).clear();
+
+    assertThat(currentTraceContext.get()).isNull();
+  }
+
+  @Test void fastThreadLocalThread() throws Exception {
+    // DefaultThreadFactory creates FastThreadLocalThread, like a Netty event loop
+    ExecutorService eventLoop = Executors.newSingleThreadExecutor(new DefaultThreadFactory("test"));
+    try {
+      TraceContext inScope = eventLoop.submit(() -> {
+        try (Scope scope = currentTraceContext.newScope(context)) {
+          return currentTraceContext.get();
+        }
+      }).get();
+      assertThat(inScope).isEqualTo(context);
+      assertThat(eventLoop.submit(currentTraceContext::get).get()).isNull();
+    } finally {
+      eventLoop.shutdownNow();
+    }
+  }
+
+  static class BuilderSupplier implements Supplier<CurrentTraceContext.Builder> {
+    @Override public CurrentTraceContext.Builder get() {
+      return FastThreadLocalCurrentTraceContext.newBuilder();
+    }
+  }
+}
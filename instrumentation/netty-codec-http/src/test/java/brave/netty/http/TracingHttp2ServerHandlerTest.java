@@ -0,0 +1,176 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.netty.http;
+
+import brave.Tracing;
+import brave.propagation.StrictCurrentTraceContext;
+import brave.test.IntegrationTestSpanHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.DefaultHttp2ResetFrame;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2FrameStream;
+import io.netty.handler.codec.http2.Http2FrameStreamEvent;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2Stream.State;
+import java.lang.reflect.Method;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static brave.Span.Kind.SERVER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracingHttp2ServerHandlerTest {
+  @RegisterExtension IntegrationTestSpanHandler spanHandler = new IntegrationTestSpanHandler();
+  StrictCurrentTraceContext currentTraceContext = StrictCurrentTraceContext.create();
+  Tracing tracing = Tracing.newBuilder()
+    .currentTraceContext(currentTraceContext)
+    .addSpanHandler(spanHandler)
+    .build();
+  EmbeddedChannel channel =
+    new EmbeddedChannel(NettyHttpTracing.create(tracing).http2ServerHandler());
+
+  @AfterEach void close() {
+    channel.finishAndReleaseAll();
+    tracing.close();
+    currentTraceContext.close();
+  }
+
+  @Test void interleavedStreams() {
+    channel.writeInbound(request(3, "/foo"));
+    channel.writeInbound(request(5, "/bar?q=1"));
+
+    channel.writeOutbound(response(5, "404"));
+    assertThat(spanHandler.takeRemoteSpanWithErrorTag(SERVER, "404").tags())
+      .containsEntry("http.path", "/bar");
+
+    channel.writeOutbound(response(3, "100")); // interim
+    channel.writeOutbound(response(3, "200"));
+    assertThat(spanHandler.takeRemoteSpan(SERVER).tags())
+      .containsEntry("http.method", "GET")
+      .containsEntry("http.path", "/foo");
+  }
+
+  @Test void extractsMixedCaseHeaderNames() {
+    Http2HeadersFrame request = request(3, "/foo");
+    request.headers()
+      .set("x-b3-traceid", "463ac35c9f6413ad")
+      .set("x-b3-spanid", "463ac35c9f6413ad");
+    channel.writeInbound(request);
+
+    channel.writeOutbound(response(3, "200"));
+
+    assertThat(spanHandler.takeRemoteSpan(SERVER).traceId()).isEqualTo("463ac35c9f6413ad");
+  }
+
+  @Test void trailersIgnored() {
+    channel.writeInbound(request(3, "/foo"));
+    channel.writeOutbound(response(3, "200"));
+    spanHandler.takeRemoteSpan(SERVER);
+
+    channel.writeOutbound(new DefaultHttp2HeadersFrame(new DefaultHttp2Headers(), true)
+      .stream(new FakeStream(3)));
+  }
+
+  @Test void channelInactive_finishesInFlight() {
+    channel.writeInbound(request(3, "/foo"));
+    channel.writeInbound(request(5, "/bar"));
+
+    channel.close();
+
+    spanHandler.takeRemoteSpanWithError(SERVER);
+    spanHandler.takeRemoteSpanWithError(SERVER);
+  }
+
+  @Test void inboundReset_finishesStream() {
+    channel.writeInbound(request(3, "/foo"));
+    channel.writeInbound(request(5, "/bar"));
+
+    channel.writeInbound(new DefaultHttp2ResetFrame(Http2Error.CANCEL).stream(new FakeStream(3)));
+    spanHandler.takeRemoteSpanWithErrorMessage(SERVER, "Stream reset: CANCEL");
+
+    channel.writeOutbound(response(3, "200")); // late response isn't traced again
+    channel.writeOutbound(response(5, "200"));
+    assertThat(spanHandler.takeRemoteSpan(SERVER).tags()).containsEntry("http.path", "/bar");
+  }
+
+  @Test void outboundReset_finishesStream() {
+    channel.writeInbound(request(3, "/foo"));
+
+    channel.writeOutbound(
+      new DefaultHttp2ResetFrame(Http2Error.REFUSED_STREAM).stream(new FakeStream(3)));
+
+    spanHandler.takeRemoteSpanWithErrorMessage(SERVER, "Stream reset: REFUSED_STREAM");
+  }
+
+  @Test void reset_ignoresFinishedStream() {
+    channel.writeInbound(request(3, "/foo"));
+    channel.writeOutbound(response(3, "200"));
+    spanHandler.takeRemoteSpan(SERVER);
+
+    channel.writeInbound(new DefaultHttp2ResetFrame(Http2Error.CANCEL).stream(new FakeStream(3)));
+  }
+
+  @Test void streamClosed_finishesStream() throws Exception {
+    channel.writeInbound(request(3, "/foo"));
+
+    channel.pipeline().fireUserEventTriggered(stateChanged(new FakeStream(3, State.CLOSED)));
+
+    spanHandler.takeRemoteSpanWithError(SERVER);
+  }
+
+  @Test void streamStateChanged_ignoresOpenStream() throws Exception {
+    channel.writeInbound(request(3, "/foo"));
+
+    channel.pipeline().fireUserEventTriggered(stateChanged(new FakeStream(3)));
+
+    channel.writeOutbound(response(3, "200"));
+    spanHandler.takeRemoteSpan(SERVER);
+  }
+
+  /** The factory for stream events is package-private, as only the codec creates them. */
+  static Object stateChanged(Http2FrameStream stream) throws Exception {
+    Method stateChanged =
+      Http2FrameStreamEvent.class.getDeclaredMethod("stateChanged", Http2FrameStream.class);
+    stateChanged.setAccessible(true);
+    return stateChanged.invoke(null, stream);
+  }
+
+  static Http2HeadersFrame request(int streamId, String path) {
+    Http2Headers headers = new DefaultHttp2Headers()
+      .method("GET").scheme("http").authority("localhost").path(path);
+    return new DefaultHttp2HeadersFrame(headers, true).stream(new FakeStream(streamId));
+  }
+
+  static Http2HeadersFrame response(int streamId, String status) {
+    return new DefaultHttp2HeadersFrame(new DefaultHttp2Headers().status(status))
+      .stream(new FakeStream(streamId));
+  }
+
+  static final class FakeStream implements Http2FrameStream {
+    final int id;
+    final State state;
+
+    FakeStream(int id) {
+      this(id, State.OPEN);
+    }
+
+    FakeStream(int id, State state) {
+      this.id = id;
+      this.state = state;
+    }
+
+    @Override public int id() {
+      return id;
+    }
+
+    @Override public State state() {
+      return state;
+    }
+  }
+}
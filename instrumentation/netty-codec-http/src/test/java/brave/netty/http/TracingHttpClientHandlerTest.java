@@ -0,0 +1,89 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.netty.http;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.propagation.StrictCurrentTraceContext;
+import brave.test.IntegrationTestSpanHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
+import java.nio.channels.ClosedChannelException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static brave.Span.Kind.CLIENT;
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TracingHttpClientHandlerTest {
+  @RegisterExtension IntegrationTestSpanHandler spanHandler = new IntegrationTestSpanHandler();
+  StrictCurrentTraceContext currentTraceContext = StrictCurrentTraceContext.create();
+  Tracing tracing = Tracing.newBuilder()
+    .currentTraceContext(currentTraceContext)
+    .addSpanHandler(spanHandler)
+    .build();
+  EmbeddedChannel channel =
+    new EmbeddedChannel(NettyHttpTracing.create(tracing).clientHandler());
+
+  @AfterEach void close() {
+    channel.finishAndReleaseAll();
+    tracing.close();
+    currentTraceContext.close();
+  }
+
+  @Test void injectsHeaders() {
+    channel.writeOutbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/foo"));
+    HttpRequest request = channel.readOutbound();
+
+    channel.writeInbound(new DefaultFullHttpResponse(HTTP_1_1, OK));
+
+    MutableSpan span = spanHandler.takeRemoteSpan(CLIENT);
+    assertThat(request.headers().get("X-B3-TraceId")).isEqualTo(span.traceId());
+    assertThat(request.headers().get("X-B3-SpanId")).isEqualTo(span.id());
+    assertThat(span.tags()).containsEntry("http.path", "/foo");
+  }
+
+  @Test void pipelinedRequestsCompleteInOrder() {
+    channel.writeOutbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/foo"));
+    channel.writeOutbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/bar"));
+
+    channel.writeInbound(new DefaultFullHttpResponse(HTTP_1_1, CONTINUE));
+    channel.writeInbound(new DefaultFullHttpResponse(HTTP_1_1, OK));
+    assertThat(spanHandler.takeRemoteSpan(CLIENT).tags())
+      .containsEntry("http.path", "/foo");
+
+    channel.writeInbound(new DefaultFullHttpResponse(HTTP_1_1, NOT_FOUND));
+    assertThat(spanHandler.takeRemoteSpanWithErrorTag(CLIENT, "404").tags())
+      .containsEntry("http.path", "/bar");
+  }
+
+  @Test void channelInactive_finishesInFlight() {
+    channel.writeOutbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/foo"));
+
+    channel.close();
+
+    assertThat(spanHandler.takeRemoteSpanWithError(CLIENT).error())
+      .isInstanceOf(ClosedChannelException.class);
+  }
+
+  @Test void exceptionCaught_finishesInFlight() {
+    channel.writeOutbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/foo"));
+    IllegalStateException error = new IllegalStateException("boom");
+
+    channel.pipeline().fireExceptionCaught(error);
+
+    spanHandler.takeRemoteSpanWithError(CLIENT, error);
+    assertThatThrownBy(channel::checkException).isSameAs(error); // propagated
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.netty.http;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.propagation.StrictCurrentTraceContext;
+import brave.test.IntegrationTestSpanHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import java.nio.channels.ClosedChannelException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static brave.Span.Kind.SERVER;
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracingHttpServerHandlerTest {
+  @RegisterExtension IntegrationTestSpanHandler spanHandler = new IntegrationTestSpanHandler();
+  StrictCurrentTraceContext currentTraceContext = StrictCurrentTraceContext.create();
+  Tracing tracing = Tracing.newBuilder()
+    .currentTraceContext(currentTraceContext)
+    .addSpanHandler(spanHandler)
+    .build();
+  EmbeddedChannel channel =
+    new EmbeddedChannel(NettyHttpTracing.create(tracing).serverHandler());
+
+  @AfterEach void close() {
+    channel.finishAndReleaseAll();
+    tracing.close();
+    currentTraceContext.close();
+  }
+
+  @Test void pipelinedRequestsCompleteInOrder() {
+    channel.writeInbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/foo"));
+    channel.writeInbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/bar?q=1"));
+
+    channel.writeOutbound(new DefaultFullHttpResponse(HTTP_1_1, OK));
+    assertThat(spanHandler.takeRemoteSpan(SERVER).tags())
+      .containsEntry("http.path", "/foo")
+      .doesNotContainKey("http.status_code");
+
+    channel.writeOutbound(new DefaultFullHttpResponse(HTTP_1_1, NOT_FOUND));
+    assertThat(spanHandler.takeRemoteSpanWithErrorTag(SERVER, "404").tags())
+      .containsEntry("http.path", "/bar")
+      .containsEntry("http.status_code", "404");
+  }
+
+  @Test void interimResponseDoesntCompleteRequest() {
+    channel.writeInbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/foo"));
+
+    channel.writeOutbound(new DefaultFullHttpResponse(HTTP_1_1, CONTINUE));
+    channel.writeOutbound(new DefaultFullHttpResponse(HTTP_1_1, BAD_REQUEST));
+
+    assertThat(spanHandler.takeRemoteSpanWithErrorTag(SERVER, "400").tags())
+      .containsEntry("http.status_code", "400");
+  }
+
+  @Test void responseWithoutRequest_passesThrough() {
+    channel.writeOutbound(new DefaultFullHttpResponse(HTTP_1_1, OK));
+
+    assertThat((Object) channel.readOutbound()).isNotNull();
+  }
+
+  @Test void channelInactive_finishesInFlight() {
+    channel.writeInbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/foo"));
+    channel.writeInbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/bar"));
+
+    channel.close();
+
+    MutableSpan foo = spanHandler.takeRemoteSpanWithError(SERVER);
+    MutableSpan bar = spanHandler.takeRemoteSpanWithError(SERVER);
+    assertThat(foo.error()).isInstanceOf(ClosedChannelException.class);
+    assertThat(foo.tags()).containsEntry("http.path", "/foo");
+    assertThat(bar.tags()).containsEntry("http.path", "/bar");
+  }
+}
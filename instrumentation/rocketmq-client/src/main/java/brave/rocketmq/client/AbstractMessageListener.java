@@ -14,27 +14,43 @@ import brave.propagation.TraceContextOrSamplingFlags;
 import brave.sampler.SamplerFunction;
 import org.apache.rocketmq.common.message.MessageExt;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.function.BiFunction;
+import java.util.Set;
 import java.util.function.Function;
 
 import static brave.Span.Kind.CONSUMER;
 import static brave.internal.Throwables.propagateIfFatal;
+import static brave.rocketmq.client.RocketMQTracing.ROCKETMQ_LINKED_TRACE_IDS;
 import static brave.rocketmq.client.RocketMQTracing.ROCKETMQ_TOPIC;
 
 /**
  * Read records headers to create and complete a child of the incoming
  * producers span if possible.
- * The spans are modeled as a duration 1 {@link Span.Kind#CONSUMER} span to represent consuming the
- * message from the rocketmq broker with a child span representing the processing of the message.
+ * The spans are modeled as a duration 1 {@link Span.Kind#CONSUMER} span per message to represent
+ * consuming it from the rocketmq broker, with a child span representing the processing.
+ *
+ * <p>By default, the delegate listener is invoked once per message, each in its own processing
+ * span. It stops at the first message not consumed successfully, returning that status.
+ *
+ * <p>With {@link RocketMQTracing.Builder#batchProcessing(boolean)}, the delegate is invoked once
+ * per batch, as it is passed all messages. When the batch has more than one message, the
+ * processing span is a child of the first sampled message's consumer span, or the first message's
+ * if none are sampled. Up to {@value #MAX_LINKED_TRACE_IDS} trace IDs of other messages in the
+ * batch are tagged on the processing span as {@code rocketmq.linked_trace_ids}.
  */
 abstract class AbstractMessageListener {
+  /** Bounds the tag value, as a batch can have up to 1024 messages. */
+  static final int MAX_LINKED_TRACE_IDS = 16;
+
   final RocketMQTracing rocketMQTracing;
   final Tracing tracing;
   final Tracer tracer;
   final TraceContext.Extractor<MessageConsumerRequest> extractor;
   final SamplerFunction<MessagingRequest> sampler;
   @Nullable final String remoteServiceName;
+  final boolean batchProcessing;
 
   AbstractMessageListener(RocketMQTracing rocketMQTracing) {
     this.rocketMQTracing = rocketMQTracing;
@@ -43,53 +59,124 @@ abstract class AbstractMessageListener {
     this.extractor = rocketMQTracing.consumerExtractor;
     this.sampler = rocketMQTracing.consumerSampler;
     this.remoteServiceName = rocketMQTracing.remoteServiceName;
+    this.batchProcessing = rocketMQTracing.batchProcessing;
   }
 
   <T> T processConsumeMessage(
       List<MessageExt> msgs,
       Function<List<MessageExt>, T> consumerFunc,
-      BiFunction<T, T, Boolean> successFunc,
       T successStatus
   ) {
+    if (msgs.isEmpty()) return consumerFunc.apply(msgs);
+    if (batchProcessing) return processBatch(msgs, consumerFunc);
+
     for (MessageExt message : msgs) {
-      MessageConsumerRequest request = new MessageConsumerRequest(message);
-      TraceContextOrSamplingFlags extracted =
-          rocketMQTracing.extractAndClearTraceIdHeaders(extractor, request, message.getProperties());
-      Span consumerSpan = rocketMQTracing.nextMessagingSpan(sampler, request, extracted);
-      Span listenerSpan = tracer.newChild(consumerSpan.context());
+      Span consumerSpan = nextConsumerSpan(message);
+      long timestamp = 0L;
+      if (!consumerSpan.isNoop()) {
+        timestamp = tracing.clock(consumerSpan.context()).currentTimeMicroseconds();
+        recordConsumerSpan(consumerSpan, message.getTopic(), timestamp);
+      }
+      Span listenerSpan = startListenerSpan(consumerSpan.context(), timestamp);
+      T result = invoke(Collections.singletonList(message), consumerFunc, listenerSpan);
+      if (!successStatus.equals(result)) return result;
+    }
+    return successStatus;
+  }
+
+  <T> T processBatch(List<MessageExt> msgs, Function<List<MessageExt>, T> consumerFunc) {
+    TraceContext[] consumerContexts = new TraceContext[msgs.size()];
+    TraceContext parent = null;
+    long timestamp = 0L;
+    for (int i = 0, length = consumerContexts.length; i < length; i++) {
+      MessageExt message = msgs.get(i);
+      Span consumerSpan = nextConsumerSpan(message);
 
       if (!consumerSpan.isNoop()) {
-        setConsumerSpan(consumerSpan, message.getTopic());
-        // incur timestamp overhead only once
-        long timestamp = tracing.clock(consumerSpan.context()).currentTimeMicroseconds();
-        consumerSpan.start(timestamp);
-        long consumerFinish = timestamp + 1L; // save a clock reading
-        consumerSpan.finish(consumerFinish);
-        // not using scoped span as we want to start with a pre-configured time
-        listenerSpan.name("on-message").start(consumerFinish);
+        // incur timestamp overhead only once per batch
+        if (timestamp == 0L) {
+          timestamp = tracing.clock(consumerSpan.context()).currentTimeMicroseconds();
+        }
+        recordConsumerSpan(consumerSpan, message.getTopic(), timestamp);
+      }
+
+      TraceContext context = consumerSpan.context();
+      consumerContexts[i] = context;
+      // Prefer a sampled parent, so that processing is recorded if any message is sampled.
+      if (parent == null || !Boolean.TRUE.equals(parent.sampled())
+          && Boolean.TRUE.equals(context.sampled())) {
+        parent = context;
       }
+    }
+
+    Span listenerSpan = startListenerSpan(parent, timestamp);
+    if (!listenerSpan.isNoop() && consumerContexts.length > 1) {
+      String linkedTraceIds = linkedTraceIds(consumerContexts, parent);
+      if (linkedTraceIds != null) listenerSpan.tag(ROCKETMQ_LINKED_TRACE_IDS, linkedTraceIds);
+    }
+    return invoke(msgs, consumerFunc, listenerSpan);
+  }
+
+  Span nextConsumerSpan(MessageExt message) {
+    MessageConsumerRequest request = new MessageConsumerRequest(message);
+    TraceContextOrSamplingFlags extracted =
+        rocketMQTracing.extractAndClearTraceIdHeaders(extractor, request, message.getProperties());
+    return rocketMQTracing.nextMessagingSpan(sampler, request, extracted);
+  }
+
+  void recordConsumerSpan(Span consumerSpan, String topic, long timestamp) {
+    setConsumerSpan(consumerSpan, topic);
+    consumerSpan.start(timestamp);
+    consumerSpan.finish(timestamp + 1L); // save a clock reading
+  }
 
-      Tracer.SpanInScope scope = tracer.withSpanInScope(listenerSpan);
-      Throwable error = null;
-      T result;
-
-      try {
-        result = consumerFunc.apply(msgs);
-      } catch (Throwable t) {
-        propagateIfFatal(t);
-        error = t;
-        throw t;
-      } finally {
-        if (error != null) listenerSpan.error(error);
-        listenerSpan.finish();
-        scope.close();
+  /** Starts the processing span just after the consumer span, when it was recorded. */
+  Span startListenerSpan(TraceContext parent, long timestamp) {
+    Span listenerSpan = tracer.newChild(parent);
+    if (!listenerSpan.isNoop()) {
+      // not using scoped span as we want to start with a pre-configured time
+      listenerSpan.name("on-message");
+      if (timestamp != 0L) {
+        listenerSpan.start(timestamp + 1L);
+      } else { // only possible when consumer spans were not recorded, but this one is
+        listenerSpan.start();
       }
+    }
+    return listenerSpan;
+  }
+
+  <T> T invoke(List<MessageExt> msgs, Function<List<MessageExt>, T> consumerFunc,
+      Span listenerSpan) {
+    Tracer.SpanInScope scope = tracer.withSpanInScope(listenerSpan);
+    Throwable error = null;
+    try {
+      return consumerFunc.apply(msgs);
+    } catch (Throwable t) {
+      propagateIfFatal(t);
+      error = t;
+      throw t;
+    } finally {
+      if (error != null) listenerSpan.error(error);
+      listenerSpan.finish();
+      scope.close();
+    }
+  }
 
-      if (!successFunc.apply(result, successStatus)) {
-        return result;
+  /**
+   * Returns a comma-separated list of up to {@value #MAX_LINKED_TRACE_IDS} distinct trace IDs of
+   * messages not in the parent's trace, or null if all messages are in the same trace.
+   */
+  @Nullable static String linkedTraceIds(TraceContext[] consumerContexts, TraceContext parent) {
+    Set<String> traceIds = null;
+    for (TraceContext context : consumerContexts) {
+      if (context.traceIdHigh() == parent.traceIdHigh() && context.traceId() == parent.traceId()) {
+        continue;
       }
+      if (traceIds == null) traceIds = new LinkedHashSet<>();
+      traceIds.add(context.traceIdString());
+      if (traceIds.size() == MAX_LINKED_TRACE_IDS) break;
     }
-    return successStatus;
+    return traceIds != null ? String.join(",", traceIds) : null;
   }
 
   void setConsumerSpan(Span span, String topic) {
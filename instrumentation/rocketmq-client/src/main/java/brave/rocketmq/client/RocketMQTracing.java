@@ -24,7 +24,8 @@ import java.util.Map;
 public final class RocketMQTracing {
   static final String
     ROCKETMQ_TOPIC = "rocketmq.topic",
-    ROCKETMQ_TAGS = "rocketmq.tags";
+    ROCKETMQ_TAGS = "rocketmq.tags",
+    ROCKETMQ_LINKED_TRACE_IDS = "rocketmq.linked_trace_ids";
 
   public static RocketMQTracing create(Tracing tracing) {
     return newBuilder(tracing).build();
@@ -47,6 +48,7 @@ public final class RocketMQTracing {
   public static final class Builder {
     final MessagingTracing messagingTracing;
     String remoteServiceName = "rocketmq";
+    boolean batchProcessing;
 
     Builder(MessagingTracing messagingTracing) {
       if (messagingTracing == null) throw new NullPointerException("messagingTracing == null");
@@ -59,6 +61,21 @@ public final class RocketMQTracing {
       return this;
     }
 
+    /**
+     * When true, wrapped listeners invoke their delegate once per batch of messages, in a single
+     * "on-message" span. Trace IDs of messages in other traces are tagged on that span as
+     * "rocketmq.linked_trace_ids", up to 16 of them.
+     *
+     * <p>Defaults to false, which invokes the delegate once per message, each in its own
+     * "on-message" span that is a child of that message's consumer span.
+     *
+     * @since 6.4
+     */
+    public Builder batchProcessing(boolean batchProcessing) {
+      this.batchProcessing = batchProcessing;
+      return this;
+    }
+
     public RocketMQTracing build() {
       return new RocketMQTracing(this);
     }
@@ -67,6 +84,7 @@ public final class RocketMQTracing {
   final MessagingTracing messagingTracing;
   final Tracer tracer;
   final String remoteServiceName;
+  final boolean batchProcessing;
   final Extractor<MessageProducerRequest> producerExtractor;
   final Extractor<MessageConsumerRequest> consumerExtractor;
   final Injector<MessageProducerRequest> producerInjector;
@@ -79,6 +97,7 @@ public final class RocketMQTracing {
     this.messagingTracing = builder.messagingTracing;
     this.tracer = builder.messagingTracing.tracing().tracer();
     this.remoteServiceName = builder.remoteServiceName;
+    this.batchProcessing = builder.batchProcessing;
     Propagation<String> propagation = messagingTracing.propagation();
     this.producerExtractor = propagation.extractor(MessageProducerRequest.GETTER);
     this.consumerExtractor = propagation.extractor(MessageConsumerRequest.GETTER);
@@ -122,12 +141,8 @@ public final class RocketMQTracing {
     MessagingRequest request,
     TraceContextOrSamplingFlags extracted
   ) {
-    Boolean sampled = extracted.sampled();
-    // only recreate the context if the messaging sampler made a decision
-    if (sampled == null && (sampled = sampler.trySample(request)) != null) {
-      extracted = extracted.sampled(sampled);
-    }
-    return tracer.nextSpan(extracted);
+    // the messaging sampler is only invoked if there was no sampling decision extracted
+    return tracer.nextSpan(sampler, request, extracted);
   }
 
   /**
@@ -10,15 +10,12 @@ import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
 import org.apache.rocketmq.common.message.MessageExt;
 
 import java.util.List;
-import java.util.function.BiFunction;
 
 /**
  * RocketMQ Consumer decorator for concurrent message processing with tracing support.
  */
 final class TracingMessageListenerConcurrently extends AbstractMessageListener implements MessageListenerConcurrently {
   final MessageListenerConcurrently messageListenerConcurrently;
-  final BiFunction<ConsumeConcurrentlyStatus, ConsumeConcurrentlyStatus, Boolean> CONCURRENT_CHECK =
-      (result, success) -> result == success;
 
   TracingMessageListenerConcurrently(
       RocketMQTracing rocketMQTracing,
@@ -36,7 +33,6 @@ final class TracingMessageListenerConcurrently extends AbstractMessageListener i
     return processConsumeMessage(
         msgs,
         list -> messageListenerConcurrently.consumeMessage(list, context),
-        CONCURRENT_CHECK,
         ConsumeConcurrentlyStatus.CONSUME_SUCCESS
     );
   }
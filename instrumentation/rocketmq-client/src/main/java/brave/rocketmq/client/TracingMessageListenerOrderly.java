@@ -10,15 +10,12 @@ import org.apache.rocketmq.client.consumer.listener.MessageListenerOrderly;
 import org.apache.rocketmq.common.message.MessageExt;
 
 import java.util.List;
-import java.util.function.BiFunction;
 
 /**
  * RocketMQ Consumer decorator for orderly message processing with tracing support.
  */
 final class TracingMessageListenerOrderly extends AbstractMessageListener implements MessageListenerOrderly {
   final MessageListenerOrderly messageListenerOrderly;
-  final BiFunction<ConsumeOrderlyStatus, ConsumeOrderlyStatus, Boolean> ORDERLY_CHECK =
-      (result, success) -> result == success;
 
   TracingMessageListenerOrderly(
       RocketMQTracing rocketMQTracing,
@@ -36,7 +33,6 @@ final class TracingMessageListenerOrderly extends AbstractMessageListener implem
     return processConsumeMessage(
         msgs,
         list -> messageListenerOrderly.consumeMessage(list, context),
-        ORDERLY_CHECK,
         ConsumeOrderlyStatus.SUCCESS
     );
   }
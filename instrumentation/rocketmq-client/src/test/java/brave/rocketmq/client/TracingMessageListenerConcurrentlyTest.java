@@ -0,0 +1,176 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.rocketmq.client;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.propagation.StrictCurrentTraceContext;
+import brave.test.IntegrationTestSpanHandler;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static brave.Span.Kind.CONSUMER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TracingMessageListenerConcurrentlyTest {
+  @RegisterExtension IntegrationTestSpanHandler spanHandler = new IntegrationTestSpanHandler();
+  StrictCurrentTraceContext currentTraceContext = StrictCurrentTraceContext.create();
+  Tracing tracing = Tracing.newBuilder()
+      .currentTraceContext(currentTraceContext)
+      .addSpanHandler(spanHandler)
+      .build();
+  RocketMQTracing rocketMQTracing = RocketMQTracing.create(tracing);
+  RocketMQTracing batchTracing =
+      RocketMQTracing.newBuilder(tracing).batchProcessing(true).build();
+
+  List<List<MessageExt>> invocations = new ArrayList<>();
+  MessageListenerConcurrently delegate = (msgs, context) -> {
+    assertThat(currentTraceContext.get()).isNotNull();
+    invocations.add(msgs);
+    return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+  };
+
+  @AfterEach void close() {
+    tracing.close();
+    currentTraceContext.close();
+  }
+
+  @Test void invokesDelegateOncePerMessage() {
+    MessageExt message1 = message(), message2 = message();
+
+    assertThat(rocketMQTracing.messageListenerConcurrently(delegate)
+        .consumeMessage(Arrays.asList(message1, message2), null))
+        .isEqualTo(ConsumeConcurrentlyStatus.CONSUME_SUCCESS);
+
+    assertThat(invocations).containsExactly(
+        Collections.singletonList(message1), Collections.singletonList(message2));
+
+    for (int i = 0; i < 2; i++) {
+      MutableSpan consumer = spanHandler.takeRemoteSpan(CONSUMER);
+      MutableSpan listener = spanHandler.takeLocalSpan();
+      assertThat(listener.name()).isEqualTo("on-message");
+      assertThat(listener.parentId()).isEqualTo(consumer.id());
+      assertThat(listener.tags()).doesNotContainKey("rocketmq.linked_trace_ids");
+    }
+  }
+
+  @Test void stopsAtFirstMessageNotConsumed() {
+    delegate = (msgs, context) -> {
+      invocations.add(msgs);
+      return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+    };
+
+    assertThat(rocketMQTracing.messageListenerConcurrently(delegate)
+        .consumeMessage(Arrays.asList(message(), message()), null))
+        .isEqualTo(ConsumeConcurrentlyStatus.RECONSUME_LATER);
+
+    assertThat(invocations).hasSize(1);
+    spanHandler.takeRemoteSpan(CONSUMER);
+    spanHandler.takeLocalSpan();
+  }
+
+  @Test void invokesDelegateOncePerBatch() {
+    List<MessageExt> batch = Arrays.asList(message(), message(), message());
+
+    assertThat(batchTracing.messageListenerConcurrently(delegate).consumeMessage(batch, null))
+        .isEqualTo(ConsumeConcurrentlyStatus.CONSUME_SUCCESS);
+
+    assertThat(invocations).containsExactly(batch);
+
+    MutableSpan consumer1 = spanHandler.takeRemoteSpan(CONSUMER);
+    MutableSpan consumer2 = spanHandler.takeRemoteSpan(CONSUMER);
+    MutableSpan consumer3 = spanHandler.takeRemoteSpan(CONSUMER);
+    MutableSpan listener = spanHandler.takeLocalSpan();
+    assertThat(listener.name()).isEqualTo("on-message");
+    assertThat(listener.parentId()).isEqualTo(consumer1.id());
+    assertThat(listener.tags()).containsEntry("rocketmq.linked_trace_ids",
+        consumer2.traceId() + "," + consumer3.traceId());
+  }
+
+  @Test void parentsOnFirstSampledMessage() {
+    MessageExt unsampled = message();
+    unsampled.putUserProperty("b3", "0");
+    MessageExt sampled = message();
+    sampled.putUserProperty("b3", "463ac35c9f6413ad-463ac35c9f6413ad-1");
+
+    batchTracing.messageListenerConcurrently(delegate)
+        .consumeMessage(Arrays.asList(unsampled, sampled), null);
+
+    MutableSpan consumer = spanHandler.takeRemoteSpan(CONSUMER);
+    assertThat(consumer.traceId()).isEqualTo("463ac35c9f6413ad");
+    MutableSpan listener = spanHandler.takeLocalSpan();
+    assertThat(listener.parentId()).isEqualTo(consumer.id());
+    assertThat(listener.tags()).containsKey("rocketmq.linked_trace_ids");
+  }
+
+  @Test void noLinksWhenBatchIsOneTrace() {
+    MessageExt message1 = message();
+    message1.putUserProperty("b3", "463ac35c9f6413ad-463ac35c9f6413ad-1");
+    MessageExt message2 = message();
+    message2.putUserProperty("b3", "463ac35c9f6413ad-463ac35c9f6413ad-1");
+
+    batchTracing.messageListenerConcurrently(delegate)
+        .consumeMessage(Arrays.asList(message1, message2), null);
+
+    spanHandler.takeRemoteSpan(CONSUMER);
+    spanHandler.takeRemoteSpan(CONSUMER);
+    assertThat(spanHandler.takeLocalSpan().tags())
+        .doesNotContainKey("rocketmq.linked_trace_ids");
+  }
+
+  @Test void linkedTraceIdsAreCapped() {
+    List<MessageExt> batch = new ArrayList<>();
+    for (int i = 0; i < 20; i++) batch.add(message());
+
+    batchTracing.messageListenerConcurrently(delegate).consumeMessage(batch, null);
+
+    for (int i = 0; i < 20; i++) spanHandler.takeRemoteSpan(CONSUMER);
+    assertThat(spanHandler.takeLocalSpan().tags().get("rocketmq.linked_trace_ids").split(","))
+        .hasSize(AbstractMessageListener.MAX_LINKED_TRACE_IDS);
+  }
+
+  @Test void returnsDelegateStatus() {
+    delegate = (msgs, context) -> ConsumeConcurrentlyStatus.RECONSUME_LATER;
+
+    assertThat(batchTracing.messageListenerConcurrently(delegate)
+        .consumeMessage(Arrays.asList(message(), message()), null))
+        .isEqualTo(ConsumeConcurrentlyStatus.RECONSUME_LATER);
+
+    spanHandler.takeRemoteSpan(CONSUMER);
+    spanHandler.takeRemoteSpan(CONSUMER);
+    spanHandler.takeLocalSpan();
+  }
+
+  @Test void errorOnListenerSpan() {
+    RuntimeException error = new RuntimeException("boom");
+    delegate = (msgs, context) -> {
+      throw error;
+    };
+
+    assertThatThrownBy(() -> rocketMQTracing.messageListenerConcurrently(delegate)
+        .consumeMessage(Arrays.asList(message()), null))
+        .isSameAs(error);
+
+    spanHandler.takeRemoteSpan(CONSUMER);
+    assertThat(spanHandler.takeLocalSpan().error()).isSameAs(error);
+  }
+
+  static MessageExt message() {
+    MessageExt message = new MessageExt();
+    message.setTopic("zipkin");
+    message.setBody(new byte[0]);
+    return message;
+  }
+}
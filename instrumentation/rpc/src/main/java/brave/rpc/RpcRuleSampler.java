@@ -6,9 +6,17 @@ package brave.rpc;
 
 import brave.Tracing;
 import brave.sampler.Matcher;
+import brave.sampler.Matchers;
 import brave.sampler.ParameterizedSampler;
+import brave.sampler.ReloadableSamplerFunction;
 import brave.sampler.Sampler;
 import brave.sampler.SamplerFunction;
+import brave.sampler.SamplerRuleReader;
+import brave.sampler.SamplerRuleReader.RuleParser;
+import java.util.Map;
+
+import static brave.rpc.RpcRequestMatchers.methodEquals;
+import static brave.rpc.RpcRequestMatchers.serviceEquals;
 
 /**
  * Assigns sample rates to RPC requests.
@@ -29,6 +37,10 @@ import brave.sampler.SamplerFunction;
  * <h3>Implementation notes</h3>
  * Be careful when implementing matchers as {@link RpcRequest} methods can return null.
  *
+ * <p>A built sampler is immutable. To change rules at runtime, wrap it in a {@link
+ * ReloadableSamplerFunction}. Rules can be read from text with {@link SamplerRuleReader} and
+ * {@link #ruleParser()}.
+ *
  * @see RpcRequestMatchers
  * @since 5.8
  */
@@ -40,6 +52,39 @@ public final class RpcRuleSampler implements SamplerFunction<RpcRequest> {
     return new Builder();
   }
 
+  /**
+   * Parses rules in the format "{service}[/{method}]" for {@link SamplerRuleReader}. Use "*" in
+   * place of the service to match a method in any service.
+   *
+   * <p>Ex. "scribe" is {@link RpcRequestMatchers#serviceEquals(String) serviceEquals("scribe")},
+   * "*&#47;Report" is {@link RpcRequestMatchers#methodEquals(String) methodEquals("Report")} and
+   * "scribe/Report" is both.
+   *
+   * @since 6.4
+   */
+  public static RuleParser<RpcRequest> ruleParser() {
+    return RpcRuleParser.INSTANCE;
+  }
+
+  enum RpcRuleParser implements RuleParser<RpcRequest> {
+    INSTANCE;
+
+    @Override public Matcher<RpcRequest> parseRule(String rule) {
+      int slash = rule.indexOf('/');
+      if (slash == -1) return serviceEquals(rule);
+      String service = rule.substring(0, slash), method = rule.substring(slash + 1);
+      if (service.isEmpty() || method.isEmpty()) {
+        throw new IllegalArgumentException("expected {service}[/{method}], but was: " + rule);
+      }
+      if ("*".equals(service)) return methodEquals(method);
+      return Matchers.and(serviceEquals(service), methodEquals(method));
+    }
+
+    @Override public String toString() {
+      return "RpcRuleParser";
+    }
+  }
+
   /** @since 5.8 */
   public static final class Builder {
     final ParameterizedSampler.Builder<RpcRequest> delegate = ParameterizedSampler.newBuilder();
@@ -55,6 +100,19 @@ public final class RpcRuleSampler implements SamplerFunction<RpcRequest> {
       return this;
     }
 
+    /**
+     * Adds or replaces rules in iteration order, such as those read by {@link SamplerRuleReader}.
+     *
+     * @since 6.4
+     */
+    public Builder putAllRules(Map<Matcher<RpcRequest>, ? extends Sampler> rules) {
+      if (rules == null) throw new NullPointerException("rules == null");
+      for (Map.Entry<Matcher<RpcRequest>, ? extends Sampler> rule : rules.entrySet()) {
+        putRule(rule.getKey(), rule.getValue());
+      }
+      return this;
+    }
+
     /**
      * Adds or replaces the sampler for the matcher.
      *
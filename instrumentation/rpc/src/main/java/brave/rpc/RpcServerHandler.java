@@ -80,14 +80,8 @@ public final class RpcServerHandler extends RpcHandler<RpcServerRequest, RpcServ
 
   /** Creates a potentially noop span representing this request */
   Span nextSpan(TraceContextOrSamplingFlags extracted, RpcServerRequest request) {
-    Boolean sampled = extracted.sampled();
-    // only recreate the context if the RPC sampler made a decision
-    if (sampled == null && (sampled = sampler.trySample(request)) != null) {
-      extracted = extracted.sampled(sampled.booleanValue());
-    }
-    return extracted.context() != null
-        ? tracer.joinSpan(extracted.context())
-        : tracer.nextSpan(extracted);
+    // the RPC sampler is only invoked if there was no sampling decision extracted
+    return tracer.joinSpan(sampler, request, extracted);
   }
 
   /**
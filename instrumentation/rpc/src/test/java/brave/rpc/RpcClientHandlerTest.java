@@ -126,13 +126,15 @@ public class RpcClientHandlerTest {
   }
 
   @Test void handleReceive_finishesSpanEvenIfUnwrappedNull() {
-    brave.Span span = mock(brave.Span.class);
+    brave.Span span = mock(brave.Span.class, CALLS_REAL_METHODS);
     when(span.context()).thenReturn(context);
     when(span.customizer()).thenReturn(span);
 
-    handler.handleReceive(mock(RpcClientResponse.class), span);
+    RpcClientResponse response = mock(RpcClientResponse.class);
+    handler.handleReceive(response, span);
 
     verify(span).isNoop();
+    verify(span).update(response, handler.responseUpdater);
     verify(span).context();
     verify(span).customizer();
     verify(span).finish();
@@ -140,7 +142,7 @@ public class RpcClientHandlerTest {
   }
 
   @Test void handleReceive_finishesSpanEvenIfUnwrappedNull_withError() {
-    brave.Span span = mock(brave.Span.class);
+    brave.Span span = mock(brave.Span.class, CALLS_REAL_METHODS);
     when(span.context()).thenReturn(context);
     when(span.customizer()).thenReturn(span);
 
@@ -150,6 +152,7 @@ public class RpcClientHandlerTest {
     handler.handleReceive(response, span);
 
     verify(span).isNoop();
+    verify(span).update(response, handler.responseUpdater);
     verify(span).context();
     verify(span).customizer();
     verify(span).error(error);
@@ -4,9 +4,13 @@
  */
 package brave.rpc;
 
+import brave.sampler.DecisionCountingSampler;
 import brave.sampler.Matcher;
 import brave.sampler.RateLimitingSampler;
+import brave.sampler.ReloadableSamplerFunction;
 import brave.sampler.Sampler;
+import brave.sampler.SamplerRuleReader;
+import java.io.StringReader;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
@@ -15,7 +19,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static brave.rpc.RpcRequestMatchers.methodEquals;
+import static brave.rpc.RpcRequestMatchers.serviceEquals;
+import static brave.sampler.Matchers.and;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -100,6 +107,37 @@ public class RpcRuleSamplerTest {
         .isNull();
   }
 
+  @Test void ruleParser() {
+    assertThat(RpcRuleSampler.ruleParser().parseRule("scribe"))
+        .isEqualTo(serviceEquals("scribe"));
+    assertThat(RpcRuleSampler.ruleParser().parseRule("*/Log"))
+        .isEqualTo(methodEquals("Log"));
+    assertThat(RpcRuleSampler.ruleParser().parseRule("scribe/Log"))
+        .hasToString(and(serviceEquals("scribe"), methodEquals("Log")).toString());
+  }
+
+  @Test void ruleParser_badRule() {
+    assertThatThrownBy(() -> RpcRuleSampler.ruleParser().parseRule("scribe/"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("expected {service}[/{method}], but was: scribe/");
+  }
+
+  @Test void reloadRules() throws Exception {
+    Map<Matcher<RpcRequest>, DecisionCountingSampler> rules = SamplerRuleReader.read(
+        new StringReader("*/health = 0.0\n"), RpcRuleSampler.ruleParser());
+    ReloadableSamplerFunction<RpcRequest> sampler = ReloadableSamplerFunction.create(
+        RpcRuleSampler.newBuilder().putAllRules(rules).build());
+
+    when(request.method()).thenReturn("health");
+    assertThat(sampler.trySample(request)).isFalse();
+    assertThat(rules.get(methodEquals("health")).unsampledCount()).isEqualTo(1);
+
+    sampler.set(RpcRuleSampler.newBuilder().putAllRules(SamplerRuleReader.read(
+        new StringReader("*/health = 1.0\n"), RpcRuleSampler.ruleParser())).build());
+
+    assertThat(sampler.trySample(request)).isTrue();
+  }
+
   // empty may sound unintuitive, but it allows use of the same type when always deferring
   @Test void noRulesOk() {
     RpcRuleSampler.newBuilder().build();
@@ -108,13 +108,14 @@ public class RpcServerHandlerTest {
   }
 
   @Test void handleSend_finishesSpanEvenIfUnwrappedNull() {
-    brave.Span span = mock(brave.Span.class);
+    brave.Span span = mock(brave.Span.class, CALLS_REAL_METHODS);
     when(span.context()).thenReturn(context);
     when(span.customizer()).thenReturn(span);
 
     handler.handleSend(response, span);
 
     verify(span).isNoop();
+    verify(span).update(response, handler.responseUpdater);
     verify(span).context();
     verify(span).customizer();
     verify(span).finish();
@@ -122,7 +123,7 @@ public class RpcServerHandlerTest {
   }
 
   @Test void handleSend_finishesSpanEvenIfUnwrappedNull_withError() {
-    brave.Span span = mock(brave.Span.class);
+    brave.Span span = mock(brave.Span.class, CALLS_REAL_METHODS);
     when(span.context()).thenReturn(context);
     when(span.customizer()).thenReturn(span);
 
@@ -132,6 +133,7 @@ public class RpcServerHandlerTest {
     handler.handleSend(response, span);
 
     verify(span).isNoop();
+    verify(span).update(response, handler.responseUpdater);
     verify(span).context();
     verify(span).customizer();
     verify(span).error(error);
@@ -0,0 +1,464 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.vertx.web;
+
+import brave.Span;
+import brave.http.HttpClientHandler;
+import brave.http.HttpClientRequest;
+import brave.http.HttpClientResponse;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.TraceContext;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpFrame;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.StreamPriority;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Starts a client span when the request head is sent, and finishes it on the response or an
+ * exception, whichever is first.
+ *
+ * <h3>Why intercept response and exception handlers?</h3>
+ * <p>There can be only one response handler and one exception handler. To ensure the span is always
+ * finished, this registers its own handlers with the delegate and forwards to the user's, if any.
+ * Vert.x 3.x has no way to read handlers already set on the delegate, so they are replaced: the
+ * user must set handlers on this wrapper, not on the request before it was wrapped.
+ *
+ * <p>Without a user exception handler, errors are reported to the Vert.x context, as if the
+ * request had no handler. This includes errors thrown by the user's response handler, which
+ * Vert.x passes to the exception handler.
+ *
+ * <p>The parent is the trace context current when this was created. User handlers run in that same
+ * context, so that async chaining appears caused by the parent, not the client span.
+ */
+final class TracingHttpClientRequest implements io.vertx.core.http.HttpClientRequest {
+  final io.vertx.core.http.HttpClientRequest delegate;
+  final HttpClientHandler<HttpClientRequest, HttpClientResponse> handler;
+  final CurrentTraceContext currentTraceContext;
+  final TraceContext invocationContext; // null when there was no current span
+  final AtomicBoolean finished = new AtomicBoolean();
+  volatile Span span; // set when the head is sent, possibly off the event loop
+  volatile Handler<io.vertx.core.http.HttpClientResponse> responseHandler;
+  volatile Handler<Throwable> exceptionHandler;
+
+  TracingHttpClientRequest(io.vertx.core.http.HttpClientRequest delegate,
+    HttpClientHandler<HttpClientRequest, HttpClientResponse> handler,
+    CurrentTraceContext currentTraceContext) {
+    this.delegate = delegate;
+    this.handler = handler;
+    this.currentTraceContext = currentTraceContext;
+    this.invocationContext = currentTraceContext.get();
+    delegate.handler(this::onResponse);
+    delegate.exceptionHandler(this::onException);
+  }
+
+  /** Called before anything that can send the request head. */
+  void maybeStartSpan() {
+    if (span != null) return;
+    span = handler.handleSendWithParent(new HttpClientRequestWrapper(delegate), invocationContext);
+  }
+
+  void onResponse(io.vertx.core.http.HttpClientResponse response) {
+    maybeFinishSpan(response, null);
+    Handler<io.vertx.core.http.HttpClientResponse> responseHandler = this.responseHandler;
+    if (responseHandler == null) return;
+    try (Scope scope = currentTraceContext.newScope(invocationContext)) {
+      responseHandler.handle(response);
+    }
+  }
+
+  void onException(Throwable error) {
+    maybeFinishSpan(null, error);
+    Handler<Throwable> exceptionHandler = this.exceptionHandler;
+    if (exceptionHandler == null) {
+      reportException(error);
+      return;
+    }
+    try (Scope scope = currentTraceContext.newScope(invocationContext)) {
+      exceptionHandler.handle(error);
+    }
+  }
+
+  void maybeFinishSpan(io.vertx.core.http.HttpClientResponse response, Throwable error) {
+    Span span = this.span;
+    if (span == null || !finished.compareAndSet(false, true)) return;
+    if (!span.isNoop()) {
+      HttpConnection connection = delegate.connection();
+      SocketAddress address = connection != null ? connection.remoteAddress() : null;
+      if (address != null) span.remoteIpAndPort(address.host(), address.port());
+    }
+    handler.handleReceive(new HttpClientResponseWrapper(delegate, response, error), span);
+  }
+
+  /** Routes the error to the context or {@link Vertx#exceptionHandler(Handler)}, if set. */
+  static void reportException(Throwable error) {
+    Context context = Vertx.currentContext();
+    if (context instanceof ContextInternal) {
+      ((ContextInternal) context).reportException(error);
+      return;
+    }
+    if (error instanceof RuntimeException) throw (RuntimeException) error;
+    if (error instanceof Error) throw (Error) error;
+    throw new VertxException(error);
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest handler(
+    Handler<io.vertx.core.http.HttpClientResponse> handler) {
+    responseHandler = handler;
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest exceptionHandler(
+    Handler<Throwable> handler) {
+    exceptionHandler = handler;
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest sendHead() {
+    maybeStartSpan();
+    delegate.sendHead();
+    return this;
+  }
+
+  @Override
+  public io.vertx.core.http.HttpClientRequest sendHead(Handler<HttpVersion> completionHandler) {
+    maybeStartSpan();
+    delegate.sendHead(completionHandler);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest write(Buffer data) {
+    maybeStartSpan();
+    delegate.write(data);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest write(Buffer data,
+    Handler<AsyncResult<Void>> handler) {
+    maybeStartSpan();
+    delegate.write(data, handler);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest write(String chunk) {
+    maybeStartSpan();
+    delegate.write(chunk);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest write(String chunk,
+    Handler<AsyncResult<Void>> handler) {
+    maybeStartSpan();
+    delegate.write(chunk, handler);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest write(String chunk, String enc) {
+    maybeStartSpan();
+    delegate.write(chunk, enc);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest write(String chunk, String enc,
+    Handler<AsyncResult<Void>> handler) {
+    maybeStartSpan();
+    delegate.write(chunk, enc, handler);
+    return this;
+  }
+
+  @Override public void end(String chunk) {
+    maybeStartSpan();
+    delegate.end(chunk);
+  }
+
+  @Override public void end(String chunk, Handler<AsyncResult<Void>> handler) {
+    maybeStartSpan();
+    delegate.end(chunk, handler);
+  }
+
+  @Override public void end(String chunk, String enc) {
+    maybeStartSpan();
+    delegate.end(chunk, enc);
+  }
+
+  @Override public void end(String chunk, String enc, Handler<AsyncResult<Void>> handler) {
+    maybeStartSpan();
+    delegate.end(chunk, enc, handler);
+  }
+
+  @Override public void end(Buffer chunk) {
+    maybeStartSpan();
+    delegate.end(chunk);
+  }
+
+  @Override public void end(Buffer chunk, Handler<AsyncResult<Void>> handler) {
+    maybeStartSpan();
+    delegate.end(chunk, handler);
+  }
+
+  @Override public void end() {
+    maybeStartSpan();
+    delegate.end();
+  }
+
+  @Override public void end(Handler<AsyncResult<Void>> handler) {
+    maybeStartSpan();
+    delegate.end(handler);
+  }
+
+  // Below are pass-through methods
+
+  @Override public io.vertx.core.http.HttpClientRequest setWriteQueueMaxSize(int maxSize) {
+    delegate.setWriteQueueMaxSize(maxSize);
+    return this;
+  }
+
+  @Override public boolean writeQueueFull() {
+    return delegate.writeQueueFull();
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest drainHandler(Handler<Void> handler) {
+    delegate.drainHandler(handler);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest pause() {
+    delegate.pause();
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest resume() {
+    delegate.resume();
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest fetch(long amount) {
+    delegate.fetch(amount);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest endHandler(Handler<Void> endHandler) {
+    delegate.endHandler(endHandler);
+    return this;
+  }
+
+  @Override
+  public io.vertx.core.http.HttpClientRequest setFollowRedirects(boolean followRedirects) {
+    delegate.setFollowRedirects(followRedirects);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest setMaxRedirects(int maxRedirects) {
+    delegate.setMaxRedirects(maxRedirects);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest setChunked(boolean chunked) {
+    delegate.setChunked(chunked);
+    return this;
+  }
+
+  @Override public boolean isChunked() {
+    return delegate.isChunked();
+  }
+
+  @Override public HttpMethod method() {
+    return delegate.method();
+  }
+
+  @Override public String getRawMethod() {
+    return delegate.getRawMethod();
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest setRawMethod(String method) {
+    delegate.setRawMethod(method);
+    return this;
+  }
+
+  @Override public String absoluteURI() {
+    return delegate.absoluteURI();
+  }
+
+  @Override public String uri() {
+    return delegate.uri();
+  }
+
+  @Override public String path() {
+    return delegate.path();
+  }
+
+  @Override public String query() {
+    return delegate.query();
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest setHost(String host) {
+    delegate.setHost(host);
+    return this;
+  }
+
+  @Override public String getHost() {
+    return delegate.getHost();
+  }
+
+  @Override public MultiMap headers() {
+    return delegate.headers();
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest putHeader(String name, String value) {
+    delegate.putHeader(name, value);
+    return this;
+  }
+
+  @Override
+  public io.vertx.core.http.HttpClientRequest putHeader(CharSequence name, CharSequence value) {
+    delegate.putHeader(name, value);
+    return this;
+  }
+
+  @Override
+  public io.vertx.core.http.HttpClientRequest putHeader(String name, Iterable<String> values) {
+    delegate.putHeader(name, values);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest putHeader(CharSequence name,
+    Iterable<CharSequence> values) {
+    delegate.putHeader(name, values);
+    return this;
+  }
+
+  @Override
+  public io.vertx.core.http.HttpClientRequest continueHandler(Handler<Void> handler) {
+    delegate.continueHandler(handler);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest setTimeout(long timeoutMs) {
+    delegate.setTimeout(timeoutMs);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest pushHandler(
+    Handler<io.vertx.core.http.HttpClientRequest> handler) {
+    delegate.pushHandler(handler);
+    return this;
+  }
+
+  @Override public boolean reset(long code) {
+    return delegate.reset(code);
+  }
+
+  @Override public HttpConnection connection() {
+    return delegate.connection();
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest connectionHandler(
+    Handler<HttpConnection> handler) {
+    delegate.connectionHandler(handler);
+    return this;
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest writeCustomFrame(int type, int flags,
+    Buffer payload) {
+    delegate.writeCustomFrame(type, flags, payload);
+    return this;
+  }
+
+  @Override public int streamId() {
+    return delegate.streamId();
+  }
+
+  @Override public io.vertx.core.http.HttpClientRequest writeCustomFrame(HttpFrame frame) {
+    delegate.writeCustomFrame(frame);
+    return this;
+  }
+
+  @Override
+  public io.vertx.core.http.HttpClientRequest setStreamPriority(StreamPriority streamPriority) {
+    delegate.setStreamPriority(streamPriority);
+    return this;
+  }
+
+  @Override public StreamPriority getStreamPriority() {
+    return delegate.getStreamPriority();
+  }
+
+  @Override public String toString() {
+    return delegate.toString();
+  }
+
+  static final class HttpClientRequestWrapper extends HttpClientRequest {
+    final io.vertx.core.http.HttpClientRequest delegate;
+
+    HttpClientRequestWrapper(io.vertx.core.http.HttpClientRequest delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override public io.vertx.core.http.HttpClientRequest unwrap() {
+      return delegate;
+    }
+
+    @Override public String method() {
+      HttpMethod method = delegate.method();
+      return method == HttpMethod.OTHER ? delegate.getRawMethod() : method.name();
+    }
+
+    @Override public String path() {
+      return delegate.path();
+    }
+
+    @Override public String url() {
+      return delegate.absoluteURI();
+    }
+
+    @Override public String header(String name) {
+      return delegate.headers().get(name);
+    }
+
+    @Override public void header(String name, String value) {
+      delegate.putHeader(name, value);
+    }
+  }
+
+  static final class HttpClientResponseWrapper extends HttpClientResponse {
+    final HttpClientRequestWrapper request;
+    final io.vertx.core.http.HttpClientResponse response;
+    final Throwable error;
+
+    HttpClientResponseWrapper(io.vertx.core.http.HttpClientRequest request,
+      io.vertx.core.http.HttpClientResponse response, Throwable error) {
+      this.request = new HttpClientRequestWrapper(request);
+      this.response = response;
+      this.error = error;
+    }
+
+    @Override public io.vertx.core.http.HttpClientResponse unwrap() {
+      return response;
+    }
+
+    @Override public HttpClientRequestWrapper request() {
+      return request;
+    }
+
+    @Override public Throwable error() {
+      return error;
+    }
+
+    @Override public int statusCode() {
+      return response != null ? response.statusCode() : 0;
+    }
+  }
+}
@@ -27,6 +27,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * {@code TracingHandler} in https://github.com/opentracing-contrib/java-vertx-web
  */
 final class TracingRoutingContextHandler implements Handler<RoutingContext> {
+  /** Key of the {@link TracingHandler} in {@link RoutingContext#data()}. */
+  static final String TRACING_HANDLER = TracingHandler.class.getName();
+
   final HttpServerHandler<HttpServerRequest, HttpServerResponse> handler;
   final CurrentTraceContext currentTraceContext;
 
@@ -36,7 +39,7 @@ final class TracingRoutingContextHandler implements Handler<RoutingContext> {
   }
 
   @Override public void handle(RoutingContext context) {
-    TracingHandler tracingHandler = context.get(TracingHandler.class.getName());
+    TracingHandler tracingHandler = context.get(TRACING_HANDLER);
     if (tracingHandler != null) { // then we already have a span
       if (!context.failed()) { // re-routed, so re-attach the end handler
         context.addHeadersEndHandler(tracingHandler);
@@ -47,7 +50,7 @@ final class TracingRoutingContextHandler implements Handler<RoutingContext> {
 
     Span span = handler.handleReceive(new HttpServerRequestWrapper(context.request()));
     TracingHandler handler = new TracingHandler(context, span);
-    context.put(TracingHandler.class.getName(), handler);
+    context.put(TRACING_HANDLER, handler);
     context.addHeadersEndHandler(handler);
 
     try (Scope scope = currentTraceContext.maybeScope(span.context())) {
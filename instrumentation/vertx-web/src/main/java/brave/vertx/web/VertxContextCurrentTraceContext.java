@@ -0,0 +1,140 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.vertx.web;
+
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.propagation.TraceContext;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * In-process trace context propagation backed by the local data of the current Vert.x {@link
+ * Context}, when on its event loop. Elsewhere, such as blocking code run on a worker thread, this
+ * falls back to a thread local.
+ *
+ * <p>A Vert.x event loop context is only ever run by one thread, so there is no contention on the
+ * context's local data. Unlike {@link ThreadLocalCurrentTraceContext}, a trace context in scope on
+ * one event loop context is not visible to handlers of another context dispatched synchronously on
+ * the same thread, such as a verticle sharing the event loop.
+ *
+ * <p>In Vert.x 3.x, one context is shared by all requests of a verticle, and there is no
+ * {@code Context.putLocal}, so this keeps a holder in {@link Context#put(String, Object) context
+ * data}. Like a thread local, a trace context here is only visible until its scope closes. Use
+ * methods like {@link CurrentTraceContext#wrap(Runnable)} to continue a trace in a later callback,
+ * such as blocking code passed to {@link Context#executeBlocking}.
+ *
+ * <p>Contexts in scope here are not visible to other {@link CurrentTraceContext} instances, such as
+ * the default. Configure this on {@link brave.Tracing.Builder#currentTraceContext} so that all
+ * instrumentation uses it.
+ *
+ * <pre>{@code
+ * tracing = Tracing.newBuilder()
+ *   .currentTraceContext(VertxContextCurrentTraceContext.create())
+ *   ...
+ *   .build();
+ * }</pre>
+ *
+ * @since 6.4
+ */
+public final class VertxContextCurrentTraceContext extends CurrentTraceContext {
+  public static CurrentTraceContext create() {
+    return new Builder().build();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static final class Builder extends CurrentTraceContext.Builder {
+    Builder() {
+    }
+
+    @Override public Builder addScopeDecorator(ScopeDecorator scopeDecorator) {
+      return (Builder) super.addScopeDecorator(scopeDecorator);
+    }
+
+    @Override public VertxContextCurrentTraceContext build() {
+      return new VertxContextCurrentTraceContext(this);
+    }
+  }
+
+  /** Key of the {@link Holder} in {@link Context#get(String) local data}. */
+  static final String KEY = VertxContextCurrentTraceContext.class.getName();
+  static final ThreadLocal<TraceContext> FALLBACK = new ThreadLocal<>();
+  static final Scope REVERT_FALLBACK_TO_NULL = new RevertFallbackToNullScope();
+
+  VertxContextCurrentTraceContext(Builder builder) {
+    super(builder);
+  }
+
+  @Override public TraceContext get() {
+    Context context = eventLoopContext();
+    if (context == null) return FALLBACK.get();
+    Holder holder = context.get(KEY);
+    return holder != null ? holder.context : null;
+  }
+
+  @Override public Scope newScope(TraceContext currentSpan) {
+    Context context = eventLoopContext();
+    Scope result;
+    if (context != null) {
+      // Mutating a holder avoids writing local data, which is a concurrent map, on each scope.
+      Holder holder = context.get(KEY);
+      if (holder == null) context.put(KEY, holder = new Holder());
+      TraceContext previous = holder.context;
+      holder.context = currentSpan;
+      result = new RevertHolderScope(holder, previous);
+    } else {
+      TraceContext previous = FALLBACK.get();
+      FALLBACK.set(currentSpan);
+      result = previous != null ? new RevertFallbackScope(previous) : REVERT_FALLBACK_TO_NULL;
+    }
+    return decorateScope(currentSpan, result);
+  }
+
+  /** Returns the current context, if this is its event loop thread. */
+  static Context eventLoopContext() {
+    Context context = Vertx.currentContext();
+    if (context == null || !context.isEventLoopContext()) return null;
+    return Context.isOnEventLoopThread() ? context : null;
+  }
+
+  static final class Holder {
+    TraceContext context;
+  }
+
+  static final class RevertHolderScope implements Scope {
+    final Holder holder;
+    final TraceContext previous;
+
+    RevertHolderScope(Holder holder, TraceContext previous) {
+      this.holder = holder;
+      this.previous = previous;
+    }
+
+    @Override public void close() {
+      holder.context = previous;
+    }
+  }
+
+  static final class RevertFallbackToNullScope implements Scope {
+    @Override public void close() {
+      FALLBACK.set(null);
+    }
+  }
+
+  static final class RevertFallbackScope implements Scope {
+    final TraceContext previous;
+
+    RevertFallbackScope(TraceContext previous) {
+      this.previous = previous;
+    }
+
+    @Override public void close() {
+      FALLBACK.set(previous);
+    }
+  }
+}
@@ -5,6 +5,9 @@
 package brave.vertx.web;
 
 import brave.Tracing;
+import brave.http.HttpClientHandler;
+import brave.http.HttpClientRequest;
+import brave.http.HttpClientResponse;
 import brave.http.HttpTracing;
 import io.vertx.core.Handler;
 import io.vertx.core.http.HttpServerRequest;
@@ -20,10 +23,12 @@ public final class VertxWebTracing {
   }
 
   final HttpTracing httpTracing;
+  final HttpClientHandler<HttpClientRequest, HttpClientResponse> clientHandler;
 
   VertxWebTracing(HttpTracing httpTracing) { // intentionally hidden constructor
     if (httpTracing == null) throw new NullPointerException("httpTracing == null");
     this.httpTracing = httpTracing;
+    this.clientHandler = HttpClientHandler.create(httpTracing);
   }
 
   /**
@@ -41,4 +46,32 @@ public final class VertxWebTracing {
   public Handler<RoutingContext> routingContextHandler() {
     return new TracingRoutingContextHandler(httpTracing);
   }
+
+  /**
+   * Returns a client request that traces the input, which must not yet be sent. The client span
+   * starts when the request head is sent and finishes on the response or an exception.
+   *
+   * <p>Set response and exception handlers on the result: any already set on the input are
+   * replaced. Without an exception handler, errors are reported to the Vert.x context.
+   *
+   * <p>The parent of the client span is the current span when this is called. Response and
+   * exception handlers set on the result run in that same trace context.
+   * <pre>{@code
+   * HttpClientRequest request = vertxWebTracing.clientRequest(client.get(port, host, "/api"));
+   * request.handler(response -> ...)
+   *        .exceptionHandler(error -> ...)
+   *        .end();
+   * }</pre>
+   *
+   * <p>Redirects followed by Vert.x are not traced separately.
+   *
+   * @since 6.4
+   */
+  public io.vertx.core.http.HttpClientRequest clientRequest(
+    io.vertx.core.http.HttpClientRequest request) {
+    if (request == null) throw new NullPointerException("request == null");
+    if (request instanceof TracingHttpClientRequest) return request;
+    return new TracingHttpClientRequest(request, clientHandler,
+      httpTracing.tracing().currentTraceContext());
+  }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.vertx.web;
+
+import brave.test.http.ITHttpAsyncClient;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpMethod;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import okhttp3.mockwebserver.MockResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import static brave.Span.Kind.CLIENT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ITVertxHttpClient extends ITHttpAsyncClient<HttpClient> {
+  Vertx vertx = Vertx.vertx();
+  VertxWebTracing vertxWebTracing;
+
+  @Override protected HttpClient newClient(int port) {
+    vertxWebTracing = VertxWebTracing.create(httpTracing);
+    return vertx.createHttpClient();
+  }
+
+  @Override protected void closeClient(HttpClient client) {
+    if (client != null) client.close();
+  }
+
+  @AfterEach void closeVertx() throws Exception {
+    CompletableFuture<Void> closed = new CompletableFuture<>();
+    vertx.close(result -> closed.complete(null));
+    closed.get(10, TimeUnit.SECONDS);
+  }
+
+  @Override protected void options(HttpClient client, String path) throws IOException {
+    invoke(request(client, HttpMethod.OPTIONS, path), null);
+  }
+
+  @Override protected void get(HttpClient client, String pathIncludingQuery) throws IOException {
+    invoke(request(client, HttpMethod.GET, pathIncludingQuery), null);
+  }
+
+  @Override protected void post(HttpClient client, String pathIncludingQuery, String body)
+    throws IOException {
+    invoke(request(client, HttpMethod.POST, pathIncludingQuery), body);
+  }
+
+  @Override
+  protected void get(HttpClient client, String path, BiConsumer<Integer, Throwable> callback) {
+    request(client, HttpMethod.GET, path)
+      .handler(response -> callback.accept(response.statusCode(), null))
+      .exceptionHandler(error -> callback.accept(null, error))
+      .end();
+  }
+
+  HttpClientRequest request(HttpClient client, HttpMethod method, String path) {
+    return vertxWebTracing.clientRequest(client.requestAbs(method, url(path)));
+  }
+
+  @Override @Disabled("blind to the implementation of redirects")
+  protected void redirect() {
+  }
+
+  @Test void headersSetBeforeEndArePreserved() throws IOException {
+    server.enqueue(new MockResponse());
+
+    HttpClientRequest request = request(client, HttpMethod.GET, "/foo");
+    request.putHeader("my-header", "1");
+    invoke(request, null);
+
+    assertThat(takeRequest().getHeader("my-header")).isEqualTo("1");
+    testSpanHandler.takeRemoteSpan(CLIENT);
+  }
+
+  @Test void responseHandlerError_passedToExceptionHandler() throws Exception {
+    server.enqueue(new MockResponse());
+    IllegalStateException error = new IllegalStateException("callback");
+    CompletableFuture<Throwable> result = new CompletableFuture<>();
+
+    request(client, HttpMethod.GET, "/foo")
+      .handler(response -> {
+        throw error;
+      })
+      .exceptionHandler(result::complete)
+      .end();
+
+    assertThat(result.get(3, TimeUnit.SECONDS)).isSameAs(error);
+    testSpanHandler.takeRemoteSpan(CLIENT); // the response was received
+  }
+
+  @Test void responseHandlerError_reportedToContextWithoutExceptionHandler() throws Exception {
+    server.enqueue(new MockResponse());
+    IllegalStateException error = new IllegalStateException("callback");
+    CompletableFuture<Throwable> result = new CompletableFuture<>();
+    vertx.exceptionHandler(result::complete);
+
+    request(client, HttpMethod.GET, "/foo")
+      .handler(response -> {
+        throw error;
+      })
+      .end();
+
+    assertThat(result.get(3, TimeUnit.SECONDS)).isSameAs(error);
+    testSpanHandler.takeRemoteSpan(CLIENT);
+  }
+
+  @Test void clientRequest_doesntDoubleWrap() {
+    HttpClientRequest request = request(client, HttpMethod.GET, "/foo");
+
+    assertThat(vertxWebTracing.clientRequest(request)).isSameAs(request);
+  }
+
+  /** Ensures we don't wrap exception messages. */
+  static void invoke(HttpClientRequest request, String body) throws IOException {
+    CompletableFuture<Integer> result = new CompletableFuture<>();
+    request.handler(response -> response.bodyHandler(b -> result.complete(response.statusCode())))
+      .exceptionHandler(result::completeExceptionally);
+    if (body != null) {
+      request.end(body);
+    } else {
+      request.end();
+    }
+    try {
+      result.get(3, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AssertionError(e);
+    } catch (ExecutionException e) {
+      Throwable er = e.getCause();
+      if (er instanceof RuntimeException) throw (RuntimeException) er;
+      if (er instanceof IOException) throw (IOException) er;
+      throw new AssertionError(e);
+    } catch (TimeoutException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.vertx.web;
+
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.TraceContext;
+import brave.test.propagation.CurrentTraceContextTest;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VertxContextCurrentTraceContextTest extends CurrentTraceContextTest {
+  Vertx vertx = Vertx.vertx();
+
+  @Override protected Class<? extends Supplier<CurrentTraceContext.Builder>> builderSupplier() {
+    return BuilderSupplier.class;
+  }
+
+  @AfterEach void closeVertx() throws Exception {
+    CompletableFuture<Void> closed = new CompletableFuture<>();
+    vertx.close(result -> closed.complete(null));
+    closed.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test void eventLoop_usesContextLocalData() throws Exception {
+    Context eventLoop = vertx.getOrCreateContext();
+
+    assertThat(onContext(eventLoop, () -> {
+      try (Scope scope = currentTraceContext.newScope(context)) {
+        VertxContextCurrentTraceContext.Holder holder =
+          Vertx.currentContext().get(VertxContextCurrentTraceContext.KEY);
+        assertThat(holder.context).isSameAs(context);
+        return currentTraceContext.get();
+      }
+    })).isSameAs(context);
+
+    assertThat(onContext(eventLoop, currentTraceContext::get)).isNull();
+  }
+
+  /** Blocking code runs on a worker thread, so mustn't see the state of the event loop. */
+  @Test void executeBlocking_usesThreadLocal() throws Exception {
+    Context eventLoop = vertx.getOrCreateContext();
+    AtomicReference<TraceContext> inBlocking = new AtomicReference<>(context);
+    CompletableFuture<Void> done = new CompletableFuture<>();
+
+    eventLoop.runOnContext(v -> {
+      Scope scope = currentTraceContext.newScope(context); // still in scope on the event loop
+      eventLoop.executeBlocking(promise -> {
+        inBlocking.set(currentTraceContext.get());
+        promise.complete();
+      }, result -> {
+        scope.close();
+        done.complete(null);
+      });
+    });
+    done.get(10, TimeUnit.SECONDS);
+
+    assertThat(inBlocking.get()).isNull();
+  }
+
+  @Test void executeBlocking_wrappedSeesInvocationContext() throws Exception {
+    Context eventLoop = vertx.getOrCreateContext();
+    AtomicReference<TraceContext> inBlocking = new AtomicReference<>();
+    AtomicReference<TraceContext> inResult = new AtomicReference<>(context);
+    CompletableFuture<Void> done = new CompletableFuture<>();
+
+    eventLoop.runOnContext(v -> {
+      try (Scope scope = currentTraceContext.newScope(context)) {
+        Runnable blocking =
+          currentTraceContext.wrap(() -> inBlocking.set(currentTraceContext.get()));
+        eventLoop.executeBlocking(promise -> {
+          blocking.run();
+          promise.complete();
+        }, result -> { // runs after the scope above closed
+          inResult.set(currentTraceContext.get());
+          done.complete(null);
+        });
+      }
+    });
+    done.get(10, TimeUnit.SECONDS);
+
+    assertThat(inBlocking.get()).isSameAs(context);
+    assertThat(inResult.get()).isNull();
+  }
+
+  static <T> T onContext(Context context, Supplier<T> supplier) throws Exception {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    context.runOnContext(v -> {
+      try {
+        result.complete(supplier.get());
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+      }
+    });
+    return result.get(10, TimeUnit.SECONDS);
+  }
+
+  static class BuilderSupplier implements Supplier<CurrentTraceContext.Builder> {
+    @Override public CurrentTraceContext.Builder get() {
+      return VertxContextCurrentTraceContext.newBuilder();
+    }
+  }
+}